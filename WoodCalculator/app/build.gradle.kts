@@ -40,8 +40,18 @@ android {
 
     buildTypes {
 
+        debug {
+
+            buildConfigField("boolean", "LOG_DEBUG", "true")
+
+        }
+
         release {
 
+            // A literal, unlike BuildConfig.DEBUG, so javac drops debug logging (see AppLog)
+
+            buildConfigField("boolean", "LOG_DEBUG", "false")
+
             isMinifyEnabled = false
 
             proguardFiles(
@@ -74,6 +84,18 @@ android {
 
         compose = true
 
+        buildConfig = true
+
+    }
+
+    sourceSets {
+
+        // Fixtures used by both the unit tests and the device harnesses
+
+        getByName("test").java.srcDir("src/sharedTest/java")
+
+        getByName("androidTest").java.srcDir("src/sharedTest/java")
+
     }
 
 }
@@ -108,6 +130,10 @@ dependencies {
 
     implementation(libs.androidx.constraintlayout)
 
+    implementation(libs.androidx.lifecycle.viewmodel)
+
+    implementation(libs.androidx.recyclerview)
+
     implementation ("com.google.code.gson:gson:2.10.1")
 
     testImplementation(libs.junit)
@@ -18,4 +18,11 @@
 
 # If you keep the line number information, uncomment this to
 # hide the original source file name.
-#-renamesourcefileattribute SourceFile
\ No newline at end of file
+#-renamesourcefileattribute SourceFile
+
+# Debug and verbose logging are compiled out of release builds (AppLog.DEBUG); with
+# minification on, let R8 also drop the calls and the argument boxing at each call site.
+-assumenosideeffects class com.example.woodcalculator.AppLog {
+    static void v(...);
+    static void d(...);
+}
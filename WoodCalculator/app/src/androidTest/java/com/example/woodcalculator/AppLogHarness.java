@@ -0,0 +1,86 @@
+package com.example.woodcalculator;
+
+import static org.junit.Assert.assertTrue;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Locale;
+
+/**
+ * Times the unit price lookup's debug line (MainActivity.findClosestUnitPrice) on a device, per
+ * lookup and at the release log level: formatted eagerly (as it used to be), as an AppLog.d call
+ * without a guard (arguments boxed, level checked), and behind the AppLog.DEBUG guard as a
+ * release build compiles it. Publishes the three times and the guard's saving through
+ * HarnessReport, and fails if they are not in that order.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AppLogHarness {
+
+    private static final String TAG = "AppLogHarness";
+    private static final int LOOKUPS = 10_000;
+    private static final int ROUNDS = 9;
+
+    // AppLog.DEBUG as a release build has it; this harness runs in a debug build
+    private static final boolean RELEASE_DEBUG = false;
+
+    private static long sink; // Keeps the results live
+
+    private final double[] prices = new double[1024];
+    private AppLog.Sink savedSink;
+
+    @Before
+    public void setUp() {
+        for (int i = 0; i < prices.length; i++) prices[i] = 100 + i * 0.37;
+        savedSink = AppLog.sink;
+        AppLog.sink = (priority, tag, message, tr) -> sink += message.length();
+        AppLog.setMinLevel(Log.INFO); // The release level
+    }
+
+    @After
+    public void tearDown() {
+        AppLog.sink = savedSink;
+        AppLog.setMinLevel(AppLog.DEBUG ? Log.VERBOSE : Log.INFO);
+    }
+
+    @Test
+    public void guardSavesTheLogLineCostPerLookup() throws Exception {
+        long eager = HarnessReport.medianNanos(ROUNDS, 1, () -> {
+            for (int i = 0; i < LOOKUPS; i++) {
+                String message = String.format(Locale.getDefault(), "Found unit price %.2f for girth range %.1f-%.1f, L %.1f",
+                        prices[i & 1023], 18.0, 20.0, 12.0);
+                sink += message.length();
+            }
+        });
+        long unguarded = HarnessReport.medianNanos(ROUNDS, 1, () -> {
+            for (int i = 0; i < LOOKUPS; i++) {
+                AppLog.d(TAG, "Found unit price %.2f for girth range %.1f-%.1f, L %.1f", prices[i & 1023], 18.0, 20.0, 12.0);
+                sink += i;
+            }
+        });
+        long guarded = HarnessReport.medianNanos(ROUNDS, 1, () -> {
+            for (int i = 0; i < LOOKUPS; i++) {
+                if (RELEASE_DEBUG) {
+                    AppLog.d(TAG, "Found unit price %.2f for girth range %.1f-%.1f, L %.1f", prices[i & 1023], 18.0, 20.0, 12.0);
+                }
+                sink += i;
+            }
+        });
+
+        new HarnessReport("AppLog.lookupLine")
+                .put("eagerFormatNanosPerLookup", (double) eager / LOOKUPS)
+                .put("unguardedNanosPerLookup", (double) unguarded / LOOKUPS)
+                .put("guardedNanosPerLookup", (double) guarded / LOOKUPS)
+                .put("guardSavingNanosPerLookup", (double) (unguarded - guarded) / LOOKUPS)
+                .send();
+        String times = eager + " ns eager, " + unguarded + " ns unguarded, " + guarded + " ns guarded for " + LOOKUPS;
+        assertTrue(times, guarded < unguarded);
+        assertTrue(times, unguarded < eager);
+    }
+}
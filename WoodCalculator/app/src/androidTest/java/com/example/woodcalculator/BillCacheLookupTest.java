@@ -0,0 +1,96 @@
+package com.example.woodcalculator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Checks BillCache lookups on a device, against real files: a saved bill is found while it can
+ * be read, and forgotten once it is deleted or empty. Clears the app's bill cache.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BillCacheLookupTest {
+
+    private Context context;
+    private SharedPreferences prefs;
+    private File dir;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        prefs = context.getSharedPreferences("BillCache", Context.MODE_PRIVATE);
+        prefs.edit().clear().commit();
+        dir = new File(context.getCacheDir(), "BillCacheLookupTest");
+        assertTrue(dir.isDirectory() || dir.mkdirs());
+    }
+
+    @After
+    public void tearDown() {
+        prefs.edit().clear().commit();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) file.delete();
+        }
+        dir.delete();
+    }
+
+    private Uri bill(String name, int bytes) throws IOException {
+        File file = new File(dir, name);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[bytes]);
+        }
+        return Uri.fromFile(file);
+    }
+
+    @Test
+    public void savedBillIsFoundUntilItIsDeleted() throws IOException {
+        BillCache cache = new BillCache(context);
+        Uri uri = bill("a.pdf", 100);
+        cache.put("key-a", uri);
+        assertEquals(uri, cache.find("key-a"));
+        assertEquals(uri, new BillCache(context).find("key-a")); // Kept across instances
+        assertNull(cache.find("key-b"));
+
+        assertTrue(new File(dir, "a.pdf").delete());
+        assertNull(cache.find("key-a"));
+        assertFalse(prefs.contains("key-a")); // Forgotten, not just skipped
+    }
+
+    @Test
+    public void emptyBillIsForgotten() throws IOException {
+        BillCache cache = new BillCache(context);
+        cache.put("key-empty", bill("empty.pdf", 0));
+        assertNull(cache.find("key-empty"));
+        assertFalse(prefs.contains("key-empty"));
+    }
+
+    @Test
+    public void oldestBillsAreDroppedPastTheLimit() throws Exception {
+        BillCache cache = new BillCache(context);
+        for (int i = 0; i < 20; i++) {
+            cache.put("key-" + i, bill(i + ".pdf", 10));
+            Thread.sleep(2); // Distinct save times
+        }
+        assertEquals(16, prefs.getAll().size());
+        assertNull(cache.find("key-3"));
+        assertEquals(Uri.fromFile(new File(dir, "4.pdf")), cache.find("key-4"));
+        assertEquals(Uri.fromFile(new File(dir, "19.pdf")), cache.find("key-19"));
+    }
+}
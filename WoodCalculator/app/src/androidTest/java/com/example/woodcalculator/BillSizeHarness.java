@@ -0,0 +1,62 @@
+package com.example.woodcalculator;
+
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.pdf.PdfDocument;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Compares bill file sizes on a device: the same tallies written through PdfDocument (as bills
+ * always were) and by CompactPdfWriter, in every paper format and at several lengths. Publishes
+ * both sizes and bytes per 100 rows through HarnessReport, and fails if the compact file is not
+ * the smaller one.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BillSizeHarness {
+
+    private static final int[] ROW_COUNTS = {100, 500, 1_000};
+
+    private static int pdfDocumentSize(List<MainActivity.LogEntry> entries, BillFormat format) throws IOException {
+        BillLayout layout = BillLayout.of(format, VolumeFormulas.DEFAULT, false);
+        PdfDocument document = new BillPdfRenderer(false).render(entries, layout, "Size Harness", "v3");
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.writeTo(out);
+            return out.size();
+        } finally {
+            document.close();
+        }
+    }
+
+    private static int compactSize(List<MainActivity.LogEntry> entries, BillFormat format) {
+        BillLayout layout = BillLayout.of(format, VolumeFormulas.DEFAULT, false, true);
+        return CompactPdfWriter.write(entries, layout, "Size Harness", "v3").length;
+    }
+
+    @Test
+    public void compactBillsAreSmaller() throws IOException {
+        for (BillFormat format : BillFormat.all()) {
+            for (int rows : ROW_COUNTS) {
+                List<MainActivity.LogEntry> entries = Tallies.tally(rows, false);
+                int regular = pdfDocumentSize(entries, format);
+                int compact = compactSize(entries, format);
+                new HarnessReport("BillSize." + format.id + "." + rows)
+                        .put("pdfDocumentBytes", regular)
+                        .put("compactBytes", compact)
+                        .put("pdfDocumentBytesPer100Rows", 100.0 * regular / rows)
+                        .put("compactBytesPer100Rows", 100.0 * compact / rows)
+                        .send();
+                assertTrue(format.id + ", " + rows + " rows: " + compact + " bytes against " + regular,
+                        compact < regular);
+            }
+        }
+    }
+}
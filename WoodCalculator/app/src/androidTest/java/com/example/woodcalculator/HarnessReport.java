@@ -0,0 +1,66 @@
+package com.example.woodcalculator;
+
+import android.os.Bundle;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Publishes a harness's figures as instrumentation status, so they are part of the results of a
+ * passing run (am instrument -r, or the test output in Android Studio) rather than only of an
+ * assertion message. Each figure is a key of the status bundle, and the "stream" entry holds them
+ * as readable lines.
+ */
+final class HarnessReport {
+
+    // AndroidJUnitRunner's "in progress" status code, which test result listeners pass through
+    private static final int STATUS_IN_PROGRESS = 2;
+
+    interface Task {
+        void run() throws Exception;
+    }
+
+    private final String name;
+    private final Bundle results = new Bundle();
+    private final StringBuilder stream = new StringBuilder();
+
+    HarnessReport(String name) {
+        this.name = name;
+        stream.append(name).append('\n');
+    }
+
+    HarnessReport put(String key, long value) {
+        results.putLong(name + "." + key, value);
+        stream.append("  ").append(key).append(" = ").append(value).append('\n');
+        return this;
+    }
+
+    HarnessReport put(String key, double value) {
+        results.putDouble(name + "." + key, value);
+        stream.append("  ").append(key).append(" = ").append(String.format(Locale.US, "%.2f", value)).append('\n');
+        return this;
+    }
+
+    void send() {
+        results.putString("stream", stream.toString());
+        InstrumentationRegistry.getInstrumentation().sendStatus(STATUS_IN_PROGRESS, results);
+    }
+
+    /**
+     * Median time of one run of the task in nanoseconds, over the given number of timed rounds of
+     * runsPerRound runs each, after one untimed round to warm up (JIT, caches).
+     */
+    static long medianNanos(int rounds, int runsPerRound, Task task) throws Exception {
+        for (int i = 0; i < runsPerRound; i++) task.run();
+        long[] perRun = new long[rounds];
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < runsPerRound; i++) task.run();
+            perRun[round] = (System.nanoTime() - start) / runsPerRound;
+        }
+        Arrays.sort(perRun);
+        return perRun[rounds / 2];
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.woodcalculator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares the two price list formats on a device: file size and import time of the same table
+ * as JSON (PriceListReader, as PriceTableActivity.importPriceList streams it) and as a compact
+ * .wpl file (PriceListBinaryCodec). Publishes both through HarnessReport, and fails if the
+ * compact file is not both smaller and faster to import.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PriceListImportHarness {
+
+    private static final int[][] SHAPES = {{20, 15}, {40, 18}};
+    private static final int ROUNDS = 9;
+    private static final int RUNS_PER_ROUND = 20;
+
+    // Same shape as PriceTableActivity.PriceTableData, which is what exportPriceList writes
+    private static byte[] exportJson(PriceGrid grid) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("unitPrices", grid.toUnitPrices());
+        data.put("girthRanges", grid.toGirthRanges());
+        data.put("lengthValues", grid.toLengthValues());
+        data.put("girthGapPolicy", grid.gapPolicy());
+        return new Gson().toJson(data).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static PriceGrid importJson(byte[] file) throws Exception {
+        BufferedInputStream in = new BufferedInputStream(new ByteArrayInputStream(file));
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            PriceListReader.Result result = new PriceListReader(reader).read();
+            PriceGrid grid = PriceGrid.fromTable(result.girthRanges, result.lengthValues, result.unitPrices);
+            grid.setGapPolicy(result.girthGapPolicy);
+            return grid;
+        }
+    }
+
+    private static PriceGrid importCompact(byte[] file) throws Exception {
+        return PriceListBinaryCodec.read(new BufferedInputStream(new ByteArrayInputStream(file)));
+    }
+
+    @Test
+    public void compactFilesAreSmallerAndFasterToImport() throws Exception {
+        for (int[] shape : SHAPES) {
+            PriceGrid grid = PriceGrids.sample(shape[0], shape[1], 1.0, 27);
+            byte[] json = exportJson(grid);
+            byte[] compact = PriceListBinaryCodec.encode(grid);
+            assertEquals(grid, importJson(json));
+            assertEquals(grid, importCompact(compact));
+
+            long jsonNanos = HarnessReport.medianNanos(ROUNDS, RUNS_PER_ROUND, () -> importJson(json));
+            long compactNanos = HarnessReport.medianNanos(ROUNDS, RUNS_PER_ROUND, () -> importCompact(compact));
+            new HarnessReport("PriceListImport." + shape[0] + "x" + shape[1])
+                    .put("jsonBytes", json.length)
+                    .put("compactBytes", compact.length)
+                    .put("jsonImportNanos", jsonNanos)
+                    .put("compactImportNanos", compactNanos)
+                    .put("importSpeedup", (double) jsonNanos / compactNanos)
+                    .send();
+
+            String sizes = shape[0] + "x" + shape[1] + ": " + compact.length + " bytes against " + json.length;
+            assertTrue(sizes, compact.length < json.length);
+            assertTrue(sizes + ", " + compactNanos + " ns against " + jsonNanos, compactNanos < jsonNanos);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.woodcalculator;
+
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+/**
+ * Times every volume formula on a device against the BigDecimal quarter-girth calculation that
+ * MainActivity made before formulas were pluggable, over the same girth/length pairs. Publishes
+ * nanoseconds per volume through HarnessReport, and fails if a formula is not faster than that
+ * calculation. VolumeFormulaTest checks the results are exact.
+ */
+@RunWith(AndroidJUnit4.class)
+public class VolumeFormulaHarness {
+
+    private static final int SAMPLES = 10_000;
+    private static final int ROUNDS = 9;
+
+    private static long sink; // Keeps the results live
+
+    // Girth and length in hundredths, spread over the usual range of logs
+    private static long[][] samples() {
+        Random random = new Random(36);
+        long[][] samples = new long[SAMPLES][];
+        for (int i = 0; i < SAMPLES; i++) {
+            samples[i] = new long[]{100 + random.nextInt(9_900), 100 + random.nextInt(3_900)};
+        }
+        return samples;
+    }
+
+    // girth² × length / 2304 to 6 places, then 1 decimal, as calculateVolume did
+    private static long bigDecimalQuarterGirth(long girthHundredths, long lengthHundredths) {
+        BigDecimal girth = BigDecimal.valueOf(girthHundredths, 2);
+        return girth.multiply(girth).multiply(BigDecimal.valueOf(lengthHundredths, 2))
+                .divide(new BigDecimal("2304"), 6, RoundingMode.HALF_UP)
+                .setScale(1, RoundingMode.HALF_UP)
+                .unscaledValue().longValue();
+    }
+
+    @Test
+    public void formulasAreFasterThanBigDecimal() throws Exception {
+        long[][] samples = samples();
+        long bigDecimalNanos = HarnessReport.medianNanos(ROUNDS, 1, () -> {
+            for (long[] s : samples) sink += bigDecimalQuarterGirth(s[0], s[1]);
+        }) / SAMPLES;
+
+        HarnessReport report = new HarnessReport("VolumeFormula").put("bigDecimalNanosPerVolume", bigDecimalNanos);
+        StringBuilder slower = new StringBuilder();
+        for (VolumeFormula formula : VolumeFormulas.all()) {
+            // Per 100 volumes, since one takes only a few nanoseconds
+            long nanosPer100 = HarnessReport.medianNanos(ROUNDS, 10, () -> {
+                for (long[] s : samples) sink += formula.volume(s[0], s[1]);
+            }) / (SAMPLES / 100);
+            report.put(formula.id() + ".nanosPer100Volumes", nanosPer100);
+            if (nanosPer100 >= 100 * bigDecimalNanos) {
+                slower.append(' ').append(formula.id()).append(" (").append(nanosPer100).append(" ns per 100)");
+            }
+        }
+        report.send();
+        assertTrue("Not faster than BigDecimal at " + bigDecimalNanos + " ns:" + slower, slower.length() == 0);
+    }
+}
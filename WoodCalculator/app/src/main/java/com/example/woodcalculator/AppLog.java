@@ -0,0 +1,80 @@
+package com.example.woodcalculator;
+
+import android.util.Log;
+
+import java.util.Locale;
+
+/**
+ * The app's logging. Messages are String.format patterns with their arguments passed separately,
+ * and the level is checked before anything is formatted, so a disabled call costs a comparison
+ * (plus boxing of primitive arguments at the call site).
+ *
+ * Debug and verbose output only exist in debug builds: DEBUG is a compile-time constant, so the
+ * bodies of d() and v() compile to nothing in release, and code guarded by
+ * {@code if (AppLog.DEBUG)} is dropped entirely. proguard-rules.pro also lets R8 remove the
+ * calls themselves when minification is on. Use the guard on hot paths with primitive arguments.
+ *
+ * If the last argument is a Throwable, its stack trace is logged after the message.
+ */
+final class AppLog {
+
+    static final boolean DEBUG = BuildConfig.LOG_DEBUG;
+
+    // Where formatted messages go; replaced in JVM tests, which have no logcat
+    interface Sink {
+        void println(int priority, String tag, String message, Throwable tr);
+    }
+
+    static Sink sink = (priority, tag, message, tr) ->
+            Log.println(priority, tag, tr == null ? message : message + '\n' + Log.getStackTraceString(tr));
+
+    private static int minLevel = DEBUG ? Log.VERBOSE : Log.INFO;
+
+    private AppLog() {
+    }
+
+    static boolean isLoggable(int priority) {
+        return priority >= minLevel;
+    }
+
+    // Lowest priority that is logged; Log.VERBOSE to Log.ASSERT
+    static void setMinLevel(int priority) {
+        minLevel = priority;
+    }
+
+    static void v(String tag, String format, Object... args) {
+        if (DEBUG) {
+            log(Log.VERBOSE, tag, format, args);
+        }
+    }
+
+    static void d(String tag, String format, Object... args) {
+        if (DEBUG) {
+            log(Log.DEBUG, tag, format, args);
+        }
+    }
+
+    static void i(String tag, String format, Object... args) {
+        log(Log.INFO, tag, format, args);
+    }
+
+    static void w(String tag, String format, Object... args) {
+        log(Log.WARN, tag, format, args);
+    }
+
+    static void e(String tag, String format, Object... args) {
+        log(Log.ERROR, tag, format, args);
+    }
+
+    private static void log(int priority, String tag, String format, Object[] args) {
+        if (priority < minLevel) {
+            return;
+        }
+        Throwable tr = args.length > 0 && args[args.length - 1] instanceof Throwable
+                ? (Throwable) args[args.length - 1] : null;
+        // Without arguments the message is taken as is, so a literal '%' needs no escaping
+        String message = args.length == 0 || (tr != null && args.length == 1 && format.indexOf('%') < 0)
+                ? format : String.format(Locale.US, format, args);
+        sink.println(priority, tag, message, tr);
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.woodcalculator;
+
+import android.content.Context;
+import android.net.Uri;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bills a list of saved tallies (see TallyStore) at once, e.g. every client at the end of an
+ * auction day. Bills are rendered and published (PdfSaver.publish) on a fixed pool of one thread
+ * per core, at most one per bill; each bill runs on its own, so a tally that cannot be read or a
+ * bill that cannot be saved is marked FAILED and the others carry on.
+ *
+ * Each bill's progress is kept in a Status, read with statuses() and announced to listeners, on
+ * the worker thread that changed it. The job is run by BatchBillService, so it survives the app
+ * going to the background.
+ */
+final class BatchBillJob {
+
+    private static final String TAG = "BatchBillJob";
+
+    enum State {
+        QUEUED, RENDERING, SAVED, UNCHANGED, FAILED;
+
+        boolean isDone() {
+            return this == SAVED || this == UNCHANGED || this == FAILED;
+        }
+    }
+
+    /** Progress of one bill; replaced, never changed, so it can be handed to any thread. */
+    static final class Status {
+        final String tallyId;
+        final String clientName;
+        final State state;
+        final String detail; // File name once saved, the error if failed
+        final Uri uri; // The bill once SAVED or UNCHANGED
+
+        Status(String tallyId, String clientName, State state, String detail, Uri uri) {
+            this.tallyId = tallyId;
+            this.clientName = clientName;
+            this.state = state;
+            this.detail = detail;
+            this.uri = uri;
+        }
+
+        Status with(State state, String detail, Uri uri) {
+            return new Status(tallyId, clientName, state, detail, uri);
+        }
+
+        @Override
+        public String toString() {
+            return clientName + ": " + state + (detail != null ? " " + detail : "");
+        }
+    }
+
+    interface Listener {
+        /** A bill's status changed; called on a worker thread. */
+        void onStatus(BatchBillJob job, int index, Status status);
+
+        /** Every bill is done (or cancelled); called on the worker thread that finished last. */
+        void onFinished(BatchBillJob job);
+    }
+
+    private final Context context;
+    private final TallyStore tallies;
+    private final BillCache billCache;
+    private final boolean namedSpecies;
+    private final BillFormat format;
+    private final boolean compactPdf;
+    private final Status[] statuses; // Guarded by this
+    private final AtomicInteger remaining;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private ExecutorService executor;
+    private volatile boolean cancelled;
+
+    /**
+     * @param namedSpecies Whether the catalog has several species, as for a bill from the entry
+     *                     screen (see BillPdfRenderer.describePriceVersions).
+     * @param format       Paper of every bill in the batch.
+     * @param compactPdf   Whether bills are written by CompactPdfWriter where their text allows.
+     */
+    BatchBillJob(Context context, List<TallyStore.SavedTally> bills, boolean namedSpecies, BillFormat format,
+                 boolean compactPdf) {
+        this.context = context.getApplicationContext();
+        this.tallies = new TallyStore(this.context);
+        this.billCache = new BillCache(this.context);
+        this.namedSpecies = namedSpecies;
+        this.format = format;
+        this.compactPdf = compactPdf;
+        statuses = new Status[bills.size()];
+        for (int i = 0; i < statuses.length; i++) {
+            TallyStore.SavedTally tally = bills.get(i);
+            statuses[i] = new Status(tally.id, tally.clientName, State.QUEUED, null, null);
+        }
+        remaining = new AtomicInteger(statuses.length);
+    }
+
+    void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Queues every bill; call once. */
+    synchronized void start() {
+        int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), statuses.length));
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread thread = new Thread(r, "BatchBill");
+                    thread.setPriority(Thread.NORM_PRIORITY - 1); // Behind the UI if the app is in use
+                    return thread;
+                });
+        AppLog.i(TAG, "Billing %d tallies on %d threads.", statuses.length, threads);
+        if (statuses.length == 0) {
+            finish();
+            return;
+        }
+        for (int i = 0; i < statuses.length; i++) {
+            int index = i;
+            executor.execute(() -> runBill(index));
+        }
+        executor.shutdown(); // Threads end once the queue is drained
+    }
+
+    /** Bills not started yet are marked FAILED; those being rendered are finished. */
+    void cancel() {
+        cancelled = true;
+    }
+
+    synchronized List<Status> statuses() {
+        List<Status> copy = new ArrayList<>(statuses.length);
+        Collections.addAll(copy, statuses);
+        return copy;
+    }
+
+    int size() {
+        return statuses.length;
+    }
+
+    int doneCount() {
+        return statuses.length - remaining.get();
+    }
+
+    boolean isFinished() {
+        return remaining.get() == 0;
+    }
+
+    private void runBill(int index) {
+        Status status;
+        synchronized (this) {
+            status = statuses[index];
+        }
+        if (cancelled) {
+            done(index, status.with(State.FAILED, "cancelled", null));
+            return;
+        }
+        setStatus(index, status.with(State.RENDERING, null, null));
+        long start = PerfMetrics.BATCH_BILL.begin();
+        try {
+            done(index, bill(status));
+        } catch (Exception e) {
+            // One bill's failure must not stop the others; the error stays on its status
+            AppLog.e(TAG, "Bill for %s failed: %s", status.clientName, e.getMessage(), e);
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            done(index, status.with(State.FAILED, message, null));
+        } finally {
+            PerfMetrics.BATCH_BILL.end(start);
+        }
+    }
+
+    private Status bill(Status status) throws Exception {
+        TallyStore.SavedTally tally = tallies.load(status.tallyId);
+        VolumeFormula formula = VolumeFormulas.byId(tally.volumeFormulaId);
+        String priceVersions = BillPdfRenderer.describePriceVersions(tally.entries, namedSpecies);
+        boolean showSpecies = BillPdfRenderer.hasSeveralSpecies(tally.entries);
+        BillLayout compactLayout = compactPdf ? BillLayout.of(format, formula, showSpecies, true) : null;
+        boolean compact = compactLayout != null
+                && CompactPdfWriter.canWrite(tally.entries, compactLayout, tally.clientName, priceVersions);
+        String billKey = BillCache.key(tally.clientName, tally.entries, formula, format, compact, priceVersions);
+        Uri saved = billCache.find(billKey);
+        if (saved != null) {
+            return status.with(State.UNCHANGED, null, saved); // Billed before, nothing changed
+        }
+
+        // Rendered once, so no pages are recorded ahead; bills with the same settings share a layout
+        PdfSaver.Bill bill = compact
+                ? new PdfSaver.Bill(CompactPdfWriter.write(tally.entries, compactLayout, tally.clientName, priceVersions))
+                : new PdfSaver.Bill(new BillPdfRenderer(false).render(tally.entries,
+                        BillLayout.of(format, formula, showSpecies), tally.clientName, priceVersions));
+        try {
+            String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
+            String fileName = String.format(Locale.US, "Bill_%s_%s.pdf", tally.clientName.replaceAll("[^a-zA-Z0-9_]", "_"), timeStamp);
+            Uri uri = PdfSaver.publish(context, fileName, bill);
+            billCache.put(billKey, uri);
+            AppLog.i(TAG, "Bill for %s saved: %s", tally.clientName, uri);
+            return status.with(State.SAVED, fileName, uri);
+        } finally {
+            bill.close();
+        }
+    }
+
+    private void setStatus(int index, Status status) {
+        synchronized (this) {
+            statuses[index] = status;
+        }
+        for (Listener listener : listeners) {
+            listener.onStatus(this, index, status);
+        }
+    }
+
+    private void done(int index, Status status) {
+        setStatus(index, status);
+        if (remaining.decrementAndGet() == 0) {
+            finish();
+        }
+    }
+
+    private void finish() {
+        AppLog.i(TAG, "Batch finished: %s", summary());
+        for (Listener listener : listeners) {
+            listener.onFinished(this);
+        }
+    }
+
+    /** Counts by state, e.g. "12 saved, 1 unchanged, 2 failed". */
+    String summary() {
+        int[] counts = new int[State.values().length];
+        for (Status status : statuses()) {
+            counts[status.state.ordinal()]++;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (State state : State.values()) {
+            if (counts[state.ordinal()] == 0) continue;
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(counts[state.ordinal()]).append(' ').append(state.name().toLowerCase(Locale.US));
+        }
+        return sb.length() > 0 ? sb.toString() : "no bills";
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.woodcalculator;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.os.Build;
+import android.os.IBinder;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.content.ContextCompat;
+
+import java.util.List;
+
+/**
+ * Foreground service that keeps a BatchBillJob running while the app is in the background, with
+ * a notification showing how many bills are done. One job runs at a time; BatchBillsActivity
+ * follows it through currentJob().
+ */
+public class BatchBillService extends Service {
+
+    private static final String TAG = "BatchBillService";
+    private static final String CHANNEL_ID = "batch_bills";
+    private static final int NOTIFICATION_ID = 48;
+
+    private static volatile BatchBillJob currentJob;
+
+    private NotificationManager notificationManager;
+
+    private final BatchBillJob.Listener progress = new BatchBillJob.Listener() {
+        @Override
+        public void onStatus(BatchBillJob job, int index, BatchBillJob.Status status) {
+            if (status.state.isDone()) {
+                notificationManager.notify(NOTIFICATION_ID, buildNotification(job, false));
+            }
+        }
+
+        @Override
+        public void onFinished(BatchBillJob job) {
+            job.removeListener(this);
+            // Left behind the stopped service, so the outcome can still be seen
+            notificationManager.notify(NOTIFICATION_ID + 1, buildNotification(job, true));
+            stopForeground(true);
+            stopSelf();
+        }
+    };
+
+    /**
+     * Starts billing the given tallies, unless a batch is still running.
+     * @return The new job, or null if one is running.
+     */
+    static synchronized BatchBillJob start(Context context, List<TallyStore.SavedTally> bills) {
+        BatchBillJob running = currentJob;
+        if (running != null && !running.isFinished()) {
+            return null;
+        }
+        boolean namedSpecies = SpeciesCatalog.forContext(context).size() > 1;
+        currentJob = new BatchBillJob(context, bills, namedSpecies, BillFormat.selected(context),
+                CompactPdfWriter.isEnabled(context));
+        ContextCompat.startForegroundService(context, new Intent(context, BatchBillService.class));
+        return currentJob;
+    }
+
+    /** The running or last finished job of this process, or null. */
+    static BatchBillJob currentJob() {
+        return currentJob;
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            notificationManager.createNotificationChannel(
+                    new NotificationChannel(CHANNEL_ID, "Batch bills", NotificationManager.IMPORTANCE_LOW));
+        }
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        BatchBillJob job = currentJob;
+        if (job == null || job.isFinished()) {
+            // Restarted after the process died, or the job ended before the service started
+            AppLog.w(TAG, "No batch to run.");
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+        Notification notification = buildNotification(job, false);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            startForeground(NOTIFICATION_ID, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC);
+        } else {
+            startForeground(NOTIFICATION_ID, notification);
+        }
+        job.addListener(progress);
+        job.start();
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public void onDestroy() {
+        BatchBillJob job = currentJob;
+        if (job != null && !job.isFinished()) {
+            job.cancel(); // The system stopped the service early
+        }
+        super.onDestroy();
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    private Notification buildNotification(BatchBillJob job, boolean finished) {
+        PendingIntent open = PendingIntent.getActivity(this, 0, new Intent(this, BatchBillsActivity.class),
+                PendingIntent.FLAG_UPDATE_CURRENT | (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M ? PendingIntent.FLAG_IMMUTABLE : 0));
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setContentIntent(open)
+                .setOnlyAlertOnce(true);
+        if (finished) {
+            builder.setSmallIcon(android.R.drawable.stat_sys_download_done)
+                    .setContentTitle("Bills generated")
+                    .setContentText(job.summary())
+                    .setAutoCancel(true);
+        } else {
+            builder.setSmallIcon(android.R.drawable.stat_sys_download)
+                    .setContentTitle("Generating bills")
+                    .setContentText(job.doneCount() + " of " + job.size() + " done")
+                    .setProgress(job.size(), job.doneCount(), false)
+                    .setOngoing(true);
+        }
+        return builder.build();
+    }
+}
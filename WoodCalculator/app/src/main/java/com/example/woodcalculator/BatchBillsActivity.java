@@ -0,0 +1,202 @@
+package com.example.woodcalculator;
+
+import android.Manifest;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.Bundle;
+import android.text.format.DateFormat;
+import android.util.SparseBooleanArray;
+import android.view.View;
+import android.widget.ArrayAdapter;
+import android.widget.ListView;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Lists the tallies saved for batch billing (Save Tally for Batch on the entry screen) and bills
+ * the selected ones through BatchBillService, showing each bill's status as it changes. Leaving
+ * the screen does not stop the batch; coming back shows where it is.
+ */
+public class BatchBillsActivity extends AppCompatActivity {
+
+    private static final String TAG = "BatchBillsActivity";
+    private static final int PERMISSION_REQUEST_CODE = 300; // Unique request code for this activity
+
+    private TallyStore tallyStore;
+    private List<TallyStore.SavedTally> tallies = new ArrayList<>();
+    private ListView listViewTallies;
+    private TextView textViewNoTallies;
+    private TextView textViewBatchStatus;
+    private BatchBillJob shownJob; // The job the status view follows, null if none
+
+    private final BatchBillJob.Listener statusListener = new BatchBillJob.Listener() {
+        @Override
+        public void onStatus(BatchBillJob job, int index, BatchBillJob.Status status) {
+            runOnUiThread(() -> showStatus(job));
+        }
+
+        @Override
+        public void onFinished(BatchBillJob job) {
+            runOnUiThread(() -> {
+                showStatus(job);
+                Toast.makeText(BatchBillsActivity.this, "Bills generated: " + job.summary(), Toast.LENGTH_LONG).show();
+            });
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_batch_bills);
+
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setTitle("Batch Bills");
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        }
+
+        tallyStore = new TallyStore(this);
+        listViewTallies = findViewById(R.id.listViewTallies);
+        textViewNoTallies = findViewById(R.id.textViewNoTallies);
+        textViewBatchStatus = findViewById(R.id.textViewBatchStatus);
+        findViewById(R.id.buttonSelectAllTallies).setOnClickListener(v -> selectAll());
+        findViewById(R.id.buttonGenerateBills).setOnClickListener(v -> generateSelected());
+        findViewById(R.id.buttonDeleteTallies).setOnClickListener(v -> confirmDeleteSelected());
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && ContextCompat.checkSelfPermission(this, Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED) {
+            // Only for the progress notification; bills are generated either way
+            ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.POST_NOTIFICATIONS}, PERMISSION_REQUEST_CODE);
+        }
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        loadTallies();
+        shownJob = BatchBillService.currentJob();
+        if (shownJob != null) {
+            shownJob.addListener(statusListener);
+            showStatus(shownJob);
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (shownJob != null) {
+            shownJob.removeListener(statusListener);
+        }
+    }
+
+    @Override
+    public boolean onSupportNavigateUp() {
+        finish();
+        return true;
+    }
+
+    private void loadTallies() {
+        tallies = tallyStore.list();
+        List<String> labels = new ArrayList<>(tallies.size());
+        for (TallyStore.SavedTally tally : tallies) {
+            labels.add(tally.clientName + "\n" + tally.entryCount + " logs, saved "
+                    + DateFormat.getMediumDateFormat(this).format(new Date(tally.savedAt)) + " "
+                    + DateFormat.getTimeFormat(this).format(new Date(tally.savedAt)));
+        }
+        listViewTallies.setAdapter(new ArrayAdapter<>(this, android.R.layout.simple_list_item_multiple_choice, labels));
+        textViewNoTallies.setVisibility(tallies.isEmpty() ? View.VISIBLE : View.GONE);
+    }
+
+    private void selectAll() {
+        boolean all = selected().size() < tallies.size();
+        for (int i = 0; i < tallies.size(); i++) {
+            listViewTallies.setItemChecked(i, all);
+        }
+    }
+
+    private List<TallyStore.SavedTally> selected() {
+        List<TallyStore.SavedTally> selected = new ArrayList<>();
+        SparseBooleanArray checked = listViewTallies.getCheckedItemPositions();
+        for (int i = 0; i < tallies.size(); i++) {
+            if (checked != null && checked.get(i)) selected.add(tallies.get(i));
+        }
+        return selected;
+    }
+
+    private void generateSelected() {
+        List<TallyStore.SavedTally> bills = selected();
+        if (bills.isEmpty()) {
+            Toast.makeText(this, "Select the tallies to bill.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q
+                && ContextCompat.checkSelfPermission(this, Manifest.permission.WRITE_EXTERNAL_STORAGE) != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.WRITE_EXTERNAL_STORAGE}, PERMISSION_REQUEST_CODE);
+            return; // Generated once granted
+        }
+        BatchBillJob job = BatchBillService.start(this, bills);
+        if (job == null) {
+            Toast.makeText(this, "A batch is still running.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        AppLog.i(TAG, "Started a batch of %d bills.", bills.size());
+        if (shownJob != null) {
+            shownJob.removeListener(statusListener);
+        }
+        shownJob = job;
+        job.addListener(statusListener);
+        showStatus(job);
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (requestCode != PERMISSION_REQUEST_CODE || permissions.length == 0
+                || !Manifest.permission.WRITE_EXTERNAL_STORAGE.equals(permissions[0])) {
+            return;
+        }
+        if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+            generateSelected();
+        } else {
+            Toast.makeText(this, "Permission denied. Cannot save PDF bills.", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    private void confirmDeleteSelected() {
+        List<TallyStore.SavedTally> doomed = selected();
+        if (doomed.isEmpty()) {
+            Toast.makeText(this, "Select the tallies to delete.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Delete Tallies?")
+                .setMessage("Delete " + doomed.size() + " saved tallies? Bills already generated are kept.")
+                .setPositiveButton("Delete", (dialog, which) -> {
+                    for (TallyStore.SavedTally tally : doomed) {
+                        tallyStore.delete(tally.id);
+                    }
+                    listViewTallies.clearChoices();
+                    loadTallies();
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void showStatus(BatchBillJob job) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(job.isFinished() ? "Finished: " + job.summary() : job.doneCount() + " of " + job.size() + " done").append('\n');
+        for (BatchBillJob.Status status : job.statuses()) {
+            sb.append(status).append('\n');
+        }
+        textViewBatchStatus.setText(sb);
+    }
+}
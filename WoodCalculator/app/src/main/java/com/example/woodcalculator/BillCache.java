@@ -0,0 +1,139 @@
+package com.example.woodcalculator;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Remembers the bills already saved, keyed by a hash of everything printed on them, so
+ * generating the same bill again (a double tap, a share that was cancelled) opens the saved copy
+ * instead of rendering it and writing a duplicate to Downloads.
+ *
+ * The key covers the client name, every entry, the volume formula, the paper format, whether
+ * the bill is a compact PDF (see CompactPdfWriter), the price versions, the locale (number
+ * formats) and LAYOUT_VERSION; any change gives a new key, so a bill that no longer matches the
+ * tally is never returned. The date line is left out on purpose: a bill regenerated unchanged
+ * keeps the date it was first saved with.
+ *
+ * The newest MAX_BILLS keys are kept in their own SharedPreferences file. A saved bill that has
+ * been deleted since (from View Bills or a file manager) is forgotten when it is next looked up.
+ * Safe to use from several threads (batch bills).
+ */
+final class BillCache {
+
+    private static final String TAG = "BillCache";
+    private static final String PREFS_NAME = "BillCache";
+    private static final int MAX_BILLS = 16;
+    // Bump when the bill's layout changes, so bills saved by an older version are not handed out
+    private static final int LAYOUT_VERSION = 2;
+
+    private final Context context;
+    private final SharedPreferences prefs;
+
+    BillCache(Context context) {
+        this.context = context.getApplicationContext();
+        this.prefs = this.context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * SHA-256 of the bill's contents, as hex. A collision would hand out another client's bill,
+     * hence a cryptographic hash rather than the FNV hash used for price table axes.
+     */
+    static String key(String clientName, List<MainActivity.LogEntry> entries, VolumeFormula formula, BillFormat format,
+                      boolean compactPdf, String priceVersions) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Every Android version has SHA-256
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        buffer.putInt(LAYOUT_VERSION).putInt(entries.size()).put((byte) (compactPdf ? 1 : 0));
+        digest.update(buffer.array(), 0, buffer.position());
+        update(digest, clientName);
+        update(digest, formula.id());
+        update(digest, format.id);
+        update(digest, priceVersions);
+        update(digest, Locale.getDefault().toString());
+        for (MainActivity.LogEntry entry : entries) {
+            buffer.clear();
+            buffer.putDouble(entry.getGirth()).putDouble(entry.getLength()).putDouble(entry.getVolume())
+                    .putDouble(entry.getUnitPrice()).putDouble(entry.getLogTotal())
+                    .putLong(entry.getPriceVersion()).putInt(entry.getSpeciesId());
+            digest.update(buffer.array(), 0, buffer.position());
+            update(digest, entry.getSpecies());
+        }
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    // Length-prefixed, so ("ab", "c") and ("a", "bc") differ; null differs from ""
+    private static void update(MessageDigest digest, String s) {
+        if (s == null) {
+            digest.update(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF});
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    /**
+     * @return The saved bill with this key if it can still be read, else null.
+     */
+    synchronized Uri find(String key) {
+        String stored = prefs.getString(key, null);
+        if (stored == null) return null;
+        Uri uri = Uri.parse(stored.substring(stored.indexOf(' ') + 1));
+        try (ParcelFileDescriptor fd = context.getContentResolver().openFileDescriptor(uri, "r")) {
+            if (fd != null && fd.getStatSize() != 0) return uri;
+        } catch (FileNotFoundException | SecurityException e) {
+            AppLog.d(TAG, "Saved bill %s is gone: %s", uri, e.getMessage());
+        } catch (IOException e) {
+            AppLog.w(TAG, "Error checking saved bill %s: %s", uri, e.getMessage());
+            return uri; // Opened fine, only closing failed
+        }
+        prefs.edit().remove(key).apply();
+        return null;
+    }
+
+    /**
+     * Records a bill just saved under key; the oldest entries are dropped past MAX_BILLS.
+     */
+    synchronized void put(String key, Uri uri) {
+        SharedPreferences.Editor editor = prefs.edit();
+        editor.putString(key, System.currentTimeMillis() + " " + uri);
+        Map<String, ?> all = new HashMap<>(prefs.getAll()); // getAll() must not be modified
+        for (int excess = all.size() + (all.containsKey(key) ? 0 : 1) - MAX_BILLS; excess > 0; excess--) {
+            String oldest = null;
+            long oldestTime = Long.MAX_VALUE;
+            for (Map.Entry<String, ?> entry : all.entrySet()) {
+                String value = String.valueOf(entry.getValue());
+                long savedAt = Long.parseLong(value.substring(0, value.indexOf(' ')));
+                if (savedAt < oldestTime && !entry.getKey().equals(key)) {
+                    oldest = entry.getKey();
+                    oldestTime = savedAt;
+                }
+            }
+            if (oldest == null) break;
+            editor.remove(oldest);
+            all.remove(oldest);
+        }
+        editor.apply();
+    }
+}
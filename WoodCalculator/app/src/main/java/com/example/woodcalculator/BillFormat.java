@@ -0,0 +1,73 @@
+package com.example.woodcalculator;
+
+import android.content.Context;
+
+/**
+ * The paper a bill is laid out for (see BillLayout). Chosen once for all bills (Bill Format in
+ * the entry screen's menu) and kept in WoodCalculatorPrefs by id; DEFAULT is the A4 page bills
+ * have always used.
+ */
+final class BillFormat {
+
+    private static final String PREFS_NAME = "WoodCalculatorPrefs";
+    private static final String KEY_BILL_FORMAT = "billFormat";
+
+    // Sizes in points (1/72 in)
+    static final BillFormat A4 = new BillFormat("a4", "A4", 595, 842, 40, 12f, false, false);
+    static final BillFormat A5 = new BillFormat("a5", "A5", 420, 595, 28, 9f, false, false);
+    // 80 mm roll with 72 mm printable. One page per bill, cut to its contents; PDF viewers do not
+    // handle pages over 200 in (14400 pt), so only longer bills run onto a second page
+    static final BillFormat RECEIPT_80MM = new BillFormat("receipt_80mm", "80 mm receipt", 227, 14400, 11, 8f, true, true);
+
+    static final BillFormat DEFAULT = A4;
+
+    private static final BillFormat[] ALL = {A4, A5, RECEIPT_80MM};
+
+    final String id;
+    final String label;
+    final int pageWidth;
+    final int pageHeight;
+    final int margin;
+    final float textSize; // Table and detail lines; the title is twice this
+    final boolean compact; // Short column headers and fewer digits, for narrow paper
+    final boolean cutToContents; // The last page ends below the totals instead of at pageHeight
+
+    private BillFormat(String id, String label, int pageWidth, int pageHeight, int margin, float textSize,
+                       boolean compact, boolean cutToContents) {
+        this.id = id;
+        this.label = label;
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+        this.margin = margin;
+        this.textSize = textSize;
+        this.compact = compact;
+        this.cutToContents = cutToContents;
+    }
+
+    static BillFormat[] all() {
+        return ALL.clone();
+    }
+
+    /**
+     * @return The format with this id, or DEFAULT for null or an id no longer known.
+     */
+    static BillFormat byId(String id) {
+        for (BillFormat format : ALL) {
+            if (format.id.equals(id)) return format;
+        }
+        return DEFAULT;
+    }
+
+    static BillFormat selected(Context context) {
+        return byId(context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).getString(KEY_BILL_FORMAT, null));
+    }
+
+    static void select(Context context, BillFormat format) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit().putString(KEY_BILL_FORMAT, format.id).apply();
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
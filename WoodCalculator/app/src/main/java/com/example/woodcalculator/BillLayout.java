@@ -0,0 +1,258 @@
+package com.example.woodcalculator;
+
+import android.graphics.Typeface;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Where everything on a bill goes, for one paper format, volume formula and species column:
+ * column extents, line positions and how many rows fit on each page. Worked out once from
+ * measured text (see TextMeasureCache) and shared by every bill with the same settings (see of()).
+ *
+ * Number columns are as wide as their header or their widest expected value, whichever is wider,
+ * and numbers are right-aligned in them. The species column takes the remaining width, and
+ * longer names are cut short. If the columns do not fit across the paper at the format's text
+ * size, all text is scaled down until they do (down to MIN_TEXT_SIZE).
+ *
+ * Pagination is arithmetic: every page but the first holds pageRows rows, so the page of a row,
+ * the rows of a page and the page count are known before anything is drawn. The totals go under
+ * the last row, or onto a page of their own if they do not fit there.
+ *
+ * A layout for CompactPdfWriter (standardFonts) is measured in Helvetica, which the PDF names
+ * rather than embeds, and writes numbers with ASCII digits if the locale's cannot be encoded.
+ */
+final class BillLayout {
+
+    private static final int MAX_LAYOUTS = 8;
+    private static final float MIN_TEXT_SIZE = 6f;
+
+    static final int SERIAL = 0;
+    static final int LENGTH = 1;
+    static final int GIRTH = 2;
+    static final int VOLUME = 3;
+    static final int UNIT_PRICE = 4;
+    static final int TOTAL = 5;
+    static final int SPECIES = 6;
+
+    private static final String[] HEADERS = {"Sl. No.", "Length (ft)", "Girth (in)", "Volume (%s)", "Unit Price", "Total", "Species"};
+    private static final String[] COMPACT_HEADERS = {"#", "L (ft)", "G (in)", "Vol (%s)", "Rate", "Amount", "Species"};
+    // Digits before the separator each number column is sized for; longer numbers run into the gap
+    private static final int[] WHOLE_DIGITS = {4, 4, 4, 6, 6, 8};
+    private static final int[] COMPACT_WHOLE_DIGITS = {3, 3, 3, 5, 5, 7};
+
+    // Most recently used last; guarded by the class
+    private static final Map<String, BillLayout> LAYOUTS = new LinkedHashMap<String, BillLayout>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, BillLayout> eldest) {
+            return size() > MAX_LAYOUTS;
+        }
+    };
+
+    final BillFormat format;
+    final VolumeFormula formula;
+    final boolean showSpecies;
+    final boolean standardFonts;
+    final FixedDecimalFormat numbers;
+    final TextMeasureCache title;
+    final TextMeasureCache body;
+    final TextMeasureCache header; // Bold; headers are measured bold on every page
+    final float lineHeight;
+    final float left; // Left margin, where the title, details and table start
+    final float contentRight; // Right margin
+
+    final int columns; // SPECIES included only if showSpecies
+    final String[] headers;
+    final int[] scales; // Decimals of each number column
+    final float[] columnLeft;
+    final float[] columnRight;
+    final float tableRight;
+
+    final int firstPageRows;
+    final int pageRows;
+    private final float bottom; // Nothing may reach below this
+    private final float topBaseline; // First line of a page, for a text line of body size
+
+    /**
+     * The layout for these settings and the current locale, made on first use and kept for the
+     * bills after (up to MAX_LAYOUTS settings).
+     */
+    static BillLayout of(BillFormat format, VolumeFormula formula, boolean showSpecies) {
+        return of(format, formula, showSpecies, false);
+    }
+
+    /**
+     * @param standardFonts Whether the bill is written by CompactPdfWriter.
+     */
+    static BillLayout of(BillFormat format, VolumeFormula formula, boolean showSpecies, boolean standardFonts) {
+        Locale locale = Locale.getDefault();
+        String key = format.id + '/' + formula.id() + '/' + showSpecies + '/' + standardFonts + '/' + locale;
+        synchronized (BillLayout.class) {
+            BillLayout layout = LAYOUTS.get(key);
+            if (layout == null) {
+                FixedDecimalFormat numbers = new FixedDecimalFormat(locale);
+                if (standardFonts && (numbers.zeroDigit() != '0'
+                        || StandardFont.encode(numbers.decimalSeparator()) == StandardFont.NOT_ENCODABLE)) {
+                    numbers = FixedDecimalFormat.US;
+                }
+                layout = new BillLayout(format, formula, showSpecies, standardFonts, numbers);
+                LAYOUTS.put(key, layout);
+            }
+            return layout;
+        }
+    }
+
+    private BillLayout(BillFormat format, VolumeFormula formula, boolean showSpecies, boolean standardFonts,
+                       FixedDecimalFormat numbers) {
+        this.format = format;
+        this.formula = formula;
+        this.showSpecies = showSpecies;
+        this.standardFonts = standardFonts;
+        this.numbers = numbers;
+        columns = showSpecies ? SPECIES + 1 : SPECIES;
+        headers = new String[columns];
+        scales = new int[]{0, 2, 2, formula.scale(), 2, 2};
+        for (int c = 0; c < columns; c++) {
+            String name = (format.compact ? COMPACT_HEADERS : HEADERS)[c];
+            headers[c] = c == VOLUME ? String.format(name, formula.unit()) : name;
+        }
+        left = format.margin;
+        contentRight = format.pageWidth - format.margin;
+
+        // Measure at the format's size; widths scale with the text size, so one more pass at
+        // the reduced size makes everything fit
+        float available = contentRight - left;
+        float size = format.textSize;
+        float needed = tableWidth(measure(true, size), measure(false, size), size, null, null);
+        if (needed > available) {
+            size = Math.max(MIN_TEXT_SIZE, size * available / needed);
+        }
+        header = measure(true, size);
+        body = measure(false, size);
+        title = measure(false, size * 2);
+        columnLeft = new float[columns];
+        columnRight = new float[columns];
+        tableWidth(header, body, size, columnLeft, columnRight);
+        if (showSpecies) {
+            columnRight[SPECIES] = Math.max(columnRight[SPECIES], contentRight);
+        }
+        tableRight = columnRight[columns - 1];
+
+        lineHeight = size * 5 / 3; // 20 pt at 12 pt, as bills have always been spaced
+        bottom = format.pageHeight - format.margin;
+        topBaseline = format.margin - body.ascent;
+        firstPageRows = rowsFitting(tableTop(0));
+        pageRows = rowsFitting(tableTop(1));
+    }
+
+    private TextMeasureCache measure(boolean bold, float size) {
+        if (standardFonts) {
+            return new TextMeasureCache(bold ? StandardFont.HELVETICA_BOLD : StandardFont.HELVETICA, size, numbers);
+        }
+        return new TextMeasureCache(bold ? Typeface.DEFAULT_BOLD : Typeface.DEFAULT, size, numbers);
+    }
+
+    /**
+     * Total width of the columns and the gaps between them; fills in the column extents if
+     * given arrays.
+     */
+    private float tableWidth(TextMeasureCache header, TextMeasureCache body, float size, float[] lefts, float[] rights) {
+        float gap = format.compact ? size / 2 : size;
+        int[] wholeDigits = format.compact ? COMPACT_WHOLE_DIGITS : WHOLE_DIGITS;
+        float x = left;
+        for (int c = 0; c < columns; c++) {
+            float width = header.width(headers[c]);
+            if (c != SPECIES) {
+                width = Math.max(width, body.numberWidth(wholeDigits[c], scales[c]));
+            }
+            if (lefts != null) {
+                lefts[c] = x;
+                rights[c] = x + width;
+            }
+            x += width + (c < columns - 1 ? gap : 0);
+        }
+        return x - left;
+    }
+
+    // Title block: title, a blank line, date, price list, formula, a blank line
+    float titleBaseline() {
+        return format.margin - title.ascent;
+    }
+
+    /** Baseline of detail line n (0 = date) under the title. */
+    float detailBaseline(int n) {
+        return titleBaseline() + lineHeight * (2 + n);
+    }
+
+    /** Baseline of the column headers on a page. */
+    float tableTop(int page) {
+        return page == 0 ? detailBaseline(4) : topBaseline;
+    }
+
+    /** Where the line under the headers goes. */
+    float headerRuleY(int page) {
+        return tableTop(page) + lineHeight * 0.75f;
+    }
+
+    /** Baseline of the row at index (from 0) on a page. */
+    float rowBaseline(int page, int index) {
+        return tableTop(page) + lineHeight * 1.5f + index * lineHeight;
+    }
+
+    private int rowsFitting(float tableTop) {
+        float firstRow = tableTop + lineHeight * 1.5f;
+        return Math.max(1, (int) ((bottom - body.descent - firstRow) / lineHeight) + 1);
+    }
+
+    int firstRow(int page) {
+        return page == 0 ? 0 : firstPageRows + (page - 1) * pageRows;
+    }
+
+    int rowsOf(int page) {
+        return page == 0 ? firstPageRows : pageRows;
+    }
+
+    int pageOf(int row) {
+        return row < firstPageRows ? 0 : 1 + (row - firstPageRows) / pageRows;
+    }
+
+    /** Rows of a bill of rowCount rows that go on a page. */
+    int rowsOn(int page, int rowCount) {
+        return Math.max(0, Math.min(rowsOf(page), rowCount - firstRow(page)));
+    }
+
+    /** Pages of a bill with rowCount rows: at least one, for the title and totals. */
+    int pageCount(int rowCount) {
+        int rowPages = rowCount <= firstPageRows ? 1 : 1 + pageOf(rowCount - 1);
+        int last = rowPages - 1;
+        return totalsBottom(last, rowsOn(last, rowCount)) <= bottom ? rowPages : rowPages + 1;
+    }
+
+    /**
+     * Where the totals start on a page with rowsOnPage rows: the row after the last, or the top
+     * of a later page of their own.
+     */
+    float totalsTop(int page, int rowsOnPage) {
+        return rowsOnPage > 0 || page == 0 ? rowBaseline(page, rowsOnPage) : topBaseline - lineHeight * 1.5f;
+    }
+
+    // Rule, Total Volume and Grand Total lines under totalsTop
+    float totalsRuleY(float totalsTop) {
+        return totalsTop + lineHeight * 0.75f;
+    }
+
+    float totalsBaseline(float totalsTop, int line) {
+        return totalsTop + lineHeight * (1.5f + line);
+    }
+
+    private float totalsBottom(int page, int rowsOnPage) {
+        return totalsBaseline(totalsTop(page, rowsOnPage), 1) + header.descent;
+    }
+
+    /** Height of a page of a bill with rowCount rows; receipts end under their totals. */
+    int pageHeight(int page, int rowCount) {
+        if (!format.cutToContents || page != pageCount(rowCount) - 1) return format.pageHeight;
+        return (int) Math.ceil(totalsBottom(page, rowsOn(page, rowCount)) + format.margin);
+    }
+}
@@ -0,0 +1,370 @@
+package com.example.woodcalculator;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Picture;
+import android.graphics.pdf.PdfDocument;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Draws the PDF bill from a BillLayout, and keeps it drawn while the tally is being entered.
+ *
+ * Rows break into pages the same way whatever follows them (see BillLayout), so a full page stays
+ * the same until one of its rows is edited or an earlier row is deleted. update() records the
+ * table of every full page into a Picture on a background thread, and compares the tally with the
+ * rows each page was recorded from, so only the pages whose rows changed are recorded again.
+ * render() replays the recorded pages and draws the rest: the title block with the client name and
+ * date, the rows of pages not recorded yet (normally just the last page) and the totals.
+ *
+ * update() and render() are called on the main thread. The output is the same whether a page was
+ * replayed or drawn directly, since both go through drawTable.
+ */
+final class BillPdfRenderer {
+
+    private static final String TAG = "BillPdfRenderer";
+
+    // An entry's values as the bill shows them; never changed, so recording threads can read them
+    private static final class Row {
+        final double length;
+        final double girth;
+        final double volume;
+        final double unitPrice;
+        final double logTotal;
+        final String species;
+
+        Row(MainActivity.LogEntry entry) {
+            length = entry.getLength();
+            girth = entry.getGirth();
+            volume = entry.getVolume();
+            unitPrice = entry.getUnitPrice();
+            logTotal = entry.getLogTotal();
+            species = entry.getSpecies();
+        }
+
+        boolean matches(MainActivity.LogEntry entry) {
+            return length == entry.getLength() && girth == entry.getGirth() && volume == entry.getVolume()
+                    && unitPrice == entry.getUnitPrice() && logTotal == entry.getLogTotal()
+                    && Objects.equals(species, entry.getSpecies());
+        }
+    }
+
+    private static final class Page {
+        int version; // Bumped whenever the page's rows change; older recordings are dropped
+        Picture picture; // Recorded table of the page, null until recorded
+        boolean queued; // A recording of the current version is on its way
+    }
+
+    private final ExecutorService executor; // Null if pages are not recorded ahead
+    private final TallyTotals totals = new TallyTotals(VolumeFormulas.DEFAULT.scale());
+
+    // Guarded by this: update() writes them on the main thread, recordings read them when done
+    private Row[] rows = new Row[64];
+    private int rowCount;
+    private BillLayout layout;
+    private final List<Page> pages = new ArrayList<>();
+
+    // For the entry screen: full pages are recorded in the background as the tally grows
+    BillPdfRenderer() {
+        this(true);
+    }
+
+    /**
+     * @param recordAhead False for a bill rendered once (batch bills): render() then draws every
+     *                    page directly and no thread is started.
+     */
+    BillPdfRenderer(boolean recordAhead) {
+        executor = recordAhead ? Executors.newSingleThreadExecutor() : null;
+    }
+
+    /**
+     * Brings the recorded pages up to date with the tally: pages whose rows changed are dropped
+     * and full pages not recorded yet are queued for recording. Costs one comparison per entry.
+     * @param layout The bill's layout (see BillLayout.of); another layout drops every page.
+     */
+    synchronized void update(List<MainActivity.LogEntry> entries, BillLayout layout) {
+        if (layout != this.layout) {
+            // Page size, columns and page breaks may all differ
+            this.layout = layout;
+            for (Page page : pages) {
+                invalidate(page);
+            }
+            pages.clear();
+        }
+        int count = entries.size();
+        if (count > rows.length) {
+            rows = Arrays.copyOf(rows, Math.max(count, rows.length * 2));
+        }
+        for (int i = 0; i < count; i++) {
+            MainActivity.LogEntry entry = entries.get(i);
+            if (i >= rowCount || !rows[i].matches(entry)) {
+                rows[i] = new Row(entry);
+                int page = layout.pageOf(i);
+                if (page < pages.size()) invalidate(pages.get(page));
+            }
+        }
+        if (count < rowCount) {
+            Arrays.fill(rows, count, rowCount, null);
+            if (count > 0 && layout.pageOf(count - 1) < pages.size()) invalidate(pages.get(layout.pageOf(count - 1)));
+        }
+        rowCount = count;
+
+        int pageCount = layout.pageCount(count);
+        while (pages.size() > pageCount) {
+            invalidate(pages.remove(pages.size() - 1));
+        }
+        while (pages.size() < pageCount) {
+            pages.add(new Page());
+        }
+        for (int p = 0; p < pageCount; p++) {
+            Page page = pages.get(p);
+            if (executor != null && page.picture == null && !page.queued && layout.rowsOn(p, count) == layout.rowsOf(p)) {
+                queueRecording(p, page);
+            }
+        }
+    }
+
+    /**
+     * The bill as a PdfDocument, with the tally brought up to date first. The caller writes and
+     * closes it.
+     */
+    PdfDocument render(List<MainActivity.LogEntry> entries, BillLayout layout, String clientName, String priceVersions) {
+        update(entries, layout);
+        FixedDecimalFormat.Buffer cell = new FixedDecimalFormat.Buffer();
+        Paint paint = new Paint();
+        PdfDocument document = new PdfDocument();
+
+        Row[] rows;
+        int count;
+        synchronized (this) {
+            rows = Arrays.copyOf(this.rows, rowCount); // Rows already handed out are never changed
+            count = rowCount;
+        }
+        totals.reset(layout.formula.scale()); // Summed exactly, so the bill matches the screen
+        for (int i = 0; i < count; i++) {
+            totals.add(rows[i].volume, rows[i].logTotal);
+        }
+
+        // Paginated before anything is drawn
+        int pageCount = layout.pageCount(count);
+        int replayed = 0;
+        for (int p = 0; p < pageCount; p++) {
+            PdfDocument.PageInfo info = new PdfDocument.PageInfo.Builder(layout.format.pageWidth, layout.pageHeight(p, count), p + 1).create();
+            PdfDocument.Page page = document.startPage(info);
+            Canvas canvas = page.getCanvas();
+            if (p == 0) {
+                drawTitle(canvas, paint, layout, clientName, priceVersions);
+            }
+            int first = layout.firstRow(p);
+            int onPage = layout.rowsOn(p, count);
+            Picture picture = onPage == layout.rowsOf(p) ? recordedPicture(p, layout) : null;
+            if (picture != null) {
+                canvas.drawPicture(picture);
+                replayed++;
+            } else if (onPage > 0 || p == 0) {
+                drawTable(canvas, paint, layout, p, rows, first, first + onPage, first, cell);
+            }
+            if (p == pageCount - 1) {
+                drawTotals(canvas, paint, layout, layout.totalsTop(p, onPage));
+            }
+            document.finishPage(page);
+        }
+        AppLog.d(TAG, "Rendered %d %s pages, %d of them pre-recorded.", pageCount, layout.format.id, replayed);
+        return document;
+    }
+
+    // Stops recording; pages still queued are dropped
+    void shutdown() {
+        if (executor != null) executor.shutdownNow();
+    }
+
+    /**
+     * Lists the price table versions the entries were priced against (e.g. "v12" or "v11, v12"),
+     * so a bill can be traced back to the exact prices used. Each species has its own versions,
+     * so with several species the versions are grouped by name ("Teak v12, Rosewood v3").
+     * @param namedSpecies Whether the catalog has more than one species, so names are shown.
+     */
+    static String describePriceVersions(List<MainActivity.LogEntry> entries, boolean namedSpecies) {
+        TreeMap<String, TreeSet<Long>> versionsBySpecies = new TreeMap<>();
+        boolean manual = false;
+        for (MainActivity.LogEntry entry : entries) {
+            if (entry.getPriceVersion() > 0) {
+                String species = entry.getSpecies() != null && namedSpecies ? entry.getSpecies() : "";
+                TreeSet<Long> versions = versionsBySpecies.get(species);
+                if (versions == null) {
+                    versions = new TreeSet<>();
+                    versionsBySpecies.put(species, versions);
+                }
+                versions.add(entry.getPriceVersion());
+            } else {
+                manual = true;
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, TreeSet<Long>> species : versionsBySpecies.entrySet()) {
+            if (sb.length() > 0) sb.append(", ");
+            if (!species.getKey().isEmpty()) sb.append(species.getKey()).append(' ');
+            boolean first = true;
+            for (long version : species.getValue()) {
+                if (!first) sb.append(species.getKey().isEmpty() ? ", " : "/");
+                sb.append('v').append(version);
+                first = false;
+            }
+        }
+        if (manual) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append("manual");
+        }
+        return sb.toString();
+    }
+
+    // True if the bill mixes species, so each line has to say which one it was priced as
+    static boolean hasSeveralSpecies(List<MainActivity.LogEntry> entries) {
+        String first = null;
+        for (MainActivity.LogEntry entry : entries) {
+            String species = entry.getSpecies() != null ? entry.getSpecies() : "";
+            if (first == null) {
+                first = species;
+            } else if (!first.equals(species)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void invalidate(Page page) {
+        page.version++;
+        page.picture = null;
+        page.queued = false;
+    }
+
+    // Null if not recorded, or recorded for another layout since
+    private synchronized Picture recordedPicture(int page, BillLayout layout) {
+        return layout == this.layout && page < pages.size() ? pages.get(page).picture : null;
+    }
+
+    // Called with the lock held; the recording itself runs without it
+    private void queueRecording(int p, Page page) {
+        page.queued = true;
+        int version = page.version;
+        BillLayout layout = this.layout;
+        int first = layout.firstRow(p);
+        Row[] pageRows = Arrays.copyOfRange(rows, first, first + layout.rowsOf(p));
+        executor.execute(() -> {
+            if (!isCurrent(page, version)) return;
+            long start = PerfMetrics.RECORD_BILL_PAGE.begin();
+            try {
+                Picture picture = new Picture();
+                Canvas canvas = picture.beginRecording(layout.format.pageWidth, layout.format.pageHeight);
+                drawTable(canvas, new Paint(), layout, p, pageRows, 0, pageRows.length, first, new FixedDecimalFormat.Buffer());
+                picture.endRecording();
+                synchronized (this) {
+                    if (page.version == version) {
+                        page.picture = picture;
+                        page.queued = false;
+                    }
+                }
+            } finally {
+                PerfMetrics.RECORD_BILL_PAGE.end(start);
+            }
+        });
+    }
+
+    private synchronized boolean isCurrent(Page page, int version) {
+        return page.version == version;
+    }
+
+    private static void drawTitle(Canvas canvas, Paint paint, BillLayout layout, String clientName, String priceVersions) {
+        float width = layout.contentRight - layout.left;
+        paint.setColor(Color.BLACK);
+        paint.setTypeface(layout.title.typeface);
+        paint.setTextSize(layout.title.textSize);
+        canvas.drawText(layout.title.fit("Wood Bill - " + clientName, width), layout.left, layout.titleBaseline(), paint);
+
+        TextMeasureCache body = layout.body;
+        paint.setTypeface(body.typeface);
+        paint.setTextSize(body.textSize);
+        String date = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date());
+        canvas.drawText(body.fit("Date: " + date, width), layout.left, layout.detailBaseline(0), paint);
+        canvas.drawText(body.fit("Price list: " + priceVersions, width), layout.left, layout.detailBaseline(1), paint);
+        canvas.drawText(body.fit("Volume formula: " + layout.formula.label(), width), layout.left, layout.detailBaseline(2), paint);
+    }
+
+    /**
+     * Column headers and the rows from (inclusive) to end (exclusive) of a page.
+     * @param firstIndex Index in the tally of rows[from], for the serial numbers.
+     */
+    private static void drawTable(Canvas canvas, Paint paint, BillLayout layout, int page, Row[] rows, int from, int end,
+                                  int firstIndex, FixedDecimalFormat.Buffer cell) {
+        float y = layout.tableTop(page);
+        TextMeasureCache header = layout.header;
+        paint.setColor(Color.BLACK);
+        paint.setTypeface(header.typeface);
+        paint.setTextSize(header.textSize);
+        for (int c = 0; c < layout.columns; c++) {
+            // Number headers are right-aligned over their numbers
+            float x = c == BillLayout.SPECIES ? layout.columnLeft[c] : layout.columnRight[c] - header.width(layout.headers[c]);
+            canvas.drawText(layout.headers[c], x, y, paint);
+        }
+        float ruleY = layout.headerRuleY(page);
+        canvas.drawLine(layout.left, ruleY, layout.tableRight, ruleY, paint); // Underline headers
+
+        paint.setTypeface(layout.body.typeface);
+        paint.setTextSize(layout.body.textSize);
+        for (int i = from; i < end; i++) {
+            Row row = rows[i];
+            y = layout.rowBaseline(page, i - from);
+            drawNumber(canvas, paint, layout, cell, firstIndex + (i - from) + 1, BillLayout.SERIAL, y);
+            drawNumber(canvas, paint, layout, cell, row.length, BillLayout.LENGTH, y);
+            drawNumber(canvas, paint, layout, cell, row.girth, BillLayout.GIRTH, y);
+            drawNumber(canvas, paint, layout, cell, row.volume, BillLayout.VOLUME, y);
+            // Unit price in red if no price was found
+            paint.setColor(row.unitPrice == 0.0 ? Color.RED : Color.BLACK);
+            drawNumber(canvas, paint, layout, cell, row.unitPrice, BillLayout.UNIT_PRICE, y);
+            paint.setColor(Color.BLACK);
+            drawNumber(canvas, paint, layout, cell, row.logTotal, BillLayout.TOTAL, y);
+            if (layout.showSpecies && row.species != null) {
+                float width = layout.columnRight[BillLayout.SPECIES] - layout.columnLeft[BillLayout.SPECIES];
+                canvas.drawText(layout.body.fit(row.species, width), layout.columnLeft[BillLayout.SPECIES], y, paint);
+            }
+        }
+    }
+
+    // top is where the row after the last one would go (see BillLayout.totalsTop)
+    private void drawTotals(Canvas canvas, Paint paint, BillLayout layout, float top) {
+        paint.setColor(Color.BLACK);
+        float ruleY = layout.totalsRuleY(top);
+        canvas.drawLine(layout.left, ruleY, layout.tableRight, ruleY, paint); // Underline before totals
+
+        TextMeasureCache bold = layout.header;
+        float width = layout.contentRight - layout.left;
+        FixedDecimalFormat numbers = layout.numbers;
+        VolumeFormula formula = layout.formula;
+        paint.setTypeface(bold.typeface);
+        paint.setTextSize(bold.textSize);
+        canvas.drawText(bold.fit("Total Volume: " + numbers.format(totals.volume(), formula.scale()) + " " + formula.unit(), width),
+                layout.left, layout.totalsBaseline(top, 0), paint);
+        canvas.drawText(bold.fit("Grand Total: ₹ " + numbers.format(totals.grandTotal(), 2), width),
+                layout.left, layout.totalsBaseline(top, 1), paint);
+    }
+
+    // A number right-aligned in its column, measured from cached digit widths; no String per call
+    private static void drawNumber(Canvas canvas, Paint paint, BillLayout layout, FixedDecimalFormat.Buffer cell,
+                                   double value, int column, float y) {
+        layout.numbers.format(value, layout.scales[column], cell);
+        float x = layout.columnRight[column] - layout.body.width(cell.chars, cell.length);
+        canvas.drawText(cell.chars, 0, cell.length, x, y, paint);
+    }
+}
@@ -0,0 +1,371 @@
+package com.example.woodcalculator;
+
+import android.content.Context;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a bill as a small PDF, for sharing over slow connections (Compact PDF in the entry
+ * screen's menu). Same layout as BillPdfRenderer (see BillLayout, made with standardFonts), but
+ * the file is written by hand instead of through PdfDocument:
+ *
+ * - Text is in Helvetica and Helvetica-Bold, which every PDF viewer has, so no font is embedded.
+ * - The column headers and their rule are one form XObject, drawn on every page by reference.
+ * - Each row is one TJ operator, its cells right-aligned by kerning offsets rather than a text
+ *   run per cell, and rows follow each other with T*.
+ * - Content streams are deflated (FlateDecode).
+ *
+ * Only WinAnsi text can be written (see StandardFont); the caller checks canWrite() and falls
+ * back to BillPdfRenderer for a bill with, say, a client name in another script. BillSizeHarness
+ * (androidTest) compares the size of both outputs.
+ */
+final class CompactPdfWriter {
+
+    private static final String TAG = "CompactPdfWriter";
+    private static final String PREFS_NAME = "WoodCalculatorPrefs";
+    private static final String KEY_COMPACT_PDF = "compactPdf";
+
+    // Object numbers; each page is a page object followed by its content stream
+    private static final int CATALOG = 1;
+    private static final int PAGES = 2;
+    private static final int FONT = 3;
+    private static final int BOLD_FONT = 4;
+    private static final int HEADER_FORM = 5;
+    private static final int FIRST_PAGE = 6;
+
+    private CompactPdfWriter() {
+    }
+
+    static boolean isEnabled(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).getBoolean(KEY_COMPACT_PDF, false);
+    }
+
+    static void setEnabled(Context context, boolean enabled) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit().putBoolean(KEY_COMPACT_PDF, enabled).apply();
+    }
+
+    /**
+     * Whether all text of the bill can be written in the standard fonts.
+     */
+    static boolean canWrite(List<MainActivity.LogEntry> entries, BillLayout layout, String clientName, String priceVersions) {
+        if (!StandardFont.canEncode(printable(clientName)) || !StandardFont.canEncode(printable(priceVersions))
+                || !StandardFont.canEncode(printable(layout.formula.label()))
+                || !StandardFont.canEncode(printable(layout.formula.unit()))) {
+            return false;
+        }
+        if (layout.showSpecies) {
+            for (MainActivity.LogEntry entry : entries) {
+                if (entry.getSpecies() != null && !StandardFont.canEncode(entry.getSpecies())) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The bill as PDF bytes.
+     * @param layout A layout made with standardFonts (see BillLayout.of); canWrite must be true.
+     */
+    static byte[] write(List<MainActivity.LogEntry> entries, BillLayout layout, String clientName, String priceVersions) {
+        if (!layout.standardFonts) {
+            throw new IllegalArgumentException("Layout is not measured in the standard fonts");
+        }
+        int count = entries.size();
+        TallyTotals totals = new TallyTotals(layout.formula.scale());
+        for (MainActivity.LogEntry entry : entries) {
+            totals.add(entry.getVolume(), entry.getLogTotal());
+        }
+
+        int pageCount = layout.pageCount(count);
+        Output pdf = new Output(FIRST_PAGE + 2 * pageCount);
+        pdf.header();
+        pdf.object(CATALOG, "<< /Type /Catalog /Pages " + PAGES + " 0 R >>");
+        StringBuilder kids = new StringBuilder();
+        for (int p = 0; p < pageCount; p++) {
+            if (p > 0) kids.append(' ');
+            kids.append(FIRST_PAGE + 2 * p).append(" 0 R");
+        }
+        // Fonts, the header form and the usual page size are inherited by every page
+        pdf.object(PAGES, "<< /Type /Pages /Kids [" + kids + "] /Count " + pageCount
+                + " /MediaBox [0 0 " + layout.format.pageWidth + ' ' + layout.format.pageHeight + ']'
+                + " /Resources << /Font << /F1 " + FONT + " 0 R /F2 " + BOLD_FONT + " 0 R >>"
+                + " /XObject << /H " + HEADER_FORM + " 0 R >> >> >>");
+        pdf.object(FONT, font(StandardFont.HELVETICA));
+        pdf.object(BOLD_FONT, font(StandardFont.HELVETICA_BOLD));
+        // The form names its own font rather than relying on the resources of the page drawing it
+        pdf.stream(HEADER_FORM, headerForm(layout), "/Type /XObject /Subtype /Form /BBox ["
+                + number(layout.left - 1) + ' ' + number(-layout.lineHeight) + ' '
+                + number(layout.tableRight + 1) + ' ' + number(layout.lineHeight) + "]"
+                + " /Resources << /Font << /F2 " + BOLD_FONT + " 0 R >> >> ");
+
+        FixedDecimalFormat.Buffer cell = new FixedDecimalFormat.Buffer();
+        for (int p = 0; p < pageCount; p++) {
+            int height = layout.pageHeight(p, count);
+            Content page = new Content(height);
+            if (p == 0) {
+                drawTitle(page, layout, clientName, priceVersions);
+            }
+            int first = layout.firstRow(p);
+            int onPage = layout.rowsOn(p, count);
+            if (onPage > 0 || p == 0) {
+                drawTable(page, layout, p, entries, first, first + onPage, cell);
+            }
+            if (p == pageCount - 1) {
+                drawTotals(page, layout, layout.totalsTop(p, onPage), totals);
+            }
+            String mediaBox = height != layout.format.pageHeight
+                    ? " /MediaBox [0 0 " + layout.format.pageWidth + ' ' + height + ']' : "";
+            pdf.object(FIRST_PAGE + 2 * p, "<< /Type /Page /Parent " + PAGES + " 0 R" + mediaBox
+                    + " /Contents " + (FIRST_PAGE + 2 * p + 1) + " 0 R >>");
+            pdf.stream(FIRST_PAGE + 2 * p + 1, page.text, "");
+        }
+        byte[] bytes = pdf.finish(CATALOG);
+        AppLog.d(TAG, "Wrote %d rows on %d %s pages in %d bytes.", count, pageCount, layout.format.id, bytes.length);
+        return bytes;
+    }
+
+    private static String font(StandardFont font) {
+        return "<< /Type /Font /Subtype /Type1 /BaseFont /" + font.name + " /Encoding /WinAnsiEncoding >>";
+    }
+
+    // Headers on the baseline y = 0 and the rule under them, placed on each page by drawTable
+    private static StringBuilder headerForm(BillLayout layout) {
+        Content form = new Content(0);
+        TextMeasureCache header = layout.header;
+        form.text.append("BT /F2 ").append(number(header.textSize)).append(" Tf ")
+                .append(number(layout.left)).append(" 0 Td [");
+        float pen = layout.left;
+        for (int c = 0; c < layout.columns; c++) {
+            // Number headers are right-aligned over their numbers
+            float x = c == BillLayout.SPECIES ? layout.columnLeft[c] : layout.columnRight[c] - header.width(layout.headers[c]);
+            pen = form.moveTo(header, pen, x);
+            form.string(layout.headers[c]);
+            pen += header.width(layout.headers[c]);
+        }
+        form.text.append("] TJ ET\n");
+        float ruleY = layout.tableTop(0) - layout.headerRuleY(0);
+        form.text.append("0 w ").append(number(layout.left)).append(' ').append(number(ruleY)).append(" m ")
+                .append(number(layout.tableRight)).append(' ').append(number(ruleY)).append(" l S\n");
+        return form.text;
+    }
+
+    private static void drawTitle(Content page, BillLayout layout, String clientName, String priceVersions) {
+        float width = layout.contentRight - layout.left;
+        page.line("/F1", layout.title, layout.title.fit(printable("Wood Bill - " + clientName), width),
+                layout.left, layout.titleBaseline());
+
+        TextMeasureCache body = layout.body;
+        String date = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date());
+        if (!StandardFont.canEncode(date)) {
+            date = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US).format(new Date());
+        }
+        page.line("/F1", body, body.fit("Date: " + date, width), layout.left, layout.detailBaseline(0));
+        page.line("/F1", body, body.fit(printable("Price list: " + priceVersions), width), layout.left, layout.detailBaseline(1));
+        page.line("/F1", body, body.fit(printable("Volume formula: " + layout.formula.label()), width),
+                layout.left, layout.detailBaseline(2));
+    }
+
+    /**
+     * The header form and the rows from (inclusive) to end (exclusive) of a page.
+     */
+    private static void drawTable(Content page, BillLayout layout, int p, List<MainActivity.LogEntry> entries,
+                                  int from, int end, FixedDecimalFormat.Buffer cell) {
+        StringBuilder text = page.text;
+        float tableTop = layout.tableTop(p);
+        text.append("q 1 0 0 1 0 ").append(number(page.height - tableTop)).append(" cm /H Do Q\n");
+        if (from == end) return;
+
+        // Starts a line above the first row, since every row begins with T* (one TL down)
+        TextMeasureCache body = layout.body;
+        text.append("BT /F1 ").append(number(body.textSize)).append(" Tf ")
+                .append(number(layout.lineHeight)).append(" TL ")
+                .append(number(layout.left)).append(' ')
+                .append(number(page.height - layout.rowBaseline(p, 0) + layout.lineHeight)).append(" Td\n");
+        for (int i = from; i < end; i++) {
+            MainActivity.LogEntry entry = entries.get(i);
+            text.append("T* [");
+            float pen = layout.left;
+            pen = page.cell(layout, cell, pen, i + 1, BillLayout.SERIAL);
+            pen = page.cell(layout, cell, pen, entry.getLength(), BillLayout.LENGTH);
+            pen = page.cell(layout, cell, pen, entry.getGirth(), BillLayout.GIRTH);
+            pen = page.cell(layout, cell, pen, entry.getVolume(), BillLayout.VOLUME);
+            if (entry.getUnitPrice() == 0.0) {
+                // Unit price in red if no price was found
+                text.append("] TJ 1 0 0 rg [");
+                pen = page.cell(layout, cell, pen, entry.getUnitPrice(), BillLayout.UNIT_PRICE);
+                text.append("] TJ 0 g [");
+            } else {
+                pen = page.cell(layout, cell, pen, entry.getUnitPrice(), BillLayout.UNIT_PRICE);
+            }
+            pen = page.cell(layout, cell, pen, entry.getLogTotal(), BillLayout.TOTAL);
+            if (layout.showSpecies && entry.getSpecies() != null) {
+                float width = layout.columnRight[BillLayout.SPECIES] - layout.columnLeft[BillLayout.SPECIES];
+                page.moveTo(body, pen, layout.columnLeft[BillLayout.SPECIES]);
+                page.string(body.fit(entry.getSpecies(), width));
+            }
+            text.append("] TJ\n");
+        }
+        text.append("ET\n");
+    }
+
+    // top is where the row after the last one would go (see BillLayout.totalsTop)
+    private static void drawTotals(Content page, BillLayout layout, float top, TallyTotals totals) {
+        float ruleY = page.height - layout.totalsRuleY(top);
+        page.text.append("0 w ").append(number(layout.left)).append(' ').append(number(ruleY)).append(" m ")
+                .append(number(layout.tableRight)).append(' ').append(number(ruleY)).append(" l S\n");
+
+        TextMeasureCache bold = layout.header;
+        float width = layout.contentRight - layout.left;
+        FixedDecimalFormat numbers = layout.numbers;
+        VolumeFormula formula = layout.formula;
+        page.line("/F2", bold, bold.fit(printable("Total Volume: " + numbers.format(totals.volume(), formula.scale())
+                + " " + formula.unit()), width), layout.left, layout.totalsBaseline(top, 0));
+        page.line("/F2", bold, bold.fit("Grand Total: Rs. " + numbers.format(totals.grandTotal(), 2), width),
+                layout.left, layout.totalsBaseline(top, 1));
+    }
+
+    // Symbols WinAnsi lacks, written out
+    private static String printable(String text) {
+        return text.replace("₹", "Rs.").replace("π", "pi");
+    }
+
+    /** Coordinates and sizes to 1/100 pt, without trailing zeros. */
+    static String number(float value) {
+        return appendNumber(new StringBuilder(), value).toString();
+    }
+
+    private static StringBuilder appendNumber(StringBuilder sb, float value) {
+        long hundredths = Math.round(value * 100.0);
+        if (hundredths < 0) {
+            sb.append('-');
+            hundredths = -hundredths;
+        }
+        sb.append(hundredths / 100);
+        int fraction = (int) (hundredths % 100);
+        if (fraction != 0) {
+            sb.append('.').append(fraction / 10);
+            if (fraction % 10 != 0) sb.append(fraction % 10);
+        }
+        return sb;
+    }
+
+    /** Content stream of one page (or the header form), in page coordinates flipped to PDF's. */
+    private static final class Content {
+        final StringBuilder text = new StringBuilder(4096);
+        final int height; // Page height, for turning y down from the top into PDF's y up
+
+        Content(int height) {
+            this.height = height;
+        }
+
+        // A line of text on its own, at x and y from the top of the page
+        void line(String font, TextMeasureCache measure, String s, float x, float y) {
+            text.append("BT ").append(font).append(' ').append(number(measure.textSize)).append(" Tf ")
+                    .append(number(x)).append(' ').append(number(height - y)).append(" Td ");
+            string(s);
+            text.append(" Tj ET\n");
+        }
+
+        /**
+         * Inside a TJ array: the offset that moves the pen from pen to x.
+         * @return The pen after the offset, which is rounded to 1/1000 of the text size.
+         */
+        float moveTo(TextMeasureCache measure, float pen, float x) {
+            long offset = Math.round((pen - x) * 1000.0 / measure.textSize);
+            if (offset != 0) text.append(offset);
+            return pen - offset * measure.textSize / 1000;
+        }
+
+        // Inside a TJ array: a number right-aligned in its column; returns the pen after it
+        float cell(BillLayout layout, FixedDecimalFormat.Buffer cell, float pen, double value, int column) {
+            layout.numbers.format(value, layout.scales[column], cell);
+            float width = layout.body.width(cell.chars, cell.length);
+            pen = moveTo(layout.body, pen, layout.columnRight[column] - width);
+            text.append('(');
+            for (int i = 0; i < cell.length; i++) {
+                text.append((char) StandardFont.encode(cell.chars[i])); // Digits, separator and sign need no escape
+            }
+            text.append(')');
+            return pen + width;
+        }
+
+        // A PDF string of WinAnsi bytes, one char per byte
+        void string(String s) {
+            text.append('(');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                int code = StandardFont.encode(c);
+                if (code == StandardFont.NOT_ENCODABLE) code = '?'; // canWrite() rules this out
+                if (code == '(' || code == ')' || code == '\\') text.append('\\');
+                text.append((char) code);
+            }
+            text.append(')');
+        }
+    }
+
+    /** The file: objects written in order, their offsets kept for the cross-reference table. */
+    private static final class Output {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+        final int[] offsets; // By object number; 0 is the free list head
+        final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        final byte[] chunk = new byte[8192];
+
+        Output(int objectCount) {
+            offsets = new int[objectCount];
+        }
+
+        void header() {
+            write("%PDF-1.4\n");
+            // Bytes over 127, so transfer tools treat the file as binary
+            out.write(new byte[]{'%', (byte) 0xE2, (byte) 0xE3, (byte) 0xCF, (byte) 0xD3, '\n'}, 0, 6);
+        }
+
+        void object(int number, String dictionary) {
+            offsets[number] = out.size();
+            write(number + " 0 obj\n" + dictionary + "\nendobj\n");
+        }
+
+        // A deflated stream; entries are any dictionary entries besides its length and filter
+        void stream(int number, CharSequence content, String entries) {
+            byte[] raw = content.toString().getBytes(StandardCharsets.ISO_8859_1);
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream deflated = new ByteArrayOutputStream(raw.length / 4 + 64);
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                deflated.write(chunk, 0, n);
+            }
+            offsets[number] = out.size();
+            write(number + " 0 obj\n<< " + entries + "/Length " + deflated.size() + " /Filter /FlateDecode >>\nstream\n");
+            out.write(deflated.toByteArray(), 0, deflated.size());
+            write("\nendstream\nendobj\n");
+        }
+
+        byte[] finish(int root) {
+            deflater.end();
+            int xref = out.size();
+            StringBuilder sb = new StringBuilder(40 + 20 * offsets.length);
+            sb.append("xref\n0 ").append(offsets.length).append("\n0000000000 65535 f \n");
+            for (int i = 1; i < offsets.length; i++) {
+                String offset = Integer.toString(offsets[i]);
+                for (int pad = offset.length(); pad < 10; pad++) sb.append('0');
+                sb.append(offset).append(" 00000 n \n"); // Each entry is exactly 20 bytes
+            }
+            sb.append("trailer\n<< /Size ").append(offsets.length).append(" /Root ").append(root)
+                    .append(" 0 R >>\nstartxref\n").append(xref).append("\n%%EOF\n");
+            write(sb.toString());
+            return out.toByteArray();
+        }
+
+        private void write(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.ISO_8859_1);
+            out.write(bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.woodcalculator;
+
+import android.content.ActivityNotFoundException;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.FileProvider;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Hidden screen (long-press the grand total on the entry screen) showing the PerfMetrics
+ * histograms and the stalls MainThreadWatchdog caught, so a measurer can send the numbers from
+ * their own phone with a field report.
+ */
+public class DiagnosticsActivity extends AppCompatActivity {
+
+    private static final String TAG = "DiagnosticsActivity";
+
+    private TextView textViewMetrics;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_diagnostics);
+
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setTitle("Diagnostics");
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        }
+
+        textViewMetrics = findViewById(R.id.textViewMetrics);
+        findViewById(R.id.buttonRefreshMetrics).setOnClickListener(v -> showReport());
+        findViewById(R.id.buttonResetMetrics).setOnClickListener(v -> {
+            PerfMetrics.reset();
+            MainThreadWatchdog.clear();
+            showReport();
+        });
+        findViewById(R.id.buttonExportMetrics).setOnClickListener(v -> exportReport());
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showReport();
+    }
+
+    private void showReport() {
+        textViewMetrics.setText(report());
+    }
+
+    private static String report() {
+        return PerfMetrics.report() + "\n" + MainThreadWatchdog.report();
+    }
+
+    /**
+     * Writes the report to the app's external files (no storage permission needed) and offers
+     * to share it.
+     */
+    private void exportReport() {
+        String report = report();
+        File dir = new File(getExternalFilesDir(null), "diagnostics");
+        if (!dir.exists() && !dir.mkdirs()) {
+            Toast.makeText(this, "Could not create the diagnostics folder.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date());
+        File file = new File(dir, "timings_" + timeStamp + ".txt");
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(report.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            AppLog.e(TAG, "Error writing timings report", e);
+            Toast.makeText(this, "Error exporting timings: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            return;
+        }
+        Toast.makeText(this, "Timings saved to " + file.getAbsolutePath(), Toast.LENGTH_LONG).show();
+
+        Uri uri = FileProvider.getUriForFile(this, getApplicationContext().getPackageName() + ".fileprovider", file);
+        Intent intent = new Intent(Intent.ACTION_SEND);
+        intent.setType("text/plain");
+        intent.putExtra(Intent.EXTRA_STREAM, uri);
+        intent.putExtra(Intent.EXTRA_TEXT, report);
+        intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        try {
+            startActivity(Intent.createChooser(intent, "Send timings"));
+        } catch (ActivityNotFoundException e) {
+            AppLog.w(TAG, "No app to share the timings report", e);
+        }
+    }
+
+    @Override
+    public boolean onSupportNavigateUp() {
+        onBackPressed();
+        return true;
+    }
+}
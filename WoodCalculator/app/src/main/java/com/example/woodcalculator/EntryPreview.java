@@ -0,0 +1,221 @@
+package com.example.woodcalculator;
+
+/**
+ * Builds the live preview line shown under the entry fields while girth and length are typed:
+ * volume, matched girth range, closest table length, unit price and log total.
+ *
+ * It runs on (throttled) keystrokes on the UI thread, so it does in primitives exactly what
+ * calculateVolume does with BigDecimal: the inputs are parsed straight from the EditText text
+ * into hundredths, the price comes from the mapped table's binary searches, and the line is
+ * written into one reused StringBuilder. An update allocates nothing and takes a few
+ * microseconds; the numbers always match the entry the ADD button would create.
+ */
+final class EntryPreview {
+
+    // Integer digits accepted before the input is treated as invalid; keeps parsing within a long
+    private static final long MAX_WHOLE = 1_000_000_000_000L;
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000};
+
+    private final StringBuilder text = new StringBuilder(128);
+    private final char decimalSeparator;
+
+    /**
+     * @param decimalSeparator Separator of the default locale, so the preview reads like the
+     *                         String.format output in the table below it.
+     */
+    EntryPreview(char decimalSeparator) {
+        this.decimalSeparator = decimalSeparator;
+    }
+
+    /**
+     * @param table Price table of the selected species, or null if it has none.
+     * @return The preview line, empty while either input is not a positive number yet. The
+     *         returned text is reused by the next update.
+     */
+    CharSequence update(CharSequence girthText, CharSequence lengthText, MappedPriceTable table, VolumeFormula formula) {
+        return describe(parseHundredths(girthText), parseHundredths(lengthText), table, formula);
+    }
+
+    /**
+     * Preview of a "girth length" pair typed in the rapid-entry field (see pairSplit).
+     */
+    CharSequence updatePair(CharSequence pair, MappedPriceTable table, VolumeFormula formula) {
+        int split = pairSplit(pair);
+        if (split < 0) {
+            text.setLength(0);
+            return text;
+        }
+        return describe(parseHundredths(pair, 0, split),
+                parseHundredths(pair, skipSeparators(pair, split), pair.length()), table, formula);
+    }
+
+    /**
+     * Preview of a girth and length already parsed into hundredths (used for pasted tallies).
+     */
+    CharSequence describe(long girth, long length, MappedPriceTable table, VolumeFormula formula) {
+        text.setLength(0);
+        if (girth <= 0 || length <= 0) {
+            return text;
+        }
+        if (girth > VolumeFormulas.MAX_HUNDREDTHS || length > VolumeFormulas.MAX_HUNDREDTHS) {
+            return text.append("Girth and Length must be at most ").append(VolumeFormulas.MAX_HUNDREDTHS / 100);
+        }
+
+        long volume = formula.volume(girth, length);
+        text.append("Vol ");
+        appendFixed(volume, formula.scale());
+        text.append(' ').append(formula.unit());
+
+        if (table == null || table.rows() == 0 || table.cols() == 0) {
+            return text.append(" | No price table");
+        }
+        // Same lookups as findClosestUnitPrice; girth / 100.0 is the double BigDecimal gives
+        int row = table.findGirthRow(girth / 100.0);
+        if (row < 0) {
+            return text.append(" | No girth range");
+        }
+        text.append(" | G ");
+        appendTrimmed(Math.round(table.girthStart(row) * 100));
+        text.append('-');
+        appendTrimmed(Math.round(table.girthEnd(row) * 100));
+        int cell = table.findClosestCell(row, length / 100.0);
+        if (cell < 0) {
+            return text.append(" | No price");
+        }
+        text.append(" | L ");
+        appendTrimmed(Math.round(table.cellLength(cell) * 100));
+
+        long unitCents = centsHalfUp(table.cellPrice(cell) * formula.cubicFeetPerUnit()); // As VolumeFormulas.unitPrice
+        text.append(" | ₹ ");
+        appendFixed(unitCents, 2);
+        // volume × price at scale (volume scale + 2), rounded HALF_UP to paise like setScale(2)
+        long scaleDown = POWERS_OF_TEN[formula.scale()];
+        if (unitCents != 0 && Math.abs(volume) > Long.MAX_VALUE / 2 / Math.abs(unitCents)) {
+            return text; // Too large to be a real log; the entry itself is still computed exactly
+        }
+        long product = volume * unitCents;
+        long totalCents = product >= 0 ? (product + scaleDown / 2) / scaleDown : -((-product + scaleDown / 2) / scaleDown);
+        text.append(" = ₹ ");
+        appendFixed(totalCents, 2);
+        return text;
+    }
+
+    /**
+     * Parses what is typed into a girth or length field as a plain decimal number and rounds it
+     * to hundredths HALF_UP, as calculateVolume's setScale(2) does. Surrounding whitespace is
+     * ignored, as with trim().
+     * @return The value in hundredths, or -1 if the text is not (yet) such a number.
+     */
+    static long parseHundredths(CharSequence s) {
+        return parseHundredths(s, 0, s.length());
+    }
+
+    // parseHundredths for the characters start (inclusive) to end (exclusive) of s
+    static long parseHundredths(CharSequence s, int start, int end) {
+        while (start < end && s.charAt(start) <= ' ') start++;
+        while (end > start && s.charAt(end - 1) <= ' ') end--;
+
+        long value = 0;
+        int decimals = -1; // Digits seen after the point, -1 before the point
+        boolean anyDigit = false;
+        boolean roundUp = false;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == '.') {
+                if (decimals >= 0) return -1;
+                decimals = 0;
+                continue;
+            }
+            if (c < '0' || c > '9') return -1;
+            anyDigit = true;
+            if (decimals < 0) {
+                value = value * 10 + (c - '0');
+                if (value > MAX_WHOLE) return -1;
+            } else if (decimals < 2) {
+                value = value * 10 + (c - '0');
+                decimals++;
+            } else if (decimals == 2) {
+                roundUp = c >= '5'; // Only the first dropped digit decides HALF_UP
+                decimals++;
+            }
+        }
+        if (!anyDigit) return -1;
+        for (int d = Math.max(decimals, 0); d < 2; d++) {
+            value *= 10;
+        }
+        return roundUp ? value + 1 : value;
+    }
+
+    /**
+     * Finds where the girth ends in a rapid-entry pair such as "24.5 12", "24.5,12" or "24.5x12".
+     * @return The index of the first separator after the girth, or -1 unless a girth and a length
+     *         (something after the separators) are both there.
+     */
+    static int pairSplit(CharSequence s) {
+        int end = s.length();
+        int i = 0;
+        while (i < end && s.charAt(i) <= ' ') i++;
+        while (i < end && !isPairSeparator(s.charAt(i))) i++;
+        if (i == 0 || skipSeparators(s, i) == end) return -1;
+        return i;
+    }
+
+    // Index of the first character at or after from that is not a pair separator
+    static int skipSeparators(CharSequence s, int from) {
+        int i = from;
+        while (i < s.length() && isPairSeparator(s.charAt(i))) i++;
+        return i;
+    }
+
+    private static boolean isPairSeparator(char c) {
+        return c <= ' ' || c == ',' || c == 'x' || c == 'X' || c == '*' || c == '×';
+    }
+
+    /**
+     * Rounds a price to paise HALF_UP exactly as new BigDecimal(price).setScale(2, HALF_UP) does,
+     * that is on the double's exact binary value. price × 100 is rounded when computed, so its
+     * rounding error is recovered (Dekker's two-product) to settle values that land on .5.
+     */
+    static long centsHalfUp(double price) {
+        if (price < 0) return -centsHalfUp(-price);
+        double p = price * 100;
+        // Exact error of the product: 100 splits exactly, so only the price needs splitting
+        double split = price * 134217729.0; // 2^27 + 1
+        double hi = split - (split - price);
+        double lo = price - hi;
+        double error = (hi * 100 - p) + lo * 100;
+        double whole = Math.floor(p);
+        double fraction = p - whole;
+        if (fraction > 0.5 || (fraction == 0.5 && error >= 0)) {
+            return (long) whole + 1;
+        }
+        return (long) whole;
+    }
+
+    // unscaled × 10^-scale, e.g. (1234, 2) -> "12.34"
+    private void appendFixed(long unscaled, int scale) {
+        if (unscaled < 0) {
+            text.append('-');
+            unscaled = -unscaled;
+        }
+        long divisor = POWERS_OF_TEN[scale];
+        text.append(unscaled / divisor);
+        if (scale == 0) return;
+        text.append(decimalSeparator);
+        long fraction = unscaled % divisor;
+        for (long d = divisor / 10; d > 0; d /= 10) {
+            text.append((char) ('0' + fraction / d % 10));
+        }
+    }
+
+    // Hundredths without trailing zeros, e.g. 2400 -> "24", 2450 -> "24.5"
+    private void appendTrimmed(long hundredths) {
+        if (hundredths % 10 != 0) {
+            appendFixed(hundredths, 2);
+        } else if (hundredths % 100 != 0) {
+            appendFixed(hundredths / 10, 1);
+        } else {
+            appendFixed(hundredths / 100, 0);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.woodcalculator;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Writes doubles with a fixed number of decimals, character for character as
+ * String.format(locale, "%.Nf", value) does, without going through Formatter.
+ *
+ * Formatter rounds the value's shortest decimal form (the digits of Double.toString) HALF_UP, so
+ * 1.005 prints "1.01" although the double is slightly below 1.005. Here the double's exact value
+ * is rounded in primitives (see unitsHalfUp), and a value whose shortest form is exactly
+ * halfway is rounded up as Formatter does. The locale's zero digit and decimal separator are
+ * resolved once, when the instance is made; the sign is always '-', also for -0.0 and negative
+ * values that round to zero ("-0.00"), as with Formatter.
+ *
+ * Scales 0 to 6 are supported. Instances are immutable and may be shared between threads.
+ * Output goes into a caller-owned Buffer or StringBuilder, so nothing is allocated per value.
+ * Values of 2^48 units and more (far beyond any log or bill), NaN and infinities go through
+ * String.format instead.
+ */
+final class FixedDecimalFormat {
+
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000};
+    // Below 2^48 units, a double's rounding interval is narrower than 1/16 unit, so at most one
+    // decimal with scale + 1 digits can be its shortest form (see unitsHalfUp)
+    private static final double EXACT_LIMIT = 281_474_976_710_656.0;
+    private static final long OUT_OF_RANGE = -1;
+
+    /** For keys and files that must not depend on the device language. */
+    static final FixedDecimalFormat US = new FixedDecimalFormat(Locale.US);
+
+    private static volatile FixedDecimalFormat defaultFormat;
+
+    private final Locale locale;
+    private final char zeroDigit;
+    private final char decimalSeparator;
+
+    /** Reusable output; chars[0, length) holds the last value written. */
+    static final class Buffer {
+        char[] chars = new char[24];
+        int length;
+
+        @Override
+        public String toString() {
+            return new String(chars, 0, length);
+        }
+    }
+
+    FixedDecimalFormat(Locale locale) {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+        this.locale = locale;
+        this.zeroDigit = symbols.getZeroDigit();
+        this.decimalSeparator = symbols.getDecimalSeparator();
+    }
+
+    /**
+     * The format of Locale.getDefault(), made again only when the default locale changes.
+     */
+    static FixedDecimalFormat forDefaultLocale() {
+        Locale current = Locale.getDefault();
+        FixedDecimalFormat format = defaultFormat;
+        if (format == null || !format.locale.equals(current)) {
+            format = new FixedDecimalFormat(current);
+            defaultFormat = format;
+        }
+        return format;
+    }
+
+    char decimalSeparator() {
+        return decimalSeparator;
+    }
+
+    char zeroDigit() {
+        return zeroDigit;
+    }
+
+    /**
+     * Writes value with scale decimals into out, growing out's array only for a value that
+     * takes the String.format path and does not fit.
+     * @return out, for chaining into setText(out.chars, 0, out.length) and the like.
+     */
+    Buffer format(double value, int scale, Buffer out) {
+        long units = unitsHalfUp(Math.abs(value), scale);
+        if (units == OUT_OF_RANGE) {
+            String text = String.format(locale, "%." + scale + "f", value);
+            if (text.length() > out.chars.length) out.chars = new char[text.length()];
+            text.getChars(0, text.length(), out.chars, 0);
+            out.length = text.length();
+            return out;
+        }
+        // Right to left: decimals, separator, whole part, sign
+        char[] chars = out.chars;
+        int length = digitCount(units, scale) + (scale > 0 ? 1 : 0) + (isNegative(value) ? 1 : 0);
+        int i = length;
+        for (int d = 0; d < scale; d++) {
+            chars[--i] = (char) (zeroDigit + units % 10);
+            units /= 10;
+        }
+        if (scale > 0) chars[--i] = decimalSeparator;
+        do {
+            chars[--i] = (char) (zeroDigit + units % 10);
+            units /= 10;
+        } while (units > 0);
+        if (i > 0) chars[--i] = '-';
+        out.length = length;
+        return out;
+    }
+
+    /**
+     * Appends value with scale decimals to sb.
+     */
+    StringBuilder append(StringBuilder sb, double value, int scale) {
+        long units = unitsHalfUp(Math.abs(value), scale);
+        if (units == OUT_OF_RANGE) {
+            return sb.append(String.format(locale, "%." + scale + "f", value));
+        }
+        if (isNegative(value)) sb.append('-');
+        long divisor = POWERS_OF_TEN[scale];
+        appendDigits(sb, units / divisor, 1);
+        if (scale > 0) {
+            sb.append(decimalSeparator);
+            appendDigits(sb, units % divisor, scale);
+        }
+        return sb;
+    }
+
+    /**
+     * value with scale decimals as a new String, for text that is kept (keys, dialogs).
+     */
+    String format(double value, int scale) {
+        return append(new StringBuilder(24), value, scale).toString();
+    }
+
+    // Sign bit, so -0.0 and small negatives that round to zero keep their '-'; NaN has none
+    private static boolean isNegative(double value) {
+        return !Double.isNaN(value) && Double.doubleToRawLongBits(value) < 0;
+    }
+
+    private static int digitCount(long units, int scale) {
+        int digits = 1;
+        for (long rest = units / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        return Math.max(digits, scale + 1); // At least "0" before the separator
+    }
+
+    // value in exactly minDigits digits or more, localized
+    private void appendDigits(StringBuilder sb, long value, int minDigits) {
+        long top = 1;
+        int digits = 1;
+        while (top <= value / 10) {
+            top *= 10;
+            digits++;
+        }
+        for (int pad = digits; pad < minDigits; pad++) {
+            sb.append(zeroDigit);
+        }
+        for (long d = top; d > 0; d /= 10) {
+            sb.append((char) (zeroDigit + value / d % 10));
+        }
+    }
+
+    /**
+     * Rounds magnitude × 10^scale HALF_UP as Formatter does: on the shortest decimal form.
+     *
+     * The double's exact value is rounded first; magnitude × 10^scale is rounded when computed,
+     * so its error is recovered (Dekker's two-product, as in EntryPreview.centsHalfUp) to settle
+     * values that land on .5. That only differs from rounding the shortest form when the
+     * shortest form is exactly the halfway point above the exact result (1.005 is stored as
+     * 1.00499999...), which holds when that point, as a double, is the value itself.
+     * @return The rounded units, or OUT_OF_RANGE for NaN, infinities and 2^48 units and more.
+     */
+    static long unitsHalfUp(double magnitude, int scale) {
+        double power = POWERS_OF_TEN[scale];
+        double scaled = magnitude * power;
+        if (!(scaled < EXACT_LIMIT)) {
+            return OUT_OF_RANGE; // Also NaN and infinities
+        }
+        // Exact error of the product: the power has at most 14 significant bits, so only the
+        // magnitude needs splitting
+        double split = magnitude * 134217729.0; // 2^27 + 1
+        double hi = split - (split - magnitude);
+        double lo = magnitude - hi;
+        double error = (hi * power - scaled) + lo * power;
+        double whole = Math.floor(scaled);
+        double fraction = scaled - whole;
+        long units = (long) whole;
+        if (fraction > 0.5 || (fraction == 0.5 && error >= 0)) {
+            units++;
+        }
+        // Halfway between units and units + 1, correctly rounded to a double
+        if ((2 * units + 1) / (2 * power) == magnitude) {
+            units++;
+        }
+        return units;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.woodcalculator;
+
+import java.util.Arrays;
+
+/**
+ * Stabbing-query index over girth ranges that may overlap (promotional tiers) or leave gaps.
+ *
+ * All range boundaries are sorted into points p[0..m]; each elementary segment (p[k], p[k+1]]
+ * gets the row that wins there: the highest priority, then the narrowest range, then the first
+ * row. Gap segments are filled according to the GapPolicy. Adjacent segments with the same
+ * winner are merged. A lookup is then one binary search over the points, O(log n) in the number
+ * of ranges, and MappedPriceTable stores the points and winners in the table file so it can do
+ * that search straight from the mapping.
+ *
+ * Boundaries follow the rule the app always used: a range covers start < girth <= end, and a
+ * range starting at 0.0 also covers 0.0.
+ */
+final class GirthIndex {
+
+    /**
+     * What a girth that falls between (or outside) the defined ranges is priced as.
+     */
+    public enum GapPolicy {
+        NO_PRICE("No price (0)"),
+        NEXT_LOWER("Use the next lower range"),
+        NEXT_HIGHER("Use the next higher range");
+
+        private final String label;
+
+        GapPolicy(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    final double[] points;  // m + 1 boundaries, or empty if there are no ranges
+    final int[] winners;    // m rows, winners[k] covers (points[k], points[k + 1]], -1 = no price
+    final int belowRow;     // Row for girths at or below points[0] (except 0.0 on a range starting at 0.0)
+    final int aboveRow;     // Row for girths above points[m]
+
+    private GirthIndex(double[] points, int[] winners, int belowRow, int aboveRow) {
+        this.points = points;
+        this.winners = winners;
+        this.belowRow = belowRow;
+        this.aboveRow = aboveRow;
+    }
+
+    static GirthIndex build(double[] starts, double[] ends, int[] priorities, GapPolicy gapPolicy) {
+        int rows = starts.length;
+        if (rows == 0) {
+            return new GirthIndex(new double[0], new int[0], -1, -1);
+        }
+
+        double[] all = new double[rows * 2];
+        System.arraycopy(starts, 0, all, 0, rows);
+        System.arraycopy(ends, 0, all, rows, rows);
+        Arrays.sort(all);
+        int unique = 0;
+        for (int i = 0; i < all.length; i++) {
+            if (i == 0 || all[i] != all[i - 1]) all[unique++] = all[i];
+        }
+        double[] points = Arrays.copyOf(all, unique);
+        int segments = unique - 1;
+
+        // Winner per elementary segment. Rows are few (tens), so a direct scan per segment is fine;
+        // the cost is paid once per save, never per lookup.
+        int[] winners = new int[segments];
+        for (int k = 0; k < segments; k++) {
+            int best = -1;
+            for (int r = 0; r < rows; r++) {
+                if (starts[r] <= points[k] && ends[r] >= points[k + 1] && (best < 0 || beats(r, best, starts, ends, priorities))) {
+                    best = r;
+                }
+            }
+            winners[k] = best;
+        }
+
+        // Fill gaps according to the policy
+        int belowRow = -1;
+        int aboveRow = -1;
+        if (gapPolicy == GapPolicy.NEXT_LOWER) {
+            for (int k = 1; k < segments; k++) {
+                if (winners[k] < 0) winners[k] = winners[k - 1];
+            }
+            aboveRow = segments > 0 ? winners[segments - 1] : -1;
+        } else if (gapPolicy == GapPolicy.NEXT_HIGHER) {
+            for (int k = segments - 2; k >= 0; k--) {
+                if (winners[k] < 0) winners[k] = winners[k + 1];
+            }
+            belowRow = segments > 0 ? winners[0] : -1;
+        }
+
+        // Merge runs of segments with the same winner
+        int merged = 0;
+        for (int k = 0; k < segments; k++) {
+            if (merged > 0 && winners[merged - 1] == winners[k]) {
+                points[merged] = points[k + 1];
+            } else {
+                winners[merged] = winners[k];
+                points[merged + 1] = points[k + 1];
+                merged++;
+            }
+        }
+        return new GirthIndex(Arrays.copyOf(points, merged + 1), Arrays.copyOf(winners, merged), belowRow, aboveRow);
+    }
+
+    // Higher priority wins, then the narrower range, then the earlier row
+    private static boolean beats(int r, int best, double[] starts, double[] ends, int[] priorities) {
+        if (priorities[r] != priorities[best]) return priorities[r] > priorities[best];
+        double width = ends[r] - starts[r];
+        double bestWidth = ends[best] - starts[best];
+        return width < bestWidth;
+    }
+}
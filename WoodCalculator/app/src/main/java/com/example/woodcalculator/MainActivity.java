@@ -3,57 +3,71 @@ package com.example.woodcalculator;
 import android.Manifest;
 import android.annotation.SuppressLint;
 import android.app.AlertDialog;
+import android.content.ClipData;
+import android.content.ClipboardManager;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
-import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.Paint;
-import android.graphics.pdf.PdfDocument;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
 import android.text.InputType;
-import android.util.Log;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.TextWatcher;
+import android.text.style.ForegroundColorSpan;
 import android.util.TypedValue;
 import android.view.Gravity;
+import android.view.KeyEvent;
 import android.view.Menu;
 import android.view.MenuItem;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.inputmethod.EditorInfo;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
 import android.widget.EditText;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.TableRow;
 import android.widget.ScrollView;
+import android.widget.Spinner;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import androidx.core.content.FileProvider;
+import androidx.lifecycle.ViewModel;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.DividerItemDecoration;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator; // Keep Comparator import for anonymous class
-import java.util.Map;
 import java.util.Date;
-import java.util.LinkedHashMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Objects;
+import java.util.Map;
 
 /**
  * MainActivity handles the core functionality of the Wood Calculator app,
@@ -68,74 +82,76 @@ public class MainActivity extends AppCompatActivity {
     private static final String TAG = "MainActivity";
     // Name for SharedPreferences file
     private static final String PREFS_NAME = "WoodCalculatorPrefs";
+    // At most one live preview update per interval while typing
+    private static final long PREVIEW_INTERVAL_MS = 80;
+    // Entries added within this interval are saved and shown as one batch
+    private static final long ENTRY_BATCH_MS = 120;
 
-    // Keys for storing data in SharedPreferences
-    private static final String KEY_UNIT_PRICES = "unitPrices";
-    private static final String KEY_GIRTH_RANGES_PARSED = "girthRangesParsed";
-    private static final String KEY_LENGTH_VALUES_PARSED = "lengthValuesParsed";
+    // Keys for storing data in SharedPreferences (the price table itself lives in PriceTableStore)
     private static final String KEY_LOG_ENTRIES = "logEntriesList";
+    private static final String KEY_VOLUME_FORMULA = "volumeFormula"; // Id of the current bill's VolumeFormula
+    private static final String KEY_RAPID_ENTRY = "rapidEntry";
 
     // UI elements
     private EditText editTextGirth;
     private EditText editTextLength;
-    private LinearLayout tableContainer;
+    private LinearLayout entryRow; // Separate girth and length fields with the ADD button
+    private EditText editTextRapid; // Single "girth length" field of the rapid-entry mode
+    private RecyclerView logRecyclerView;
+    private LogEntryAdapter logEntryAdapter;
     // buttonGenerateNewBill is now local to setListeners/initViews
     private TextView totalVolumeTextView;
+    private TextView volumeHeaderTextView;
     private TextView grandTotalTextView;
-    private ScrollView mainScrollView;
+    private LinearLayout speciesRow;
+    private Spinner spinnerSpecies;
+    private TextView previewTextView;
 
-    // Data structures for managing log entries and pricing
-    private List<LogEntry> logEntries;
+    // Data structures for managing log entries and pricing (the model itself is in State)
+    private State state;
     private SharedPreferences sharedPreferences;
+    private BillCache billCache; // Bills already saved, so an unchanged bill is not written again
     private Gson gson;
-    private Map<String, Double> loadedUnitPrices;
-    private List<GirthRange> tableGirthRanges;
-    private List<Double> tableLengthValues;
+    private final TallyTotals tallyTotals = new TallyTotals(VolumeFormulas.DEFAULT.scale()); // Reset before each sum
+
+    // Live preview of the entry being typed; keystrokes only schedule an update, so a burst of
+    // typing costs one update per PREVIEW_INTERVAL_MS however fast it comes
+    private EntryPreview entryPreview;
+    private final Handler uiHandler = new Handler(Looper.getMainLooper());
+    private boolean previewPending;
+    private final Runnable previewUpdate = () -> {
+        previewPending = false;
+        updatePreview();
+    };
+
+    // Entries added but not yet saved or shown in the table (see queueEntry)
+    private boolean entryFlushPending;
+    private final Runnable entryFlush = this::flushEntries;
 
     /**
-     * Represents a girth range (e.g., 5.0-10.0 inches).
+     * Everything the entry screen shows, held by a ViewModel so a configuration change (rotation,
+     * window resize) rebinds it instead of re-reading SharedPreferences, remapping the price
+     * tables and rebuilding the table.
      */
-    public static class GirthRange {
-        private final double start; // Start of the girth range (immutable)
-        private final double end;   // End of the girth range (immutable)
-
-        public GirthRange(double start, double end) {
-            this.start = start;
-            this.end = end;
-        }
-
-        public double getStart() {
-            return start;
-        }
-
-        public double getEnd() {
-            return end;
-        }
-
-        @NonNull
-        @Override
-        public String toString() {
-            // Format for display: "5.0-10.0" or "10.0" if start is 0.0
-            if (start == 0.0) {
-                return String.format(Locale.US, "%.1f", end);
-            }
-            return String.format(Locale.US, "%.1f-%.1f", start, end);
-        }
-
-        @Override
-        public boolean equals(@Nullable Object obj) {
-            if (this == obj) return true;
-            if (obj == null || getClass() != obj.getClass()) return false;
-            GirthRange that = (GirthRange) obj;
-            // Compare doubles with a small epsilon for floating point accuracy
-            return Math.abs(this.start - that.start) < 0.001 &&
-                    Math.abs(this.end - that.end) < 0.001;
-        }
+    public static class State extends ViewModel {
+        List<LogEntry> logEntries; // Null until the tally is first loaded
+        SpeciesCatalog speciesCatalog;
+        // Memory-mapped price table of every species that has one
+        final Map<Integer, MappedPriceTable> priceTables = new HashMap<>();
+        int currentSpeciesId = PriceTableStore.DEFAULT_SPECIES;
+        MappedPriceTable priceTable; // Table of the selected species, null if none has been saved
+        VolumeFormula volumeFormula = VolumeFormulas.DEFAULT; // Formula of the current bill
+        BillFormat billFormat = BillFormat.DEFAULT; // Paper of every bill, see showBillFormatDialog
+        boolean compactPdf; // Bills written by CompactPdfWriter, see renderBill
+        boolean rapidEntry;
+        // Set when the screen is left (not recreated); price tables may be edited meanwhile
+        boolean pricingStale;
+        // The PDF bill, laid out page by page as the tally grows (see updateTotals)
+        final BillPdfRenderer billRenderer = new BillPdfRenderer();
 
         @Override
-        public int hashCode() {
-            // Generate hash code based on start and end values
-            return Objects.hash(start, end);
+        protected void onCleared() {
+            billRenderer.shutdown();
         }
     }
 
@@ -149,6 +165,9 @@ public class MainActivity extends AppCompatActivity {
         double volume;
         double unitPrice;
         double logTotal;
+        long priceVersion; // Price table version the unit price came from; 0 = entered by hand or not recorded
+        int speciesId; // Price table (see SpeciesCatalog) the entry was priced from
+        String species; // Name of that species when the entry was made; null for entries from before species
 
         public LogEntry(double girth, double length, double volume, double unitPrice, double logTotal) {
             this.girth = girth;
@@ -158,12 +177,20 @@ public class MainActivity extends AppCompatActivity {
             this.logTotal = logTotal;
         }
 
+        public LogEntry(double girth, double length, double volume, double unitPrice, double logTotal, long priceVersion) {
+            this(girth, length, volume, unitPrice, logTotal);
+            this.priceVersion = priceVersion;
+        }
+
         // Getters for log entry properties
         public double getGirth() { return girth; }
         public double getLength() { return length; }
         public double getVolume() { return volume; }
         public double getUnitPrice() { return unitPrice; }
         public double getLogTotal() { return logTotal; }
+        public long getPriceVersion() { return priceVersion; }
+        public int getSpeciesId() { return speciesId; }
+        public String getSpecies() { return species; }
 
         // Setters for log entry properties (used for editing)
         public void setGirth(double girth) { this.girth = girth; }
@@ -171,6 +198,26 @@ public class MainActivity extends AppCompatActivity {
         public void setVolume(double volume) { this.volume = volume; }
         public void setUnitPrice(double unitPrice) { this.unitPrice = unitPrice; }
         public void setLogTotal(double logTotal) { this.logTotal = logTotal; }
+        public void setPriceVersion(long priceVersion) { this.priceVersion = priceVersion; }
+        public void setSpecies(int speciesId, String species) {
+            this.speciesId = speciesId;
+            this.species = species;
+        }
+
+        /**
+         * Recomputes the volume with to and re-prices the entry in to's unit (see
+         * VolumeFormulas.convertUnitPrice), for a bill switching from the formula from.
+         */
+        void applyFormula(VolumeFormula from, VolumeFormula to) {
+            BigDecimal girthBd = BigDecimal.valueOf(girth).setScale(2, RoundingMode.HALF_UP);
+            BigDecimal lengthBd = BigDecimal.valueOf(length).setScale(2, RoundingMode.HALF_UP);
+            BigDecimal displayVolume = BigDecimal.valueOf(
+                    to.volume(girthBd.unscaledValue().longValue(), lengthBd.unscaledValue().longValue()), to.scale());
+            BigDecimal price = VolumeFormulas.convertUnitPrice(unitPrice, from, to);
+            volume = displayVolume.doubleValue();
+            unitPrice = price.doubleValue();
+            logTotal = displayVolume.multiply(price).setScale(2, RoundingMode.HALF_UP).doubleValue();
+        }
     }
 
 
@@ -184,20 +231,30 @@ public class MainActivity extends AppCompatActivity {
         // Initialize SharedPreferences and Gson for data persistence
         sharedPreferences = getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         gson = new Gson();
+        billCache = new BillCache(this);
+        state = new ViewModelProvider(this).get(State.class);
 
         // Initialize UI components
         initViews();
-        // Load previously saved log entries
-        loadLogEntries();
-        // Re-populate the table with loaded entries
-        repopulateTable();
-        // Update total volume and grand total display
-        updateTotals();
-
         // Set click listeners for buttons
         setListeners();
-        // Load pricing data from SharedPreferences
-        loadPricingData();
+
+        if (state.logEntries == null) {
+            // First start: load previously saved log entries and map the price tables
+            state.rapidEntry = sharedPreferences.getBoolean(KEY_RAPID_ENTRY, false);
+            state.billFormat = BillFormat.selected(this);
+            state.compactPdf = CompactPdfWriter.isEnabled(this);
+            loadLogEntries();
+            loadPricingData();
+        } else {
+            // Recreated after a configuration change: bind the model already in memory
+            setupSpeciesSpinner();
+        }
+        showEntryMode(state.rapidEntry);
+        volumeHeaderTextView.setText("Volume (" + state.volumeFormula.unit() + ")");
+        // Show the entries and update total volume and grand total display
+        repopulateTable();
+        updateTotals();
     }
 
     /**
@@ -206,6 +263,8 @@ public class MainActivity extends AppCompatActivity {
     private void initViews() {
         editTextGirth = findViewById(R.id.editTextGirth);
         editTextLength = findViewById(R.id.editTextLength);
+        entryRow = findViewById(R.id.entryRow);
+        editTextRapid = findViewById(R.id.editTextRapid);
 
         // Buttons (local references are sufficient as they are used immediately in setListeners)
         findViewById(R.id.buttonCalculate); // Calculate button
@@ -214,11 +273,19 @@ public class MainActivity extends AppCompatActivity {
         // private Button buttonGenerateNewBill; is removed from class fields
         // buttonGenerateNewBill = findViewById(R.id.buttonGenerateNewBill); // Start New Bill button
 
-        tableContainer = findViewById(R.id.tableContainer); // LinearLayout to hold table rows
+        logRecyclerView = findViewById(R.id.logRecyclerView); // Table rows; only the visible ones exist as views
+        logRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        logRecyclerView.addItemDecoration(new DividerItemDecoration(this, DividerItemDecoration.VERTICAL));
+        logEntryAdapter = new LogEntryAdapter();
+        logRecyclerView.setAdapter(logEntryAdapter);
 
         totalVolumeTextView = findViewById(R.id.totalVolumeTextView); // TextView for total volume
+        volumeHeaderTextView = findViewById(R.id.volumeHeaderTextView); // Shows the volume unit of the bill's formula
         grandTotalTextView = findViewById(R.id.grandTotalTextView); // TextView for grand total
-        mainScrollView = findViewById(R.id.mainScrollView); // ScrollView containing the table
+        speciesRow = findViewById(R.id.speciesRow); // Only shown when there is more than one species
+        spinnerSpecies = findViewById(R.id.spinnerSpecies);
+        previewTextView = findViewById(R.id.previewTextView);
+        entryPreview = new EntryPreview(FixedDecimalFormat.forDefaultLocale().decimalSeparator());
     }
 
     /**
@@ -229,109 +296,211 @@ public class MainActivity extends AppCompatActivity {
         findViewById(R.id.buttonGenerateBill).setOnClickListener(v -> promptForClientNameAndGenerateBill());
         // Directly set listener on the view found by ID
         findViewById(R.id.buttonGenerateNewBill).setOnClickListener(v -> clearTableAndStartNewBill());
+        // Hidden on purpose: timings for field reports, not something measurers need day to day
+        grandTotalTextView.setOnLongClickListener(v -> {
+            startActivity(new Intent(MainActivity.this, DiagnosticsActivity.class));
+            return true;
+        });
+
+        TextWatcher previewWatcher = new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                schedulePreview();
+            }
+        };
+        editTextGirth.addTextChangedListener(previewWatcher);
+        editTextLength.addTextChangedListener(previewWatcher);
+        editTextRapid.addTextChangedListener(previewWatcher);
+
+        // Enter (soft keyboard action or a hardware key) adds the pair and keeps the keyboard up
+        editTextRapid.setOnEditorActionListener((v, actionId, event) -> {
+            boolean enterKey = event != null && event.getKeyCode() == KeyEvent.KEYCODE_ENTER;
+            if (actionId != EditorInfo.IME_ACTION_DONE && !enterKey) {
+                return false;
+            }
+            if (event == null || event.getAction() == KeyEvent.ACTION_DOWN) {
+                commitRapidEntry();
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Switches between the separate girth/length fields and the single rapid-entry field.
+     */
+    private void showEntryMode(boolean rapid) {
+        state.rapidEntry = rapid;
+        entryRow.setVisibility(rapid ? View.GONE : View.VISIBLE);
+        editTextRapid.setVisibility(rapid ? View.VISIBLE : View.GONE);
+        if (rapid) {
+            editTextRapid.requestFocus();
+        }
+        schedulePreview();
+    }
+
+    // Coalesces preview requests; the update reads whatever the fields hold when it runs
+    private void schedulePreview() {
+        if (!previewPending) {
+            previewPending = true;
+            uiHandler.postDelayed(previewUpdate, PREVIEW_INTERVAL_MS);
+        }
+    }
+
+    /**
+     * Shows volume, girth range, length and price of the log being typed, computed the same way
+     * calculateVolume will compute them, so typos can be caught before the entry is added.
+     */
+    private void updatePreview() {
+        CharSequence preview = state.rapidEntry
+                ? entryPreview.updatePair(editTextRapid.getText(), state.priceTable, state.volumeFormula)
+                : entryPreview.update(editTextGirth.getText(), editTextLength.getText(), state.priceTable, state.volumeFormula);
+        if (preview.length() == 0) {
+            previewTextView.setVisibility(View.GONE);
+        } else {
+            previewTextView.setText(preview);
+            previewTextView.setVisibility(View.VISIBLE);
+        }
     }
 
     /**
      * Loads log entries from SharedPreferences.
      */
     private void loadLogEntries() {
+        long start = PerfMetrics.LOAD_LOG_ENTRIES.begin();
+        try {
+            doLoadLogEntries();
+        } finally {
+            PerfMetrics.LOAD_LOG_ENTRIES.end(start);
+        }
+    }
+
+    private void doLoadLogEntries() {
         String json = sharedPreferences.getString(KEY_LOG_ENTRIES, null);
         Type type = new TypeToken<ArrayList<LogEntry>>() {}.getType();
-        logEntries = gson.fromJson(json, type);
+        state.logEntries = gson.fromJson(json, type);
         // Initialize as an empty list if no entries are found or parsing fails
-        if (logEntries == null) {
-            logEntries = new ArrayList<>();
+        if (state.logEntries == null) {
+            state.logEntries = new ArrayList<>();
         }
-        Log.d(TAG, "Loaded " + logEntries.size() + " log entries.");
+        // Tallies saved before formulas could be chosen were all quarter-girth
+        state.volumeFormula = VolumeFormulas.byId(sharedPreferences.getString(KEY_VOLUME_FORMULA, null));
+        AppLog.d(TAG, "Loaded %d log entries.", state.logEntries.size());
     }
 
     /**
      * Saves the current list of log entries to SharedPreferences.
      */
     private void saveLogEntries() {
-        String json = gson.toJson(logEntries);
+        long start = PerfMetrics.SAVE_LOG_ENTRIES.begin();
+        try {
+            doSaveLogEntries();
+        } finally {
+            PerfMetrics.SAVE_LOG_ENTRIES.end(start);
+        }
+    }
+
+    private void doSaveLogEntries() {
+        String json = gson.toJson(state.logEntries);
         SharedPreferences.Editor editor = sharedPreferences.edit();
         editor.putString(KEY_LOG_ENTRIES, json);
+        editor.putString(KEY_VOLUME_FORMULA, state.volumeFormula.id()); // Recorded with the tally it applies to
         editor.apply(); // Apply changes asynchronously
-        Log.d(TAG, "Saved " + logEntries.size() + " log entries.");
+        AppLog.d(TAG, "Saved %d log entries.", state.logEntries.size());
     }
 
     /**
-     * Clears the current UI table and repopulates it with entries from `logEntries` list.
+     * Refreshes the UI table from the `logEntries` list; rows are rebound as they come into view.
      */
     private void repopulateTable() {
-        tableContainer.removeAllViews();
-        for (int i = 0; i < logEntries.size(); i++) {
-            addEntryToTableUI(logEntries.get(i), i + 1, i);
+        long start = PerfMetrics.REPOPULATE_TABLE.begin();
+        try {
+            logEntryAdapter.showAll();
+        } finally {
+            PerfMetrics.REPOPULATE_TABLE.end(start);
         }
     }
 
     /**
-     * Loads pricing data (unit prices, girth ranges, length values) from SharedPreferences.
-     * Ensures null-safety for parsed lists.
+     * Maps the price table (girth ranges, length values, unit prices) of every species from its
+     * PriceTableStore. Nothing is parsed here; lookups read straight from the mapped files, and
+     * species with the same girth ranges and lengths share one mapping of those axes. Switching
+     * species afterwards is a map lookup.
      */
     private void loadPricingData() {
-        String pricesJson = sharedPreferences.getString(KEY_UNIT_PRICES, null);
-        if (pricesJson != null) {
-            Type mapType = new TypeToken<Map<String, Double>>() {}.getType();
-            loadedUnitPrices = gson.fromJson(pricesJson, mapType);
-            if (loadedUnitPrices == null) { // Handle case where JSON is malformed or represents 'null'
-                loadedUnitPrices = new LinkedHashMap<>();
-                Log.w(TAG, "Failed to parse unit prices from JSON. Initializing empty map.");
-            }
-            Log.d(TAG, "Loaded unit prices: " + loadedUnitPrices.size() + " entries.");
-        } else {
-            loadedUnitPrices = new LinkedHashMap<>(); // Initialize empty if not found
-            Log.w(TAG, "No custom unit prices map found in SharedPreferences.");
-        }
-
-        String girthRangesJson = sharedPreferences.getString(KEY_GIRTH_RANGES_PARSED, null);
-        if (girthRangesJson != null) {
-            Type girthRangeListType = new TypeToken<List<GirthRange>>() {}.getType();
-            List<GirthRange> tempGirthRanges = gson.fromJson(girthRangesJson, girthRangeListType);
-            if (tempGirthRanges != null) {
-                tableGirthRanges = tempGirthRanges;
-                // Reverted to API 21 compatible sorting logic
-                Collections.sort(tableGirthRanges, new Comparator<>() {
-                    @Override
-                    public int compare(GirthRange r1, GirthRange r2) {
-                        return Double.compare(r1.getStart(), r2.getStart());
-                    }
-                });
-                Log.d(TAG, "Loaded girth ranges: " + tableGirthRanges.size() + " entries.");
-            } else {
-                tableGirthRanges = new ArrayList<>(); // Initialize to empty list if parsing failed
-                Log.w(TAG, "Failed to parse girth ranges from JSON. Initializing empty list.");
-            }
-        } else {
-            tableGirthRanges = new ArrayList<>();
-            Log.w(TAG, "No custom girth ranges list found in SharedPreferences.");
-        }
-
-        String lengthJson = sharedPreferences.getString(KEY_LENGTH_VALUES_PARSED, null);
-        if (lengthJson != null) {
-            Type doubleListType = new TypeToken<List<Double>>() {}.getType();
-            List<Double> tempLengthValues = gson.fromJson(lengthJson, doubleListType);
-            if (tempLengthValues != null) {
-                tableLengthValues = tempLengthValues;
-                Collections.sort(tableLengthValues); // Sort length values
-                Log.d(TAG, "Loaded length values: " + tableLengthValues.size() + " entries.");
+        long start = PerfMetrics.LOAD_PRICING_DATA.begin();
+        try {
+            doLoadPricingData();
+        } finally {
+            PerfMetrics.LOAD_PRICING_DATA.end(start);
+        }
+    }
+
+    private void doLoadPricingData() {
+        state.speciesCatalog = SpeciesCatalog.forContext(this); // Species may have been added or renamed
+        state.priceTables.clear();
+        for (SpeciesCatalog.Species species : state.speciesCatalog.all()) {
+            MappedPriceTable table = PriceTableStore.forSpecies(this, species.getId()).open();
+            if (table != null) {
+                state.priceTables.put(species.getId(), table);
+                AppLog.d(TAG, "Mapped price table for %s: %d girth ranges, %d lengths.",
+                        species.getName(), table.rows(), table.cols());
             } else {
-                tableLengthValues = new ArrayList<>(); // Initialize to empty list if parsing failed
-                Log.w(TAG, "Failed to parse length values from JSON. Initializing empty list.");
+                AppLog.w(TAG, "No price table found for %s.", species.getName());
             }
-        } else {
-            tableLengthValues = new ArrayList<>();
-            Log.w(TAG, "No custom length values list found in SharedPreferences.");
         }
+        setupSpeciesSpinner();
 
         // Warn user if pricing data is incomplete
-        if (loadedUnitPrices.isEmpty() || tableGirthRanges.isEmpty() || tableLengthValues.isEmpty()) {
+        if (state.priceTable == null || state.priceTable.rows() == 0 || state.priceTable.cols() == 0 || state.priceTable.countPrices() == 0) {
             Toast.makeText(this, "Price table is not fully configured. Please go to 'Price Table' to set girth ranges and lengths.", Toast.LENGTH_LONG).show();
-            Log.w(TAG, "Pricing data is incomplete or empty.");
+            AppLog.w(TAG, "Pricing data is incomplete or empty.");
         }
     }
 
+    /**
+     * Fills the species selector. It is hidden while there is only one species, so the entry
+     * screen looks as before for single-species tallies.
+     */
+    private void setupSpeciesSpinner() {
+        ArrayAdapter<SpeciesCatalog.Species> adapter = new ArrayAdapter<>(this,
+                android.R.layout.simple_spinner_item, new ArrayList<>(state.speciesCatalog.all()));
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinnerSpecies.setOnItemSelectedListener(null);
+        spinnerSpecies.setAdapter(adapter);
+        selectSpecies(state.speciesCatalog.selectedId());
+        spinnerSpecies.setSelection(state.speciesCatalog.indexOf(state.currentSpeciesId), false);
+        spinnerSpecies.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                SpeciesCatalog.Species species = state.speciesCatalog.all().get(position);
+                if (species.getId() != state.currentSpeciesId) {
+                    selectSpecies(species.getId());
+                    state.speciesCatalog.setSelectedId(species.getId());
+                }
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+        speciesRow.setVisibility(state.speciesCatalog.size() > 1 ? View.VISIBLE : View.GONE);
+    }
+
+    // Routes pricing to a species' table; the table is already mapped, so nothing is read or parsed
+    private void selectSpecies(int speciesId) {
+        state.currentSpeciesId = speciesId;
+        state.priceTable = state.priceTables.get(speciesId);
+        schedulePreview(); // The typed log prices differently under another species
+    }
+
     /**
      * Finds the closest unit price for a given girth and length based on loaded pricing data.
      * @param inputGirthBd BigDecimal representation of the input girth.
@@ -339,153 +508,187 @@ public class MainActivity extends AppCompatActivity {
      * @return A BigDecimal representing the unit price, or BigDecimal.ZERO if not found.
      */
     private BigDecimal findClosestUnitPrice(BigDecimal inputGirthBd, BigDecimal inputLengthBd) {
+        long start = PerfMetrics.FIND_UNIT_PRICE.begin();
+        try {
+            return doFindClosestUnitPrice(inputGirthBd, inputLengthBd);
+        } finally {
+            PerfMetrics.FIND_UNIT_PRICE.end(start);
+        }
+    }
+
+    private BigDecimal doFindClosestUnitPrice(BigDecimal inputGirthBd, BigDecimal inputLengthBd) {
         double inputGirth = inputGirthBd.doubleValue();
         double inputLength = inputLengthBd.doubleValue();
 
-        // Check if pricing data is available
-        if (loadedUnitPrices == null || loadedUnitPrices.isEmpty() ||
-                tableGirthRanges == null || tableGirthRanges.isEmpty() ||
-                tableLengthValues == null || tableLengthValues.isEmpty()) {
-            Toast.makeText(this, "Price table data is missing or invalid. Cannot calculate price.", Toast.LENGTH_SHORT).show();
-            Log.e(TAG, "Price table data is null or empty. Check PriceTableActivity configuration.");
+        // Check if pricing data is available (createEntry tells the user)
+        if (state.priceTable == null || state.priceTable.rows() == 0 || state.priceTable.cols() == 0) {
+            AppLog.e(TAG, "Price table data is null or empty. Check PriceTableActivity configuration.");
             return BigDecimal.ZERO;
         }
 
         // Find the matching girth range
-        GirthRange matchedGirthRange = null;
-        for (GirthRange range : tableGirthRanges) {
-            if (inputGirth > range.getStart() && inputGirth <= range.getEnd()) {
-                matchedGirthRange = range;
-                break;
-            } else if (range.getStart() == 0.0 && inputGirth >= 0.0 && inputGirth <= range.getEnd()) {
-                // Handle ranges starting exactly at 0.0, which are inclusive of 0
-                matchedGirthRange = range;
-                break;
-            }
-        }
+        int girthRow = state.priceTable.findGirthRow(inputGirth);
 
         // If no girth range is found, return 0 unit price
-        if (matchedGirthRange == null) {
-            Log.w(TAG, String.format(Locale.getDefault(), "No girth range found for %.2f inches. Returning 0 for unit price.", inputGirth));
+        if (girthRow < 0) {
+            AppLog.w(TAG, "No girth range found for %.2f inches. Returning 0 for unit price.", inputGirth);
             return BigDecimal.ZERO;
         }
 
-        // Find the closest length value from the defined lengths
-        double closestLength = getClosestValue(inputLength, tableLengthValues);
-
-        // Construct the key to look up the unit price
-        String priceKey = getPriceKey(matchedGirthRange, closestLength);
-        Double unitPrice = loadedUnitPrices.get(priceKey);
+        // Find the closest length of the table
+        int cell = state.priceTable.findClosestCell(girthRow, inputLength);
 
-        // If unit price not found for the key, return 0
-        if (unitPrice == null) {
-            Log.w(TAG, String.format("Unit price not found for key '%s' (Girth range %s, closest L %.2f). Returning 0.",
-                    priceKey, matchedGirthRange, closestLength));
+        // If the girth range has no price at that length, return 0
+        if (cell < 0) {
+            AppLog.w(TAG, "No unit price set for girth range %.1f-%.1f at the length closest to %.2f. Returning 0.",
+                    state.priceTable.girthStart(girthRow), state.priceTable.girthEnd(girthRow), inputLength);
             return BigDecimal.ZERO;
         }
-        Log.d(TAG, String.format(Locale.getDefault(), "Found unit price %.2f for key '%s'", unitPrice, priceKey));
-        // Return unit price rounded to 2 decimal places
-        return new BigDecimal(unitPrice).setScale(2, RoundingMode.HALF_UP);
+        double unitPrice = state.priceTable.cellPrice(cell);
+        if (AppLog.DEBUG) { // Every entry prices through here; keep the boxing out of release builds
+            AppLog.d(TAG, "Found unit price %.2f for girth range %.1f-%.1f, L %.1f", unitPrice,
+                    state.priceTable.girthStart(girthRow), state.priceTable.girthEnd(girthRow), state.priceTable.cellLength(cell));
+        }
+        // Tables are per cft; return the price per unit of the bill's formula, rounded to 2 decimal places
+        return VolumeFormulas.unitPrice(unitPrice, state.volumeFormula);
+    }
+
+    // Price table versions the bill's entries were priced against (see BillPdfRenderer.describePriceVersions)
+    private String describePriceVersions() {
+        return BillPdfRenderer.describePriceVersions(state.logEntries, state.speciesCatalog.size() > 1);
+    }
+
+    // True if the bill mixes species, so each line has to say which one it was priced as
+    private boolean hasSeveralSpecies() {
+        return BillPdfRenderer.hasSeveralSpecies(state.logEntries);
+    }
+
+    // Layout of the current bill; made once per format, formula and species column, then shared
+    private BillLayout billLayout() {
+        return BillLayout.of(state.billFormat, state.volumeFormula, hasSeveralSpecies());
+    }
+
+    // Layout of the current bill as a compact PDF, or null if bills are not written that way or
+    // some text of this one cannot be (see CompactPdfWriter.canWrite)
+    private BillLayout compactBillLayout(String clientName, String priceVersions) {
+        if (!state.compactPdf) return null;
+        BillLayout layout = BillLayout.of(state.billFormat, state.volumeFormula, hasSeveralSpecies(), true);
+        return CompactPdfWriter.canWrite(state.logEntries, layout, clientName, priceVersions) ? layout : null;
     }
 
     /**
-     * Finds the closest value in a sorted list of doubles to a given target.
-     * Used for matching input length to predefined length values.
-     * @param target The value to find the closest match for.
-     * @param values A sorted list of values to search within.
-     * @return The closest value from the list.
+     * The current bill, from CompactPdfWriter if compactLayout is given, else from the pages
+     * recorded as the tally grew. The caller writes and closes it.
      */
-    private double getClosestValue(double target, List<Double> values) {
-        if (values.isEmpty()) {
-            return target; // Should not happen if tables are configured, but as a safeguard
+    private PdfSaver.Bill renderBill(BillLayout compactLayout, String clientName, String priceVersions) {
+        if (compactLayout != null) {
+            return new PdfSaver.Bill(CompactPdfWriter.write(state.logEntries, compactLayout, clientName, priceVersions));
         }
+        return new PdfSaver.Bill(state.billRenderer.render(state.logEntries, billLayout(), clientName, priceVersions));
+    }
 
-        // Perform binary search to find the index or insertion point
-        int i = Collections.binarySearch(values, target);
-        if (i >= 0) {
-            return values.get(i); // Exact match found
+    /**
+     * Calculates the volume of a wood log based on user input for girth and length,
+     * determines the unit price, calculates the log total, and adds the entry to the table.
+     */
+    private void calculateVolume() {
+        long start = PerfMetrics.CALCULATE_VOLUME.begin();
+        try {
+            doCalculateVolume();
+        } finally {
+            PerfMetrics.CALCULATE_VOLUME.end(start);
         }
+    }
 
-        // No exact match, determine insertion point
-        int insertionPoint = -i - 1;
-
-        // Handle edge cases: target is smaller than first element
-        if (insertionPoint == 0) {
-            return values.get(0);
-        }
-        // Handle edge cases: target is larger than last element
-        if (insertionPoint == values.size()) {
-            return values.get(values.size() - 1);
+    private void doCalculateVolume() {
+        LogEntry newEntry = createEntry(editTextGirth.getText().toString().trim(), editTextLength.getText().toString().trim());
+        if (newEntry == null) {
+            return;
         }
+        queueEntry(newEntry);
 
-        // Compare distance to the element before and after the insertion point
-        double lowerValue = values.get(insertionPoint - 1);
-        double upperValue = values.get(insertionPoint);
-
-        double diffLower = Math.abs(target - lowerValue);
-        double diffUpper = Math.abs(target - upperValue);
-
-        if (diffLower < diffUpper) {
-            return lowerValue;
-        } else if (diffUpper < diffLower) {
-            return upperValue;
-        } else {
-            return upperValue; // If equally close, default to the larger value
-        }
+        // Clear input fields for next entry
+        editTextGirth.setText("");
+        editTextLength.setText("");
     }
 
     /**
-     * Generates a unique key string for looking up unit prices in the map.
-     * @param girthRange The matched GirthRange object.
-     * @param length The closest length value.
-     * @return A string key like "G_start-end_L_length".
+     * Adds the "girth length" pair typed in the rapid-entry field and clears the field for the
+     * next log. The field keeps focus, so logs can be typed one after another from the keyboard.
      */
-    private String getPriceKey(GirthRange girthRange, double length) {
-        return String.format(Locale.US, "G_%.1f-%.1f_L_%.1f", girthRange.getStart(), girthRange.getEnd(), length);
+    private void commitRapidEntry() {
+        long start = PerfMetrics.RAPID_ENTRY.begin();
+        try {
+            doCommitRapidEntry();
+        } finally {
+            PerfMetrics.RAPID_ENTRY.end(start);
+        }
+    }
+
+    private void doCommitRapidEntry() {
+        CharSequence pair = editTextRapid.getText();
+        int split = EntryPreview.pairSplit(pair);
+        if (split < 0) {
+            Toast.makeText(this, "Type girth and length, e.g. 24.5 12", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        String girthStr = pair.subSequence(0, split).toString().trim();
+        String lengthStr = pair.subSequence(EntryPreview.skipSeparators(pair, split), pair.length()).toString().trim();
+        LogEntry newEntry = createEntry(girthStr, lengthStr);
+        if (newEntry == null) {
+            return; // Leave the text in place so the typo can be fixed
+        }
+        queueEntry(newEntry);
+        editTextRapid.setText("");
     }
 
     /**
-     * Calculates the volume of a wood log based on user input for girth and length,
-     * determines the unit price, calculates the log total, and adds the entry to the table.
+     * Validates girth and length, then computes the volume, unit price and log total for them.
+     * @return The new entry, or null (after telling the user why) if the inputs are not valid.
      */
     @SuppressLint("DefaultLocale")
-    private void calculateVolume() {
-        String girthStr = editTextGirth.getText().toString().trim();
-        String lengthStr = editTextLength.getText().toString().trim();
-
+    private LogEntry createEntry(String girthStr, String lengthStr) {
         if (girthStr.isEmpty() || lengthStr.isEmpty()) {
             Toast.makeText(this, "Please enter both Girth and Length.", Toast.LENGTH_SHORT).show();
-            return;
+            return null;
         }
 
         BigDecimal girthBd;
         BigDecimal lengthBd;
 
         try {
-            girthBd = new BigDecimal(girthStr);
-            lengthBd = new BigDecimal(lengthStr);
+            // Round input values for consistency
+            girthBd = new BigDecimal(girthStr).setScale(2, RoundingMode.HALF_UP);
+            lengthBd = new BigDecimal(lengthStr).setScale(2, RoundingMode.HALF_UP);
 
-            // Validate positive input
+            // Validate positive input, after rounding as the edit dialog and pasted tallies do (0.004 is 0)
             if (girthBd.compareTo(BigDecimal.ZERO) <= 0 || lengthBd.compareTo(BigDecimal.ZERO) <= 0) {
                 Toast.makeText(this, "Girth and Length must be positive values.", Toast.LENGTH_SHORT).show();
-                return;
+                return null;
             }
 
-            // Round input values for consistency
-            girthBd = girthBd.setScale(2, RoundingMode.HALF_UP);
-            lengthBd = lengthBd.setScale(2, RoundingMode.HALF_UP);
+            if (!isWithinFormulaRange(girthBd, lengthBd)) {
+                return null;
+            }
 
         } catch (NumberFormatException e) {
             Toast.makeText(this, "Please enter valid numbers for Girth and Length.", Toast.LENGTH_SHORT).show();
-            return;
+            return null;
         }
 
-        // Volume calculation: (Girth^2 * Length) / 2304.
-        // Calculated with high precision first, then rounded for display/storage.
-        BigDecimal rawVolume = girthBd.multiply(girthBd)
-                .multiply(lengthBd)
-                .divide(new BigDecimal("2304"), 6, RoundingMode.HALF_UP); // High precision
-        BigDecimal displayVolume = rawVolume.setScale(1, RoundingMode.HALF_UP); // Rounded for display (1 decimal)
+        if (state.priceTable == null || state.priceTable.rows() == 0 || state.priceTable.cols() == 0) {
+            Toast.makeText(this, "Price table data is missing or invalid. Cannot calculate price.", Toast.LENGTH_SHORT).show();
+        }
+        return priceEntry(girthBd, lengthBd);
+    }
+
+    /**
+     * Computes volume, unit price and log total for inputs that are already validated and
+     * rounded to 2 decimals, priced from the selected species.
+     */
+    private LogEntry priceEntry(BigDecimal girthBd, BigDecimal lengthBd) {
+        // Volume under the bill's formula, already rounded for display/storage
+        BigDecimal displayVolume = computeVolume(girthBd, lengthBd);
 
         BigDecimal unitPrice = findClosestUnitPrice(girthBd, lengthBd);
         // Calculate total cost for the log using the rounded volume
@@ -497,60 +700,336 @@ public class MainActivity extends AppCompatActivity {
                 lengthBd.doubleValue(),
                 displayVolume.doubleValue(),
                 unitPrice.doubleValue(),
-                logTotal.doubleValue()
+                logTotal.doubleValue(),
+                state.priceTable != null ? state.priceTable.priceVersion() : 0
         );
-        logEntries.add(newEntry); // Add to the list
+        newEntry.setSpecies(state.currentSpeciesId, state.speciesCatalog.nameOf(state.currentSpeciesId));
+        return newEntry;
+    }
+
+    /**
+     * Lets the user paste a whole tally (one girth and length pair per line, see
+     * TallyPasteParser), prefilled from the clipboard, and then shows the preview.
+     */
+    private void showPasteTallyDialog() {
+        final EditText input = new EditText(this);
+        input.setInputType(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_MULTI_LINE | InputType.TYPE_TEXT_FLAG_NO_SUGGESTIONS);
+        input.setMinLines(6);
+        input.setGravity(Gravity.TOP | Gravity.START);
+        input.setHint("One girth and length per line, e.g. 32 x 12");
+        ClipboardManager clipboard = (ClipboardManager) getSystemService(Context.CLIPBOARD_SERVICE);
+        ClipData clip = clipboard != null ? clipboard.getPrimaryClip() : null;
+        if (clip != null && clip.getItemCount() > 0) {
+            input.setText(clip.getItemAt(0).coerceToText(this));
+        }
+
+        LinearLayout layout = new LinearLayout(this);
+        layout.setPadding(50, 20, 50, 20);
+        layout.addView(input, new LinearLayout.LayoutParams(LinearLayout.LayoutParams.MATCH_PARENT, LinearLayout.LayoutParams.WRAP_CONTENT));
+
+        new AlertDialog.Builder(this)
+                .setTitle("Paste Tally")
+                .setView(layout)
+                .setPositiveButton("Preview", (dialog, which) -> showPastePreview(input.getText().toString()))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    /**
+     * Shows every pasted line with the volume and price it would get, or why it cannot be added,
+     * and offers to add all valid lines.
+     */
+    private void showPastePreview(String text) {
+        final TallyPasteParser.Result result = TallyPasteParser.parse(text);
+        if (result.count == 0) {
+            Toast.makeText(this, "Nothing to add.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        SpannableStringBuilder preview = new SpannableStringBuilder();
+        if (state.priceTable == null || state.priceTable.rows() == 0 || state.priceTable.cols() == 0) {
+            preview.append("No price table for this species; logs will be priced at 0.\n\n");
+        }
+        for (int i = 0; i < result.count; i++) {
+            preview.append("Line ").append(String.valueOf(result.lineNumbers[i])).append(": ")
+                    .append(text, result.lineStarts[i], result.lineEnds[i]).append("\n    ");
+            if (result.errors[i] == TallyPasteParser.OK) {
+                preview.append(entryPreview.describe(result.girths[i], result.lengths[i], state.priceTable, state.volumeFormula));
+            } else {
+                int errorStart = preview.length();
+                preview.append("Error: ").append(TallyPasteParser.describeError(result.errors[i]));
+                preview.setSpan(new ForegroundColorSpan(Color.RED), errorStart, preview.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            }
+            preview.append('\n');
+        }
+
+        TextView previewView = new TextView(this);
+        previewView.setText(preview);
+        previewView.setTextSize(TypedValue.COMPLEX_UNIT_SP, 14);
+        previewView.setPadding(50, 20, 50, 20);
+        ScrollView scrollView = new ScrollView(this);
+        scrollView.addView(previewView);
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this)
+                .setTitle(result.valid + " of " + result.count + " lines can be added")
+                .setView(scrollView)
+                .setNegativeButton("Cancel", null);
+        if (result.valid > 0) {
+            builder.setPositiveButton("Add " + result.valid + (result.valid == 1 ? " Log" : " Logs"),
+                    (dialog, which) -> addPastedTally(result));
+        }
+        builder.show();
+    }
+
+    // Prices every valid pasted line and commits them all as one batch
+    private void addPastedTally(TallyPasteParser.Result result) {
+        for (int i = 0; i < result.count; i++) {
+            if (result.errors[i] == TallyPasteParser.OK) {
+                queueEntry(priceEntry(BigDecimal.valueOf(result.girths[i], 2), BigDecimal.valueOf(result.lengths[i], 2)));
+            }
+        }
+        flushEntries(); // One save, one table update and one scroll for the whole paste
+        Toast.makeText(this, "Added " + result.valid + (result.valid == 1 ? " log." : " logs."), Toast.LENGTH_SHORT).show();
+    }
+
+    /**
+     * Adds an entry to the tally. Saving, adding table rows, recomputing totals and scrolling
+     * are batched: they run once for all entries added within ENTRY_BATCH_MS, so rapid entry
+     * does not redo the whole-tally work for every log.
+     */
+    private void queueEntry(LogEntry entry) {
+        state.logEntries.add(entry);
+        if (!entryFlushPending) {
+            entryFlushPending = true;
+            uiHandler.postDelayed(entryFlush, ENTRY_BATCH_MS);
+        }
+    }
+
+    /**
+     * Saves and shows the entries queued since the last batch. Rows are inserted only for entries
+     * the table does not show yet, since editing or deleting an entry refreshes the whole table.
+     */
+    private void flushEntries() {
+        if (!entryFlushPending) {
+            return;
+        }
+        entryFlushPending = false;
+        uiHandler.removeCallbacks(entryFlush);
         saveLogEntries(); // Save the updated list to SharedPreferences
 
-        // Add the new entry to the UI table and update totals
-        addEntryToTableUI(newEntry, logEntries.size(), logEntries.size() - 1);
+        // Add the new entries to the UI table and update totals
+        logEntryAdapter.showNewEntries();
         updateTotals();
 
-        // Scroll the ScrollView to the bottom to show the newly added entry
-        mainScrollView.post(() -> mainScrollView.fullScroll(ScrollView.FOCUS_DOWN));
+        // Scroll the table to the bottom to show the newly added entries
+        logRecyclerView.scrollToPosition(state.logEntries.size() - 1);
+    }
 
-        // Clear input fields for next entry
-        editTextGirth.setText("");
-        editTextLength.setText("");
+    /**
+     * Volume of one log under the bill's formula. The formula works on whole hundredths, which is
+     * the scale entry inputs are rounded to before they get here.
+     * @param girthBd Girth in inches, scale 2.
+     * @param lengthBd Length in feet, scale 2.
+     * @return The volume at the formula's scale, e.g. 12.3 (cft) or 0.348 (m³).
+     */
+    private BigDecimal computeVolume(BigDecimal girthBd, BigDecimal lengthBd) {
+        long units = state.volumeFormula.volume(girthBd.unscaledValue().longValue(), lengthBd.unscaledValue().longValue());
+        return BigDecimal.valueOf(units, state.volumeFormula.scale());
+    }
+
+    // Formulas work in primitive arithmetic and are only exact up to VolumeFormulas.MAX_HUNDREDTHS
+    private boolean isWithinFormulaRange(BigDecimal girthBd, BigDecimal lengthBd) {
+        BigDecimal max = BigDecimal.valueOf(VolumeFormulas.MAX_HUNDREDTHS, 2);
+        if (girthBd.compareTo(max) > 0 || lengthBd.compareTo(max) > 0) {
+            Toast.makeText(this, "Girth and Length must be at most " + max.toBigInteger() + ".", Toast.LENGTH_SHORT).show();
+            return false;
+        }
+        return true;
+    }
+
+    // A stored volume with the decimal places of the bill's formula
+    private String formatVolume(double volume) {
+        return FixedDecimalFormat.forDefaultLocale().format(volume, state.volumeFormula.scale());
+    }
+
+    // Same text as String.format("%.<scale>f"), written into the cell's own buffer
+    private static void setFixed(TextView view, FixedDecimalFormat numbers, double value, int scale,
+                                 FixedDecimalFormat.Buffer buffer) {
+        numbers.format(value, scale, buffer);
+        view.setText(buffer.chars, 0, buffer.length);
     }
 
     /**
-     * Adds a single log entry as a new row to the UI table.
-     * @param entry The LogEntry object to display.
-     * @param slNo The serial number for this entry (1-based).
-     * @param entryIndex The actual index of the entry in the `logEntries` list (0-based).
+     * Lets the user pick the volume formula for the current bill. Entries already on the bill are
+     * recalculated with it and re-priced in its unit, so a bill never mixes formulas.
      */
-    private void addEntryToTableUI(LogEntry entry, int slNo, int entryIndex) {
-        TableRow row = new TableRow(this);
-        // Set alternating row colors for better readability
-        if (slNo % 2 == 0) {
-            row.setBackgroundColor(Color.parseColor("#F0F8FF")); // Alice Blue
-        } else {
-            row.setBackgroundColor(Color.WHITE);
+    private void showVolumeFormulaDialog() {
+        final VolumeFormula[] formulas = VolumeFormulas.all();
+        String[] labels = new String[formulas.length];
+        int checked = 0;
+        for (int i = 0; i < formulas.length; i++) {
+            labels[i] = formulas[i].label();
+            if (formulas[i] == state.volumeFormula) checked = i;
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Volume Formula")
+                .setSingleChoiceItems(labels, checked, (dialog, which) -> {
+                    dialog.dismiss();
+                    if (formulas[which] != state.volumeFormula) {
+                        applyVolumeFormula(formulas[which]);
+                    }
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void showBillFormatDialog() {
+        final BillFormat[] formats = BillFormat.all();
+        String[] labels = new String[formats.length];
+        int checked = 0;
+        for (int i = 0; i < formats.length; i++) {
+            labels[i] = formats[i].label;
+            if (formats[i] == state.billFormat) checked = i;
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Bill Format")
+                .setSingleChoiceItems(labels, checked, (dialog, which) -> {
+                    dialog.dismiss();
+                    if (formats[which] != state.billFormat) {
+                        state.billFormat = formats[which];
+                        BillFormat.select(this, formats[which]); // Batch bills use it too
+                        state.billRenderer.update(state.logEntries, billLayout());
+                        Toast.makeText(this, "Bills now print on: " + formats[which].label, Toast.LENGTH_SHORT).show();
+                    }
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void applyVolumeFormula(VolumeFormula formula) {
+        VolumeFormula previous = state.volumeFormula;
+        state.volumeFormula = formula;
+        for (LogEntry entry : state.logEntries) {
+            entry.applyFormula(previous, formula);
+        }
+        volumeHeaderTextView.setText("Volume (" + formula.unit() + ")");
+        schedulePreview();
+        saveLogEntries();
+        repopulateTable();
+        updateTotals();
+        Toast.makeText(this, "Volumes now use: " + formula.label(), Toast.LENGTH_SHORT).show();
+    }
+
+    // The cells of one table row
+    private static class LogRowHolder extends RecyclerView.ViewHolder {
+        final TextView slNo;
+        final TextView length;
+        final TextView girth;
+        final TextView volume;
+        final TextView unitPrice;
+        final TextView total;
+        // TextView.setText(char[], ...) keeps the array, so every number cell has its own
+        final FixedDecimalFormat.Buffer lengthText = new FixedDecimalFormat.Buffer();
+        final FixedDecimalFormat.Buffer girthText = new FixedDecimalFormat.Buffer();
+        final FixedDecimalFormat.Buffer volumeText = new FixedDecimalFormat.Buffer();
+        final FixedDecimalFormat.Buffer unitPriceText = new FixedDecimalFormat.Buffer();
+        final FixedDecimalFormat.Buffer totalText = new FixedDecimalFormat.Buffer();
+
+        LogRowHolder(TableRow row, TextView slNo, TextView length, TextView girth, TextView volume,
+                     TextView unitPrice, TextView total) {
+            super(row);
+            this.slNo = slNo;
+            this.length = length;
+            this.girth = girth;
+            this.volume = volume;
+            this.unitPrice = unitPrice;
+            this.total = total;
+        }
+    }
+
+    /**
+     * Rows of the UI table. Only the rows on screen exist as views, so a long tally, or a
+     * recreated activity, costs a screenful of rows rather than a view per log.
+     */
+    private class LogEntryAdapter extends RecyclerView.Adapter<LogRowHolder> {
+        // Entries the table shows; entries queued for the next batch appear when it is flushed
+        private int shownCount;
+
+        void showAll() {
+            shownCount = state.logEntries.size();
+            notifyDataSetChanged();
         }
-        row.setPadding(0, 4, 0, 4);
 
-        // Set an onClickListener for the row to enable editing/deleting functionality
-        row.setOnClickListener(v -> showEditDeleteDialog(entryIndex));
+        void showNewEntries() {
+            int previous = shownCount;
+            shownCount = state.logEntries.size();
+            if (shownCount > previous) {
+                notifyItemRangeInserted(previous, shownCount - previous);
+            } else {
+                notifyDataSetChanged();
+            }
+        }
 
-        // Add data TextViews for each column.
-        // Sl. No., Length, Girth, Volume, Unit Price, Total
-        row.addView(createTableDataTextView(String.valueOf(slNo)));
-        row.addView(createTableDataTextView(String.format(Locale.getDefault(), "%.2f", entry.getLength())));
-        row.addView(createTableDataTextView(String.format(Locale.getDefault(), "%.2f", entry.getGirth())));
-        // Volume is formatted to 1 decimal place as per calculation
-        row.addView(createTableDataTextView(String.format(Locale.getDefault(), "%.1f", entry.getVolume())));
+        @Override
+        public int getItemCount() {
+            return shownCount;
+        }
 
-        // Create TextView for Unit Price with conditional red color
-        TextView unitPriceTextView = createTableDataTextView(String.format(Locale.getDefault(), "%.2f", entry.getUnitPrice()));
-        if (entry.getUnitPrice() == 0.0) { // If unit price is 0 (meaning not found), set text color to RED
-            unitPriceTextView.setTextColor(Color.RED);
+        @NonNull
+        @Override
+        public LogRowHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            TableRow row = new TableRow(MainActivity.this);
+            row.setLayoutParams(new RecyclerView.LayoutParams(
+                    RecyclerView.LayoutParams.MATCH_PARENT, RecyclerView.LayoutParams.WRAP_CONTENT));
+            row.setPadding(0, 4, 0, 4);
+
+            // Data TextViews for each column: Sl. No., Length, Girth, Volume, Unit Price, Total
+            LogRowHolder holder = new LogRowHolder(row, createTableDataTextView(""), createTableDataTextView(""),
+                    createTableDataTextView(""), createTableDataTextView(""), createTableDataTextView(""),
+                    createTableDataTextView(""));
+            row.addView(holder.slNo);
+            row.addView(holder.length);
+            row.addView(holder.girth);
+            row.addView(holder.volume);
+            row.addView(holder.unitPrice);
+            row.addView(holder.total);
+
+            // Set an onClickListener for the row to enable editing/deleting functionality
+            row.setOnClickListener(v -> {
+                int position = holder.getAdapterPosition();
+                if (position != RecyclerView.NO_POSITION) {
+                    showEditDeleteDialog(position);
+                }
+            });
+            return holder;
         }
-        row.addView(unitPriceTextView);
 
-        row.addView(createTableDataTextView(String.format(Locale.getDefault(), "%.2f", entry.getLogTotal())));
+        @Override
+        public void onBindViewHolder(@NonNull LogRowHolder holder, int position) {
+            LogEntry entry = state.logEntries.get(position);
+            int slNo = position + 1;
+            // Set alternating row colors for better readability
+            if (slNo % 2 == 0) {
+                holder.itemView.setBackgroundColor(Color.parseColor("#F0F8FF")); // Alice Blue
+            } else {
+                holder.itemView.setBackgroundColor(Color.WHITE);
+            }
+
+            // With several species the serial number cell also names the species the row was priced as
+            boolean showSpecies = entry.getSpecies() != null && state.speciesCatalog.size() > 1;
+            holder.slNo.setText(showSpecies ? slNo + "\n" + entry.getSpecies() : String.valueOf(slNo));
+            FixedDecimalFormat numbers = FixedDecimalFormat.forDefaultLocale();
+            setFixed(holder.length, numbers, entry.getLength(), 2, holder.lengthText);
+            setFixed(holder.girth, numbers, entry.getGirth(), 2, holder.girthText);
+            // Volume is formatted to the decimal places of the bill's formula
+            setFixed(holder.volume, numbers, entry.getVolume(), state.volumeFormula.scale(), holder.volumeText);
+
+            // Unit Price with conditional red color: 0 means no price was found
+            setFixed(holder.unitPrice, numbers, entry.getUnitPrice(), 2, holder.unitPriceText);
+            holder.unitPrice.setTextColor(entry.getUnitPrice() == 0.0 ? Color.RED : Color.BLACK);
 
-        tableContainer.addView(row); // Add the new row to the table container
+            setFixed(holder.total, numbers, entry.getLogTotal(), 2, holder.totalText);
+        }
     }
 
     /**
@@ -559,15 +1038,16 @@ public class MainActivity extends AppCompatActivity {
      */
     private void showEditDeleteDialog(final int index) {
         // Validate index to prevent crashes
-        if (index < 0 || index >= logEntries.size()) {
+        if (index < 0 || index >= state.logEntries.size()) {
             Toast.makeText(this, "Invalid row selected.", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        final LogEntry currentEntry = logEntries.get(index);
+        final LogEntry currentEntry = state.logEntries.get(index);
 
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
-        builder.setTitle("Edit/Delete Entry (Sl. No.: " + (index + 1) + ")");
+        builder.setTitle("Edit/Delete Entry (Sl. No.: " + (index + 1) + ")"
+                + (currentEntry.getSpecies() != null ? " - " + currentEntry.getSpecies() : ""));
 
         // Create a LinearLayout to hold input fields
         LinearLayout layout = new LinearLayout(this);
@@ -578,21 +1058,21 @@ public class MainActivity extends AppCompatActivity {
         final EditText inputLength = new EditText(this);
         inputLength.setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL);
         inputLength.setHint("Length (ft)");
-        inputLength.setText(String.format(Locale.getDefault(), "%.2f", currentEntry.getLength()));
+        inputLength.setText(FixedDecimalFormat.forDefaultLocale().format(currentEntry.getLength(), 2));
         layout.addView(inputLength);
 
         // EditText for Girth
         final EditText inputGirth = new EditText(this);
         inputGirth.setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL);
         inputGirth.setHint("Girth (in)");
-        inputGirth.setText(String.format(Locale.getDefault(), "%.2f", currentEntry.getGirth()));
+        inputGirth.setText(FixedDecimalFormat.forDefaultLocale().format(currentEntry.getGirth(), 2));
         layout.addView(inputGirth);
 
         // EditText for Unit Price
         final EditText inputUnitPrice = new EditText(this);
         inputUnitPrice.setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL);
         inputUnitPrice.setHint("Unit Price");
-        inputUnitPrice.setText(String.format(Locale.getDefault(), "%.2f", currentEntry.getUnitPrice()));
+        inputUnitPrice.setText(FixedDecimalFormat.forDefaultLocale().format(currentEntry.getUnitPrice(), 2));
         layout.addView(inputUnitPrice);
 
         builder.setView(layout);
@@ -600,8 +1080,8 @@ public class MainActivity extends AppCompatActivity {
         // "Update" button logic
         builder.setPositiveButton("Update", (dialog, which) -> {
             try {
-                BigDecimal newLength = new BigDecimal(inputLength.getText().toString());
-                BigDecimal newGirth = new BigDecimal(inputGirth.getText().toString());
+                BigDecimal newLength = new BigDecimal(inputLength.getText().toString()).setScale(2, RoundingMode.HALF_UP);
+                BigDecimal newGirth = new BigDecimal(inputGirth.getText().toString()).setScale(2, RoundingMode.HALF_UP);
                 BigDecimal newUnitPrice = new BigDecimal(inputUnitPrice.getText().toString());
 
                 // Input validation for updated values
@@ -609,12 +1089,12 @@ public class MainActivity extends AppCompatActivity {
                     Toast.makeText(this, "Values must be positive (Unit Price can be zero).", Toast.LENGTH_SHORT).show();
                     return;
                 }
+                if (!isWithinFormulaRange(newGirth, newLength)) {
+                    return;
+                }
 
                 // Recalculate volume and total based on new inputs
-                BigDecimal calculatedVolume = newGirth.multiply(newGirth)
-                        .multiply(newLength)
-                        .divide(new BigDecimal("2304"), 6, RoundingMode.HALF_UP);
-                BigDecimal displayVolume = calculatedVolume.setScale(1, RoundingMode.HALF_UP);
+                BigDecimal displayVolume = computeVolume(newGirth, newLength);
 
                 BigDecimal newLogTotal = displayVolume.multiply(newUnitPrice).setScale(2, RoundingMode.HALF_UP);
 
@@ -622,6 +1102,9 @@ public class MainActivity extends AppCompatActivity {
                 currentEntry.setGirth(newGirth.doubleValue());
                 currentEntry.setLength(newLength.doubleValue());
                 currentEntry.setVolume(displayVolume.doubleValue());
+                if (newUnitPrice.doubleValue() != currentEntry.getUnitPrice()) {
+                    currentEntry.setPriceVersion(0); // Price typed in by hand, no longer from a table version
+                }
                 currentEntry.setUnitPrice(newUnitPrice.doubleValue());
                 currentEntry.setLogTotal(newLogTotal.doubleValue());
 
@@ -642,7 +1125,7 @@ public class MainActivity extends AppCompatActivity {
                     .setTitle("Confirm Delete")
                     .setMessage("Are you sure you want to delete this entry (Sl. No.: " + (index + 1) + ")?")
                     .setPositiveButton("Yes", (deleteDialog, deleteWhich) -> {
-                        logEntries.remove(index); // Remove entry from list
+                        state.logEntries.remove(index); // Remove entry from list
                         saveLogEntries(); // Save updated list
                         repopulateTable(); // Refresh UI table
                         updateTotals(); // Update grand totals
@@ -706,18 +1189,19 @@ public class MainActivity extends AppCompatActivity {
      * and updates the respective TextViews on the UI.
      */
     private void updateTotals() {
-        BigDecimal totalVolume = BigDecimal.ZERO;
-        BigDecimal grandTotal = BigDecimal.ZERO;
-
-        for (LogEntry entry : logEntries) {
+        tallyTotals.reset(state.volumeFormula.scale());
+        for (int i = 0; i < state.logEntries.size(); i++) {
             // Add volume and log total from each entry
-            totalVolume = totalVolume.add(new BigDecimal(String.format(Locale.getDefault(), "%.1f", entry.getVolume())));
-            grandTotal = grandTotal.add(new BigDecimal(String.valueOf(entry.getLogTotal())));
+            LogEntry entry = state.logEntries.get(i);
+            tallyTotals.add(entry.getVolume(), entry.getLogTotal());
         }
 
         // Update UI TextViews with calculated totals
-        totalVolumeTextView.setText(String.format(Locale.getDefault(), "Total Volume: %.1f cft", totalVolume.doubleValue()));
-        grandTotalTextView.setText(String.format(Locale.getDefault(), "Grand Total: ₹ %.2f", grandTotal.doubleValue()));
+        totalVolumeTextView.setText("Total Volume: " + formatVolume(tallyTotals.volume()) + " " + state.volumeFormula.unit());
+        grandTotalTextView.setText("Grand Total: ₹ " + FixedDecimalFormat.forDefaultLocale().format(tallyTotals.grandTotal(), 2));
+
+        // Every change to the tally ends here; full bill pages are recorded in the background
+        state.billRenderer.update(state.logEntries, billLayout());
     }
 
     /**
@@ -729,7 +1213,7 @@ public class MainActivity extends AppCompatActivity {
                 .setTitle("Start New Bill?")
                 .setMessage("This will clear all current entries. Are you sure?")
                 .setPositiveButton("Yes", (dialog, which) -> {
-                    logEntries.clear(); // Clear the list
+                    state.logEntries.clear(); // Clear the list
                     saveLogEntries(); // Save the empty list
                     repopulateTable(); // Clear UI table
                     updateTotals(); // Reset totals to zero
@@ -743,7 +1227,7 @@ public class MainActivity extends AppCompatActivity {
      * Prompts the user to enter a client name before generating the PDF bill.
      */
     private void promptForClientNameAndGenerateBill() {
-        if (logEntries.isEmpty()) {
+        if (state.logEntries.isEmpty()) {
             Toast.makeText(this, "No entries to generate a bill.", Toast.LENGTH_SHORT).show();
             return;
         }
@@ -767,6 +1251,46 @@ public class MainActivity extends AppCompatActivity {
         builder.show();
     }
 
+    /**
+     * Puts the tally aside under a client name, to be billed with others from Batch Bills, and
+     * starts a new one.
+     */
+    private void promptForClientNameAndSaveTally() {
+        if (state.logEntries.isEmpty()) {
+            Toast.makeText(this, "No entries to save.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        final EditText input = new EditText(this);
+        input.setInputType(InputType.TYPE_CLASS_TEXT);
+        input.setHint("Client Name");
+        new AlertDialog.Builder(this)
+                .setTitle("Save Tally for Batch")
+                .setMessage("The tally is saved for Batch Bills and a new bill is started.")
+                .setView(input)
+                .setPositiveButton("Save", (dialog, which) -> {
+                    String clientName = input.getText().toString().trim();
+                    if (clientName.isEmpty()) {
+                        clientName = "Unknown_Client"; // Use a default name if no input
+                    }
+                    flushEntries(); // Entries still waiting for their batch belong to this tally
+                    try {
+                        new TallyStore(this).save(clientName, state.logEntries, state.volumeFormula);
+                    } catch (IOException e) {
+                        AppLog.e(TAG, "Error saving tally: %s", e.getMessage(), e);
+                        Toast.makeText(this, "Could not save the tally.", Toast.LENGTH_SHORT).show();
+                        return; // Keep the entries
+                    }
+                    state.logEntries.clear();
+                    saveLogEntries();
+                    repopulateTable();
+                    updateTotals();
+                    Toast.makeText(this, "Tally saved for " + clientName + ". New Bill Started.", Toast.LENGTH_SHORT).show();
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
     /**
      * Handles PDF bill generation, choosing between MediaStore (Android Q+) or legacy approach.
      * @param clientName The name of the client to include in the bill.
@@ -801,113 +1325,55 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    // Opens a bill saved earlier with exactly the same contents instead of saving a duplicate
+    private void openSavedBill(Uri uri) {
+        AppLog.i(TAG, "Bill unchanged, opening the saved copy: %s", uri);
+        Toast.makeText(this, "Bill unchanged. Opening the copy saved earlier.", Toast.LENGTH_SHORT).show();
+        Intent intent = new Intent(Intent.ACTION_VIEW);
+        intent.setDataAndType(uri, "application/pdf");
+        intent.setFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_ACTIVITY_NO_HISTORY);
+        try {
+            startActivity(intent);
+        } catch (Exception e) {
+            Toast.makeText(this, "No application found to open PDF files. Please install a PDF viewer.", Toast.LENGTH_LONG).show();
+            AppLog.e(TAG, "Error opening PDF: %s", e.getMessage(), e);
+        }
+    }
+
     /**
      * Creates and saves a PDF bill to the Downloads/WoodBills directory for API levels below 29 (Android Q).
      * Uses FileOutputStream for direct file access.
      * @param clientName The name of the client for the bill.
      */
     private void createAndSavePdfLegacy(String clientName) {
-        // Setup PDF document
-        PdfDocument document = new PdfDocument();
-        PdfDocument.PageInfo pageInfo = new PdfDocument.PageInfo.Builder(595, 842, 1).create(); // A4 size (points)
-        PdfDocument.Page page = document.startPage(pageInfo);
-        Canvas canvas = page.getCanvas();
-        Paint paint = new Paint();
-
-        int x = 40; // X-coordinate for drawing
-        int y = 40; // Y-coordinate for drawing
-        int lineHeight = 20; // Vertical spacing between lines
-
-        // Draw bill title
-        paint.setTextSize(24f);
-        paint.setColor(Color.BLACK);
-        canvas.drawText("Wood Bill - " + clientName, x, y, paint);
-        y += lineHeight * 2;
-
-        // Draw date and time
-        paint.setTextSize(12f);
-        canvas.drawText("Date: " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date()), x, y, paint);
-        y += lineHeight * 2;
-
-        // Draw table headers for PDF
-        paint.setTextSize(12f);
-        paint.setTypeface(android.graphics.Typeface.DEFAULT_BOLD);
-        canvas.drawText("Sl. No.", x, y, paint);
-        canvas.drawText("Length (ft)", x + 70, y, paint);
-        canvas.drawText("Girth (in)", x + 140, y, paint);
-        canvas.drawText("Volume (cft)", x + 210, y, paint);
-        canvas.drawText("Unit Price", x + 300, y, paint);
-        canvas.drawText("Total", x + 380, y, paint);
-        y += lineHeight;
-        canvas.drawLine(x, y - 5, x + 450, y - 5, paint); // Underline headers
-        y += 10;
-
-        // Draw table data for each log entry
-        paint.setTypeface(android.graphics.Typeface.DEFAULT); // Reset font to normal for data
-        double totalVolume = 0;
-        double grandTotal = 0;
-        for (int i = 0; i < logEntries.size(); i++) {
-            LogEntry entry = logEntries.get(i);
-            canvas.drawText(String.valueOf(i + 1), x, y, paint);
-            canvas.drawText(String.format(Locale.getDefault(), "%.2f", entry.getLength()), x + 70, y, paint);
-            canvas.drawText(String.format(Locale.getDefault(), "%.2f", entry.getGirth()), x + 140, y, paint);
-            canvas.drawText(String.format(Locale.getDefault(), "%.1f", entry.getVolume()), x + 210, y, paint);
-
-            // Set Unit Price color (red if 0.0, black otherwise)
-            if (entry.getUnitPrice() == 0.0) {
-                paint.setColor(Color.RED);
-            } else {
-                paint.setColor(Color.BLACK);
-            }
-            canvas.drawText(String.format(Locale.getDefault(), "%.2f", entry.getUnitPrice()), x + 300, y, paint);
-
-            paint.setColor(Color.BLACK); // Reset color to black for subsequent text on the line
-            canvas.drawText(String.format(Locale.getDefault(), "%.2f", entry.getLogTotal()), x + 380, y, paint);
-            y += lineHeight;
-
-            totalVolume += entry.getVolume();
-            grandTotal += entry.getLogTotal();
-
-            // Add new page if content exceeds current page height
-            if (y > 800 && (i < logEntries.size() - 1)) {
-                document.finishPage(page);
-                pageInfo = new PdfDocument.PageInfo.Builder(595, 842, document.getPages().size() + 1).create();
-                page = document.startPage(pageInfo);
-                canvas = page.getCanvas();
-                y = 40; // Reset Y for new page
-                // Re-draw headers on the new page
-                canvas.drawText("Sl. No.", x, y, paint);
-                canvas.drawText("Length (ft)", x + 70, y, paint);
-                canvas.drawText("Girth (in)", x + 140, y, paint);
-                canvas.drawText("Volume (cft)", x + 210, y, paint);
-                canvas.drawText("Unit Price", x + 300, y, paint);
-                canvas.drawText("Total", x + 380, y, paint);
-                y += lineHeight;
-                canvas.drawLine(x, y - 5, x + 450, y - 5, paint);
-                y += 10;
-            }
+        long start = PerfMetrics.GENERATE_PDF.begin();
+        try {
+            doCreateAndSavePdfLegacy(clientName);
+        } finally {
+            PerfMetrics.GENERATE_PDF.end(start);
         }
-        y += lineHeight;
-
-        canvas.drawLine(x, y - 5, x + 450, y - 5, paint); // Underline before totals
-        y += 10;
-
-        // Draw total volume and grand total
-        paint.setTypeface(android.graphics.Typeface.DEFAULT_BOLD); // Bold for totals
-        canvas.drawText(String.format(Locale.getDefault(), "Total Volume: %.1f cft", totalVolume), x, y, paint);
-        y += lineHeight;
-        canvas.drawText(String.format(Locale.getDefault(), "Grand Total: ₹ %.2f", grandTotal), x, y, paint);
+    }
 
-        document.finishPage(page); // Finish the last page
+    private void doCreateAndSavePdfLegacy(String clientName) {
+        String priceVersions = describePriceVersions();
+        BillLayout compactLayout = compactBillLayout(clientName, priceVersions);
+        String billKey = BillCache.key(clientName, state.logEntries, state.volumeFormula, state.billFormat,
+                compactLayout != null, priceVersions);
+        Uri savedBill = billCache.find(billKey);
+        if (savedBill != null) {
+            openSavedBill(savedBill); // Nothing on the bill changed since it was saved
+            return;
+        }
+        PdfSaver.Bill bill = renderBill(compactLayout, clientName, priceVersions);
 
         // Define directory to save the PDF (Downloads/WoodBills)
         File downloadsDir = new File(Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS), "WoodBills");
         // Check if directory exists, if not, try to create it. Log error if creation fails.
         if (!downloadsDir.exists()) {
             if (!downloadsDir.mkdirs()) { // Check the result of mkdirs()
-                Log.e(TAG, "Failed to create directories for PDF: " + downloadsDir.getAbsolutePath());
+                AppLog.e(TAG, "Failed to create directories for PDF: %s", downloadsDir.getAbsolutePath());
                 Toast.makeText(this, "Failed to create directory for saving bill.", Toast.LENGTH_SHORT).show();
-                document.close();
+                bill.close();
                 return; // Exit if directory cannot be created
             }
         }
@@ -922,9 +1388,9 @@ public class MainActivity extends AppCompatActivity {
         FileOutputStream fos = null;
         try {
             fos = new FileOutputStream(file);
-            document.writeTo(fos); // Write PDF content to file
+            bill.writeTo(fos); // Write PDF content to file
             Toast.makeText(this, "Bill generated and saved to Downloads/WoodBills/" + fileName, Toast.LENGTH_LONG).show();
-            Log.i(TAG, "Bill generated and saved to: " + file.getAbsolutePath());
+            AppLog.i(TAG, "Bill generated and saved to: %s", file.getAbsolutePath());
 
             // Get URI for FileProvider to allow other apps to open the PDF
             Uri pdfUri = FileProvider.getUriForFile(
@@ -932,6 +1398,7 @@ public class MainActivity extends AppCompatActivity {
                     getApplicationContext().getPackageName() + ".fileprovider", // Must match provider authority in manifest
                     file
             );
+            billCache.put(billKey, pdfUri);
 
             // Create an Intent to open the PDF
             Intent intent = new Intent(Intent.ACTION_VIEW);
@@ -941,14 +1408,14 @@ public class MainActivity extends AppCompatActivity {
             startActivity(intent); // Attempt to open the PDF
         } catch (Exception e) {
             Toast.makeText(this, "No application found to open PDF files. Please install a PDF viewer.", Toast.LENGTH_LONG).show();
-            Log.e(TAG, "Error opening PDF: " + e.getMessage(), e);
+            AppLog.e(TAG, "Error opening PDF: %s", e.getMessage(), e);
         } finally {
-            document.close(); // Close PDF document to release resources
+            bill.close(); // Release the rendered pages
             if (fos != null) {
                 try {
                     fos.close(); // Close output stream
                 } catch (Exception e) {
-                    Log.e(TAG, "Error closing OutputStream: " + e.getMessage(), e);
+                    AppLog.e(TAG, "Error closing OutputStream: %s", e.getMessage(), e);
                 }
             }
         }
@@ -960,98 +1427,25 @@ public class MainActivity extends AppCompatActivity {
      * @param clientName The name of the client for the bill.
      */
     private void createAndSavePdfQ(String clientName) {
-        // Setup PDF document
-        PdfDocument document = new PdfDocument();
-        PdfDocument.PageInfo pageInfo = new PdfDocument.PageInfo.Builder(595, 842, 1).create();
-        PdfDocument.Page page = document.startPage(pageInfo);
-        Canvas canvas = page.getCanvas();
-        Paint paint = new Paint();
-
-        int x = 40;
-        int y = 40;
-        int lineHeight = 20;
-
-        // Draw bill title
-        paint.setTextSize(24f);
-        paint.setColor(Color.BLACK);
-        canvas.drawText("Wood Bill - " + clientName, x, y, paint);
-        y += lineHeight * 2;
-
-        // Draw date and time
-        paint.setTextSize(12f);
-        canvas.drawText("Date: " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date()), x, y, paint);
-        y += lineHeight * 2;
-
-        // Draw table headers for PDF
-        paint.setTextSize(12f);
-        paint.setTypeface(android.graphics.Typeface.DEFAULT_BOLD);
-        canvas.drawText("Sl. No.", x, y, paint);
-        canvas.drawText("Length (ft)", x + 70, y, paint);
-        canvas.drawText("Girth (in)", x + 140, y, paint);
-        canvas.drawText("Volume (cft)", x + 210, y, paint);
-        canvas.drawText("Unit Price", x + 300, y, paint);
-        canvas.drawText("Total", x + 380, y, paint);
-        y += lineHeight;
-        canvas.drawLine(x, y - 5, x + 450, y - 5, paint);
-        y += 10;
-
-        // Draw table data for each log entry
-        paint.setTypeface(android.graphics.Typeface.DEFAULT);
-        double totalVolume = 0;
-        double grandTotal = 0;
-        for (int i = 0; i < logEntries.size(); i++) {
-            LogEntry entry = logEntries.get(i);
-            canvas.drawText(String.valueOf(i + 1), x, y, paint);
-            canvas.drawText(String.format(Locale.getDefault(), "%.2f", entry.getLength()), x + 70, y, paint);
-            canvas.drawText(String.format(Locale.getDefault(), "%.2f", entry.getGirth()), x + 140, y, paint);
-            canvas.drawText(String.format(Locale.getDefault(), "%.1f", entry.getVolume()), x + 210, y, paint);
-
-            // Set Unit Price color (red if 0.0, black otherwise)
-            if (entry.getUnitPrice() == 0.0) {
-                paint.setColor(Color.RED);
-            } else {
-                paint.setColor(Color.BLACK);
-            }
-            canvas.drawText(String.format(Locale.getDefault(), "%.2f", entry.getUnitPrice()), x + 300, y, paint);
-
-            paint.setColor(Color.BLACK); // Reset color to black for subsequent text
-            canvas.drawText(String.format(Locale.getDefault(), "%.2f", entry.getLogTotal()), x + 380, y, paint);
-            y += lineHeight;
-
-            totalVolume += entry.getVolume();
-            grandTotal += entry.getLogTotal();
-
-            // Add new page if content exceeds current page height
-            if (y > 800 && (i < logEntries.size() - 1)) {
-                document.finishPage(page);
-                pageInfo = new PdfDocument.PageInfo.Builder(595, 842, document.getPages().size() + 1).create();
-                page = document.startPage(pageInfo);
-                canvas = page.getCanvas();
-                y = 40;
-                // Re-draw headers on new page
-                canvas.drawText("Sl. No.", x, y, paint);
-                canvas.drawText("Length (ft)", x + 70, y, paint);
-                canvas.drawText("Girth (in)", x + 140, y, paint);
-                canvas.drawText("Volume (cft)", x + 210, y, paint);
-                canvas.drawText("Unit Price", x + 300, y, paint);
-                canvas.drawText("Total", x + 380, y, paint);
-                y += lineHeight;
-                canvas.drawLine(x, y - 5, x + 450, y - 5, paint);
-                y += 10;
-            }
+        long start = PerfMetrics.GENERATE_PDF.begin();
+        try {
+            doCreateAndSavePdfQ(clientName);
+        } finally {
+            PerfMetrics.GENERATE_PDF.end(start);
         }
-        y += lineHeight;
-
-        canvas.drawLine(x, y - 5, x + 450, y - 5, paint); // Underline before totals
-        y += 10;
-
-        // Draw total volume and grand total
-        paint.setTypeface(android.graphics.Typeface.DEFAULT_BOLD);
-        canvas.drawText(String.format(Locale.getDefault(), "Total Volume: %.1f cft", totalVolume), x, y, paint);
-        y += lineHeight;
-        canvas.drawText(String.format(Locale.getDefault(), "Grand Total: ₹ %.2f", grandTotal), x, y, paint);
+    }
 
-        document.finishPage(page);
+    private void doCreateAndSavePdfQ(String clientName) {
+        String priceVersions = describePriceVersions();
+        BillLayout compactLayout = compactBillLayout(clientName, priceVersions);
+        String billKey = BillCache.key(clientName, state.logEntries, state.volumeFormula, state.billFormat,
+                compactLayout != null, priceVersions);
+        Uri savedBill = billCache.find(billKey);
+        if (savedBill != null) {
+            openSavedBill(savedBill); // Nothing on the bill changed since it was saved
+            return;
+        }
+        PdfSaver.Bill bill = renderBill(compactLayout, clientName, priceVersions);
 
         // Generate unique filename
         @SuppressLint("DefaultLocale")
@@ -1073,9 +1467,10 @@ public class MainActivity extends AppCompatActivity {
             if (fos == null) {
                 throw new IllegalStateException("Failed to get output stream.");
             }
-            document.writeTo(fos); // Write PDF content to the stream
+            bill.writeTo(fos); // Write PDF content to the stream
             Toast.makeText(this, "Bill generated and saved to Downloads/WoodBills/" + fileName, Toast.LENGTH_LONG).show();
-            Log.i(TAG, "Bill generated and saved to MediaStore URI: " + mediaStoreUri);
+            AppLog.i(TAG, "Bill generated and saved to MediaStore URI: %s", mediaStoreUri);
+            billCache.put(billKey, mediaStoreUri);
 
             // Create an Intent to open the PDF using the MediaStore URI directly (recommended for Q+)
             Intent intent = new Intent(Intent.ACTION_VIEW);
@@ -1085,17 +1480,17 @@ public class MainActivity extends AppCompatActivity {
             startActivity(intent); // Attempt to open the PDF
         } catch (Exception e) {
             Toast.makeText(this, "No application found to open PDF files. Please install a PDF viewer.", Toast.LENGTH_LONG).show();
-            Log.e(TAG, "Error opening PDF: " + e.getMessage(), e);
+            AppLog.e(TAG, "Error opening PDF: %s", e.getMessage(), e);
             if (mediaStoreUri != null) {
                 getContentResolver().delete(mediaStoreUri, null, null); // Clean up if saving failed
             }
         } finally {
-            document.close(); // Close PDF document
+            bill.close(); // Release the rendered pages
             if (fos != null) {
                 try {
                     fos.close(); // Close output stream
                 } catch (Exception e) {
-                    Log.e(TAG, "Error closing OutputStream: " + e.getMessage(), e);
+                    AppLog.e(TAG, "Error closing OutputStream: %s", e.getMessage(), e);
                 }
             }
         }
@@ -1105,6 +1500,8 @@ public class MainActivity extends AppCompatActivity {
     public boolean onCreateOptionsMenu(Menu menu) {
         // Inflate the menu; this adds items to the action bar if it is present.
         getMenuInflater().inflate(R.menu.menu_main, menu);
+        menu.findItem(R.id.action_rapid_entry).setChecked(state.rapidEntry);
+        menu.findItem(R.id.action_compact_pdf).setChecked(state.compactPdf);
         return true;
     }
 
@@ -1122,18 +1519,62 @@ public class MainActivity extends AppCompatActivity {
             Intent intent = new Intent(MainActivity.this, ViewBillsActivity.class);
             startActivity(intent);
             return true;
+        } else if (id == R.id.action_volume_formula) {
+            showVolumeFormulaDialog();
+            return true;
+        } else if (id == R.id.action_bill_format) {
+            showBillFormatDialog();
+            return true;
+        } else if (id == R.id.action_paste_tally) {
+            showPasteTallyDialog();
+            return true;
+        } else if (id == R.id.action_save_tally_for_batch) {
+            promptForClientNameAndSaveTally();
+            return true;
+        } else if (id == R.id.action_batch_bills) {
+            startActivity(new Intent(MainActivity.this, BatchBillsActivity.class));
+            return true;
+        } else if (id == R.id.action_rapid_entry) {
+            boolean rapid = !item.isChecked();
+            item.setChecked(rapid);
+            sharedPreferences.edit().putBoolean(KEY_RAPID_ENTRY, rapid).apply();
+            showEntryMode(rapid);
+            return true;
+        } else if (id == R.id.action_compact_pdf) {
+            state.compactPdf = !item.isChecked();
+            item.setChecked(state.compactPdf);
+            CompactPdfWriter.setEnabled(this, state.compactPdf);
+            return true;
         }
         return super.onOptionsItemSelected(item);
     }
 
+    @Override
+    protected void onPause() {
+        super.onPause();
+        flushEntries(); // Entries still waiting for their batch must not be lost
+        uiHandler.removeCallbacks(previewUpdate);
+        previewPending = false;
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (!isChangingConfigurations()) {
+            state.pricingStale = true; // Left for another screen, e.g. PriceTableActivity
+        }
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
-        // Reload pricing data, log entries, and refresh the table whenever the activity resumes.
-        // This ensures the UI is up-to-date if changes were made in other activities (e.g., PriceTableActivity).
-        loadPricingData();
-        loadLogEntries();
-        repopulateTable();
-        updateTotals();
+        // Remap the price tables only when coming back from elsewhere, since they may have been
+        // edited meanwhile. The tally is only changed here, so it stays as it is in memory.
+        if (state.pricingStale) {
+            state.pricingStale = false;
+            loadPricingData();
+            repopulateTable(); // Species names on the rows depend on how many species there are
+        }
+        schedulePreview();
     }
 }
\ No newline at end of file
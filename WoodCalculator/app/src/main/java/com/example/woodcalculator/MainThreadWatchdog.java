@@ -0,0 +1,179 @@
+package com.example.woodcalculator;
+
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Detects main-thread stalls (the freezes users see) while the app is on screen.
+ *
+ * A background thread posts a tick to the main looper and sleeps for THRESHOLD_MS. If the tick
+ * has not run by then, the main thread is stuck: its stack is sampled once, the PerfMetrics
+ * section open on the main thread names the operation, and the stall is recorded when the tick
+ * finally runs. Its duration is how long the tick waited, so it is a lower bound of the freeze.
+ * The last CAPACITY stalls are kept in memory for the diagnostics screen.
+ *
+ * While idle this costs one tick every THRESHOLD_MS; WoodCalculatorApp stops it whenever no
+ * activity is visible.
+ */
+final class MainThreadWatchdog {
+
+    private static final String TAG = "MainThreadWatchdog";
+
+    static final long THRESHOLD_MS = 250;
+    private static final long POLL_MS = 50; // While stalled, how often to check whether it ended
+    private static final int CAPACITY = 32;
+    private static final int STACK_DEPTH = 25; // Frames kept per stall
+
+    static final class Stall {
+        final long wallTime; // When the delayed tick was posted (System.currentTimeMillis)
+        final long durationMs;
+        final String operation; // PerfMetrics section, else the innermost app frame, else null
+        final StackTraceElement[] stack; // Main thread when the stall was detected
+
+        Stall(long wallTime, long durationMs, String operation, StackTraceElement[] stack) {
+            this.wallTime = wallTime;
+            this.durationMs = durationMs;
+            this.operation = operation;
+            this.stack = stack;
+        }
+    }
+
+    private static final Stall[] stalls = new Stall[CAPACITY]; // Ring buffer; next is the oldest slot
+    private static int next;
+    private static int total; // Stalls since the process started (or the last clear)
+
+    private static Thread thread;
+
+    private MainThreadWatchdog() {
+    }
+
+    static synchronized void start() {
+        if (thread != null) return;
+        thread = new Thread(new Watcher(), TAG);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    static synchronized void stop() {
+        if (thread == null) return;
+        thread.interrupt();
+        thread = null;
+    }
+
+    // One per watchdog thread, so a tick still queued from a stopped watchdog cannot end a stall
+    // the next one is timing
+    private static final class Watcher implements Runnable {
+        private volatile boolean tickRan;
+        private volatile long tickRanAt; // SystemClock.uptimeMillis when the tick ran
+        private final Runnable tick = () -> {
+            tickRanAt = SystemClock.uptimeMillis();
+            tickRan = true;
+        };
+
+        @Override
+        public void run() {
+            Handler main = new Handler(Looper.getMainLooper());
+            Thread mainThread = Looper.getMainLooper().getThread();
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    tickRan = false;
+                    long postedAt = SystemClock.uptimeMillis();
+                    long postedWall = System.currentTimeMillis();
+                    main.post(tick);
+                    Thread.sleep(THRESHOLD_MS);
+                    if (tickRan) continue;
+
+                    String operation = PerfMetrics.currentMainOperation();
+                    StackTraceElement[] stack = trim(mainThread.getStackTrace());
+                    while (!tickRan) {
+                        Thread.sleep(POLL_MS);
+                    }
+                    if (Debug.isDebuggerConnected()) continue; // Breakpoints are not freezes
+                    if (operation == null) operation = innermostAppFrame(stack);
+                    record(new Stall(postedWall, tickRanAt - postedAt, operation, stack));
+                }
+            } catch (InterruptedException e) {
+                // Stopped
+            }
+        }
+    }
+
+    private static StackTraceElement[] trim(StackTraceElement[] stack) {
+        if (stack.length <= STACK_DEPTH) return stack;
+        StackTraceElement[] trimmed = new StackTraceElement[STACK_DEPTH];
+        System.arraycopy(stack, 0, trimmed, 0, STACK_DEPTH);
+        return trimmed;
+    }
+
+    // e.g. "ViewBillsActivity.loadAllBills"; the frame nearest the top that is our code
+    private static String innermostAppFrame(StackTraceElement[] stack) {
+        String name = MainThreadWatchdog.class.getName();
+        String prefix = name.substring(0, name.lastIndexOf('.') + 1);
+        for (StackTraceElement frame : stack) {
+            if (frame.getClassName().startsWith(prefix)) {
+                String className = frame.getClassName().substring(prefix.length());
+                return className + "." + frame.getMethodName();
+            }
+        }
+        return null;
+    }
+
+    private static synchronized void record(Stall stall) {
+        stalls[next] = stall;
+        next = (next + 1) % CAPACITY;
+        total++;
+        AppLog.w(TAG, "Main thread blocked for %d ms in %s", stall.durationMs, stall.operation);
+    }
+
+    // Newest first
+    static synchronized List<Stall> recentStalls() {
+        List<Stall> recent = new ArrayList<>(CAPACITY);
+        for (int i = 1; i <= CAPACITY; i++) {
+            Stall stall = stalls[(next - i + CAPACITY) % CAPACITY];
+            if (stall == null) break;
+            recent.add(stall);
+        }
+        return recent;
+    }
+
+    static synchronized void clear() {
+        for (int i = 0; i < CAPACITY; i++) {
+            stalls[i] = null;
+        }
+        next = 0;
+        total = 0;
+    }
+
+    /**
+     * Plain-text list of the kept stalls, newest first, each with its operation and stack; for
+     * the diagnostics screen and exported reports.
+     */
+    static String report() {
+        List<Stall> recent = recentStalls();
+        int count;
+        synchronized (MainThreadWatchdog.class) {
+            count = total;
+        }
+        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.SSS", Locale.US);
+        StringBuilder out = new StringBuilder();
+        out.append("Main thread stalls over ").append(THRESHOLD_MS).append(" ms: ").append(count)
+                .append(" (last ").append(recent.size()).append(" shown)\n");
+        for (Stall stall : recent) {
+            out.append('\n').append(timeFormat.format(new Date(stall.wallTime)))
+                    .append("  >= ").append(stall.durationMs).append(" ms  ")
+                    .append(stall.operation != null ? stall.operation : "unknown").append('\n');
+            for (StackTraceElement frame : stall.stack) {
+                out.append("    at ").append(frame).append('\n');
+            }
+        }
+        return out.toString();
+    }
+}
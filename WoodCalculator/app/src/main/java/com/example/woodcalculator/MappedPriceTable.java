@@ -0,0 +1,486 @@
+package com.example.woodcalculator;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Read-only view of one species' price table (see PriceTableStore for the file layouts).
+ *
+ * A table is two buffers: the axes (girth ranges, priorities, the GirthIndex and the union length
+ * axis) and the cells. Axes files are content-addressed and shared, so species with the same
+ * girth ranges and lengths store and map them once; the per-species snapshot holds only cells.
+ *
+ * Only cells that have a price are stored, compressed-row style: each girth row owns a slice of
+ * the cell arrays, and the lengths of that slice are the row's own length axis. A ragged tariff
+ * (no short lengths in big girths) therefore takes space for its populated cells only.
+ *
+ * Girth ranges may overlap or leave gaps; the axes carry a GirthIndex (elementary segment
+ * boundaries and the winning row for each), so findGirthRow is one binary search.
+ *
+ * All lookups read boundaries and prices straight out of the ByteBuffers (normally read-only
+ * memory mappings of the files), so opening the table does no parsing and a lookup allocates nothing.
+ */
+public final class MappedPriceTable {
+
+    static final int MAGIC = 0x57505453; // "WPTS"
+    static final int VERSION = 4;
+    // Older layouts, converted to the current one on open: version 1 stored every cell of the
+    // rectangle (NaN = no price), version 2 had no girth index, version 3 kept its own axes
+    static final int DENSE_VERSION = 1;
+    static final int SPARSE_VERSION = 2;
+    static final int TIERED_VERSION = 3;
+    // magic(4) version(4) rows(4) cols(4) generation(8) price version(8, 0 = not recorded) cells(4) reserved(4) axes id(8)
+    static final int HEADER_SIZE = 48;
+    private static final int LEGACY_HEADER_SIZE = 40;
+    private static final int DENSE_HEADER_SIZE = 32;
+
+    static final int AXES_MAGIC = 0x57505441; // "WPTA"
+    static final int AXES_VERSION = 1;
+    // magic(4) version(4) rows(4) cols(4) gap policy(4)
+    static final int AXES_HEADER_SIZE = 20;
+
+    private final ByteBuffer axes;
+    private final ByteBuffer buffer;
+    private final int rows;
+    private final int cols;
+    private final int cells;
+    private final long generation;
+    private final long priceVersion;
+    private final long axesId;
+    // Offsets into axes
+    private final int startsOffset;
+    private final int endsOffset;
+    private final int lengthsOffset;
+    private final int prioritiesOffset;
+    private final int segments;
+    private final int belowRow;
+    private final int aboveRow;
+    private final int pointsOffset;
+    private final int winnersOffset;
+    // Offsets into buffer
+    private final int pricesOffset;
+    private final int rowOffsetsOffset;
+    private final int cellColsOffset;
+
+    private MappedPriceTable(ByteBuffer axes, ByteBuffer buffer) {
+        this.axes = axes;
+        this.buffer = buffer;
+        this.rows = buffer.getInt(8);
+        this.cols = buffer.getInt(12);
+        this.generation = buffer.getLong(16);
+        this.priceVersion = buffer.getLong(24);
+        this.cells = buffer.getInt(32);
+        this.axesId = buffer.getLong(40);
+        this.pricesOffset = HEADER_SIZE;
+        this.rowOffsetsOffset = pricesOffset + cells * 8;
+        this.cellColsOffset = rowOffsetsOffset + (rows + 1) * 4;
+        if (rows < 0 || cols < 0 || cells < 0 || (long) cellColsOffset + (long) cells * 4 > buffer.capacity()) {
+            throw new IllegalArgumentException("Price table store file is truncated.");
+        }
+
+        if (axes.capacity() < AXES_HEADER_SIZE || axes.getInt(0) != AXES_MAGIC || axes.getInt(4) != AXES_VERSION) {
+            throw new IllegalArgumentException("Not a price table axes file.");
+        }
+        if (axes.getInt(8) != rows || axes.getInt(12) != cols) {
+            throw new IllegalArgumentException("Price table axes do not match the table.");
+        }
+        this.startsOffset = AXES_HEADER_SIZE;
+        this.endsOffset = startsOffset + rows * 8;
+        this.lengthsOffset = endsOffset + rows * 8;
+        this.prioritiesOffset = lengthsOffset + cols * 8;
+        int indexOffset = prioritiesOffset + rows * 4;
+        if ((long) indexOffset + 12 > axes.capacity()) {
+            throw new IllegalArgumentException("Price table axes file is truncated.");
+        }
+        this.segments = axes.getInt(indexOffset);
+        this.belowRow = axes.getInt(indexOffset + 4);
+        this.aboveRow = axes.getInt(indexOffset + 8);
+        this.pointsOffset = indexOffset + 12;
+        this.winnersOffset = pointsOffset + (segments > 0 ? (segments + 1) * 8 : 0);
+        if (segments < 0 || (long) winnersOffset + (long) segments * 4 > axes.capacity()) {
+            throw new IllegalArgumentException("Price table axes file is truncated.");
+        }
+    }
+
+    /**
+     * Id of the axes file a store file refers to, or 0 for older layouts that carry their own axes.
+     */
+    static long axesIdOf(ByteBuffer buffer) {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            return 0;
+        }
+        return buffer.getLong(40);
+    }
+
+    /**
+     * Wraps a store file's contents and the axes file it refers to. Files in an older layout
+     * (axes may be null for those) are converted into a heap copy in the current layout; they
+     * are rewritten in the new layout on the next save.
+     */
+    static MappedPriceTable open(ByteBuffer buffer, ByteBuffer axes) {
+        if (buffer.capacity() < DENSE_HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a price table store file.");
+        }
+        int version = buffer.getInt(4);
+        if (version == DENSE_VERSION) {
+            return fromGrid(decodeDense(buffer), buffer.getLong(16), buffer.getLong(24));
+        }
+        if ((version == SPARSE_VERSION || version == TIERED_VERSION) && buffer.capacity() >= LEGACY_HEADER_SIZE) {
+            return fromGrid(decodeSparse(buffer, version), buffer.getLong(16), buffer.getLong(24));
+        }
+        if (version != VERSION || buffer.capacity() < HEADER_SIZE) {
+            throw new IllegalArgumentException("Unsupported price table store version " + version + ".");
+        }
+        if (axes == null) {
+            throw new IllegalArgumentException("Price table axes file is missing.");
+        }
+        return new MappedPriceTable(axes, buffer);
+    }
+
+    // Heap copy of a grid in the current layout; the axes id is only assigned when it is saved
+    static MappedPriceTable fromGrid(PriceGrid grid, long generation, long priceVersion) {
+        return new MappedPriceTable(encodeAxes(grid), encode(grid, generation, priceVersion, 0));
+    }
+
+    private static PriceGrid decodeDense(ByteBuffer buffer) {
+        int rows = buffer.getInt(8);
+        int cols = buffer.getInt(12);
+        if (rows < 0 || cols < 0 || DENSE_HEADER_SIZE + ((long) rows * 2 + cols + (long) rows * cols) * 8 > buffer.capacity()) {
+            throw new IllegalArgumentException("Price table store file is truncated.");
+        }
+        double[] starts = new double[rows];
+        double[] ends = new double[rows];
+        double[] lengths = new double[cols];
+        double[] prices = new double[rows * cols];
+        int offset = DENSE_HEADER_SIZE;
+        for (int r = 0; r < rows; r++, offset += 8) starts[r] = buffer.getDouble(offset);
+        for (int r = 0; r < rows; r++, offset += 8) ends[r] = buffer.getDouble(offset);
+        for (int c = 0; c < cols; c++, offset += 8) lengths[c] = buffer.getDouble(offset);
+        for (int i = 0; i < prices.length; i++, offset += 8) prices[i] = buffer.getDouble(offset);
+        return new PriceGrid(starts, ends, lengths, prices);
+    }
+
+    // Versions 2 and 3: header(40) | starts | ends | lengths | prices | row offsets | columns | (3: priorities | index)
+    private static PriceGrid decodeSparse(ByteBuffer buffer, int version) {
+        int rows = buffer.getInt(8);
+        int cols = buffer.getInt(12);
+        int cells = buffer.getInt(32);
+        long prioritiesOffset = LEGACY_HEADER_SIZE + ((long) rows * 2 + cols + cells) * 8 + ((long) rows + 1 + cells) * 4;
+        if (rows < 0 || cols < 0 || cells < 0
+                || prioritiesOffset + (version == TIERED_VERSION ? rows * 4L : 0) > buffer.capacity()) {
+            throw new IllegalArgumentException("Price table store file is truncated.");
+        }
+        double[] starts = new double[rows];
+        double[] ends = new double[rows];
+        int[] priorities = new int[rows];
+        double[] lengths = new double[cols];
+        double[] prices = new double[rows * cols];
+        Arrays.fill(prices, Double.NaN);
+        int offset = LEGACY_HEADER_SIZE;
+        for (int r = 0; r < rows; r++, offset += 8) starts[r] = buffer.getDouble(offset);
+        for (int r = 0; r < rows; r++, offset += 8) ends[r] = buffer.getDouble(offset);
+        for (int c = 0; c < cols; c++, offset += 8) lengths[c] = buffer.getDouble(offset);
+        int cellPrices = offset;
+        int rowOffsets = cellPrices + cells * 8;
+        int cellCols = rowOffsets + (rows + 1) * 4;
+        for (int r = 0; r < rows; r++) {
+            for (int cell = buffer.getInt(rowOffsets + r * 4), end = buffer.getInt(rowOffsets + (r + 1) * 4); cell < end; cell++) {
+                prices[r * cols + buffer.getInt(cellCols + cell * 4)] = buffer.getDouble(cellPrices + cell * 8);
+            }
+        }
+        GirthIndex.GapPolicy gapPolicy = GirthIndex.GapPolicy.NO_PRICE;
+        if (version == TIERED_VERSION) {
+            for (int r = 0; r < rows; r++) priorities[r] = buffer.getInt((int) prioritiesOffset + r * 4);
+            gapPolicy = policyOf(buffer.getInt(36));
+        }
+        PriceGrid grid = new PriceGrid(starts, ends, priorities, lengths, prices);
+        grid.setGapPolicy(gapPolicy);
+        return grid;
+    }
+
+    /**
+     * Encodes a grid's axes: girth ranges, priorities, the girth index and the length axis.
+     */
+    static ByteBuffer encodeAxes(PriceGrid grid) {
+        int rows = grid.rows();
+        int cols = grid.cols();
+        GirthIndex index = GirthIndex.build(grid.girthStarts, grid.girthEnds, grid.girthPriorities, grid.gapPolicy);
+        int segments = index.winners.length;
+
+        ByteBuffer out = ByteBuffer.allocate(AXES_HEADER_SIZE + (rows * 2 + cols) * 8 + rows * 4
+                + 12 + (segments > 0 ? index.points.length * 8 : 0) + segments * 4);
+        out.putInt(AXES_MAGIC).putInt(AXES_VERSION).putInt(rows).putInt(cols).putInt(grid.gapPolicy.ordinal());
+        for (int r = 0; r < rows; r++) out.putDouble(grid.girthStart(r));
+        for (int r = 0; r < rows; r++) out.putDouble(grid.girthEnd(r));
+        for (int c = 0; c < cols; c++) out.putDouble(grid.length(c));
+        for (int r = 0; r < rows; r++) out.putInt(grid.girthPriority(r));
+        out.putInt(segments).putInt(index.belowRow).putInt(index.aboveRow);
+        if (segments > 0) {
+            for (double point : index.points) out.putDouble(point);
+        }
+        for (int winner : index.winners) out.putInt(winner);
+        return out;
+    }
+
+    /**
+     * Content id of an encoded axes buffer (64-bit FNV-1a), used to name the shared axes file.
+     * Never 0, which marks "no axes file".
+     */
+    static long axesId(ByteBuffer axes) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < axes.capacity(); i++) {
+            hash ^= axes.get(i) & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash != 0 ? hash : 1;
+    }
+
+    /**
+     * Encodes a grid's cells in the store layout, referring to the axes file with the given id;
+     * cells without a price are left out.
+     */
+    static ByteBuffer encode(PriceGrid grid, long generation, long priceVersion, long axesId) {
+        int rows = grid.rows();
+        int cols = grid.cols();
+        int cells = 0;
+        for (double price : grid.prices) {
+            if (!Double.isNaN(price)) cells++;
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + cells * 8 + (rows + 1 + cells) * 4);
+        out.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(cols).putLong(generation).putLong(priceVersion)
+                .putInt(cells).putInt(0).putLong(axesId);
+        for (double price : grid.prices) {
+            if (!Double.isNaN(price)) out.putDouble(price);
+        }
+        int cell = 0;
+        for (int r = 0; r < rows; r++) {
+            out.putInt(cell);
+            for (int c = 0; c < cols; c++) {
+                if (!Double.isNaN(grid.price(r, c))) cell++;
+            }
+        }
+        out.putInt(cell);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (!Double.isNaN(grid.price(r, c))) out.putInt(c);
+            }
+        }
+        return out;
+    }
+
+    private static GirthIndex.GapPolicy policyOf(int ordinal) {
+        GirthIndex.GapPolicy[] policies = GirthIndex.GapPolicy.values();
+        return ordinal >= 0 && ordinal < policies.length ? policies[ordinal] : GirthIndex.GapPolicy.NO_PRICE;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    // Size of the union length axis (every length used by any girth row)
+    public int cols() {
+        return cols;
+    }
+
+    // Incremented on every save, lets readers tell whether they are looking at the latest table
+    public long generation() {
+        return generation;
+    }
+
+    /**
+     * Id of the PriceHistory version this table holds, recorded on bills priced from it.
+     * 0 for tables saved before version history existed.
+     */
+    public long priceVersion() {
+        return priceVersion;
+    }
+
+    // Id of the shared axes file; tables with the same id have identical girth ranges and lengths
+    public long axesId() {
+        return axesId;
+    }
+
+    public double girthStart(int row) {
+        return axes.getDouble(startsOffset + row * 8);
+    }
+
+    public double girthEnd(int row) {
+        return axes.getDouble(endsOffset + row * 8);
+    }
+
+    public int girthPriority(int row) {
+        return axes.getInt(prioritiesOffset + row * 4);
+    }
+
+    public GirthIndex.GapPolicy gapPolicy() {
+        return policyOf(axes.getInt(16));
+    }
+
+    public double length(int col) {
+        return axes.getDouble(lengthsOffset + col * 8);
+    }
+
+    // Number of cells that have a price
+    public int countPrices() {
+        return cells;
+    }
+
+    // First cell of a girth row; the row's cells run up to rowStart(row + 1)
+    public int rowStart(int row) {
+        return buffer.getInt(rowOffsetsOffset + row * 4);
+    }
+
+    public int cellColumn(int cell) {
+        return buffer.getInt(cellColsOffset + cell * 4);
+    }
+
+    public double cellLength(int cell) {
+        return length(cellColumn(cell));
+    }
+
+    public double cellPrice(int cell) {
+        return buffer.getDouble(pricesOffset + cell * 8);
+    }
+
+    // NaN if no price has been set for the cell
+    public double price(int row, int col) {
+        int lo = rowStart(row);
+        int hi = rowStart(row + 1) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int value = cellColumn(mid);
+            if (value < col) {
+                lo = mid + 1;
+            } else if (value > col) {
+                hi = mid - 1;
+            } else {
+                return cellPrice(mid);
+            }
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Returns a heap copy of this table's cells with the given edits applied (used when the edit
+     * log has records the mapped snapshot does not contain yet); the axes stay shared. Edits
+     * outside the table are skipped.
+     */
+    MappedPriceTable withEdits(int[] editRows, int[] editCols, double[] editPrices, int count, long newPriceVersion) {
+        PriceGrid grid = toGrid();
+        for (int i = 0; i < count; i++) {
+            if (editRows[i] >= 0 && editRows[i] < rows && editCols[i] >= 0 && editCols[i] < cols) {
+                grid.setPrice(editRows[i], editCols[i], editPrices[i]);
+            }
+        }
+        return new MappedPriceTable(axes, encode(grid, generation, newPriceVersion, axesId));
+    }
+
+    /**
+     * Finds the girth range for a girth, using the same rule MainActivity always applied:
+     * start < girth <= end, with ranges starting at 0.0 also including 0.0 itself. Where ranges
+     * overlap the stored winner (highest priority) is returned; gaps follow the gap policy.
+     * This is a binary search over the girth index segments.
+     * @return The row index, or -1 if the girth gets no price.
+     */
+    public int findGirthRow(double girth) {
+        if (segments == 0) return -1;
+        double first = axes.getDouble(pointsOffset);
+        if (girth <= first) {
+            return girth == 0.0 && first == 0.0 ? axes.getInt(winnersOffset) : belowRow;
+        }
+        if (girth > axes.getDouble(pointsOffset + segments * 8)) {
+            return aboveRow;
+        }
+        // First segment k whose upper boundary points[k + 1] is not below the girth
+        int lo = 0;
+        int hi = segments - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (axes.getDouble(pointsOffset + (mid + 1) * 8) < girth) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return axes.getInt(winnersOffset + lo * 4);
+    }
+
+    /**
+     * Finds the cell of a girth row at the table length closest to the given length, as
+     * MainActivity always matched lengths: over every length of the table, ties going to the
+     * larger one. If the row has no price at that length the result is -1, so the entry gets no
+     * price rather than the price of some other length.
+     * @return The cell index (see cellPrice/cellLength), or -1 if that cell has no price.
+     */
+    public int findClosestCell(int row, double length) {
+        if (cols == 0) return -1;
+        int lo = 0;
+        int hi = cols - 1;
+        int col = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            double value = length(mid);
+            if (value < length) {
+                lo = mid + 1;
+            } else if (value > length) {
+                hi = mid - 1;
+            } else {
+                col = mid; // Exact match
+                break;
+            }
+        }
+        if (col < 0) {
+            // lo is the insertion point
+            if (lo == 0) {
+                col = 0;
+            } else if (lo == cols) {
+                col = cols - 1;
+            } else {
+                col = Math.abs(length - length(lo - 1)) < Math.abs(length - length(lo)) ? lo - 1 : lo;
+            }
+        }
+        // The row's cells are in column order
+        lo = rowStart(row);
+        hi = rowStart(row + 1) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int midCol = cellColumn(mid);
+            if (midCol < col) {
+                lo = mid + 1;
+            } else if (midCol > col) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Decodes the whole table into an editable PriceGrid over the union length axis (used by the
+     * price table editor); cells a row has no price for are NaN.
+     */
+    public PriceGrid toGrid() {
+        double[] starts = new double[rows];
+        double[] ends = new double[rows];
+        int[] priorities = new int[rows];
+        double[] lengths = new double[cols];
+        double[] prices = new double[rows * cols];
+        Arrays.fill(prices, Double.NaN);
+        for (int c = 0; c < cols; c++) {
+            lengths[c] = length(c);
+        }
+        for (int r = 0; r < rows; r++) {
+            starts[r] = girthStart(r);
+            ends[r] = girthEnd(r);
+            priorities[r] = girthPriority(r);
+            for (int cell = rowStart(r), end = rowStart(r + 1); cell < end; cell++) {
+                prices[r * cols + cellColumn(cell)] = cellPrice(cell);
+            }
+        }
+        PriceGrid grid = new PriceGrid(starts, ends, priorities, lengths, prices);
+        grid.setGapPolicy(gapPolicy());
+        return grid;
+    }
+}
@@ -3,13 +3,17 @@ package com.example.woodcalculator; // Make sure this matches your package name
 import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
+import android.graphics.pdf.PdfDocument;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Environment;
 import android.provider.MediaStore;
-import android.util.Log;
+
+import androidx.core.content.FileProvider;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 
 // This class handles PDF saving specifically for Android Q (API 29) and above
@@ -18,6 +22,34 @@ public class PdfSaver {
 
     private static final String TAG = "PdfSaver";
 
+    /** A rendered bill: a PdfDocument, or the bytes CompactPdfWriter wrote. */
+    static final class Bill {
+        private final PdfDocument document;
+        private final byte[] bytes;
+
+        Bill(PdfDocument document) {
+            this.document = document;
+            this.bytes = null;
+        }
+
+        Bill(byte[] bytes) {
+            this.document = null;
+            this.bytes = bytes;
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            if (document != null) {
+                document.writeTo(out);
+            } else {
+                out.write(bytes);
+            }
+        }
+
+        void close() {
+            if (document != null) document.close();
+        }
+    }
+
     // This method is designed to be called only on devices with API >= 29
     public static Uri savePdfToDownloadsQ(Context context, String fileName, OutputStream outputStream) {
         ContentResolver resolver = context.getContentResolver();
@@ -43,11 +75,56 @@ public class PdfSaver {
             return uri;
 
         } catch (Exception e) {
-            Log.e(TAG, "Error saving PDF via MediaStore in PdfSaver: " + e.getMessage(), e);
+            AppLog.e(TAG, "Error saving PDF via MediaStore in PdfSaver: %s", e.getMessage(), e);
             if (uri != null) {
                 resolver.delete(uri, null, null); // Clean up if saving failed
             }
             return null;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Writes bill to Downloads/WoodBills as fileName, through MediaStore on Q and above and
+     * as a plain file before (WRITE_EXTERNAL_STORAGE must be granted there). Safe to call from
+     * any thread; the caller still closes bill.
+     * @return A Uri other apps can be given to open the bill.
+     * @throws IOException If the bill could not be written; nothing is left behind then.
+     */
+    static Uri publish(Context context, String fileName, Bill bill) throws IOException {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Uri uri = savePdfToDownloadsQ(context, fileName, null);
+            if (uri == null) {
+                throw new IOException("Failed to create MediaStore record for " + fileName);
+            }
+            ContentResolver resolver = context.getContentResolver();
+            try (OutputStream out = resolver.openOutputStream(uri)) {
+                if (out == null) {
+                    throw new IOException("Failed to get output stream for " + uri);
+                }
+                bill.writeTo(out);
+            } catch (IOException | RuntimeException e) {
+                resolver.delete(uri, null, null); // Clean up if saving failed
+                throw e;
+            }
+            return uri;
+        }
+
+        File dir = new File(Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS), "WoodBills");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Failed to create " + dir.getAbsolutePath());
+        }
+        File file = new File(dir, fileName);
+        // Bills of one batch can share a client name and a second; MediaStore renames those itself
+        String base = fileName.endsWith(".pdf") ? fileName.substring(0, fileName.length() - 4) : fileName;
+        for (int n = 1; file.exists(); n++) {
+            file = new File(dir, base + "_" + n + ".pdf");
+        }
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            bill.writeTo(out);
+        } catch (IOException e) {
+            file.delete();
+            throw e;
+        }
+        return FileProvider.getUriForFile(context, context.getPackageName() + ".fileprovider", file);
+    }
+}
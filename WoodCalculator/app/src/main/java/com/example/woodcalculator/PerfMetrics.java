@@ -0,0 +1,120 @@
+package com.example.woodcalculator;
+
+import android.os.Build;
+import android.os.Looper;
+import android.os.Trace;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Timings of the app's hot paths. Each Section is both a trace section (visible in a Perfetto or
+ * systrace capture) and a latency histogram that is always recording, so the diagnostics screen
+ * can show p50/p95/p99 from the field without a profiler attached.
+ *
+ * Usage, always with finally so the trace sections stay balanced:
+ * <pre>
+ * long start = PerfMetrics.SAVE_LOG_ENTRIES.begin();
+ * try { ... } finally { PerfMetrics.SAVE_LOG_ENTRIES.end(start); }
+ * </pre>
+ * Long methods are timed from a small wrapper that calls the untouched body (saveLogEntries calls
+ * doSaveLogEntries). begin/end allocate nothing. Histograms live for the process; they are not persisted.
+ *
+ * Sections open on the main thread are also tracked, so MainThreadWatchdog can say which
+ * operation was running when the UI stalled.
+ */
+final class PerfMetrics {
+
+    static final class Section {
+        final String name;
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        private Section(String name) {
+            this.name = name;
+        }
+
+        long begin() {
+            Trace.beginSection(name);
+            if (Thread.currentThread() == MAIN_THREAD) {
+                if (mainDepth < mainSections.length) mainSections[mainDepth] = name;
+                mainDepth++;
+            }
+            return System.nanoTime();
+        }
+
+        void end(long startNanos) {
+            histogram.record(System.nanoTime() - startNanos);
+            if (Thread.currentThread() == MAIN_THREAD && mainDepth > 0) {
+                mainDepth--;
+            }
+            Trace.endSection();
+        }
+    }
+
+    private static final Thread MAIN_THREAD = Looper.getMainLooper().getThread();
+    // Names of the sections open on the main thread, outermost first; written by the main thread only
+    private static final String[] mainSections = new String[8];
+    private static volatile int mainDepth;
+
+    static final Section FIND_UNIT_PRICE = new Section("findClosestUnitPrice");
+    static final Section CALCULATE_VOLUME = new Section("calculateVolume");
+    static final Section RAPID_ENTRY = new Section("commitRapidEntry");
+    static final Section SAVE_LOG_ENTRIES = new Section("saveLogEntries");
+    static final Section LOAD_PRICING_DATA = new Section("loadPricingData");
+    static final Section REPOPULATE_TABLE = new Section("repopulateTable");
+    static final Section REBUILD_PRICE_TABLE = new Section("rebuildTableFromData");
+    static final Section GENERATE_PDF = new Section("generatePdf");
+    static final Section LOAD_ALL_BILLS = new Section("loadAllBills");
+    static final Section LOAD_LOG_ENTRIES = new Section("loadLogEntries");
+    static final Section IMPORT_PRICE_LIST = new Section("importPriceList");
+    static final Section RECORD_BILL_PAGE = new Section("recordBillPage"); // Background, see BillPdfRenderer
+    static final Section BATCH_BILL = new Section("batchBill"); // Background, one bill of a BatchBillJob
+
+    private static final Section[] ALL = {
+            FIND_UNIT_PRICE, CALCULATE_VOLUME, RAPID_ENTRY, SAVE_LOG_ENTRIES, LOAD_PRICING_DATA,
+            REPOPULATE_TABLE, REBUILD_PRICE_TABLE, GENERATE_PDF, LOAD_ALL_BILLS, LOAD_LOG_ENTRIES,
+            IMPORT_PRICE_LIST, RECORD_BILL_PAGE, BATCH_BILL,
+    };
+
+    private PerfMetrics() {
+    }
+
+    static Section[] all() {
+        return ALL.clone();
+    }
+
+    /**
+     * @return The innermost section open on the main thread, or null. Safe to call from any
+     *         thread; the answer may be a moment out of date.
+     */
+    static String currentMainOperation() {
+        int depth = Math.min(mainDepth, mainSections.length);
+        return depth > 0 ? mainSections[depth - 1] : null;
+    }
+
+    static void reset() {
+        for (Section section : ALL) {
+            section.histogram.reset();
+        }
+    }
+
+    /**
+     * Plain-text table of every section (times in ms), headed by the device, for the
+     * diagnostics screen and exported reports.
+     */
+    static String report() {
+        StringBuilder out = new StringBuilder();
+        out.append("Wood Calculator hot-path timings\n");
+        out.append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US).format(new Date())).append('\n');
+        out.append(Build.MANUFACTURER).append(' ').append(Build.MODEL)
+                .append(", Android ").append(Build.VERSION.RELEASE).append(" (API ").append(Build.VERSION.SDK_INT).append(")\n\n");
+        out.append(String.format(Locale.US, "%-22s %7s %9s %9s %9s %9s%n", "section", "count", "p50", "p95", "p99", "max"));
+        for (Section section : ALL) {
+            LatencyHistogram.Snapshot s = section.histogram.snapshot();
+            out.append(String.format(Locale.US, "%-22s %7d %9.3f %9.3f %9.3f %9.3f%n", section.name, s.count,
+                    s.p50Nanos / 1e6, s.p95Nanos / 1e6, s.p99Nanos / 1e6, s.maxNanos / 1e6));
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.woodcalculator;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * A bulk price change over a rectangular block of the price grid (a girth row, a length column,
+ * any block, or the whole table).
+ *
+ * apply() makes one pass over the block, rounds every new price to 1 decimal (HALF_UP, same as a
+ * single-cell edit) and reports the changed cells, so the caller can persist and redraw them in
+ * one go.
+ */
+public class PriceBulkEdit {
+
+    public enum Operation {
+        SET("Set value"),
+        ADJUST_PERCENT("Adjust by %"),
+        ADJUST_AMOUNT("Adjust by amount"),
+        FILL_DOWN("Fill down (from first girth row)"),
+        FILL_ACROSS("Fill across (from first length)"),
+        COPY_ROW("Copy girth row");
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    // Cells whose price changed, as parallel arrays
+    public static class Changes {
+        public final int[] rows;
+        public final int[] cols;
+        public final double[] prices;
+        public int count;
+
+        Changes(int capacity) {
+            rows = new int[capacity];
+            cols = new int[capacity];
+            prices = new double[capacity];
+        }
+    }
+
+    private final Operation operation;
+    private final int firstRow;
+    private final int lastRow;
+    private final int firstCol;
+    private final int lastCol;
+    private final double value;    // Price, percentage or amount, depending on the operation
+    private final int sourceRow;   // Only for COPY_ROW
+
+    public PriceBulkEdit(Operation operation, int firstRow, int lastRow, int firstCol, int lastCol, double value, int sourceRow) {
+        this.operation = operation;
+        this.firstRow = Math.min(firstRow, lastRow);
+        this.lastRow = Math.max(firstRow, lastRow);
+        this.firstCol = Math.min(firstCol, lastCol);
+        this.lastCol = Math.max(firstCol, lastCol);
+        this.value = value;
+        this.sourceRow = sourceRow;
+    }
+
+    /**
+     * Applies the operation to the grid in place.
+     * @return The cells whose price actually changed.
+     * @throws IllegalArgumentException if the block or source row is outside the grid, the value is invalid, or a new
+     *         price would overflow. The grid is then left unchanged.
+     */
+    public Changes apply(PriceGrid grid) {
+        if (firstRow < 0 || lastRow >= grid.rows() || firstCol < 0 || lastCol >= grid.cols()) {
+            throw new IllegalArgumentException("Selected block is outside the price table.");
+        }
+        if (operation == Operation.COPY_ROW && (sourceRow < 0 || sourceRow >= grid.rows())) {
+            throw new IllegalArgumentException("Select a girth row to copy from.");
+        }
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Please enter a valid number."); // e.g. too many digits, parsed as Infinity
+        }
+        if (operation == Operation.SET && value < 0) {
+            throw new IllegalArgumentException("Price cannot be negative.");
+        }
+
+        Changes changes = new Changes((lastRow - firstRow + 1) * (lastCol - firstCol + 1));
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstCol; c <= lastCol; c++) {
+                double current = grid.price(r, c);
+                double updated = newPrice(grid, r, c, current);
+                if (Double.isNaN(updated)) {
+                    continue; // Nothing to apply to (unset cell, or unset source)
+                }
+                if (Double.isInfinite(updated)) {
+                    throw new IllegalArgumentException("New prices would be too large.");
+                }
+                updated = round(Math.max(0.0, updated)); // Prices never go below zero
+                if (Double.compare(updated, current) != 0) {
+                    changes.rows[changes.count] = r;
+                    changes.cols[changes.count] = c;
+                    changes.prices[changes.count] = updated;
+                    changes.count++;
+                }
+            }
+        }
+        // Written only once every new price is known, so a rejected edit leaves the grid as it was.
+        // Sources (first row/column, copied row) are never targets, so reading them above is unaffected.
+        for (int i = 0; i < changes.count; i++) {
+            grid.setPrice(changes.rows[i], changes.cols[i], changes.prices[i]);
+        }
+        return changes;
+    }
+
+    // NaN means "leave this cell alone"
+    private double newPrice(PriceGrid grid, int r, int c, double current) {
+        switch (operation) {
+            case SET:
+                return value;
+            case ADJUST_PERCENT:
+                return current * (1.0 + value / 100.0);
+            case ADJUST_AMOUNT:
+                return current + value;
+            case FILL_DOWN:
+                return r == firstRow ? Double.NaN : grid.price(firstRow, c);
+            case FILL_ACROSS:
+                return c == firstCol ? Double.NaN : grid.price(r, firstCol);
+            case COPY_ROW:
+                return r == sourceRow ? Double.NaN : grid.price(sourceRow, c);
+            default:
+                return Double.NaN;
+        }
+    }
+
+    // Same 1-decimal HALF_UP rounding as PriceTableActivity.showEditCellDialog
+    static double round(double price) {
+        return new BigDecimal(price).setScale(1, RoundingMode.HALF_UP).doubleValue();
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.woodcalculator;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Append-only log of single-cell price edits made on top of a price table snapshot.
+ *
+ * Layout (big-endian):
+ * <pre>
+ *   header : magic "WPEL" | version | base generation (long) -- the snapshot the edits apply to
+ *   record : row (int) | col (int) | price (double)            -- 16 bytes per edit
+ * </pre>
+ * A record cut short by a crash is ignored on replay. When the snapshot is rewritten its
+ * generation changes, so an old log left behind no longer matches and is discarded.
+ */
+class PriceEditLog {
+
+    private static final int MAGIC = 0x5750454C; // "WPEL"
+    private static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 16;
+
+    // Edits read back from the log, in the order they were made
+    static class Edits {
+        final long baseGeneration;
+        int[] rows = new int[16];
+        int[] cols = new int[16];
+        double[] prices = new double[16];
+        int count;
+
+        Edits(long baseGeneration) {
+            this.baseGeneration = baseGeneration;
+        }
+
+        void add(int row, int col, double price) {
+            if (count == rows.length) {
+                rows = Arrays.copyOf(rows, count * 2);
+                cols = Arrays.copyOf(cols, count * 2);
+                prices = Arrays.copyOf(prices, count * 2);
+            }
+            rows[count] = row;
+            cols[count] = col;
+            prices[count] = price;
+            count++;
+        }
+    }
+
+    private final File file;
+
+    PriceEditLog(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Reads all complete records.
+     * @return The edits, or null if there is no log or its header is unreadable.
+     */
+    Edits read() throws IOException {
+        if (!file.exists() || file.length() < HEADER_SIZE) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            Edits edits = new Edits(in.readLong());
+            long complete = (file.length() - HEADER_SIZE) / RECORD_SIZE;
+            for (long i = 0; i < complete; i++) {
+                edits.add(in.readInt(), in.readInt(), in.readDouble());
+            }
+            return edits;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Number of records in the log (without reading them).
+     */
+    long size() {
+        return file.exists() ? Math.max(0, (file.length() - HEADER_SIZE) / RECORD_SIZE) : 0;
+    }
+
+    /**
+     * Appends edits for the given snapshot generation. If the log belongs to a different snapshot
+     * (or does not exist yet) it is started afresh.
+     */
+    void append(long baseGeneration, int[] rows, int[] cols, double[] prices, int count) throws IOException {
+        boolean restart = !matches(baseGeneration);
+        ByteBuffer buffer = ByteBuffer.allocate((restart ? HEADER_SIZE : 0) + count * RECORD_SIZE);
+        if (restart) {
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(baseGeneration);
+        }
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(rows[i]).putInt(cols[i]).putDouble(prices[i]);
+        }
+        try (FileOutputStream fos = new FileOutputStream(file, !restart)) {
+            if (!restart) {
+                // Drop a partial record left by an interrupted write so new records stay aligned
+                long aligned = HEADER_SIZE + size() * RECORD_SIZE;
+                if (fos.getChannel().size() != aligned) {
+                    fos.getChannel().truncate(aligned);
+                }
+            }
+            fos.write(buffer.array());
+        }
+    }
+
+    void delete() {
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    private boolean matches(long baseGeneration) throws IOException {
+        if (!file.exists() || file.length() < HEADER_SIZE) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC && in.readInt() == VERSION && in.readLong() == baseGeneration;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.woodcalculator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Primitive-array form of the price table: girth range boundaries, the length axis and a
+ * row-major price matrix (one row per girth range, one column per length).
+ *
+ * Cells without a price hold NaN. This is the representation used whenever the table has to be
+ * encoded or compared cell by cell; the activities keep using their String-keyed map for the UI.
+ *
+ * Girth ranges are sorted by start (then end) and may overlap or leave gaps; each has a priority
+ * and the table has a gap policy, which together decide the matching range (see GirthIndex).
+ */
+public final class PriceGrid {
+
+    final double[] girthStarts;
+    final double[] girthEnds;
+    final double[] lengths;
+    final double[] prices; // girthStarts.length * lengths.length, NaN = no price set
+    final int[] girthPriorities; // Higher wins where ranges overlap
+    GirthIndex.GapPolicy gapPolicy = GirthIndex.GapPolicy.NO_PRICE;
+
+    public PriceGrid(double[] girthStarts, double[] girthEnds, double[] lengths, double[] prices) {
+        this(girthStarts, girthEnds, new int[girthStarts.length], lengths, prices);
+    }
+
+    public PriceGrid(double[] girthStarts, double[] girthEnds, int[] girthPriorities, double[] lengths, double[] prices) {
+        if (girthStarts.length != girthEnds.length || girthStarts.length != girthPriorities.length
+                || prices.length != girthStarts.length * lengths.length) {
+            throw new IllegalArgumentException("Price grid dimensions do not match.");
+        }
+        this.girthStarts = girthStarts;
+        this.girthEnds = girthEnds;
+        this.girthPriorities = girthPriorities;
+        this.lengths = lengths;
+        this.prices = prices;
+    }
+
+    /**
+     * Builds a grid from the structures PriceTableActivity keeps (and exports as JSON).
+     */
+    public static PriceGrid fromTable(List<PriceTableActivity.GirthRange> girthRanges, List<Double> lengthValues,
+                                      Map<String, Double> unitPrices) {
+        int rows = girthRanges.size();
+        int cols = lengthValues.size();
+        double[] starts = new double[rows];
+        double[] ends = new double[rows];
+        int[] priorities = new int[rows];
+        double[] lengths = new double[cols];
+        double[] prices = new double[rows * cols];
+
+        for (int c = 0; c < cols; c++) {
+            lengths[c] = lengthValues.get(c);
+        }
+        for (int r = 0; r < rows; r++) {
+            PriceTableActivity.GirthRange range = girthRanges.get(r);
+            starts[r] = range.getStart();
+            ends[r] = range.getEnd();
+            priorities[r] = range.getPriority();
+            for (int c = 0; c < cols; c++) {
+                Double price = unitPrices.get(priceKey(starts[r], ends[r], lengths[c]));
+                prices[r * cols + c] = price != null ? price : Double.NaN;
+            }
+        }
+        return new PriceGrid(starts, ends, priorities, lengths, prices);
+    }
+
+    public int rows() {
+        return girthStarts.length;
+    }
+
+    public int cols() {
+        return lengths.length;
+    }
+
+    public double girthStart(int row) {
+        return girthStarts[row];
+    }
+
+    public double girthEnd(int row) {
+        return girthEnds[row];
+    }
+
+    public int girthPriority(int row) {
+        return girthPriorities[row];
+    }
+
+    public GirthIndex.GapPolicy gapPolicy() {
+        return gapPolicy;
+    }
+
+    public void setGapPolicy(GirthIndex.GapPolicy gapPolicy) {
+        this.gapPolicy = gapPolicy;
+    }
+
+    /**
+     * Same girth ranges, priorities, gap policy and lengths (the arrays are shared, not copied)
+     * with no prices set; the starting point for a new species.
+     */
+    public PriceGrid withoutPrices() {
+        double[] empty = new double[prices.length];
+        Arrays.fill(empty, Double.NaN);
+        PriceGrid grid = new PriceGrid(girthStarts, girthEnds, girthPriorities, lengths, empty);
+        grid.setGapPolicy(gapPolicy);
+        return grid;
+    }
+
+    public double length(int col) {
+        return lengths[col];
+    }
+
+    // NaN if the cell has no price
+    public double price(int row, int col) {
+        return prices[row * lengths.length + col];
+    }
+
+    public void setPrice(int row, int col, double price) {
+        prices[row * lengths.length + col] = price;
+    }
+
+    public List<PriceTableActivity.GirthRange> toGirthRanges() {
+        List<PriceTableActivity.GirthRange> ranges = new ArrayList<>(girthStarts.length);
+        for (int r = 0; r < girthStarts.length; r++) {
+            ranges.add(new PriceTableActivity.GirthRange(girthStarts[r], girthEnds[r], girthPriorities[r]));
+        }
+        return ranges;
+    }
+
+    public List<Double> toLengthValues() {
+        List<Double> values = new ArrayList<>(lengths.length);
+        for (double length : lengths) {
+            values.add(length);
+        }
+        return values;
+    }
+
+    // Only cells that have a price are put in the map, as PriceTableActivity does
+    public Map<String, Double> toUnitPrices() {
+        Map<String, Double> unitPrices = new LinkedHashMap<>();
+        for (int r = 0; r < girthStarts.length; r++) {
+            for (int c = 0; c < lengths.length; c++) {
+                double price = prices[r * lengths.length + c];
+                if (!Double.isNaN(price)) {
+                    unitPrices.put(priceKey(girthStarts[r], girthEnds[r], lengths[c]), price);
+                }
+            }
+        }
+        return unitPrices;
+    }
+
+    /**
+     * Key format shared with PriceTableActivity and MainActivity ("G_start-end_L_length").
+     */
+    public static String priceKey(double girthStart, double girthEnd, double length) {
+        // US format for a consistent decimal separator; same text as "G_%.1f-%.1f_L_%.1f"
+        StringBuilder key = new StringBuilder(24).append("G_");
+        FixedDecimalFormat.US.append(key, girthStart, 1).append('-');
+        FixedDecimalFormat.US.append(key, girthEnd, 1).append("_L_");
+        return FixedDecimalFormat.US.append(key, length, 1).toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PriceGrid)) return false;
+        PriceGrid that = (PriceGrid) o;
+        // Arrays.equals on double[] compares bit patterns, so NaN cells match each other
+        return Arrays.equals(girthStarts, that.girthStarts) && Arrays.equals(girthEnds, that.girthEnds)
+                && Arrays.equals(girthPriorities, that.girthPriorities) && gapPolicy == that.gapPolicy
+                && Arrays.equals(lengths, that.lengths) && Arrays.equals(prices, that.prices);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(girthStarts);
+        result = 31 * result + Arrays.hashCode(girthEnds);
+        result = 31 * result + Arrays.hashCode(girthPriorities);
+        result = 31 * result + gapPolicy.hashCode();
+        result = 31 * result + Arrays.hashCode(lengths);
+        return 31 * result + Arrays.hashCode(prices);
+    }
+}
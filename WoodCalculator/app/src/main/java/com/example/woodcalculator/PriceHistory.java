@@ -0,0 +1,304 @@
+package com.example.woodcalculator;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only history of every price table version.
+ *
+ * Layout (big-endian):
+ * <pre>
+ *   header : magic "WPHS" | version
+ *   record : type (byte) | version id (long) | count (int) | payload
+ *     BASE    : count = rows | cols (int) | gap policy (int) | starts | ends | priorities (ints) | lengths | prices
+ *                                                                        -- full table, axes changed
+ *     DELTA   : count cells of row (int) | col (int) | price (double)    -- cells changed since the previous version
+ *     BASE_V1 : count = rows | cols (int) | starts | ends | lengths | prices
+ * </pre>
+ * Only the first version and versions that change the girth ranges, their priorities, the gap
+ * policy or the lengths store a whole table; all other versions cost 16 bytes per changed cell.
+ * Version ids increase by one per record. Version 1 files hold BASE_V1 records, without
+ * priorities or gap policy (read as 0 and NO_PRICE); they are still read, and new records are
+ * appended to them.
+ * A record cut short by a crash is ignored and overwritten by the next append. The latest id and
+ * the end of the last record are found by one scan of the record headers, then kept up to date
+ * by appends.
+ */
+class PriceHistory {
+
+    private static final int MAGIC = 0x57504853; // "WPHS"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 8;
+    private static final byte TYPE_BASE_V1 = 1;
+    private static final byte TYPE_DELTA = 2;
+    private static final byte TYPE_BASE = 3;
+    private static final int RECORD_HEADER_SIZE = 13; // type(1) id(8) count(4)
+
+    // Tail of each history file by path, so a file is scanned once per process rather than on
+    // every edit (stores are created per call). Trusted only while the file still has the length
+    // it had then. Guarded by itself.
+    private static final Map<String, Tail> TAILS = new HashMap<>();
+
+    private final File file;
+
+    PriceHistory(File file) {
+        this.file = file;
+    }
+
+    // Result of scanning the record headers without decoding any prices
+    private static class Tail {
+        long latestId;      // 0 if there are no versions yet
+        long validLength;   // End of the last complete record
+        long fileLength;    // Length of the file when this was taken; 0 if there was none
+    }
+
+    /**
+     * Id of the newest recorded version, or 0 if no version has been recorded.
+     */
+    long latestVersionId() throws IOException {
+        return tail().latestId;
+    }
+
+    /**
+     * Records a whole table as a new version.
+     * @return The new version id.
+     */
+    long appendBase(PriceGrid grid) throws IOException {
+        int rows = grid.rows();
+        int cols = grid.cols();
+        ByteBuffer payload = ByteBuffer.allocate(8 + (rows * 2 + cols + rows * cols) * 8 + rows * 4);
+        payload.putInt(cols).putInt(grid.gapPolicy().ordinal());
+        for (int r = 0; r < rows; r++) payload.putDouble(grid.girthStart(r));
+        for (int r = 0; r < rows; r++) payload.putDouble(grid.girthEnd(r));
+        for (int r = 0; r < rows; r++) payload.putInt(grid.girthPriority(r));
+        for (int c = 0; c < cols; c++) payload.putDouble(grid.length(c));
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) payload.putDouble(grid.price(r, c));
+        }
+        return append(TYPE_BASE, rows, payload);
+    }
+
+    /**
+     * Records changed cells as a new version derived from the latest one.
+     * @return The new version id.
+     */
+    long appendDelta(int[] rows, int[] cols, double[] prices, int count) throws IOException {
+        ByteBuffer payload = ByteBuffer.allocate(count * 16);
+        for (int i = 0; i < count; i++) {
+            payload.putInt(rows[i]).putInt(cols[i]).putDouble(prices[i]);
+        }
+        return append(TYPE_DELTA, count, payload);
+    }
+
+    private long append(byte type, int count, ByteBuffer payload) throws IOException {
+        Tail tail = tail();
+        long id = tail.latestId + 1;
+        boolean fresh = tail.validLength == 0;
+        ByteBuffer buffer = ByteBuffer.allocate((fresh ? HEADER_SIZE : 0) + RECORD_HEADER_SIZE + payload.capacity());
+        if (fresh) {
+            buffer.putInt(MAGIC).putInt(VERSION);
+        }
+        buffer.put(type).putLong(id).putInt(count).put(payload.array());
+        String key = file.getAbsolutePath();
+        synchronized (TAILS) {
+            TAILS.remove(key); // Until the write has succeeded
+        }
+        try (FileOutputStream fos = new FileOutputStream(file, !fresh)) {
+            if (!fresh && fos.getChannel().size() != tail.validLength) {
+                fos.getChannel().truncate(tail.validLength); // Drop a partial record
+            }
+            fos.write(buffer.array());
+        }
+        Tail appended = new Tail();
+        appended.latestId = id;
+        appended.validLength = (fresh ? 0 : tail.validLength) + buffer.capacity();
+        appended.fileLength = appended.validLength;
+        synchronized (TAILS) {
+            TAILS.put(key, appended);
+        }
+        return id;
+    }
+
+    void delete() {
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+        synchronized (TAILS) {
+            TAILS.remove(file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Reads every version, oldest first. Consecutive versions share all unchanged price chunks,
+     * so holding the whole history costs about as much memory as the edits themselves.
+     */
+    List<PriceVersion> readAll() throws IOException {
+        List<PriceVersion> versions = new ArrayList<>();
+        read(Long.MAX_VALUE, versions);
+        return versions;
+    }
+
+    /**
+     * Rebuilds one version.
+     * @return The version, or null if it was never recorded.
+     */
+    PriceVersion read(long id) throws IOException {
+        PriceVersion version = read(id, null);
+        return version != null && version.id() == id ? version : null;
+    }
+
+    // Replays records up to (and including) the given id; optionally collects every version on the way
+    private PriceVersion read(long upToId, List<PriceVersion> out) throws IOException {
+        if (!file.exists() || file.length() < HEADER_SIZE) {
+            return null;
+        }
+        PriceVersion current = null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || !isKnownVersion(in.readInt())) {
+                return null;
+            }
+            while (true) {
+                byte type = in.readByte();
+                long id = in.readLong();
+                int count = in.readInt();
+                if (id > upToId) {
+                    break;
+                }
+                if (type == TYPE_BASE || type == TYPE_BASE_V1) {
+                    current = PriceVersion.of(id, readBase(in, count, type == TYPE_BASE));
+                } else if (type == TYPE_DELTA && current != null) {
+                    int[] rows = new int[count];
+                    int[] cols = new int[count];
+                    double[] prices = new double[count];
+                    for (int i = 0; i < count; i++) {
+                        rows[i] = in.readInt();
+                        cols[i] = in.readInt();
+                        prices[i] = in.readDouble();
+                    }
+                    current = current.withPrices(id, rows, cols, prices, count);
+                } else {
+                    throw new IOException("Corrupt price history record " + id + ".");
+                }
+                if (out != null) {
+                    out.add(current);
+                }
+            }
+        } catch (EOFException e) {
+            // End of the history (or a partial last record)
+        }
+        return current;
+    }
+
+    // lookup is false for BASE_V1 records, which have no priorities or gap policy
+    private static PriceGrid readBase(DataInputStream in, int rows, boolean lookup) throws IOException {
+        int cols = in.readInt();
+        GirthIndex.GapPolicy gapPolicy = lookup ? policyOf(in.readInt()) : GirthIndex.GapPolicy.NO_PRICE;
+        double[] starts = new double[rows];
+        double[] ends = new double[rows];
+        int[] priorities = new int[rows];
+        double[] lengths = new double[cols];
+        double[] prices = new double[rows * cols];
+        for (int r = 0; r < rows; r++) starts[r] = in.readDouble();
+        for (int r = 0; r < rows; r++) ends[r] = in.readDouble();
+        if (lookup) {
+            for (int r = 0; r < rows; r++) priorities[r] = in.readInt();
+        }
+        for (int c = 0; c < cols; c++) lengths[c] = in.readDouble();
+        for (int i = 0; i < prices.length; i++) prices[i] = in.readDouble();
+        PriceGrid grid = new PriceGrid(starts, ends, priorities, lengths, prices);
+        grid.setGapPolicy(gapPolicy);
+        return grid;
+    }
+
+    private static GirthIndex.GapPolicy policyOf(int ordinal) throws IOException {
+        GirthIndex.GapPolicy[] policies = GirthIndex.GapPolicy.values();
+        if (ordinal < 0 || ordinal >= policies.length) {
+            throw new IOException("Unknown girth gap policy " + ordinal + " in price history.");
+        }
+        return policies[ordinal];
+    }
+
+    private static boolean isKnownVersion(int version) {
+        return version == 1 || version == VERSION;
+    }
+
+    private Tail tail() throws IOException {
+        String key = file.getAbsolutePath();
+        long length = file.length(); // 0 if there is no file
+        synchronized (TAILS) {
+            Tail cached = TAILS.get(key);
+            if (cached != null && cached.fileLength == length) {
+                return cached;
+            }
+        }
+        Tail tail = scan(length);
+        synchronized (TAILS) {
+            TAILS.put(key, tail);
+        }
+        return tail;
+    }
+
+    private Tail scan(long length) throws IOException {
+        Tail tail = new Tail();
+        tail.fileLength = length;
+        if (length < HEADER_SIZE) {
+            return tail;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || !isKnownVersion(in.readInt())) {
+                return tail; // Unreadable; the next append starts a new history
+            }
+            long position = HEADER_SIZE;
+            tail.validLength = position;
+            while (position + RECORD_HEADER_SIZE <= length) {
+                byte type = in.readByte();
+                long id = in.readLong();
+                int count = in.readInt();
+                position += RECORD_HEADER_SIZE;
+                long payload;
+                if (type == TYPE_BASE || type == TYPE_BASE_V1) {
+                    int fields = type == TYPE_BASE ? 8 : 4; // cols, and the gap policy
+                    if (position + fields > length) {
+                        break;
+                    }
+                    int cols = in.readInt();
+                    if (type == TYPE_BASE) in.readInt();
+                    position += fields;
+                    payload = ((long) count * 2 + cols + (long) count * cols) * 8;
+                    if (type == TYPE_BASE) payload += (long) count * 4; // Priorities
+                } else {
+                    payload = (long) count * 16;
+                }
+                if (position + payload > length) {
+                    break; // Partial last record
+                }
+                skipFully(in, payload);
+                position += payload;
+                tail.latestId = id;
+                tail.validLength = position;
+            }
+        } catch (EOFException e) {
+            // Partial record header
+        }
+        return tail;
+    }
+
+    private static void skipFully(DataInputStream in, long bytes) throws IOException {
+        while (bytes > 0) {
+            long skipped = in.skip(bytes);
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+            bytes -= skipped;
+        }
+    }
+}
@@ -0,0 +1,408 @@
+package com.example.woodcalculator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary exchange format for price lists (".wpl"), an alternative to the JSON export
+ * for sending tables over slow links.
+ *
+ * Layout (all integers are unsigned LEB128 varints, "zz" = zigzag encoded varint):
+ * <pre>
+ *   magic "WPLB" | version u8 | flags u8 | rows | cols
+ *   girth axis   : contiguous ? rows+1 boundaries : rows starts, rows ends
+ *   length axis  : cols values
+ *   tiers        : only with FLAG_TIERS -> gap policy u8, then rows zz priorities
+ *   price matrix : dense  -> presence bitmap (ceil(rows*cols/8) bytes), then present prices
+ *                  sparse -> count, then (index gap, price) pairs
+ *   CRC32 of everything above, 4 bytes big-endian
+ * </pre>
+ * In "tenths" mode every axis value and price is stored as a zz delta of value*10 from the previous
+ * one, which is exact for the 1-decimal values the price table produces. If any value is not an
+ * exact tenth the whole file falls back to raw 8-byte doubles, so a round trip is always lossless.
+ */
+public final class PriceListBinaryCodec {
+
+    public static final String FILE_EXTENSION = ".wpl";
+    public static final String MIME_TYPE = "application/octet-stream";
+
+    private static final byte[] MAGIC = {'W', 'P', 'L', 'B'};
+    private static final int VERSION = 1;
+
+    private static final int FLAG_SPARSE = 1;
+    private static final int FLAG_RAW_DOUBLES = 1 << 1;
+    private static final int FLAG_CONTIGUOUS_GIRTHS = 1 << 2;
+    private static final int FLAG_TIERS = 1 << 3; // Girth priorities / gap policy other than the defaults
+
+    // Most girth ranges and lengths a file may declare: a range per tenth of an inch up to
+    // MAX_GIRTH_LIMIT, a length per tenth of a foot up to MAX_LENGTH_LIMIT (price keys keep one decimal)
+    static final int MAX_ROWS = (int) (PriceTableActivity.MAX_GIRTH_LIMIT * 10);
+    static final int MAX_COLS = (int) (PriceTableActivity.MAX_LENGTH_LIMIT * 10);
+
+    private PriceListBinaryCodec() {
+    }
+
+    /**
+     * True if the first bytes of a stream look like a binary price list.
+     */
+    public static boolean hasMagic(byte[] head, int length) {
+        if (length < MAGIC.length) return false;
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (head[i] != MAGIC[i]) return false;
+        }
+        return true;
+    }
+
+    public static byte[] encode(PriceGrid grid) {
+        int rows = grid.rows();
+        int cols = grid.cols();
+        int cells = rows * cols;
+
+        int present = 0;
+        boolean tenths = allTenths(grid.girthStarts) && allTenths(grid.girthEnds) && allTenths(grid.lengths);
+        for (double price : grid.prices) {
+            if (!Double.isNaN(price)) {
+                present++;
+                tenths &= isTenth(price);
+            }
+        }
+        boolean contiguous = true;
+        for (int r = 1; r < rows; r++) {
+            contiguous &= grid.girthStarts[r] == grid.girthEnds[r - 1];
+        }
+        boolean tiers = grid.gapPolicy != GirthIndex.GapPolicy.NO_PRICE;
+        for (int priority : grid.girthPriorities) {
+            tiers |= priority != 0;
+        }
+        // Sparse pays roughly 1-2 bytes of index per cell, dense pays 1 bit per cell
+        boolean sparse = present * 8 < cells;
+
+        int flags = (sparse ? FLAG_SPARSE : 0) | (tenths ? 0 : FLAG_RAW_DOUBLES) | (contiguous ? FLAG_CONTIGUOUS_GIRTHS : 0)
+                | (tiers ? FLAG_TIERS : 0);
+
+        Writer w = new Writer(32 + cells);
+        w.bytes.write(MAGIC, 0, MAGIC.length);
+        w.bytes.write(VERSION);
+        w.bytes.write(flags);
+        w.varint(rows);
+        w.varint(cols);
+
+        w.resetDelta();
+        if (contiguous && rows > 0) {
+            w.value(grid.girthStarts[0], tenths);
+            for (int r = 0; r < rows; r++) w.value(grid.girthEnds[r], tenths);
+        } else {
+            for (int r = 0; r < rows; r++) w.value(grid.girthStarts[r], tenths);
+            for (int r = 0; r < rows; r++) w.value(grid.girthEnds[r], tenths);
+        }
+        w.resetDelta();
+        for (int c = 0; c < cols; c++) w.value(grid.lengths[c], tenths);
+        if (tiers) {
+            w.bytes.write(grid.gapPolicy.ordinal());
+            for (int priority : grid.girthPriorities) w.varint(((long) priority << 1) ^ (priority >> 31));
+        }
+
+        w.resetDelta();
+        if (sparse) {
+            w.varint(present);
+            int lastIndex = -1;
+            for (int i = 0; i < cells; i++) {
+                if (!Double.isNaN(grid.prices[i])) {
+                    w.varint(i - lastIndex - 1);
+                    w.value(grid.prices[i], tenths);
+                    lastIndex = i;
+                }
+            }
+        } else {
+            byte[] bitmap = new byte[(cells + 7) / 8];
+            for (int i = 0; i < cells; i++) {
+                if (!Double.isNaN(grid.prices[i])) bitmap[i >> 3] |= (byte) (1 << (i & 7));
+            }
+            w.bytes.write(bitmap, 0, bitmap.length);
+            for (int i = 0; i < cells; i++) {
+                if (!Double.isNaN(grid.prices[i])) w.value(grid.prices[i], tenths);
+            }
+        }
+
+        CRC32 crc = new CRC32();
+        byte[] body = w.bytes.toByteArray();
+        crc.update(body, 0, body.length);
+        long checksum = crc.getValue();
+        w.bytes.write((int) (checksum >>> 24));
+        w.bytes.write((int) (checksum >>> 16));
+        w.bytes.write((int) (checksum >>> 8));
+        w.bytes.write((int) checksum);
+        return w.bytes.toByteArray();
+    }
+
+    public static PriceGrid read(InputStream in) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+        byte[] chunk = new byte[4096];
+        int n;
+        while ((n = in.read(chunk)) != -1) {
+            buffer.write(chunk, 0, n);
+        }
+        return decode(buffer.toByteArray());
+    }
+
+    /**
+     * Decodes a binary price list. Throws IOException with a byte offset on a bad header, a
+     * checksum mismatch or truncated data, and rejects the values PriceListReader rejects in a
+     * JSON file (see validate).
+     */
+    public static PriceGrid decode(byte[] data) throws IOException {
+        if (data.length < MAGIC.length + 2 + 4 || !hasMagic(data, data.length)) {
+            throw new IOException("Not a binary price list file.");
+        }
+        int bodyLength = data.length - 4;
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, bodyLength);
+        long stored = ((data[bodyLength] & 0xFFL) << 24) | ((data[bodyLength + 1] & 0xFFL) << 16)
+                | ((data[bodyLength + 2] & 0xFFL) << 8) | (data[bodyLength + 3] & 0xFFL);
+        if (stored != crc.getValue()) {
+            throw new IOException("Price list file is corrupted (checksum mismatch).");
+        }
+
+        Reader r = new Reader(data, MAGIC.length, bodyLength);
+        int version = r.u8();
+        if (version != VERSION) {
+            throw new IOException("Unsupported price list file version " + version + ".");
+        }
+        int flags = r.u8();
+        boolean tenths = (flags & FLAG_RAW_DOUBLES) == 0;
+        int rows = r.count();
+        int cols = r.count();
+        if (rows > MAX_ROWS || cols > MAX_COLS) {
+            throw new IOException("Price list dimensions too large: " + rows + " x " + cols + ".");
+        }
+        // Every girth boundary and length takes at least a byte, and a dense table a bit per cell
+        long minimumBytes = rows + cols + ((flags & FLAG_SPARSE) != 0 ? 0 : ((long) rows * cols + 7) / 8);
+        if (minimumBytes > bodyLength - r.pos) {
+            throw r.truncated();
+        }
+
+        double[] starts = new double[rows];
+        double[] ends = new double[rows];
+        int[] priorities = new int[rows];
+        double[] lengths = new double[cols];
+        double[] prices = new double[rows * cols];
+
+        r.resetDelta();
+        if ((flags & FLAG_CONTIGUOUS_GIRTHS) != 0) {
+            if (rows > 0) {
+                double boundary = r.value(tenths);
+                for (int i = 0; i < rows; i++) {
+                    starts[i] = boundary;
+                    boundary = r.value(tenths);
+                    ends[i] = boundary;
+                }
+            }
+        } else {
+            for (int i = 0; i < rows; i++) starts[i] = r.value(tenths);
+            for (int i = 0; i < rows; i++) ends[i] = r.value(tenths);
+        }
+        r.resetDelta();
+        for (int i = 0; i < cols; i++) lengths[i] = r.value(tenths);
+        GirthIndex.GapPolicy gapPolicy = GirthIndex.GapPolicy.NO_PRICE;
+        if ((flags & FLAG_TIERS) != 0) {
+            int ordinal = r.u8();
+            if (ordinal >= GirthIndex.GapPolicy.values().length) {
+                throw new IOException("Unknown girth gap policy " + ordinal + " at byte " + (r.pos - 1) + ".");
+            }
+            gapPolicy = GirthIndex.GapPolicy.values()[ordinal];
+            for (int i = 0; i < rows; i++) {
+                long zz = r.varint();
+                priorities[i] = (int) ((zz >>> 1) ^ -(zz & 1));
+            }
+        }
+
+        Arrays.fill(prices, Double.NaN);
+        r.resetDelta();
+        if ((flags & FLAG_SPARSE) != 0) {
+            int present = r.count();
+            int index = -1;
+            for (int i = 0; i < present; i++) {
+                index += r.count() + 1;
+                if (index >= prices.length) {
+                    throw new IOException("Price cell index out of range at byte " + r.pos + ".");
+                }
+                prices[index] = r.value(tenths);
+            }
+        } else {
+            int bitmapStart = r.pos;
+            r.skip((prices.length + 7) / 8);
+            for (int i = 0; i < prices.length; i++) {
+                if ((data[bitmapStart + (i >> 3)] & (1 << (i & 7))) != 0) {
+                    prices[i] = r.value(tenths);
+                }
+            }
+        }
+        if (r.pos != bodyLength) {
+            throw new IOException("Unexpected trailing data at byte " + r.pos + ".");
+        }
+        validate(starts, ends, lengths, prices);
+        PriceGrid grid = new PriceGrid(starts, ends, priorities, lengths, prices);
+        grid.setGapPolicy(gapPolicy);
+        return grid;
+    }
+
+    // The checks PriceListReader makes on a JSON file, so neither format can import a table the other rejects
+    private static void validate(double[] starts, double[] ends, double[] lengths, double[] prices) throws IOException {
+        if (starts.length == 0) {
+            throw new IOException("Girth ranges list is empty.");
+        }
+        for (int i = 0; i < starts.length; i++) {
+            double start = starts[i];
+            double end = ends[i];
+            if (!(start >= 0 && start < end)) {
+                throw new IOException(String.format(Locale.US, "Invalid girth range %.1f-%.1f.", start, end));
+            }
+            if (end > PriceTableActivity.MAX_GIRTH_LIMIT) {
+                throw new IOException(String.format(Locale.US, "Girth range end %.1f exceeds the limit of %.1f inches.",
+                        end, PriceTableActivity.MAX_GIRTH_LIMIT));
+            }
+            if (i > 0 && (start < starts[i - 1] || (start == starts[i - 1] && end <= ends[i - 1]))) {
+                throw new IOException(String.format(Locale.US, "Girth ranges must be unique and sorted. Found %.1f-%.1f after %.1f-%.1f.",
+                        start, end, starts[i - 1], ends[i - 1]));
+            }
+        }
+        if (lengths.length == 0) {
+            throw new IOException("Length values list is empty.");
+        }
+        double previous = 0.0;
+        for (double length : lengths) {
+            if (!(length > 0)) {
+                throw new IOException("Length values must be positive. Found " + length + ".");
+            }
+            if (length > PriceTableActivity.MAX_LENGTH_LIMIT) {
+                throw new IOException(String.format(Locale.US, "Length %.1f exceeds the limit of %.1f feet.",
+                        length, PriceTableActivity.MAX_LENGTH_LIMIT));
+            }
+            if (length <= previous) {
+                throw new IOException("Length values must be unique and in ascending order. Found " + length + " after " + previous + ".");
+            }
+            previous = length;
+        }
+        for (double price : prices) {
+            // NaN is an empty cell
+            if (price < 0 || Double.isInfinite(price)) {
+                throw new IOException("Invalid unit price " + price + ".");
+            }
+        }
+    }
+
+    private static boolean allTenths(double[] values) {
+        for (double v : values) {
+            if (!isTenth(v)) return false;
+        }
+        return true;
+    }
+
+    // True if v is exactly the double closest to some k/10, so k/10.0 reproduces it bit for bit
+    private static boolean isTenth(double v) {
+        if (Double.isNaN(v) || Double.isInfinite(v) || Math.abs(v) > 1e12) return false;
+        return Double.doubleToLongBits(Math.round(v * 10) / 10.0) == Double.doubleToLongBits(v);
+    }
+
+    private static final class Writer {
+        final ByteArrayOutputStream bytes;
+        long previous;
+
+        Writer(int sizeHint) {
+            bytes = new ByteArrayOutputStream(sizeHint);
+        }
+
+        void resetDelta() {
+            previous = 0;
+        }
+
+        void varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                bytes.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            bytes.write((int) value);
+        }
+
+        void value(double v, boolean tenths) {
+            if (tenths) {
+                long scaled = Math.round(v * 10);
+                long delta = scaled - previous;
+                varint((delta << 1) ^ (delta >> 63)); // zigzag
+                previous = scaled;
+            } else {
+                long bits = Double.doubleToLongBits(v);
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    bytes.write((int) (bits >>> shift));
+                }
+            }
+        }
+    }
+
+    private static final class Reader {
+        final byte[] data;
+        final int limit;
+        int pos;
+        long previous;
+
+        Reader(byte[] data, int pos, int limit) {
+            this.data = data;
+            this.pos = pos;
+            this.limit = limit;
+        }
+
+        void resetDelta() {
+            previous = 0;
+        }
+
+        int u8() throws IOException {
+            if (pos >= limit) throw truncated();
+            return data[pos++] & 0xFF;
+        }
+
+        void skip(int n) throws IOException {
+            if (limit - pos < n) throw truncated();
+            pos += n;
+        }
+
+        long varint() throws IOException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = u8();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return result;
+            }
+            throw new IOException("Malformed varint at byte " + pos + ".");
+        }
+
+        int count() throws IOException {
+            long value = varint();
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new IOException("Invalid count at byte " + pos + ".");
+            }
+            return (int) value;
+        }
+
+        double value(boolean tenths) throws IOException {
+            if (tenths) {
+                long zz = varint();
+                previous += (zz >>> 1) ^ -(zz & 1);
+                return previous / 10.0;
+            }
+            if (limit - pos < 8) throw truncated();
+            long bits = 0;
+            for (int i = 0; i < 8; i++) {
+                bits = (bits << 8) | (data[pos++] & 0xFF);
+            }
+            return Double.longBitsToDouble(bits);
+        }
+
+        IOException truncated() {
+            return new IOException("Price list file is truncated at byte " + pos + ".");
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.woodcalculator;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streams an exported price list file (the JSON written by PriceTableActivity.exportPriceList)
+ * token by token instead of loading the whole document into a String first.
+ *
+ * Every value is validated as soon as it is read, so a broken file is rejected at the first bad
+ * token and the error message carries the position reported by the JsonReader
+ * (line, column and JSON path).
+ */
+public class PriceListReader {
+
+    // Parsed price table, built directly while streaming
+    public static class Result {
+        public final Map<String, Double> unitPrices;
+        public final List<PriceTableActivity.GirthRange> girthRanges;
+        public final List<Double> lengthValues;
+        public final GirthIndex.GapPolicy girthGapPolicy;
+
+        Result(Map<String, Double> unitPrices, List<PriceTableActivity.GirthRange> girthRanges, List<Double> lengthValues,
+               GirthIndex.GapPolicy girthGapPolicy) {
+            this.unitPrices = unitPrices;
+            this.girthRanges = girthRanges;
+            this.lengthValues = lengthValues;
+            this.girthGapPolicy = girthGapPolicy;
+        }
+    }
+
+    private final JsonReader reader;
+
+    public PriceListReader(Reader in) {
+        this.reader = new JsonReader(in);
+    }
+
+    /**
+     * Reads the complete price list. Throws JsonParseException (with position) on the first
+     * structural or validation error, or IOException if the underlying stream fails.
+     */
+    public Result read() throws IOException {
+        Map<String, Double> unitPrices = null;
+        List<PriceTableActivity.GirthRange> girthRanges = null;
+        List<Double> lengthValues = null;
+        GirthIndex.GapPolicy gapPolicy = GirthIndex.GapPolicy.NO_PRICE; // Files from older versions have none
+
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("unitPrices".equals(name)) {
+                    unitPrices = readUnitPrices();
+                } else if ("girthRanges".equals(name)) {
+                    girthRanges = readGirthRanges();
+                } else if ("lengthValues".equals(name)) {
+                    lengthValues = readLengthValues();
+                } else if ("girthGapPolicy".equals(name)) {
+                    gapPolicy = readGapPolicy();
+                } else {
+                    reader.skipValue(); // Ignore fields written by newer versions
+                }
+            }
+            reader.endObject();
+        } catch (IllegalStateException e) {
+            // Wrong token type (e.g. an array where an object is expected); message already has the position
+            throw new JsonParseException(e.getMessage(), e);
+        } catch (NumberFormatException e) {
+            throw error("Invalid number (" + e.getMessage() + ")");
+        }
+
+        if (unitPrices == null) throw new JsonParseException("Price list is missing 'unitPrices'.");
+        if (girthRanges == null) throw new JsonParseException("Price list is missing 'girthRanges'.");
+        if (lengthValues == null) throw new JsonParseException("Price list is missing 'lengthValues'.");
+
+        // Prices are written before the axes, so their keys can only be checked once both axes are known
+        Set<String> validKeys = new HashSet<>();
+        for (PriceTableActivity.GirthRange range : girthRanges) {
+            for (double length : lengthValues) {
+                validKeys.add(PriceTableActivity.getPriceKey(range, length));
+            }
+        }
+        for (String key : unitPrices.keySet()) {
+            if (!validKeys.contains(key)) {
+                throw new JsonParseException("Price cell '" + key + "' does not match any girth range and length in the file.");
+            }
+        }
+
+        return new Result(unitPrices, girthRanges, lengthValues, gapPolicy);
+    }
+
+    private GirthIndex.GapPolicy readGapPolicy() throws IOException {
+        String value = reader.nextString();
+        for (GirthIndex.GapPolicy policy : GirthIndex.GapPolicy.values()) {
+            if (policy.name().equals(value)) {
+                return policy;
+            }
+        }
+        throw error("Unknown girth gap policy '" + value + "'");
+    }
+
+    private Map<String, Double> readUnitPrices() throws IOException {
+        Map<String, Double> prices = new LinkedHashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            double price = reader.nextDouble();
+            if (price < 0 || Double.isNaN(price) || Double.isInfinite(price)) {
+                throw error("Invalid unit price " + price + " for '" + key + "'");
+            }
+            if (prices.put(key, price) != null) {
+                throw error("Duplicate price cell '" + key + "'");
+            }
+        }
+        reader.endObject();
+        return prices;
+    }
+
+    /**
+     * Reads girth ranges, which the exporter always writes sorted by start (then end). Ranges may
+     * overlap or leave gaps (priorities and the gap policy decide the match), but each range is
+     * checked against the previous one, so a repeated, out-of-order or out-of-limit range stops
+     * the import right there.
+     */
+    private List<PriceTableActivity.GirthRange> readGirthRanges() throws IOException {
+        List<PriceTableActivity.GirthRange> ranges = new ArrayList<>();
+        PriceTableActivity.GirthRange previous = null;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            double start = Double.NaN;
+            double end = Double.NaN;
+            int priority = 0;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("start".equals(name)) {
+                    start = reader.nextDouble();
+                } else if ("end".equals(name)) {
+                    end = reader.nextDouble();
+                } else if ("priority".equals(name)) {
+                    priority = reader.nextInt();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            if (Double.isNaN(start) || Double.isNaN(end)) {
+                throw error("Girth range needs both 'start' and 'end'");
+            }
+            if (start < 0 || start >= end) {
+                throw error(String.format(Locale.US, "Invalid girth range %.1f-%.1f", start, end));
+            }
+            if (end > PriceTableActivity.MAX_GIRTH_LIMIT) {
+                throw error(String.format(Locale.US, "Girth range end %.1f exceeds the limit of %.1f inches", end, PriceTableActivity.MAX_GIRTH_LIMIT));
+            }
+            if (previous != null && (start < previous.getStart() || (start == previous.getStart() && end <= previous.getEnd()))) {
+                throw error(String.format(Locale.US, "Girth ranges must be unique and sorted. Found %.1f-%.1f after %.1f-%.1f",
+                        start, end, previous.getStart(), previous.getEnd()));
+            }
+            reader.endObject();
+
+            previous = new PriceTableActivity.GirthRange(start, end, priority);
+            ranges.add(previous);
+        }
+        reader.endArray();
+
+        if (ranges.isEmpty()) {
+            throw error("Girth ranges list is empty");
+        }
+        return ranges;
+    }
+
+    /**
+     * Reads length values, which must be positive, within MAX_LENGTH_LIMIT and strictly ascending
+     * (the exporter writes them sorted, so a repeat or out-of-order value means a damaged file).
+     */
+    private List<Double> readLengthValues() throws IOException {
+        List<Double> lengths = new ArrayList<>();
+        double previous = 0.0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            double length = reader.nextDouble();
+            if (length <= 0) {
+                throw error("Length values must be positive. Found " + length);
+            }
+            if (length > PriceTableActivity.MAX_LENGTH_LIMIT) {
+                throw error(String.format(Locale.US, "Length %.1f exceeds the limit of %.1f feet", length, PriceTableActivity.MAX_LENGTH_LIMIT));
+            }
+            if (length <= previous) {
+                throw error("Length values must be unique and in ascending order. Found " + length + " after " + previous);
+            }
+            lengths.add(length);
+            previous = length;
+        }
+        reader.endArray();
+
+        if (lengths.isEmpty()) {
+            throw error("Length values list is empty");
+        }
+        return lengths;
+    }
+
+    // Builds an exception carrying the reader's current location ("at line X column Y path $...")
+    private JsonParseException error(String message) {
+        String location = reader.toString();
+        int at = location.indexOf(" at line ");
+        return new JsonParseException(message + (at >= 0 ? location.substring(at) : ""));
+    }
+}
@@ -16,13 +16,17 @@ import android.os.Bundle;
 import android.os.Environment;
 import android.provider.MediaStore;
 import android.text.InputType;
-import android.util.Log;
 import android.util.TypedValue;
 import android.view.Gravity;
 import android.view.Menu;
 import android.view.MenuItem;
+import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.EditText;
+import android.widget.LinearLayout;
+import android.widget.Spinner;
 import android.widget.TableLayout;
 import android.widget.TableRow;
 import android.widget.TextView;
@@ -33,10 +37,12 @@ import androidx.annotation.Nullable; // Import for @Nullable
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import androidx.lifecycle.ViewModel;
+import androidx.lifecycle.ViewModelProvider;
 
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileOutputStream;
@@ -44,7 +50,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.text.SimpleDateFormat;
@@ -52,7 +58,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
-import java.util.LinkedHashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
@@ -69,50 +74,74 @@ public class PriceTableActivity extends AppCompatActivity {
     private static final String KEY_GIRTH_RANGES_INPUT = "girthRangesInput";
     private static final String KEY_LENGTH_VALUES_INPUT = "lengthValuesInput";
 
-    // Stored list of parsed actual girths and lengths
-    private static final String KEY_GIRTH_RANGES_PARSED = "girthRangesParsed";
-    private static final String KEY_LENGTH_VALUES_PARSED = "lengthValuesParsed";
-    private static final String KEY_UNIT_PRICES = "unitPrices";
+    // The parsed table itself (girth ranges, lengths, unit prices) lives in PriceTableStore
+
+    // Shown for cells without a price; such lengths are not sold in that girth range
+    private static final String NO_PRICE_TEXT = "—";
 
     // Hardcoded max limits for validation
-    private static final double MAX_GIRTH_LIMIT = 100.0; // Max end value for any girth range
-    private static final double MAX_LENGTH_LIMIT = 40.0; // Max value for any single length
+    static final double MAX_GIRTH_LIMIT = 100.0; // Max end value for any girth range
+    static final double MAX_LENGTH_LIMIT = 40.0; // Max value for any single length
 
     private EditText editTextGirthRanges;
     private EditText editTextLengthValues;
     private Button buttonGenerateTable;
     private TableLayout priceTableLayout;
+    private Spinner spinnerPriceSpecies;
 
     private SharedPreferences sharedPreferences;
     private Gson gson;
+    private State state;
 
-    private List<GirthRange> currentGirthRanges;
-    private List<Double> currentLengthValues;
-    private Map<String, Double> unitPrices;
+    private TextView[][] priceCells; // [girth row][length column], kept so bulk edits can update cells in place
 
-    private boolean isAuthenticated = false; // Flag to track authentication status
+    private boolean exportCompact = false; // Format chosen for the pending export (binary .wpl vs JSON)
 
     // --- Permissions and Request Codes for Export/Import ---
     private static final int PERMISSION_REQUEST_CODE_EXPORT = 101;
     private static final int PERMISSION_REQUEST_CODE_IMPORT = 103; // For reading, distinct from export
     private static final int PICK_FILE_REQUEST_CODE = 102; // For ACTION_OPEN_DOCUMENT
 
+    /**
+     * The table being edited, kept across configuration changes so a rotation redraws it from
+     * memory instead of reading the store again and asking for the passcode again.
+     */
+    public static class State extends ViewModel {
+        boolean loaded; // False until the first onCreate has read the store
+        SpeciesCatalog speciesCatalog;
+        int speciesId; // Species whose table is being edited
+        PriceTableStore priceTableStore;
+
+        List<GirthRange> currentGirthRanges;
+        List<Double> currentLengthValues;
+        Map<String, Double> unitPrices;
+        GirthIndex.GapPolicy gapPolicy = GirthIndex.GapPolicy.NO_PRICE; // Pricing of girths no range covers
+
+        boolean isAuthenticated = false; // Flag to track authentication status
+        boolean awaitingPasscode; // Passcode dialog open; it is shown again after a rotation
+        boolean relocked; // Authentication dropped in onStop; onResume redraws the cells as locked
+    }
+
     // --- Inner class to bundle price table data for GSON ---
     private static class PriceTableData {
         Map<String, Double> unitPrices;
         List<GirthRange> girthRanges;
         List<Double> lengthValues;
+        GirthIndex.GapPolicy girthGapPolicy;
 
-        public PriceTableData(Map<String, Double> unitPrices, List<GirthRange> girthRanges, List<Double> lengthValues) {
+        public PriceTableData(Map<String, Double> unitPrices, List<GirthRange> girthRanges, List<Double> lengthValues,
+                              GirthIndex.GapPolicy girthGapPolicy) {
             this.unitPrices = unitPrices;
             this.girthRanges = girthRanges;
             this.lengthValues = lengthValues;
+            this.girthGapPolicy = girthGapPolicy;
         }
 
         // Getters (needed by GSON for deserialization, even if not directly called)
         public Map<String, Double> getUnitPrices() { return unitPrices; }
         public List<GirthRange> getGirthRanges() { return girthRanges; }
         public List<Double> getLengthValues() { return lengthValues; }
+        public GirthIndex.GapPolicy getGirthGapPolicy() { return girthGapPolicy; }
     }
     // --- End inner class ---
 
@@ -120,12 +149,18 @@ public class PriceTableActivity extends AppCompatActivity {
     public static class GirthRange {
         private double start;
         private double end;
+        private int priority; // Where ranges overlap the higher priority wins (0 if not given)
 
         public GirthRange(double start, double end) {
             this.start = start;
             this.end = end;
         }
 
+        public GirthRange(double start, double end, int priority) {
+            this(start, end);
+            this.priority = priority;
+        }
+
         public double getStart() {
             return start;
         }
@@ -134,13 +169,19 @@ public class PriceTableActivity extends AppCompatActivity {
             return end;
         }
 
+        public int getPriority() {
+            return priority;
+        }
+
         @NonNull
         @Override
         public String toString() {
+            String tier = priority != 0 ? "@" + priority : "";
             if (start == 0.0) {
-                return String.format(Locale.US, "%.1f", end); // For ranges starting at 0, display only end
+                return FixedDecimalFormat.US.format(end, 1) + tier; // For ranges starting at 0, display only end
             }
-            return String.format(Locale.US, "%.1f-%.1f", start, end);
+            StringBuilder text = FixedDecimalFormat.US.append(new StringBuilder(16), start, 1).append('-');
+            return FixedDecimalFormat.US.append(text, end, 1).append(tier).toString();
         }
 
         // Added equals and hashCode for GirthRange
@@ -175,15 +216,31 @@ public class PriceTableActivity extends AppCompatActivity {
         initViews();
         sharedPreferences = getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         gson = new Gson();
-
-        loadSavedData(); // Load saved data first
-        enableEditingUI(false); // Initially disable editing UI
-
-        // Prompt for passcode immediately on activity creation
-        promptForPasscode();
+        state = new ViewModelProvider(this).get(State.class);
+
+        if (!state.loaded) {
+            state.speciesCatalog = SpeciesCatalog.forContext(this);
+            state.speciesId = state.speciesCatalog.selectedId();
+            state.priceTableStore = PriceTableStore.forSpecies(this, state.speciesId);
+            setupSpeciesSpinner();
+            loadSavedData(); // Load saved data first
+            state.loaded = true;
+            enableEditingUI(false); // Initially disable editing UI
+
+            // Prompt for passcode immediately on activity creation
+            promptForPasscode();
+        } else {
+            // Recreated after a configuration change: the inputs restore their own text
+            setupSpeciesSpinner();
+            enableEditingUI(state.isAuthenticated);
+            rebuildTableFromData();
+            if (state.awaitingPasscode) {
+                promptForPasscode(); // The open dialog went with the old activity
+            }
+        }
 
         buttonGenerateTable.setOnClickListener(v -> {
-            if (isAuthenticated) {
+            if (state.isAuthenticated) {
                 generatePriceTable();
             } else {
                 Toast.makeText(this, "Please enter the passcode to make changes.", Toast.LENGTH_SHORT).show();
@@ -197,6 +254,53 @@ public class PriceTableActivity extends AppCompatActivity {
         editTextLengthValues = findViewById(R.id.editTextLengthValues);
         buttonGenerateTable = findViewById(R.id.buttonGenerateTable);
         priceTableLayout = findViewById(R.id.priceTableLayout);
+        spinnerPriceSpecies = findViewById(R.id.spinnerPriceSpecies);
+    }
+
+    private void setupSpeciesSpinner() {
+        ArrayAdapter<SpeciesCatalog.Species> adapter = new ArrayAdapter<>(this,
+                android.R.layout.simple_spinner_item, new ArrayList<>(state.speciesCatalog.all()));
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinnerPriceSpecies.setOnItemSelectedListener(null);
+        spinnerPriceSpecies.setAdapter(adapter);
+        spinnerPriceSpecies.setSelection(state.speciesCatalog.indexOf(state.speciesId), false);
+        spinnerPriceSpecies.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                switchSpecies(state.speciesCatalog.all().get(position).getId());
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setSubtitle(state.speciesCatalog.nameOf(state.speciesId));
+        }
+    }
+
+    /**
+     * Shows another species' table. Its raw inputs and its store are separate; the selection is
+     * shared with the entry screen.
+     */
+    private void switchSpecies(int newSpeciesId) {
+        if (newSpeciesId == state.speciesId) {
+            return;
+        }
+        state.priceTableStore.compactInBackground(); // Fold the edits made to the previous species
+        state.speciesId = newSpeciesId;
+        state.speciesCatalog.setSelectedId(newSpeciesId);
+        state.priceTableStore = PriceTableStore.forSpecies(this, newSpeciesId);
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setSubtitle(state.speciesCatalog.nameOf(newSpeciesId));
+        }
+        loadSavedData();
+        rebuildTableFromData();
+    }
+
+    // Raw text inputs are kept per species; species 0 uses the keys from before species existed
+    private String inputKey(String key) {
+        return state.speciesId == PriceTableStore.DEFAULT_SPECIES ? key : key + "_" + state.speciesId;
     }
 
     // New method to control the enabled state of editing UI elements
@@ -209,6 +313,7 @@ public class PriceTableActivity extends AppCompatActivity {
 
     // New method to prompt for passcode
     private void promptForPasscode() {
+        state.awaitingPasscode = true;
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle("Enter Passcode");
 
@@ -218,21 +323,23 @@ public class PriceTableActivity extends AppCompatActivity {
         builder.setView(passcodeInput);
 
         builder.setPositiveButton("Submit", (dialog, which) -> {
+            state.awaitingPasscode = false;
             String enteredPasscode = passcodeInput.getText().toString();
             if (enteredPasscode.equals(CORRECT_PASSCODE)) {
-                isAuthenticated = true;
+                state.isAuthenticated = true;
                 enableEditingUI(true);
                 rebuildTableFromData(); // Rebuild table to allow editable cells
                 Toast.makeText(this, "Passcode accepted. You can now edit.", Toast.LENGTH_SHORT).show();
             } else {
-                isAuthenticated = false;
+                state.isAuthenticated = false;
                 enableEditingUI(false); // Keep disabled if passcode is wrong
                 Toast.makeText(this, "Incorrect Passcode. Cannot edit.", Toast.LENGTH_SHORT).show();
                 // Optionally: finish() the activity if too many wrong attempts or just keep disabled
             }
         });
         builder.setNegativeButton("Cancel", (dialog, which) -> {
-            isAuthenticated = false;
+            state.awaitingPasscode = false;
+            state.isAuthenticated = false;
             enableEditingUI(false);
             Toast.makeText(this, "Editing disabled.", Toast.LENGTH_SHORT).show();
             // If the user cancels the passcode, they can't edit.
@@ -244,48 +351,27 @@ public class PriceTableActivity extends AppCompatActivity {
 
     private void loadSavedData() {
         // Load raw string inputs
-        editTextGirthRanges.setText(sharedPreferences.getString(KEY_GIRTH_RANGES_INPUT, "0-18, 18-20, 20-30, 30-40, 40-50"));
-        editTextLengthValues.setText(sharedPreferences.getString(KEY_LENGTH_VALUES_INPUT, "5, 8, 10, 12, 14, 16"));
-
-        // Load parsed lists for GirthRanges
-        String girthRangesJson = sharedPreferences.getString(KEY_GIRTH_RANGES_PARSED, null);
-        Type girthRangeListType = new TypeToken<List<GirthRange>>() {}.getType();
-        currentGirthRanges = gson.fromJson(girthRangesJson, girthRangeListType);
-        if (currentGirthRanges == null) {
-            currentGirthRanges = new ArrayList<>();
-        }
-        Log.d(TAG, "Loaded " + currentGirthRanges.size() + " girth ranges.");
-
-
-        // Load parsed lists for LengthValues
-        String lengthJson = sharedPreferences.getString(KEY_LENGTH_VALUES_PARSED, null);
-        Type doubleListType = new TypeToken<List<Double>>() {}.getType();
-        currentLengthValues = gson.fromJson(lengthJson, doubleListType);
-        if (currentLengthValues == null) {
-            currentLengthValues = new ArrayList<>();
-        }
-        Log.d(TAG, "Loaded " + currentLengthValues.size() + " length values.");
-
-
-        // Load Unit Prices Map
-        String pricesJson = sharedPreferences.getString(KEY_UNIT_PRICES, null);
-        Type mapType = new TypeToken<Map<String, Double>>() {}.getType();
-        unitPrices = gson.fromJson(pricesJson, mapType);
-        if (unitPrices == null) {
-            unitPrices = new LinkedHashMap<>();
-        }
-        Log.d(TAG, "Loaded " + unitPrices.size() + " unit prices.");
-
+        editTextGirthRanges.setText(sharedPreferences.getString(inputKey(KEY_GIRTH_RANGES_INPUT), "0-18, 18-20, 20-30, 30-40, 40-50"));
+        editTextLengthValues.setText(sharedPreferences.getString(inputKey(KEY_LENGTH_VALUES_INPUT), "5, 8, 10, 12, 14, 16"));
+
+        // Load the parsed table from the binary store (girth ranges, lengths and unit prices)
+        PriceGrid grid = state.priceTableStore.readGrid();
+        state.currentGirthRanges = grid.toGirthRanges();
+        state.currentLengthValues = grid.toLengthValues();
+        state.unitPrices = grid.toUnitPrices();
+        state.gapPolicy = grid.gapPolicy();
+        AppLog.d(TAG, "Loaded %d girth ranges, %d length values, %d unit prices.", state.currentGirthRanges.size(),
+                state.currentLengthValues.size(), state.unitPrices.size());
 
         // After loading, generate the table based on loaded parsed values
         // Do not call generatePriceTable() directly here, as it re-parses and validates.
         // rebuildTableFromData() is sufficient to display what's loaded.
-        if (!currentGirthRanges.isEmpty() && !currentLengthValues.isEmpty()) {
+        if (!state.currentGirthRanges.isEmpty() && !state.currentLengthValues.isEmpty()) {
             rebuildTableFromData(); // This will display the table (non-editable initially if not authenticated)
         } else {
             // If no parsed data, attempt to generate from EditText values to initialize the table
             // This will only work if the user provides valid inputs in EditText and authenticates
-            Log.d(TAG, "No parsed data found, attempting to initialize table from EditText inputs.");
+            AppLog.d(TAG, "No parsed data found, attempting to initialize table from EditText inputs.");
             // We don't call generatePriceTable here directly to avoid unintended data clearing/toast
             // The promptForPasscode will eventually lead to rebuildTableFromData
         }
@@ -295,22 +381,30 @@ public class PriceTableActivity extends AppCompatActivity {
         SharedPreferences.Editor editor = sharedPreferences.edit();
 
         // Save raw string inputs
-        editor.putString(KEY_GIRTH_RANGES_INPUT, editTextGirthRanges.getText().toString());
-        editor.putString(KEY_LENGTH_VALUES_INPUT, editTextLengthValues.getText().toString());
+        editor.putString(inputKey(KEY_GIRTH_RANGES_INPUT), editTextGirthRanges.getText().toString());
+        editor.putString(inputKey(KEY_LENGTH_VALUES_INPUT), editTextLengthValues.getText().toString());
 
-        // Save the parsed lists
-        editor.putString(KEY_GIRTH_RANGES_PARSED, gson.toJson(currentGirthRanges));
-        editor.putString(KEY_LENGTH_VALUES_PARSED, gson.toJson(currentLengthValues));
+        editor.apply();
 
-        // Save the unit prices map
-        editor.putString(KEY_UNIT_PRICES, gson.toJson(unitPrices));
+        // Save the parsed table to the binary store (atomic replace)
+        try {
+            state.priceTableStore.write(currentGrid());
+            AppLog.d(TAG, "Table data saved.");
+        } catch (IOException e) {
+            AppLog.e(TAG, "Error saving price table: %s", e.getMessage(), e);
+            Toast.makeText(this, "Error saving price table: " + e.getMessage(), Toast.LENGTH_LONG).show();
+        }
+    }
 
-        editor.apply();
-        Log.d(TAG, "Table data saved.");
+    // The table as it is being edited, in the form the store, codecs and diff work with
+    private PriceGrid currentGrid() {
+        PriceGrid grid = PriceGrid.fromTable(state.currentGirthRanges, state.currentLengthValues, state.unitPrices);
+        grid.setGapPolicy(state.gapPolicy);
+        return grid;
     }
 
     private void generatePriceTable() {
-        if (!isAuthenticated) {
+        if (!state.isAuthenticated) {
             Toast.makeText(this, "Passcode required to generate/update the table.", Toast.LENGTH_SHORT).show();
             promptForPasscode();
             return;
@@ -337,10 +431,12 @@ public class PriceTableActivity extends AppCompatActivity {
                 return;
             }
 
-            // Check max limits for girth (last range's end)
-            if (!newGirthRanges.isEmpty() && newGirthRanges.get(newGirthRanges.size() - 1).getEnd() > MAX_GIRTH_LIMIT) {
-                Toast.makeText(this, String.format(Locale.getDefault(), "Maximum Girth limit exceeded. Last range end cannot be greater than %.1f inches.", MAX_GIRTH_LIMIT), Toast.LENGTH_LONG).show();
-                return;
+            // Check max limits for girth (ranges may overlap, so any range can have the largest end)
+            for (GirthRange range : newGirthRanges) {
+                if (range.getEnd() > MAX_GIRTH_LIMIT) {
+                    Toast.makeText(this, String.format(Locale.getDefault(), "Maximum Girth limit exceeded. Range end cannot be greater than %.1f inches.", MAX_GIRTH_LIMIT), Toast.LENGTH_LONG).show();
+                    return;
+                }
             }
 
             // Check max limits for length
@@ -352,38 +448,39 @@ public class PriceTableActivity extends AppCompatActivity {
             }
 
             // Check if table dimensions have changed. Use .equals() due to custom GirthRange.equals()
-            boolean tableDimensionsChanged = !newGirthRanges.equals(currentGirthRanges) || !newLengthValues.equals(currentLengthValues);
+            boolean tableDimensionsChanged = !newGirthRanges.equals(state.currentGirthRanges) || !newLengthValues.equals(state.currentLengthValues);
 
-            // Update the activity's current lists
-            this.currentGirthRanges = newGirthRanges;
-            this.currentLengthValues = newLengthValues;
+            // Update the model's current lists
+            state.currentGirthRanges = newGirthRanges;
+            state.currentLengthValues = newLengthValues;
 
             if (tableDimensionsChanged) {
-                unitPrices.clear(); // Clear old prices if table structure changes
+                state.unitPrices.clear(); // Clear old prices if table structure changes
                 Toast.makeText(this, "Table structure updated. Please enter new unit prices.", Toast.LENGTH_LONG).show();
-                Log.d(TAG, "Table dimensions changed. Unit prices cleared.");
+                AppLog.d(TAG, "Table dimensions changed. Unit prices cleared.");
             } else {
-                Log.d(TAG, "Table dimensions unchanged. Existing unit prices retained.");
+                AppLog.d(TAG, "Table dimensions unchanged. Existing unit prices retained.");
             }
 
             rebuildTableFromData(); // Rebuild the UI table
             saveTableData(); // Save the new table structure and any existing (or cleared) prices
 
         } catch (NumberFormatException e) {
-            Log.e(TAG, "Invalid number format in list inputs: " + e.getMessage(), e);
+            AppLog.e(TAG, "Invalid number format in list inputs: %s", e.getMessage(), e);
             Toast.makeText(this, "Please enter valid numbers in comma-separated lists.", Toast.LENGTH_LONG).show();
         } catch (IllegalArgumentException e) {
             Toast.makeText(this, e.getMessage(), Toast.LENGTH_LONG).show();
-            Log.e(TAG, "Validation error: " + e.getMessage());
+            AppLog.e(TAG, "Validation error: %s", e.getMessage());
         }
     }
 
     /**
-     * Parses a comma-separated string of "start-end" girth ranges into a List<GirthRange>.
+     * Parses a comma-separated string of "start-end" or "start-end@priority" girth ranges into a
+     * List<GirthRange>. Ranges may overlap (the higher priority wins, e.g. a promotional tier) or
+     * leave gaps (priced according to the gap policy).
      * Validates that:
      * - Each range has start < end.
      * - Ranges are non-negative.
-     * - Ranges are contiguous (end of previous == start of current), except for the first range's start.
      * - No duplicate ranges are present.
      */
     private List<GirthRange> parseAndValidateGirthRanges(String input) throws IllegalArgumentException {
@@ -395,14 +492,16 @@ public class PriceTableActivity extends AppCompatActivity {
             String trimmedPart = part.trim();
             if (trimmedPart.isEmpty()) continue;
 
-            String[] rangeParts = trimmedPart.split("-");
-            if (rangeParts.length != 2) {
-                throw new IllegalArgumentException("Invalid girth range format: '" + trimmedPart + "'. Use 'start-end'.");
+            String[] tierParts = trimmedPart.split("@");
+            String[] rangeParts = tierParts[0].split("-");
+            if (tierParts.length > 2 || rangeParts.length != 2) {
+                throw new IllegalArgumentException("Invalid girth range format: '" + trimmedPart + "'. Use 'start-end' or 'start-end@priority'.");
             }
 
             try {
                 double start = Double.parseDouble(rangeParts[0].trim());
                 double end = Double.parseDouble(rangeParts[1].trim());
+                int priority = tierParts.length == 2 ? Integer.parseInt(tierParts[1].trim()) : 0;
 
                 if (start < 0 || end < 0) {
                     throw new IllegalArgumentException("Girth range values cannot be negative. Found in '" + trimmedPart + "'.");
@@ -411,7 +510,7 @@ public class PriceTableActivity extends AppCompatActivity {
                     throw new IllegalArgumentException("Girth range 'start' must be less than 'end'. Invalid range: '" + trimmedPart + "'.");
                 }
 
-                GirthRange newRange = new GirthRange(start, end);
+                GirthRange newRange = new GirthRange(start, end, priority);
                 if (!uniqueRanges.add(newRange)) { // Uses GirthRange.equals() and hashCode()
                     throw new IllegalArgumentException("Duplicate girth range found: '" + newRange.toString() + "'.");
                 }
@@ -426,24 +525,15 @@ public class PriceTableActivity extends AppCompatActivity {
             throw new IllegalArgumentException("Girth ranges list is empty after parsing. Please enter values.");
         }
 
-        // Sort the ranges by their start value for proper contiguity checking and display
+        // Sort the ranges by start, then end, for display and so the table rows keep a stable order
         Collections.sort(ranges, new Comparator<GirthRange>() {
             @Override
             public int compare(GirthRange r1, GirthRange r2) {
-                return Double.compare(r1.getStart(), r2.getStart());
+                int byStart = Double.compare(r1.getStart(), r2.getStart());
+                return byStart != 0 ? byStart : Double.compare(r1.getEnd(), r2.getEnd());
             }
         });
 
-        // Validate contiguity for sorted ranges: end of previous must equal start of current
-        for (int i = 1; i < ranges.size(); i++) {
-            // Use an epsilon for floating-point comparison to avoid issues with 0.1 + 0.2 != 0.3
-            if (Math.abs(ranges.get(i).getStart() - ranges.get(i - 1).getEnd()) > 0.001) {
-                throw new IllegalArgumentException(String.format(Locale.getDefault(),
-                        "Girth ranges must be contiguous (e.g., 0-18, 18-20). Gap/overlap found between %.1f and %.1f.",
-                        ranges.get(i - 1).getEnd(), ranges.get(i).getStart()));
-            }
-        }
-
         return ranges;
     }
 
@@ -482,7 +572,17 @@ public class PriceTableActivity extends AppCompatActivity {
     }
 
     private void rebuildTableFromData() {
+        long start = PerfMetrics.REBUILD_PRICE_TABLE.begin();
+        try {
+            doRebuildTableFromData();
+        } finally {
+            PerfMetrics.REBUILD_PRICE_TABLE.end(start);
+        }
+    }
+
+    private void doRebuildTableFromData() {
         priceTableLayout.removeAllViews(); // Clear previous table
+        FixedDecimalFormat numbers = FixedDecimalFormat.forDefaultLocale();
 
         // Add Header Row (Length values)
         TableRow headerRow = new TableRow(this);
@@ -493,13 +593,15 @@ public class PriceTableActivity extends AppCompatActivity {
         headerRow.addView(createHeaderTextView("G\\L")); // Top-left corner cell label
 
         // Add Length headers
-        for (double length : currentLengthValues) {
-            headerRow.addView(createHeaderTextView(String.format(Locale.getDefault(), "%.1f", length)));
+        for (double length : state.currentLengthValues) {
+            headerRow.addView(createHeaderTextView(numbers.format(length, 1)));
         }
         priceTableLayout.addView(headerRow);
 
         // Add Data Rows (Girth ranges and editable unit prices)
-        for (GirthRange girthRange : currentGirthRanges) {
+        priceCells = new TextView[state.currentGirthRanges.size()][state.currentLengthValues.size()];
+        for (int row = 0; row < state.currentGirthRanges.size(); row++) {
+            GirthRange girthRange = state.currentGirthRanges.get(row);
             TableRow dataRow = new TableRow(this);
             if (priceTableLayout.getChildCount() % 2 == 0) {
                 dataRow.setBackgroundColor(Color.parseColor("#F5F5F5"));
@@ -512,32 +614,35 @@ public class PriceTableActivity extends AppCompatActivity {
             dataRow.addView(createHeaderTextView(girthRange.toString()));
 
             // Add editable price cells for each Length
-            for (double length : currentLengthValues) {
+            for (int col = 0; col < state.currentLengthValues.size(); col++) {
+                final int cellRow = row;
+                final int cellCol = col;
                 final GirthRange currentGirthRange = girthRange;
-                final double currentLength = length;
+                final double currentLength = state.currentLengthValues.get(col);
                 final String priceKey = getPriceKey(currentGirthRange, currentLength);
-                Double storedPrice = unitPrices.get(priceKey); // Get the actual stored price
+                Double storedPrice = state.unitPrices.get(priceKey); // Get the actual stored price
 
-                // Display stored price or "0.0" if not set
+                // Display stored price or a dash if the cell has no price
                 TextView cellTextView = createDataTextView(
-                        storedPrice != null ? String.format(Locale.getDefault(), "%.1f", storedPrice) : "0.0",
+                        storedPrice != null ? numbers.format(storedPrice, 1) : NO_PRICE_TEXT,
                         storedPrice // Pass the actual Double value here to determine text color
                 );
 
                 // Set OnClickListener only if authenticated
-                if (isAuthenticated) {
+                if (state.isAuthenticated) {
                     cellTextView.setOnClickListener(v ->
-                            showEditCellDialog(cellTextView, currentGirthRange, currentLength, priceKey)
+                            showEditCellDialog(cellTextView, cellRow, cellCol, currentGirthRange, currentLength, priceKey)
                     );
                 } else {
                     // Make it not clickable if not authenticated
                     cellTextView.setClickable(false);
                 }
+                priceCells[row][col] = cellTextView;
                 dataRow.addView(cellTextView);
             }
             priceTableLayout.addView(dataRow);
         }
-        Log.d(TAG, "Table rebuilt. Girth ranges: " + currentGirthRanges.size() + ", Lengths: " + currentLengthValues.size());
+        AppLog.d(TAG, "Table rebuilt. Girth ranges: %d, Lengths: %d", state.currentGirthRanges.size(), state.currentLengthValues.size());
     }
 
     private TextView createHeaderTextView(String text) {
@@ -582,8 +687,9 @@ public class PriceTableActivity extends AppCompatActivity {
         return textView;
     }
 
-    private void showEditCellDialog(final TextView cellTextView, final GirthRange girthRange, final double length, final String priceKey) {
-        if (!isAuthenticated) {
+    private void showEditCellDialog(final TextView cellTextView, final int row, final int col,
+                                    final GirthRange girthRange, final double length, final String priceKey) {
+        if (!state.isAuthenticated) {
             Toast.makeText(this, "Passcode required to edit prices.", Toast.LENGTH_SHORT).show();
             // No need to prompt here again, as listener check should prevent reaching this.
             // If somehow reached, the user will be blocked.
@@ -595,9 +701,10 @@ public class PriceTableActivity extends AppCompatActivity {
 
         final EditText input = new EditText(this);
         input.setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL);
-        Double currentPrice = unitPrices.get(priceKey);
-        // Display current price or "0.0" if not set
-        input.setText(currentPrice != null ? String.format(Locale.getDefault(), "%.1f", currentPrice) : "0.0");
+        Double currentPrice = state.unitPrices.get(priceKey);
+        // Display current price, or leave empty if the cell has no price
+        input.setText(currentPrice != null ? String.format(Locale.getDefault(), "%.1f", currentPrice) : "");
+        input.setHint("No price");
         input.setSelectAllOnFocus(true); // Select all text when focused
         builder.setView(input);
 
@@ -619,36 +726,279 @@ public class PriceTableActivity extends AppCompatActivity {
                 bd = bd.setScale(1, RoundingMode.HALF_UP); // Round to 1 decimal place
                 double roundedNewPrice = bd.doubleValue();
 
-                unitPrices.put(priceKey, roundedNewPrice);
-                cellTextView.setText(String.format(Locale.getDefault(), "%.1f", roundedNewPrice));
+                state.unitPrices.put(priceKey, roundedNewPrice);
+                showCellPrice(cellTextView, roundedNewPrice);
 
-                // Change color to RED if updated price is positive, else BLACK
-                if (roundedNewPrice > 0.0) {
-                    cellTextView.setTextColor(Color.RED);
-                } else {
-                    cellTextView.setTextColor(Color.BLACK);
+                // Record just this cell in the edit log instead of rewriting the whole table
+                try {
+                    state.priceTableStore.appendEdit(row, col, roundedNewPrice);
+                } catch (IOException e) {
+                    AppLog.e(TAG, "Error logging price edit, saving full table: %s", e.getMessage(), e);
+                    saveTableData();
                 }
-
-                saveTableData();
                 Toast.makeText(this, "Price updated successfully!", Toast.LENGTH_SHORT).show();
 
             } catch (NumberFormatException e) {
-                Log.e(TAG, "Invalid number format for unit price: " + e.getMessage(), e);
+                AppLog.e(TAG, "Invalid number format for unit price: %s", e.getMessage(), e);
                 Toast.makeText(this, "Please enter a valid number for price.", Toast.LENGTH_SHORT).show();
             }
         });
+        // Removes the cell's price: the row stores no cell for this length, so logs of this girth
+        // range whose closest length it is get no price (see MappedPriceTable.findClosestCell)
+        builder.setNeutralButton("No Price", (dialog, which) -> {
+            state.unitPrices.remove(priceKey);
+            showCellPrice(cellTextView, Double.NaN);
+            try {
+                state.priceTableStore.appendEdit(row, col, Double.NaN);
+            } catch (IOException e) {
+                AppLog.e(TAG, "Error logging price edit, saving full table: %s", e.getMessage(), e);
+                saveTableData();
+            }
+            Toast.makeText(this, "Price removed.", Toast.LENGTH_SHORT).show();
+        });
         builder.setNegativeButton("Cancel", (dialog, which) -> dialog.cancel());
 
         builder.show();
     }
 
+    // Change color to RED if the price is positive, else BLACK (NaN = no price, shown as a dash)
+    private void showCellPrice(TextView cellTextView, double price) {
+        cellTextView.setText(Double.isNaN(price) ? NO_PRICE_TEXT : FixedDecimalFormat.forDefaultLocale().format(price, 1));
+        cellTextView.setTextColor(price > 0.0 ? Color.RED : Color.BLACK);
+    }
+
+    /**
+     * Asks for a species name, then adds a species or renames the current one. A new species
+     * starts with the current girth ranges and lengths and no prices, so the two tables share
+     * one axes file until one of them changes its ranges or lengths.
+     */
+    private void showSpeciesNameDialog(final boolean rename) {
+        if (!state.isAuthenticated) {
+            Toast.makeText(this, "Passcode required to edit prices.", Toast.LENGTH_SHORT).show();
+            promptForPasscode();
+            return;
+        }
+        final EditText input = new EditText(this);
+        input.setInputType(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_CAP_WORDS);
+        input.setHint("Species name (e.g. Teak)");
+        if (rename) {
+            input.setText(state.speciesCatalog.nameOf(state.speciesId));
+        }
+        new AlertDialog.Builder(this)
+                .setTitle(rename ? "Rename Species" : "Add Species")
+                .setView(input)
+                .setPositiveButton(rename ? "Rename" : "Add", (dialog, which) -> {
+                    try {
+                        if (rename) {
+                            state.speciesCatalog.rename(state.speciesId, input.getText().toString());
+                            setupSpeciesSpinner();
+                        } else {
+                            addSpecies(input.getText().toString());
+                        }
+                    } catch (IllegalArgumentException e) {
+                        Toast.makeText(this, e.getMessage(), Toast.LENGTH_LONG).show();
+                    }
+                })
+                .setNegativeButton("Cancel", (dialog, which) -> dialog.cancel())
+                .show();
+    }
+
+    private void addSpecies(String name) {
+        SpeciesCatalog.Species added = state.speciesCatalog.add(name);
+        try {
+            PriceTableStore.forSpecies(this, added.getId()).write(currentGrid().withoutPrices());
+        } catch (IOException e) {
+            AppLog.e(TAG, "Error creating price table for %s: %s", added.getName(), e.getMessage(), e);
+        }
+        // Same raw inputs as the table it was copied from
+        sharedPreferences.edit()
+                .putString(KEY_GIRTH_RANGES_INPUT + "_" + added.getId(), editTextGirthRanges.getText().toString())
+                .putString(KEY_LENGTH_VALUES_INPUT + "_" + added.getId(), editTextLengthValues.getText().toString())
+                .apply();
+        switchSpecies(added.getId());
+        setupSpeciesSpinner();
+        Toast.makeText(this, "Added " + added.getName() + ". Enter its unit prices.", Toast.LENGTH_LONG).show();
+    }
+
+    private void confirmDeleteSpecies() {
+        if (!state.isAuthenticated) {
+            Toast.makeText(this, "Passcode required to edit prices.", Toast.LENGTH_SHORT).show();
+            promptForPasscode();
+            return;
+        }
+        if (state.speciesId == PriceTableStore.DEFAULT_SPECIES) {
+            Toast.makeText(this, "The first species cannot be deleted.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        final int deletedId = state.speciesId;
+        final String deletedName = state.speciesCatalog.nameOf(deletedId);
+        new AlertDialog.Builder(this)
+                .setTitle("Delete Species")
+                .setMessage("Delete " + deletedName + " and its whole price table?")
+                .setPositiveButton("Delete", (dialog, which) -> {
+                    state.speciesCatalog.remove(deletedId);
+                    switchSpecies(PriceTableStore.DEFAULT_SPECIES);
+                    PriceTableStore.forSpecies(this, deletedId).delete();
+                    sharedPreferences.edit()
+                            .remove(KEY_GIRTH_RANGES_INPUT + "_" + deletedId)
+                            .remove(KEY_LENGTH_VALUES_INPUT + "_" + deletedId)
+                            .apply();
+                    setupSpeciesSpinner();
+                    Toast.makeText(this, deletedName + " deleted.", Toast.LENGTH_SHORT).show();
+                })
+                .setNegativeButton("Cancel", (dialog, which) -> dialog.cancel())
+                .show();
+    }
+
+    /**
+     * Lets the user choose how girths that fall between (or outside) the ranges are priced.
+     */
+    private void showGapPolicyDialog() {
+        if (!state.isAuthenticated) {
+            Toast.makeText(this, "Passcode required to edit prices.", Toast.LENGTH_SHORT).show();
+            promptForPasscode();
+            return;
+        }
+        final GirthIndex.GapPolicy[] policies = GirthIndex.GapPolicy.values();
+        String[] labels = new String[policies.length];
+        for (int i = 0; i < policies.length; i++) {
+            labels[i] = policies[i].toString();
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Girth Gap Policy")
+                .setSingleChoiceItems(labels, state.gapPolicy.ordinal(), (dialog, which) -> {
+                    if (policies[which] != state.gapPolicy) {
+                        state.gapPolicy = policies[which];
+                        saveTableData();
+                        Toast.makeText(this, "Girths outside the ranges: " + state.gapPolicy, Toast.LENGTH_SHORT).show();
+                    }
+                    dialog.dismiss();
+                })
+                .setNegativeButton("Cancel", (dialog, which) -> dialog.cancel())
+                .show();
+    }
+
+    /**
+     * Dialog for changing many prices at once: pick an operation and a block of girth rows and
+     * length columns (a single row, a single column, any block, or the whole table).
+     */
+    private void showBulkEditDialog() {
+        if (!state.isAuthenticated) {
+            Toast.makeText(this, "Passcode required to edit prices.", Toast.LENGTH_SHORT).show();
+            promptForPasscode();
+            return;
+        }
+        if (state.currentGirthRanges.isEmpty() || state.currentLengthValues.isEmpty()) {
+            Toast.makeText(this, "Generate the price table first.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        List<String> girthLabels = new ArrayList<>();
+        for (GirthRange range : state.currentGirthRanges) {
+            girthLabels.add(range.toString());
+        }
+        List<String> lengthLabels = new ArrayList<>();
+        for (double length : state.currentLengthValues) {
+            lengthLabels.add(String.format(Locale.getDefault(), "%.1f", length));
+        }
+
+        LinearLayout layout = new LinearLayout(this);
+        layout.setOrientation(LinearLayout.VERTICAL);
+        layout.setPadding(48, 16, 48, 0);
+
+        final Spinner operationSpinner = addBulkEditSpinner(layout, "Operation", PriceBulkEdit.Operation.values());
+        final Spinner sourceRowSpinner = addBulkEditSpinner(layout, "Copy from girth", girthLabels.toArray());
+        final Spinner firstRowSpinner = addBulkEditSpinner(layout, "From girth", girthLabels.toArray());
+        final Spinner lastRowSpinner = addBulkEditSpinner(layout, "To girth", girthLabels.toArray());
+        final Spinner firstColSpinner = addBulkEditSpinner(layout, "From length", lengthLabels.toArray());
+        final Spinner lastColSpinner = addBulkEditSpinner(layout, "To length", lengthLabels.toArray());
+        lastRowSpinner.setSelection(girthLabels.size() - 1); // Whole table by default
+        lastColSpinner.setSelection(lengthLabels.size() - 1);
+
+        final EditText valueInput = new EditText(this);
+        valueInput.setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL | InputType.TYPE_NUMBER_FLAG_SIGNED);
+        valueInput.setHint("Value (price, % or amount)");
+        layout.addView(valueInput);
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Bulk Edit Prices");
+        builder.setView(layout);
+        builder.setPositiveButton("Apply", (dialog, which) -> {
+            PriceBulkEdit.Operation operation = (PriceBulkEdit.Operation) operationSpinner.getSelectedItem();
+            double value = 0.0;
+            boolean needsValue = operation == PriceBulkEdit.Operation.SET
+                    || operation == PriceBulkEdit.Operation.ADJUST_PERCENT
+                    || operation == PriceBulkEdit.Operation.ADJUST_AMOUNT;
+            if (needsValue) {
+                try {
+                    value = Double.parseDouble(valueInput.getText().toString().trim());
+                } catch (NumberFormatException e) {
+                    Toast.makeText(this, "Please enter a valid number.", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+            }
+            applyBulkEdit(new PriceBulkEdit(operation,
+                    firstRowSpinner.getSelectedItemPosition(), lastRowSpinner.getSelectedItemPosition(),
+                    firstColSpinner.getSelectedItemPosition(), lastColSpinner.getSelectedItemPosition(),
+                    value, sourceRowSpinner.getSelectedItemPosition()));
+        });
+        builder.setNegativeButton("Cancel", (dialog, which) -> dialog.cancel());
+        builder.show();
+    }
+
+    private Spinner addBulkEditSpinner(LinearLayout layout, String label, Object[] items) {
+        TextView labelView = new TextView(this);
+        labelView.setText(label);
+        layout.addView(labelView);
+        Spinner spinner = new Spinner(this);
+        ArrayAdapter<Object> adapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, items);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinner.setAdapter(adapter);
+        layout.addView(spinner);
+        return spinner;
+    }
+
+    /**
+     * Applies a bulk edit in one pass over the grid, then persists all changed cells with a single
+     * edit log append and updates only those cells on screen.
+     */
+    private void applyBulkEdit(PriceBulkEdit edit) {
+        PriceGrid grid = currentGrid();
+        PriceBulkEdit.Changes changes;
+        try {
+            changes = edit.apply(grid);
+        } catch (IllegalArgumentException e) {
+            Toast.makeText(this, e.getMessage(), Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (changes.count == 0) {
+            Toast.makeText(this, "No prices changed.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        for (int i = 0; i < changes.count; i++) {
+            int row = changes.rows[i];
+            int col = changes.cols[i];
+            state.unitPrices.put(getPriceKey(state.currentGirthRanges.get(row), state.currentLengthValues.get(col)), changes.prices[i]);
+            showCellPrice(priceCells[row][col], changes.prices[i]);
+        }
+
+        try {
+            state.priceTableStore.appendEdits(changes.rows, changes.cols, changes.prices, changes.count);
+        } catch (IOException e) {
+            AppLog.e(TAG, "Error logging bulk price edit, saving full table: %s", e.getMessage(), e);
+            saveTableData();
+        }
+        AppLog.d(TAG, "Bulk edit changed %d prices.", changes.count);
+        Toast.makeText(this, changes.count + " prices updated.", Toast.LENGTH_SHORT).show();
+    }
+
     /**
      * Helper to create a unique key for the unitPrices map.
      * Uses a specific format to ensure consistency when retrieving from MainActivity.
      */
-    private String getPriceKey(GirthRange girthRange, double length) {
-        // Use Locale.US for consistent decimal separator
-        return String.format(Locale.US, "G_%.1f-%.1f_L_%.1f", girthRange.getStart(), girthRange.getEnd(), length);
+    static String getPriceKey(GirthRange girthRange, double length) {
+        return PriceGrid.priceKey(girthRange.getStart(), girthRange.getEnd(), length);
     }
 
     @Override
@@ -657,20 +1007,29 @@ public class PriceTableActivity extends AppCompatActivity {
         return true;
     }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // Fold this session's cell edits into a fresh snapshot so MainActivity can map it directly
+        state.priceTableStore.compactInBackground();
+        // Reset authentication status when leaving the activity (but not for a rotation)
+        // This forces re-authentication if the user leaves and comes back to PriceTableActivity
+        if (!isChangingConfigurations() && state.isAuthenticated) {
+            state.isAuthenticated = false;
+            state.relocked = true;
+        }
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
-        // Reset authentication status when returning to the activity
-        // This forces re-authentication if the user leaves and comes back to PriceTableActivity
-        isAuthenticated = false;
-        enableEditingUI(false); // Disable UI until authenticated
-        // --- REMOVED: promptForPasscode() call from here ---
-        // It's already called in onCreate() for initial entry,
+        // promptForPasscode() is called in onCreate() for initial entry,
         // and clicking "Generate Table" or "Edit Cell" if not authenticated will re-prompt.
-        // This fixes the double prompt on initial load.
-
-        // Rebuild table to update clickable status
-        rebuildTableFromData();
+        if (state.relocked) {
+            state.relocked = false;
+            enableEditingUI(false); // Disable UI until authenticated
+            rebuildTableFromData(); // Rebuild table to update clickable status
+        }
     }
 
 
@@ -684,7 +1043,27 @@ public class PriceTableActivity extends AppCompatActivity {
     @Override
     public boolean onOptionsItemSelected(@NonNull MenuItem item) {
         int id = item.getItemId();
-        if (id == R.id.action_export_price_list) {
+        if (id == R.id.action_bulk_edit_prices) {
+            showBulkEditDialog();
+            return true;
+        } else if (id == R.id.action_add_species) {
+            showSpeciesNameDialog(false);
+            return true;
+        } else if (id == R.id.action_rename_species) {
+            showSpeciesNameDialog(true);
+            return true;
+        } else if (id == R.id.action_delete_species) {
+            confirmDeleteSpecies();
+            return true;
+        } else if (id == R.id.action_girth_gap_policy) {
+            showGapPolicyDialog();
+            return true;
+        } else if (id == R.id.action_export_price_list) {
+            exportCompact = false;
+            checkAndExportPriceList();
+            return true;
+        } else if (id == R.id.action_export_price_list_compact) {
+            exportCompact = true;
             checkAndExportPriceList();
             return true;
         } else if (id == R.id.action_import_price_list) {
@@ -711,16 +1090,26 @@ public class PriceTableActivity extends AppCompatActivity {
     }
 
     private void exportPriceList() {
-        if (currentGirthRanges.isEmpty() || currentLengthValues.isEmpty() || unitPrices.isEmpty()) {
+        if (state.currentGirthRanges.isEmpty() || state.currentLengthValues.isEmpty() || state.unitPrices.isEmpty()) {
             Toast.makeText(this, "No price table data to export.", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        PriceTableData dataToExport = new PriceTableData(unitPrices, currentGirthRanges, currentLengthValues);
-        String jsonString = gson.toJson(dataToExport);
-
+        byte[] fileBytes;
+        String mimeType;
         String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
-        String fileName = "wood_price_list_" + timeStamp + ".json";
+        String fileName = "wood_price_list_" + timeStamp;
+        if (exportCompact) {
+            // Binary format for slow links; imports back to exactly the same table
+            fileBytes = PriceListBinaryCodec.encode(currentGrid());
+            mimeType = PriceListBinaryCodec.MIME_TYPE;
+            fileName += PriceListBinaryCodec.FILE_EXTENSION;
+        } else {
+            PriceTableData dataToExport = new PriceTableData(state.unitPrices, state.currentGirthRanges, state.currentLengthValues, state.gapPolicy);
+            fileBytes = gson.toJson(dataToExport).getBytes();
+            mimeType = "application/json";
+            fileName += ".json";
+        }
 
         OutputStream fos = null;
         try {
@@ -728,7 +1117,7 @@ public class PriceTableActivity extends AppCompatActivity {
                 ContentResolver resolver = getContentResolver();
                 ContentValues contentValues = new ContentValues();
                 contentValues.put(MediaStore.MediaColumns.DISPLAY_NAME, fileName);
-                contentValues.put(MediaStore.MediaColumns.MIME_TYPE, "application/json");
+                contentValues.put(MediaStore.MediaColumns.MIME_TYPE, mimeType);
                 // Save to a sub-folder within Downloads
                 contentValues.put(MediaStore.MediaColumns.RELATIVE_PATH, Environment.DIRECTORY_DOWNLOADS + File.separator + "WoodCalculator");
                 Uri uri = resolver.insert(MediaStore.Downloads.EXTERNAL_CONTENT_URI, contentValues);
@@ -748,20 +1137,20 @@ public class PriceTableActivity extends AppCompatActivity {
             }
 
             if (fos != null) {
-                fos.write(jsonString.getBytes());
+                fos.write(fileBytes);
                 Toast.makeText(this, "Price list exported to Downloads/WoodCalculator/" + fileName, Toast.LENGTH_LONG).show();
             } else {
                 Toast.makeText(this, "Failed to open output stream for export.", Toast.LENGTH_SHORT).show();
             }
         } catch (IOException e) {
-            Log.e(TAG, "Error exporting price list: " + e.getMessage(), e);
+            AppLog.e(TAG, "Error exporting price list: %s", e.getMessage(), e);
             Toast.makeText(this, "Error exporting price list: " + e.getMessage(), Toast.LENGTH_LONG).show();
         } finally {
             if (fos != null) {
                 try {
                     fos.close();
                 } catch (IOException e) {
-                    Log.e(TAG, "Error closing stream during export: " + e.getMessage(), e);
+                    AppLog.e(TAG, "Error closing stream during export: %s", e.getMessage(), e);
                 }
             }
         }
@@ -785,12 +1174,14 @@ public class PriceTableActivity extends AppCompatActivity {
     private void openFilePickerForImport() {
         Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
         intent.addCategory(Intent.CATEGORY_OPENABLE);
-        intent.setType("application/json"); // Filter for JSON files
+        // Accept JSON and compact binary (.wpl) price lists; the format is detected from the content
+        intent.setType("*/*");
+        intent.putExtra(Intent.EXTRA_MIME_TYPES, new String[]{"application/json", PriceListBinaryCodec.MIME_TYPE});
         try {
             startActivityForResult(intent, PICK_FILE_REQUEST_CODE);
         } catch (Exception e) {
-            Toast.makeText(this, "No file manager found to pick JSON file.", Toast.LENGTH_SHORT).show();
-            Log.e(TAG, "Error opening file picker: " + e.getMessage());
+            Toast.makeText(this, "No file manager found to pick a price list file.", Toast.LENGTH_SHORT).show();
+            AppLog.e(TAG, "Error opening file picker: %s", e.getMessage());
         }
     }
 
@@ -826,6 +1217,15 @@ public class PriceTableActivity extends AppCompatActivity {
     }
 
     private void importPriceListFromFile(Uri uri) {
+        long start = PerfMetrics.IMPORT_PRICE_LIST.begin();
+        try {
+            doImportPriceListFromFile(uri);
+        } finally {
+            PerfMetrics.IMPORT_PRICE_LIST.end(start);
+        }
+    }
+
+    private void doImportPriceListFromFile(Uri uri) {
         InputStream is = null;
         BufferedReader reader = null;
         try {
@@ -836,55 +1236,111 @@ public class PriceTableActivity extends AppCompatActivity {
                 return;
             }
 
-            reader = new BufferedReader(new InputStreamReader(is));
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                sb.append(line);
+            // Peek at the first bytes to tell a compact binary file from JSON
+            BufferedInputStream bis = new BufferedInputStream(is);
+            byte[] head = new byte[4];
+            bis.mark(head.length);
+            int headLength = 0;
+            while (headLength < head.length) { // A read may return fewer bytes than are left
+                int n = bis.read(head, headLength, head.length - headLength);
+                if (n < 0) break;
+                headLength += n;
             }
-            String jsonString = sb.toString();
+            bis.reset();
 
-            Type priceTableDataType = new TypeToken<PriceTableData>() {}.getType();
-            PriceTableData importedData = gson.fromJson(jsonString, priceTableDataType);
-
-            if (importedData != null && importedData.getUnitPrices() != null &&
-                    importedData.getGirthRanges() != null && importedData.getLengthValues() != null) {
-
-                // Update current data with imported data
-                this.unitPrices = importedData.getUnitPrices();
-                this.currentGirthRanges = importedData.getGirthRanges();
-                this.currentLengthValues = importedData.getLengthValues();
-
-                // Also update the EditText fields for user visibility
-                editTextGirthRanges.setText(formatGirthRangesForDisplay(currentGirthRanges));
-                editTextLengthValues.setText(formatLengthValuesForDisplay(currentLengthValues));
-
-                saveTableData(); // Save the imported data to SharedPreferences
-                rebuildTableFromData(); // Rebuild UI table to reflect imported data
-                Toast.makeText(this, "Price list imported successfully!", Toast.LENGTH_LONG).show();
+            PriceGrid imported;
+            if (PriceListBinaryCodec.hasMagic(head, headLength)) {
+                imported = PriceListBinaryCodec.read(bis);
             } else {
-                Toast.makeText(this, "Invalid or incomplete price list data in the file.", Toast.LENGTH_LONG).show();
+                // Stream the file token by token; validation aborts at the first bad value
+                reader = new BufferedReader(new InputStreamReader(bis, StandardCharsets.UTF_8));
+                PriceListReader.Result importedData = new PriceListReader(reader).read();
+                imported = PriceGrid.fromTable(importedData.girthRanges, importedData.lengthValues, importedData.unitPrices);
+                imported.setGapPolicy(importedData.girthGapPolicy);
+            }
+
+            // Compare against the current table and let the user confirm before anything changes
+            PriceTableDiff diff = PriceTableDiff.compute(currentGrid(), imported);
+            if (diff.isEmpty()) {
+                Toast.makeText(this, "Imported price list matches the current table. Nothing to change.", Toast.LENGTH_LONG).show();
+                return;
             }
+            showImportPreview(imported, diff);
 
-        } catch (IOException | com.google.gson.JsonParseException e) {
-            Log.e(TAG, "Error importing price list: " + e.getMessage(), e);
+        } catch (com.google.gson.JsonParseException e) {
+            AppLog.e(TAG, "Invalid price list file: %s", e.getMessage(), e);
+            Toast.makeText(this, "Invalid price list: " + e.getMessage(), Toast.LENGTH_LONG).show();
+        } catch (IOException e) {
+            AppLog.e(TAG, "Error importing price list: %s", e.getMessage(), e);
             Toast.makeText(this, "Error importing price list: " + e.getMessage(), Toast.LENGTH_LONG).show();
         } finally {
             if (reader != null) {
                 try {
                     reader.close();
                 } catch (IOException e) {
-                    Log.e(TAG, "Error closing reader: " + e.getMessage());
+                    AppLog.e(TAG, "Error closing reader: %s", e.getMessage());
                 }
             }
             if (is != null) {
                 try {
                     is.close();
                 } catch (IOException e) {
-                    Log.e(TAG, "Error closing input stream: " + e.getMessage());
+                    AppLog.e(TAG, "Error closing input stream: %s", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void showImportPreview(final PriceGrid imported, final PriceTableDiff diff) {
+        new AlertDialog.Builder(this)
+                .setTitle("Import Price List")
+                .setMessage(diff.describe())
+                .setPositiveButton("Apply", (dialog, which) -> applyImport(imported, diff))
+                .setNegativeButton("Cancel", (dialog, which) -> dialog.cancel())
+                .show();
+    }
+
+    /**
+     * Applies a previewed import. With unchanged axes only the differing cells are written (one
+     * edit log append) and redrawn; otherwise the table is replaced and rebuilt.
+     */
+    private void applyImport(PriceGrid imported, PriceTableDiff diff) {
+        if (diff.axesChanged) {
+            state.unitPrices = imported.toUnitPrices();
+            state.currentGirthRanges = imported.toGirthRanges();
+            state.currentLengthValues = imported.toLengthValues();
+            state.gapPolicy = imported.gapPolicy();
+
+            // Also update the EditText fields for user visibility
+            editTextGirthRanges.setText(formatGirthRangesForDisplay(state.currentGirthRanges));
+            editTextLengthValues.setText(formatLengthValuesForDisplay(state.currentLengthValues));
+
+            saveTableData();
+            rebuildTableFromData();
+        } else {
+            for (int i = 0; i < diff.count; i++) {
+                int row = diff.rows[i];
+                int col = diff.cols[i];
+                String priceKey = getPriceKey(state.currentGirthRanges.get(row), state.currentLengthValues.get(col));
+                if (Double.isNaN(diff.prices[i])) {
+                    state.unitPrices.remove(priceKey);
+                } else {
+                    state.unitPrices.put(priceKey, diff.prices[i]);
+                }
+                if (priceCells != null && row < priceCells.length && col < priceCells[row].length) {
+                    showCellPrice(priceCells[row][col], diff.prices[i]);
                 }
             }
+            try {
+                state.priceTableStore.appendEdits(diff.rows, diff.cols, diff.prices, diff.count);
+            } catch (IOException e) {
+                AppLog.e(TAG, "Error logging imported prices, saving full table: %s", e.getMessage(), e);
+                saveTableData();
+            }
         }
+        AppLog.d(TAG, "Imported price list: %d added, %d removed, %d changed, axes changed: %b",
+                diff.added, diff.removed, diff.changed, diff.axesChanged);
+        Toast.makeText(this, "Price list imported successfully!", Toast.LENGTH_LONG).show();
     }
 
     private String formatGirthRangesForDisplay(List<GirthRange> ranges) {
@@ -893,6 +1349,9 @@ public class PriceTableActivity extends AppCompatActivity {
             sb.append(ranges.get(i).getStart());
             sb.append("-");
             sb.append(ranges.get(i).getEnd());
+            if (ranges.get(i).getPriority() != 0) {
+                sb.append("@").append(ranges.get(i).getPriority());
+            }
             if (i < ranges.size() - 1) {
                 sb.append(", ");
             }
@@ -0,0 +1,166 @@
+package com.example.woodcalculator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Structural difference between the current price table and an imported one.
+ *
+ * When both tables have the same girth ranges (with the same priorities and gap policy) and the
+ * same lengths, the cell changes are kept as parallel
+ * (row, col, newPrice) arrays in grid coordinates, so they can be written with one edit log append
+ * and applied to just those cells on screen. Removed prices have newPrice = NaN.
+ * When the axes differ the cells are matched by price key instead, for the preview only; applying
+ * such an import replaces the table.
+ */
+public class PriceTableDiff {
+
+    // Lines listed individually in the preview before it falls back to "... and N more"
+    private static final int PREVIEW_LINES = 12;
+
+    public final boolean axesChanged;
+    public int girthRangesAdded;
+    public int girthRangesRemoved;
+    public int lengthsAdded;
+    public int lengthsRemoved;
+
+    public int added;
+    public int removed;
+    public int changed;
+
+    // Cell changes in grid coordinates (only filled when the axes are unchanged)
+    public int[] rows = new int[0];
+    public int[] cols = new int[0];
+    public double[] prices = new double[0];
+    public int count;
+
+    private final List<String> previewLines = new ArrayList<>();
+
+    private PriceTableDiff(boolean axesChanged) {
+        this.axesChanged = axesChanged;
+    }
+
+    public static PriceTableDiff compute(PriceGrid current, PriceGrid imported) {
+        boolean sameAxes = Arrays.equals(current.girthStarts, imported.girthStarts)
+                && Arrays.equals(current.girthEnds, imported.girthEnds)
+                && Arrays.equals(current.girthPriorities, imported.girthPriorities)
+                && current.gapPolicy == imported.gapPolicy
+                && Arrays.equals(current.lengths, imported.lengths);
+        PriceTableDiff diff = new PriceTableDiff(!sameAxes);
+        if (sameAxes) {
+            diff.compareCells(current, imported);
+        } else {
+            diff.compareAxes(current, imported);
+            diff.compareByKey(current.toUnitPrices(), imported.toUnitPrices());
+        }
+        return diff;
+    }
+
+    public boolean isEmpty() {
+        return !axesChanged && count == 0;
+    }
+
+    private void compareCells(PriceGrid current, PriceGrid imported) {
+        int capacity = 16;
+        rows = new int[capacity];
+        cols = new int[capacity];
+        prices = new double[capacity];
+        for (int r = 0; r < current.rows(); r++) {
+            for (int c = 0; c < current.cols(); c++) {
+                double before = current.price(r, c);
+                double after = imported.price(r, c);
+                if (Double.compare(before, after) == 0) {
+                    continue; // Same price, or both unset
+                }
+                if (count == rows.length) {
+                    rows = Arrays.copyOf(rows, count * 2);
+                    cols = Arrays.copyOf(cols, count * 2);
+                    prices = Arrays.copyOf(prices, count * 2);
+                }
+                rows[count] = r;
+                cols[count] = c;
+                prices[count] = after;
+                count++;
+                recordCell(PriceGrid.priceKey(current.girthStart(r), current.girthEnd(r), current.length(c)), before, after);
+            }
+        }
+    }
+
+    private void compareAxes(PriceGrid current, PriceGrid imported) {
+        girthRangesAdded = countMissing(imported.girthStarts, imported.girthEnds, current.girthStarts, current.girthEnds);
+        girthRangesRemoved = countMissing(current.girthStarts, current.girthEnds, imported.girthStarts, imported.girthEnds);
+        lengthsAdded = countMissing(imported.lengths, imported.lengths, current.lengths, current.lengths);
+        lengthsRemoved = countMissing(current.lengths, current.lengths, imported.lengths, imported.lengths);
+    }
+
+    // Number of (a, b) pairs in the first arrays that do not occur in the second ones
+    private static int countMissing(double[] a, double[] b, double[] inA, double[] inB) {
+        int missing = 0;
+        outer:
+        for (int i = 0; i < a.length; i++) {
+            for (int j = 0; j < inA.length; j++) {
+                if (a[i] == inA[j] && b[i] == inB[j]) continue outer;
+            }
+            missing++;
+        }
+        return missing;
+    }
+
+    private void compareByKey(Map<String, Double> current, Map<String, Double> imported) {
+        for (Map.Entry<String, Double> entry : imported.entrySet()) {
+            Double before = current.get(entry.getKey());
+            if (before == null || !before.equals(entry.getValue())) {
+                recordCell(entry.getKey(), before != null ? before : Double.NaN, entry.getValue());
+            }
+        }
+        for (Map.Entry<String, Double> entry : current.entrySet()) {
+            if (!imported.containsKey(entry.getKey())) {
+                recordCell(entry.getKey(), entry.getValue(), Double.NaN);
+            }
+        }
+    }
+
+    private void recordCell(String key, double before, double after) {
+        String line;
+        if (Double.isNaN(before)) {
+            added++;
+            line = String.format(Locale.getDefault(), "+ %s: %.1f", key, after);
+        } else if (Double.isNaN(after)) {
+            removed++;
+            line = String.format(Locale.getDefault(), "- %s: %.1f", key, before);
+        } else {
+            changed++;
+            line = String.format(Locale.getDefault(), "~ %s: %.1f -> %.1f", key, before, after);
+        }
+        if (previewLines.size() < PREVIEW_LINES) {
+            previewLines.add(line);
+        }
+    }
+
+    /**
+     * Human-readable summary for the import preview dialog.
+     */
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        if (axesChanged) {
+            sb.append(String.format(Locale.getDefault(),
+                    "Table structure differs (girth ranges +%d/-%d, lengths +%d/-%d). The whole table will be replaced.%n%n",
+                    girthRangesAdded, girthRangesRemoved, lengthsAdded, lengthsRemoved));
+        }
+        sb.append(String.format(Locale.getDefault(), "Prices: %d added, %d removed, %d changed.", added, removed, changed));
+        int total = added + removed + changed;
+        if (total > 0) {
+            sb.append('\n');
+            for (String line : previewLines) {
+                sb.append('\n').append(line);
+            }
+            if (total > previewLines.size()) {
+                sb.append(String.format(Locale.getDefault(), "%n... and %d more", total - previewLines.size()));
+            }
+        }
+        return sb.toString();
+    }
+}
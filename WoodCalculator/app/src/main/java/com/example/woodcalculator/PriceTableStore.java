@@ -0,0 +1,469 @@
+package com.example.woodcalculator;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Canonical storage for one species' price table: fixed-layout binary files in app storage that
+ * are opened as read-only memory mappings (see MappedPriceTable), so neither activity has to parse
+ * anything to price a log. Species 0 (the table that existed before species were added) keeps the
+ * original file names; other species add their id ("price_table_3.bin").
+ *
+ * Snapshot layout (big-endian, version 4):
+ * <pre>
+ *   header      : magic "WPTS" | version | rows | cols | generation (long) | price version (long) | cells | reserved | axes id (long)
+ *   prices      : cells doubles, row by row, only cells that have a price
+ *   row offsets : rows + 1 ints, first cell of each row
+ *   columns     : cells ints, index into the length axis, ascending within a row
+ * </pre>
+ * Axes file layout ("price_axes_[id in hex].bin", shared by every species with the same axes):
+ * <pre>
+ *   header      : magic "WPTA" | version | rows | cols | gap policy
+ *   starts      : rows doubles     ends : rows doubles     lengths : cols doubles (union of all rows)
+ *   priorities  : rows ints
+ *   girth index : segments | below row | above row | segments + 1 boundaries (doubles) | segments winning rows
+ * </pre>
+ * The axes id is a hash of the axes file's contents, so saving a species whose girth ranges and
+ * lengths match another's reuses that file, and both tables map the same pages. Axes files no
+ * species refers to any more are deleted after compaction.
+ * Version 1 files (a dense rows * cols price matrix), version 2 files (no priorities or girth
+ * index) and version 3 files (axes inline) are still read and are rewritten as version 4 on the
+ * next save.
+ * Saves write a temp file, sync it and rename it over the old one, so readers only ever see a
+ * complete table.
+ *
+ * Single-cell edits do not rewrite the snapshot: they are appended to a small PriceEditLog and
+ * replayed on open. Once the log grows past COMPACT_THRESHOLD records it is folded into a new
+ * snapshot on a background thread.
+ *
+ * Every change that alters prices also becomes a numbered version in PriceHistory (a delta of the
+ * changed cells, or a full table when the axes change), so a bill can record the version it was
+ * priced against and that exact table can be rebuilt later.
+ */
+public class PriceTableStore {
+
+    private static final String TAG = "PriceTableStore";
+    private static final String PREFS_NAME = "WoodCalculatorPrefs";
+    static final String FILE_NAME = "price_table.bin";
+    static final String EDIT_LOG_FILE_NAME = "price_table.log";
+    static final String HISTORY_FILE_NAME = "price_history.bin";
+    private static final String AXES_FILE_PREFIX = "price_axes_";
+
+    // Species whose table uses the original file names
+    static final int DEFAULT_SPECIES = 0;
+
+    // Edit log size (records) at which compaction into a new snapshot is scheduled
+    static final int COMPACT_THRESHOLD = 64;
+
+    // Keys that held the table as JSON strings before this store existed (migrated once, then removed)
+    private static final String LEGACY_KEY_GIRTH_RANGES_PARSED = "girthRangesParsed";
+    private static final String LEGACY_KEY_LENGTH_VALUES_PARSED = "lengthValuesParsed";
+    private static final String LEGACY_KEY_UNIT_PRICES = "unitPrices";
+
+    private static final Object LOCK = new Object();
+    private static final ExecutorService COMPACTION_EXECUTOR = Executors.newSingleThreadExecutor();
+    // Axes files are never modified once written, so one mapping per file serves every species (and
+    // every open) that refers to it. Guarded by LOCK.
+    private static final Map<String, ByteBuffer> MAPPED_AXES = new HashMap<>();
+
+    private final File directory;
+    private final File file;
+    private final PriceEditLog editLog;
+    private final PriceHistory history;
+
+    public PriceTableStore(File directory) {
+        this(directory, DEFAULT_SPECIES);
+    }
+
+    public PriceTableStore(File directory, int speciesId) {
+        String suffix = speciesId == DEFAULT_SPECIES ? "" : "_" + speciesId;
+        this.directory = directory;
+        this.file = new File(directory, withSuffix(FILE_NAME, suffix));
+        this.editLog = new PriceEditLog(new File(directory, withSuffix(EDIT_LOG_FILE_NAME, suffix)));
+        this.history = new PriceHistory(new File(directory, withSuffix(HISTORY_FILE_NAME, suffix)));
+    }
+
+    // "price_table.bin" + "_3" -> "price_table_3.bin"
+    private static String withSuffix(String fileName, String suffix) {
+        int dot = fileName.lastIndexOf('.');
+        return fileName.substring(0, dot) + suffix + fileName.substring(dot);
+    }
+
+    /**
+     * Returns the store in the app's private files directory, migrating the old
+     * SharedPreferences keys into it the first time it is used.
+     */
+    public static PriceTableStore forContext(Context context) {
+        PriceTableStore store = new PriceTableStore(context.getFilesDir());
+        store.migrateLegacyPreferences(context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE));
+        return store;
+    }
+
+    /**
+     * Returns the store holding one species' price table (see SpeciesCatalog).
+     */
+    public static PriceTableStore forSpecies(Context context, int speciesId) {
+        if (speciesId == DEFAULT_SPECIES) {
+            return forContext(context);
+        }
+        return new PriceTableStore(context.getFilesDir(), speciesId);
+    }
+
+    /**
+     * Maps the stored table read-only. If the edit log holds edits for this snapshot, they are
+     * applied to a heap copy of the snapshot instead (until the next compaction).
+     * @return The table, or null if no table has been saved yet or the file is unreadable.
+     */
+    public MappedPriceTable open() {
+        synchronized (LOCK) {
+            MappedPriceTable snapshot = openSnapshot();
+            if (snapshot == null) {
+                return null;
+            }
+            try {
+                PriceEditLog.Edits edits = editLog.read();
+                if (edits != null && edits.baseGeneration == snapshot.generation() && edits.count > 0) {
+                    // Logged edits are recorded in the history first, so the latest version describes them
+                    return snapshot.withEdits(edits.rows, edits.cols, edits.prices, edits.count, history.latestVersionId());
+                }
+            } catch (IOException e) {
+                AppLog.e(TAG, "Failed to read price edit log: %s", e.getMessage(), e);
+            }
+            return snapshot;
+        }
+    }
+
+    private MappedPriceTable openSnapshot() {
+        synchronized (LOCK) {
+            if (!file.exists()) {
+                return null;
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                 FileChannel channel = raf.getChannel()) {
+                // The mapping stays valid after the channel is closed and after the file is replaced
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                long axesId = MappedPriceTable.axesIdOf(buffer);
+                return MappedPriceTable.open(buffer, axesId != 0 ? mapAxes(axesId) : null);
+            } catch (IOException | IllegalArgumentException e) {
+                AppLog.e(TAG, "Failed to open price table store: %s", e.getMessage(), e);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Decodes the stored table into an editable grid, or returns an empty grid if nothing is stored.
+     */
+    public PriceGrid readGrid() {
+        MappedPriceTable table = open();
+        if (table == null) {
+            return new PriceGrid(new double[0], new double[0], new double[0], new double[0]);
+        }
+        return table.toGrid();
+    }
+
+    /**
+     * Saves a full snapshot with write-temp-then-rename. The generation counter is bumped on every
+     * save, and the edit log is cleared because the snapshot now contains its edits.
+     */
+    public void write(PriceGrid grid) throws IOException {
+        synchronized (LOCK) {
+            long priceVersion = recordVersion(open(), grid);
+            MappedPriceTable current = openSnapshot();
+            long generation = current != null ? current.generation() + 1 : 1;
+
+            long axesId = publishAxes(MappedPriceTable.encodeAxes(grid));
+            ByteBuffer buffer = MappedPriceTable.encode(grid, generation, priceVersion, axesId);
+
+            File temp = new File(file.getPath() + ".tmp");
+            try (FileOutputStream fos = new FileOutputStream(temp)) {
+                fos.write(buffer.array());
+                fos.getFD().sync(); // Make sure the data is on disk before the rename publishes it
+            }
+            if (!temp.renameTo(file)) {
+                //noinspection ResultOfMethodCallIgnored
+                temp.delete();
+                throw new IOException("Failed to replace " + file.getName());
+            }
+            editLog.delete();
+        }
+    }
+
+    private File axesFile(long axesId) {
+        return new File(directory, AXES_FILE_PREFIX + String.format(Locale.US, "%016x", axesId) + ".bin");
+    }
+
+    private ByteBuffer mapAxes(long axesId) throws IOException {
+        File axesFile = axesFile(axesId);
+        ByteBuffer axes = MAPPED_AXES.get(axesFile.getPath());
+        if (axes == null) {
+            try (RandomAccessFile raf = new RandomAccessFile(axesFile, "r");
+                 FileChannel channel = raf.getChannel()) {
+                axes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            MAPPED_AXES.put(axesFile.getPath(), axes);
+        }
+        return axes;
+    }
+
+    /**
+     * Makes sure an axes file with these contents exists and returns its id. If another species
+     * already saved the same axes, its file is reused.
+     */
+    private long publishAxes(ByteBuffer axes) throws IOException {
+        long axesId = MappedPriceTable.axesId(axes);
+        while (true) {
+            File axesFile = axesFile(axesId);
+            if (!axesFile.exists()) {
+                File temp = new File(axesFile.getPath() + ".tmp");
+                try (FileOutputStream fos = new FileOutputStream(temp)) {
+                    fos.write(axes.array());
+                    fos.getFD().sync();
+                }
+                if (!temp.renameTo(axesFile)) {
+                    //noinspection ResultOfMethodCallIgnored
+                    temp.delete();
+                    throw new IOException("Failed to write " + axesFile.getName());
+                }
+                return axesId;
+            }
+            ByteBuffer existing = mapAxes(axesId);
+            existing.rewind();
+            axes.rewind();
+            if (existing.equals(axes)) {
+                return axesId;
+            }
+            axesId = axesId + 1 != 0 ? axesId + 1 : 1; // Hash collision: probe the next id
+        }
+    }
+
+    /**
+     * Deletes axes files that no species' snapshot refers to any more.
+     */
+    void pruneUnusedAxes() {
+        synchronized (LOCK) {
+            File[] files = directory.listFiles();
+            if (files == null) {
+                return;
+            }
+            Set<String> referenced = new HashSet<>();
+            for (File candidate : files) {
+                String name = candidate.getName();
+                if (name.startsWith("price_table") && name.endsWith(".bin")) {
+                    referenced.add(axesFile(readAxesId(candidate)).getName());
+                }
+            }
+            for (File candidate : files) {
+                String name = candidate.getName();
+                if (name.startsWith(AXES_FILE_PREFIX) && name.endsWith(".bin") && !referenced.contains(name)) {
+                    MAPPED_AXES.remove(candidate.getPath()); // Tables already open keep their mapping
+                    if (!candidate.delete()) {
+                        AppLog.w(TAG, "Failed to delete unused price table axes %s", name);
+                    }
+                }
+            }
+        }
+    }
+
+    private static long readAxesId(File snapshot) {
+        try (RandomAccessFile raf = new RandomAccessFile(snapshot, "r")) {
+            byte[] header = new byte[MappedPriceTable.HEADER_SIZE];
+            if (raf.length() < header.length) {
+                return 0;
+            }
+            raf.readFully(header);
+            return MappedPriceTable.axesIdOf(ByteBuffer.wrap(header));
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Deletes this species' table, edit log and history (its axes go with the next prune).
+     */
+    public void delete() {
+        synchronized (LOCK) {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            editLog.delete();
+            history.delete();
+        }
+        COMPACTION_EXECUTOR.execute(this::pruneUnusedAxes);
+    }
+
+    /**
+     * Adds the change from the previous table to the history.
+     * @return The version id of the new table (unchanged if no price changed), or 0 if the history
+     *         could not be written. The table itself is still saved in that case.
+     */
+    private long recordVersion(MappedPriceTable previous, PriceGrid grid) {
+        try {
+            long latest = history.latestVersionId();
+            if (previous != null && latest != 0 && previous.priceVersion() == latest) {
+                PriceTableDiff diff = PriceTableDiff.compute(previous.toGrid(), grid);
+                if (!diff.axesChanged) {
+                    return diff.count == 0 ? latest : history.appendDelta(diff.rows, diff.cols, diff.prices, diff.count);
+                }
+            }
+            // First version, axes changed, or the history lost track of the live table
+            return history.appendBase(grid);
+        } catch (IOException e) {
+            AppLog.e(TAG, "Failed to record price version: %s", e.getMessage(), e);
+            return 0;
+        }
+    }
+
+    /**
+     * Rebuilds the price table as it was at a recorded version (e.g. the one a bill was priced against).
+     * @return The version, or null if it is not in the history.
+     */
+    public PriceVersion readVersion(long priceVersion) throws IOException {
+        synchronized (LOCK) {
+            return history.read(priceVersion);
+        }
+    }
+
+    /**
+     * Reads all recorded versions, oldest first. Unchanged cells are shared between versions.
+     */
+    public List<PriceVersion> readHistory() throws IOException {
+        synchronized (LOCK) {
+            return history.readAll();
+        }
+    }
+
+    /**
+     * Records one cell edit against the current snapshot (a 16-byte append).
+     */
+    public void appendEdit(int row, int col, double price) throws IOException {
+        appendEdits(new int[]{row}, new int[]{col}, new double[]{price}, 1);
+    }
+
+    /**
+     * Records a batch of cell edits against the current snapshot with a single append, and
+     * schedules a background compaction once the log is long enough.
+     */
+    public void appendEdits(int[] rows, int[] cols, double[] prices, int count) throws IOException {
+        synchronized (LOCK) {
+            MappedPriceTable snapshot = openSnapshot();
+            if (snapshot == null) {
+                throw new IOException("No price table has been saved yet.");
+            }
+            // History first: if it fails nothing is logged and the caller falls back to a full save
+            MappedPriceTable previous = open();
+            if (previous != null && previous.priceVersion() != 0 && previous.priceVersion() == history.latestVersionId()) {
+                history.appendDelta(rows, cols, prices, count);
+            } else {
+                PriceGrid edited = previous != null ? previous.toGrid() : snapshot.toGrid();
+                for (int i = 0; i < count; i++) {
+                    if (rows[i] >= 0 && rows[i] < edited.rows() && cols[i] >= 0 && cols[i] < edited.cols()) {
+                        edited.setPrice(rows[i], cols[i], prices[i]);
+                    }
+                }
+                history.appendBase(edited);
+            }
+            editLog.append(snapshot.generation(), rows, cols, prices, count);
+            if (editLog.size() >= COMPACT_THRESHOLD) {
+                compactInBackground();
+            }
+        }
+    }
+
+    /**
+     * Folds any pending edits into a new snapshot on the background thread.
+     */
+    public void compactInBackground() {
+        COMPACTION_EXECUTOR.execute(() -> {
+            try {
+                compact();
+            } catch (IOException e) {
+                AppLog.e(TAG, "Price table compaction failed: %s", e.getMessage(), e);
+            }
+            pruneUnusedAxes();
+        });
+    }
+
+    void compact() throws IOException {
+        synchronized (LOCK) {
+            if (editLog.size() == 0) {
+                return;
+            }
+            MappedPriceTable merged = open();
+            if (merged != null) {
+                write(merged.toGrid());
+                AppLog.d(TAG, "Compacted price edit log into snapshot generation %d", merged.generation() + 1);
+            }
+        }
+    }
+
+    /**
+     * One-time move of the JSON strings that used to live in WoodCalculatorPrefs into the binary
+     * store. The raw text inputs of the price table screen stay in SharedPreferences.
+     */
+    void migrateLegacyPreferences(SharedPreferences prefs) {
+        synchronized (LOCK) {
+            if (!prefs.contains(LEGACY_KEY_UNIT_PRICES) && !prefs.contains(LEGACY_KEY_GIRTH_RANGES_PARSED)
+                    && !prefs.contains(LEGACY_KEY_LENGTH_VALUES_PARSED)) {
+                return; // Nothing to migrate (already done, or a fresh install)
+            }
+
+            if (!file.exists()) {
+                try {
+                    Gson gson = new Gson();
+                    Type girthRangeListType = new TypeToken<List<PriceTableActivity.GirthRange>>() {}.getType();
+                    Type doubleListType = new TypeToken<List<Double>>() {}.getType();
+                    Type mapType = new TypeToken<Map<String, Double>>() {}.getType();
+
+                    List<PriceTableActivity.GirthRange> ranges = gson.fromJson(prefs.getString(LEGACY_KEY_GIRTH_RANGES_PARSED, null), girthRangeListType);
+                    List<Double> lengths = gson.fromJson(prefs.getString(LEGACY_KEY_LENGTH_VALUES_PARSED, null), doubleListType);
+                    Map<String, Double> prices = gson.fromJson(prefs.getString(LEGACY_KEY_UNIT_PRICES, null), mapType);
+
+                    // MainActivity used to sort both axes on every load; sort once here instead
+                    if (ranges != null) Collections.sort(ranges, (r1, r2) -> Double.compare(r1.getStart(), r2.getStart()));
+                    if (lengths != null) Collections.sort(lengths);
+
+                    write(PriceGrid.fromTable(
+                            ranges != null ? ranges : new ArrayList<>(),
+                            lengths != null ? lengths : new ArrayList<>(),
+                            prices != null ? prices : new LinkedHashMap<>()));
+                    AppLog.i(TAG, "Migrated price table from SharedPreferences: %d girth ranges, %d lengths.",
+                            ranges != null ? ranges.size() : 0, lengths != null ? lengths.size() : 0);
+                } catch (IOException | JsonParseException e) {
+                    // Keep the old keys so the migration is retried next time
+                    AppLog.e(TAG, "Price table migration failed: %s", e.getMessage(), e);
+                    return;
+                }
+            }
+
+            prefs.edit()
+                    .remove(LEGACY_KEY_UNIT_PRICES)
+                    .remove(LEGACY_KEY_GIRTH_RANGES_PARSED)
+                    .remove(LEGACY_KEY_LENGTH_VALUES_PARSED)
+                    .apply();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.woodcalculator;
+
+import java.util.Arrays;
+
+/**
+ * One immutable version of the price table.
+ *
+ * Prices are kept in fixed-size leaf chunks under a single root array (a two-level persistent
+ * vector). Deriving a version with a few changed cells copies the root array and only the leaves
+ * those cells fall in; every other leaf, and the axis arrays, are shared with the parent version.
+ * A one-cell edit on a 40x20 table therefore costs one 32-price leaf plus a 25-entry root instead
+ * of a copy of all 800 prices.
+ *
+ * A version also keeps the girth priorities and gap policy, so it matches girths as the table did
+ * while it was live (see GirthIndex).
+ */
+public final class PriceVersion {
+
+    static final int LEAF_BITS = 5;
+    static final int LEAF_SIZE = 1 << LEAF_BITS; // 32 prices per leaf
+    private static final int LEAF_MASK = LEAF_SIZE - 1;
+
+    private final long id;
+    // Shared (never modified) between versions with the same axes
+    private final double[] girthStarts;
+    private final double[] girthEnds;
+    private final int[] girthPriorities;
+    private final GirthIndex.GapPolicy gapPolicy;
+    private final double[] lengths;
+    private final double[][] leaves; // row-major prices, NaN = no price
+
+    private PriceVersion(long id, double[] girthStarts, double[] girthEnds, int[] girthPriorities,
+                         GirthIndex.GapPolicy gapPolicy, double[] lengths, double[][] leaves) {
+        this.id = id;
+        this.girthStarts = girthStarts;
+        this.girthEnds = girthEnds;
+        this.girthPriorities = girthPriorities;
+        this.gapPolicy = gapPolicy;
+        this.lengths = lengths;
+        this.leaves = leaves;
+    }
+
+    /**
+     * Creates a version holding a copy of the grid (used when the table is first saved or its axes change).
+     */
+    public static PriceVersion of(long id, PriceGrid grid) {
+        int size = grid.prices.length;
+        double[][] leaves = new double[(size + LEAF_MASK) >>> LEAF_BITS][];
+        for (int i = 0; i < leaves.length; i++) {
+            int from = i << LEAF_BITS;
+            leaves[i] = Arrays.copyOfRange(grid.prices, from, Math.min(size, from + LEAF_SIZE));
+        }
+        return new PriceVersion(id, grid.girthStarts.clone(), grid.girthEnds.clone(), grid.girthPriorities.clone(),
+                grid.gapPolicy, grid.lengths.clone(), leaves);
+    }
+
+    /**
+     * Derives a new version with the given cells changed. Edits outside the table are skipped.
+     */
+    public PriceVersion withPrices(long newId, int[] rows, int[] cols, double[] prices, int count) {
+        double[][] newLeaves = leaves.clone(); // Copies references only
+        boolean[] copied = new boolean[leaves.length];
+        int width = lengths.length;
+        for (int i = 0; i < count; i++) {
+            if (rows[i] < 0 || rows[i] >= girthStarts.length || cols[i] < 0 || cols[i] >= width) {
+                continue;
+            }
+            int index = rows[i] * width + cols[i];
+            int leaf = index >>> LEAF_BITS;
+            if (!copied[leaf]) {
+                newLeaves[leaf] = newLeaves[leaf].clone();
+                copied[leaf] = true;
+            }
+            newLeaves[leaf][index & LEAF_MASK] = prices[i];
+        }
+        return new PriceVersion(newId, girthStarts, girthEnds, girthPriorities, gapPolicy, lengths, newLeaves);
+    }
+
+    public long id() {
+        return id;
+    }
+
+    public int rows() {
+        return girthStarts.length;
+    }
+
+    public int cols() {
+        return lengths.length;
+    }
+
+    public double girthStart(int row) {
+        return girthStarts[row];
+    }
+
+    public double girthEnd(int row) {
+        return girthEnds[row];
+    }
+
+    public int girthPriority(int row) {
+        return girthPriorities[row];
+    }
+
+    public GirthIndex.GapPolicy gapPolicy() {
+        return gapPolicy;
+    }
+
+    public double length(int col) {
+        return lengths[col];
+    }
+
+    // NaN if the cell has no price
+    public double price(int row, int col) {
+        int index = row * lengths.length + col;
+        return leaves[index >>> LEAF_BITS][index & LEAF_MASK];
+    }
+
+    public PriceGrid toGrid() {
+        double[] prices = new double[girthStarts.length * lengths.length];
+        for (int i = 0; i < leaves.length; i++) {
+            System.arraycopy(leaves[i], 0, prices, i << LEAF_BITS, leaves[i].length);
+        }
+        PriceGrid grid = new PriceGrid(girthStarts.clone(), girthEnds.clone(), girthPriorities.clone(), lengths.clone(), prices);
+        grid.setGapPolicy(gapPolicy);
+        return grid;
+    }
+}
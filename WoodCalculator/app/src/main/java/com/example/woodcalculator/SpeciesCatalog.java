@@ -0,0 +1,173 @@
+package com.example.woodcalculator;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The named price tables (one per timber species) and the species currently selected for entry.
+ *
+ * Only names and ids live here (in WoodCalculatorPrefs); each species' table is a PriceTableStore
+ * keyed by the id. Species 0 is the table that existed before species were added and cannot be
+ * removed. Ids are never reused, since tally entries keep the id of the species they were priced
+ * as after it is removed.
+ */
+public class SpeciesCatalog {
+
+    private static final String PREFS_NAME = "WoodCalculatorPrefs";
+    private static final String KEY_SPECIES = "priceSpecies";
+    private static final String KEY_SELECTED_SPECIES = "selectedSpecies";
+    private static final String KEY_NEXT_SPECIES_ID = "nextSpeciesId"; // Only ever increases
+    static final String DEFAULT_NAME = "Default";
+
+    public static class Species {
+        final int id;
+        String name;
+
+        Species(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        public int getId() { return id; }
+        public String getName() { return name; }
+
+        @Override
+        public String toString() {
+            return name; // Shown in spinners
+        }
+    }
+
+    private final SharedPreferences prefs;
+    private final Gson gson = new Gson();
+    private final List<Species> species;
+
+    SpeciesCatalog(SharedPreferences prefs) {
+        this.prefs = prefs;
+        this.species = load(prefs, gson);
+    }
+
+    public static SpeciesCatalog forContext(Context context) {
+        return new SpeciesCatalog(context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE));
+    }
+
+    private static List<Species> load(SharedPreferences prefs, Gson gson) {
+        List<Species> loaded = null;
+        try {
+            Type type = new TypeToken<ArrayList<Species>>() {}.getType();
+            loaded = gson.fromJson(prefs.getString(KEY_SPECIES, null), type);
+        } catch (JsonParseException e) {
+            // Fall back to the default species below
+        }
+        if (loaded == null) {
+            loaded = new ArrayList<>();
+        }
+        if (loaded.isEmpty() || loaded.get(0).id != PriceTableStore.DEFAULT_SPECIES) {
+            loaded.add(0, new Species(PriceTableStore.DEFAULT_SPECIES, DEFAULT_NAME));
+        }
+        return loaded;
+    }
+
+    private void save(int nextId) {
+        prefs.edit()
+                .putString(KEY_SPECIES, gson.toJson(species))
+                .putInt(KEY_NEXT_SPECIES_ID, nextId)
+                .apply();
+    }
+
+    // Catalogs saved before the counter existed continue after their largest id
+    private int nextId() {
+        int id = prefs.getInt(KEY_NEXT_SPECIES_ID, PriceTableStore.DEFAULT_SPECIES + 1);
+        for (Species s : species) {
+            id = Math.max(id, s.id + 1);
+        }
+        return id;
+    }
+
+    public List<Species> all() {
+        return Collections.unmodifiableList(species);
+    }
+
+    public int size() {
+        return species.size();
+    }
+
+    // Position of a species in all(), or 0 (the default species) if it no longer exists
+    public int indexOf(int id) {
+        for (int i = 0; i < species.size(); i++) {
+            if (species.get(i).id == id) return i;
+        }
+        return 0;
+    }
+
+    public String nameOf(int id) {
+        return species.get(indexOf(id)).name;
+    }
+
+    /**
+     * Species last chosen on either screen; falls back to the default species if it was removed.
+     */
+    public int selectedId() {
+        return species.get(indexOf(prefs.getInt(KEY_SELECTED_SPECIES, PriceTableStore.DEFAULT_SPECIES))).id;
+    }
+
+    public void setSelectedId(int id) {
+        prefs.edit().putInt(KEY_SELECTED_SPECIES, id).apply();
+    }
+
+    /**
+     * Adds a species with an empty price table.
+     * @throws IllegalArgumentException If the name is empty or already used.
+     */
+    public Species add(String name) {
+        String trimmed = checkName(name, -1);
+        int id = nextId();
+        Species added = new Species(id, trimmed);
+        species.add(added);
+        save(id + 1);
+        return added;
+    }
+
+    /**
+     * @throws IllegalArgumentException If the name is empty or used by another species.
+     */
+    public void rename(int id, String name) {
+        species.get(indexOf(id)).name = checkName(name, id);
+        save(nextId());
+    }
+
+    /**
+     * Removes a species from the list; the caller deletes its PriceTableStore.
+     * @throws IllegalArgumentException For the default species.
+     */
+    public void remove(int id) {
+        if (id == PriceTableStore.DEFAULT_SPECIES) {
+            throw new IllegalArgumentException("The first species cannot be removed.");
+        }
+        int nextId = nextId(); // Taken before the removal, in case id is the largest
+        species.remove(indexOf(id));
+        save(nextId);
+    }
+
+    private String checkName(String name, int exceptId) {
+        String trimmed = name != null ? name.trim() : "";
+        if (trimmed.isEmpty()) {
+            throw new IllegalArgumentException("Species name cannot be empty.");
+        }
+        for (Species s : species) {
+            if (s.id != exceptId && s.name.toLowerCase(Locale.ROOT).equals(trimmed.toLowerCase(Locale.ROOT))) {
+                throw new IllegalArgumentException("A species named '" + s.name + "' already exists.");
+            }
+        }
+        return trimmed;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.woodcalculator;
+
+import java.text.Normalizer;
+
+/**
+ * Helvetica and Helvetica-Bold, two of the PDF standard fonts every viewer has, so a PDF using
+ * them (see CompactPdfWriter) embeds no font at all. Text is encoded as WinAnsiEncoding, which
+ * covers Latin-1 and a few typographic marks; widths are the fonts' published metrics, in
+ * thousandths of the text size.
+ */
+final class StandardFont {
+
+    // Widths of ' ' (32) to '~' (126)
+    private static final short[] HELVETICA_WIDTHS = {
+            278, 278, 355, 556, 556, 889, 667, 191, 333, 333, 389, 584, 278, 333, 278, 278,
+            556, 556, 556, 556, 556, 556, 556, 556, 556, 556, 278, 278, 584, 584, 584, 556,
+            1015, 667, 667, 722, 722, 667, 611, 778, 722, 278, 500, 667, 556, 833, 722, 778,
+            667, 778, 722, 667, 611, 722, 667, 944, 667, 667, 611, 278, 278, 278, 469, 556,
+            333, 556, 556, 500, 556, 556, 278, 556, 556, 222, 222, 500, 222, 833, 556, 556,
+            556, 556, 333, 500, 278, 556, 500, 722, 500, 500, 500, 334, 260, 334, 584,
+    };
+    private static final short[] HELVETICA_BOLD_WIDTHS = {
+            278, 333, 474, 556, 556, 889, 722, 238, 333, 333, 389, 584, 278, 333, 278, 278,
+            556, 556, 556, 556, 556, 556, 556, 556, 556, 556, 333, 333, 584, 584, 584, 611,
+            975, 722, 722, 722, 722, 667, 611, 778, 722, 278, 556, 722, 611, 833, 722, 778,
+            667, 778, 722, 667, 611, 722, 667, 944, 667, 667, 611, 333, 278, 333, 584, 556,
+            333, 556, 611, 556, 611, 556, 333, 611, 611, 278, 278, 556, 278, 889, 611, 611,
+            611, 611, 389, 556, 333, 611, 556, 778, 556, 556, 500, 389, 280, 389, 584,
+    };
+
+    static final StandardFont HELVETICA = new StandardFont("Helvetica", HELVETICA_WIDTHS);
+    static final StandardFont HELVETICA_BOLD = new StandardFont("Helvetica-Bold", HELVETICA_BOLD_WIDTHS);
+
+    static final int ASCENT = 718; // Thousandths of the text size, as the fonts' metrics give them
+    static final int DESCENT = 207;
+    static final int NOT_ENCODABLE = -1;
+
+    final String name;
+    private final short[] widths;
+
+    private StandardFont(String name, short[] widths) {
+        this.name = name;
+        this.widths = widths;
+    }
+
+    /**
+     * @return c's byte in WinAnsiEncoding, or NOT_ENCODABLE.
+     */
+    static int encode(char c) {
+        if (c >= 32 && c <= 126) return c;
+        if (c >= 0xA0 && c <= 0xFF) return c; // Latin-1 is the same in WinAnsi
+        switch (c) {
+            case '€': return 0x80;
+            case '…': return 0x85;
+            case '•': return 0x95;
+            case '‘': return 0x91;
+            case '’': return 0x92;
+            case '“': return 0x93;
+            case '”': return 0x94;
+            case '–': return 0x96;
+            case '—': return 0x97;
+            default: return NOT_ENCODABLE;
+        }
+    }
+
+    static boolean canEncode(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (encode(text.charAt(i)) == NOT_ENCODABLE) return false;
+        }
+        return true;
+    }
+
+    /** Width of an encodable character, in thousandths of the text size. */
+    int width(char c) {
+        if (c >= 32 && c <= 126) return widths[c - 32];
+        switch (c) {
+            case '…': case '—': return 1000;
+            case '–': case '€': return 556;
+            case '•': return 350;
+            case '²': case '³': case '¹': return 333;
+            case '×': case '±': case '¬': return 584;
+            case '·': return 278;
+            case '°': return 400;
+            case ' ': return widths[0];
+            default:
+                break;
+        }
+        // Accented letters are as wide as their base letter
+        String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+        char base = decomposed.charAt(0);
+        return base >= 32 && base <= 126 ? widths[base - 32] : 556;
+    }
+
+    /** Width of text in thousandths of the text size. */
+    int width(CharSequence text) {
+        int width = 0;
+        for (int i = 0; i < text.length(); i++) {
+            width += width(text.charAt(i));
+        }
+        return width;
+    }
+}
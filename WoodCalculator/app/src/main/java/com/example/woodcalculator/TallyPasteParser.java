@@ -0,0 +1,159 @@
+package com.example.woodcalculator;
+
+import java.util.Arrays;
+
+/**
+ * Scans pasted tally text (from a message or notes app) into girth/length pairs, one pair per
+ * line: "32 x 12", "32,12", "32 12", "32*12" or "32\" 12'" all give girth 32 in and length 12 ft.
+ * A leading serial number written as "1)" or "1:" is skipped. Blank lines are ignored.
+ *
+ * The scanner walks the text once, character by character; numbers are parsed in place with
+ * EntryPreview.parseHundredths (so they round exactly as typed entries do) and results go into
+ * parallel primitive arrays. No substrings, split or regex.
+ */
+final class TallyPasteParser {
+
+    static final int OK = 0;
+    static final int ERROR_NOT_A_PAIR = 1; // Not exactly two numbers on the line
+    static final int ERROR_NOT_A_NUMBER = 2; // Letters or other characters, or a malformed number
+    static final int ERROR_NOT_POSITIVE = 3;
+    static final int ERROR_TOO_LARGE = 4; // Above VolumeFormulas.MAX_HUNDREDTHS
+
+    /**
+     * Parsed lines, in the order they were pasted; index i of every array describes the same line.
+     */
+    static final class Result {
+        int count; // Non-blank lines
+        int valid; // Lines with error OK
+        int[] lineNumbers = new int[16]; // 1-based, counting blank lines too
+        int[] lineStarts = new int[16];
+        int[] lineEnds = new int[16];
+        int[] errors = new int[16];
+        long[] girths = new long[16]; // Hundredths of an inch; only meaningful for OK lines
+        long[] lengths = new long[16]; // Hundredths of a foot
+
+        private void add(int lineNumber, int start, int end, int error, long girth, long length) {
+            if (count == errors.length) {
+                int capacity = count * 2;
+                lineNumbers = Arrays.copyOf(lineNumbers, capacity);
+                lineStarts = Arrays.copyOf(lineStarts, capacity);
+                lineEnds = Arrays.copyOf(lineEnds, capacity);
+                errors = Arrays.copyOf(errors, capacity);
+                girths = Arrays.copyOf(girths, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+            }
+            lineNumbers[count] = lineNumber;
+            lineStarts[count] = start;
+            lineEnds[count] = end;
+            errors[count] = error;
+            girths[count] = girth;
+            lengths[count] = length;
+            count++;
+            if (error == OK) valid++;
+        }
+    }
+
+    private TallyPasteParser() {
+    }
+
+    static Result parse(CharSequence text) {
+        Result result = new Result();
+        int length = text.length();
+        int lineNumber = 1;
+        int lineStart = 0;
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? text.charAt(i) : '\n';
+            if (c != '\n' && c != '\r') continue;
+            parseLine(text, lineStart, i, lineNumber, result);
+            if (c == '\r' && i + 1 < length && text.charAt(i + 1) == '\n') i++; // \r\n is one line break
+            lineNumber++;
+            lineStart = i + 1;
+        }
+        return result;
+    }
+
+    private static void parseLine(CharSequence text, int start, int end, int lineNumber, Result result) {
+        while (start < end && text.charAt(start) <= ' ') start++;
+        while (end > start && text.charAt(end - 1) <= ' ') end--;
+        if (start == end) return; // Blank line
+
+        long girth = 0;
+        long length = 0;
+        int found = 0;
+        int error = OK;
+        int i = start;
+        while (i < end) {
+            char c = text.charAt(i);
+            if (isSeparator(c)) {
+                i++;
+                continue;
+            }
+            if (!isNumberChar(c)) {
+                error = ERROR_NOT_A_NUMBER;
+                break;
+            }
+            int tokenStart = i;
+            while (i < end && isNumberChar(text.charAt(i))) i++;
+            // "1)" or "1:" at the start of the line is a serial number, not a measurement
+            if (found == 0 && i < end && (text.charAt(i) == ')' || text.charAt(i) == ':')) {
+                i++;
+                continue;
+            }
+            if (i < end && !isSeparator(text.charAt(i))) {
+                error = ERROR_NOT_A_NUMBER; // e.g. "32a"
+                break;
+            }
+            if (found == 2) {
+                error = ERROR_NOT_A_PAIR;
+                break;
+            }
+            long value = EntryPreview.parseHundredths(text, tokenStart, i);
+            if (value < 0) {
+                error = ERROR_NOT_A_NUMBER;
+                break;
+            }
+            if (value == 0) {
+                error = ERROR_NOT_POSITIVE;
+                break;
+            }
+            if (value > VolumeFormulas.MAX_HUNDREDTHS) {
+                error = ERROR_TOO_LARGE;
+                break;
+            }
+            if (found++ == 0) {
+                girth = value;
+            } else {
+                length = value;
+            }
+        }
+        if (error == OK && found != 2) {
+            error = ERROR_NOT_A_PAIR;
+        }
+        result.add(lineNumber, start, end, error, girth, length);
+    }
+
+    private static boolean isNumberChar(char c) {
+        return (c >= '0' && c <= '9') || c == '.';
+    }
+
+    // Between the two numbers: spaces, tabs, ",", ";", "x", "*", "×", and inch/foot marks
+    private static boolean isSeparator(char c) {
+        return c <= ' ' || c == ',' || c == ';' || c == 'x' || c == 'X' || c == '*' || c == '×'
+                || c == '"' || c == '\'' || c == '″' || c == '′';
+    }
+
+    static String describeError(int error) {
+        switch (error) {
+            case ERROR_NOT_A_PAIR:
+                return "expected girth and length";
+            case ERROR_NOT_A_NUMBER:
+                return "not a number";
+            case ERROR_NOT_POSITIVE:
+                return "girth and length must be positive";
+            case ERROR_TOO_LARGE:
+                return "girth and length must be at most " + VolumeFormulas.MAX_HUNDREDTHS / 100;
+            default:
+                return "";
+        }
+    }
+}
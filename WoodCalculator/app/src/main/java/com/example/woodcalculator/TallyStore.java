@@ -0,0 +1,142 @@
+package com.example.woodcalculator;
+
+import android.content.Context;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tallies put aside to be billed later, e.g. all the lots of an auction day, billed together at
+ * its end (see BatchBillJob). Each tally is a JSON file in filesDir/tallies, written to a
+ * temporary file and renamed into place so a crash never leaves half a tally.
+ *
+ * The header fields come first in each file, so list() reads just those and stops before the
+ * entries.
+ */
+final class TallyStore {
+
+    private static final String TAG = "TallyStore";
+    private static final String DIR_NAME = "tallies";
+    private static final String SUFFIX = ".json";
+
+    /** A saved tally; list() leaves entries null. Field order is the order in the file. */
+    static final class SavedTally {
+        String id;
+        String clientName;
+        String volumeFormulaId;
+        long savedAt;
+        int entryCount;
+        List<MainActivity.LogEntry> entries;
+    }
+
+    private final File dir;
+    private final Gson gson = new Gson();
+
+    TallyStore(Context context) {
+        dir = new File(context.getFilesDir(), DIR_NAME);
+    }
+
+    /**
+     * Saves a copy of entries under a new id.
+     * @return The id, for load() and delete().
+     */
+    synchronized String save(String clientName, List<MainActivity.LogEntry> entries, VolumeFormula formula) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        SavedTally tally = new SavedTally();
+        tally.savedAt = System.currentTimeMillis();
+        tally.id = Long.toString(tally.savedAt, 36);
+        while (new File(dir, tally.id + SUFFIX).exists()) {
+            tally.id += "_"; // Two saves in the same millisecond
+        }
+        tally.clientName = clientName;
+        tally.volumeFormulaId = formula.id();
+        tally.entryCount = entries.size();
+        tally.entries = new ArrayList<>(entries);
+
+        File tmp = new File(dir, tally.id + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            gson.toJson(tally, writer);
+        }
+        if (!tmp.renameTo(new File(dir, tally.id + SUFFIX))) {
+            tmp.delete();
+            throw new IOException("Cannot rename " + tmp);
+        }
+        AppLog.i(TAG, "Saved tally %s for %s, %d entries.", tally.id, clientName, tally.entryCount);
+        return tally.id;
+    }
+
+    /**
+     * The saved tallies without their entries, oldest first. Files that cannot be read are
+     * logged and left out.
+     */
+    synchronized List<SavedTally> list() {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(SUFFIX));
+        List<SavedTally> tallies = new ArrayList<>();
+        if (files == null) return tallies;
+        for (File file : files) {
+            try (JsonReader reader = new JsonReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+                tallies.add(readHeader(reader));
+            } catch (IOException | RuntimeException e) {
+                AppLog.w(TAG, "Skipping unreadable tally %s: %s", file.getName(), e.getMessage());
+            }
+        }
+        Collections.sort(tallies, (a, b) -> Long.compare(a.savedAt, b.savedAt));
+        return tallies;
+    }
+
+    private static SavedTally readHeader(JsonReader reader) throws IOException {
+        SavedTally tally = new SavedTally();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case "id": tally.id = reader.nextString(); break;
+                case "clientName": tally.clientName = reader.nextString(); break;
+                case "volumeFormulaId": tally.volumeFormulaId = reader.nextString(); break;
+                case "savedAt": tally.savedAt = reader.nextLong(); break;
+                case "entryCount": tally.entryCount = reader.nextInt(); break;
+                case "entries": return tally; // The header is complete
+                default: reader.skipValue();
+            }
+        }
+        return tally;
+    }
+
+    /**
+     * @return The tally with its entries.
+     * @throws IOException If it was deleted or cannot be read.
+     */
+    SavedTally load(String id) throws IOException {
+        File file = new File(dir, id + SUFFIX);
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            SavedTally tally = gson.fromJson(reader, SavedTally.class);
+            if (tally == null || tally.entries == null) {
+                throw new IOException("Empty tally " + id);
+            }
+            return tally;
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt tally " + id, e); // Gson's JsonParseException
+        }
+    }
+
+    synchronized boolean delete(String id) {
+        boolean deleted = new File(dir, id + SUFFIX).delete();
+        AppLog.i(TAG, "Deleted tally %s: %b", id, deleted);
+        return deleted;
+    }
+}
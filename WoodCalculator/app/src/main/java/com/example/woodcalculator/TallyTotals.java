@@ -0,0 +1,85 @@
+package com.example.woodcalculator;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Total volume and grand total of a tally, summed exactly as BigDecimal did before:
+ * BigDecimal.valueOf(volume).setScale(scale, HALF_UP) and new BigDecimal(String.valueOf(logTotal))
+ * per entry.
+ *
+ * Entries normally hold values already at the volume scale and in whole paise, so each one is
+ * added as a long count of units and nothing is allocated. Only a value with more decimals (an
+ * edited entry, say) takes the BigDecimal path, for that entry alone.
+ */
+final class TallyTotals {
+
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000};
+    // Below 2^52 units, doubles are closer together than one unit, so the check in unitsOf is exact
+    private static final double EXACT_LIMIT = 4_503_599_627_370_496.0;
+    private static final long NOT_EXACT = Long.MIN_VALUE;
+
+    private int volumeScale;
+    private long volumeUnits; // Sum of volumes in units of 10^-volumeScale
+    private long totalCents;
+    private BigDecimal volumeRest; // Sum of the volumes that were not already at the scale, or null
+    private BigDecimal totalRest; // Sum of the log totals that were not whole paise, or null
+
+    TallyTotals(int volumeScale) {
+        reset(volumeScale);
+    }
+
+    void reset(int volumeScale) {
+        this.volumeScale = volumeScale;
+        volumeUnits = 0;
+        totalCents = 0;
+        volumeRest = null;
+        totalRest = null;
+    }
+
+    void add(double volume, double logTotal) {
+        long units = unitsOf(volume, volumeScale);
+        if (units != NOT_EXACT) {
+            volumeUnits += units;
+        } else {
+            BigDecimal rounded = BigDecimal.valueOf(volume).setScale(volumeScale, RoundingMode.HALF_UP);
+            volumeRest = volumeRest == null ? rounded : volumeRest.add(rounded);
+        }
+        long cents = unitsOf(logTotal, 2);
+        if (cents != NOT_EXACT) {
+            totalCents += cents;
+        } else {
+            BigDecimal exact = new BigDecimal(String.valueOf(logTotal));
+            totalRest = totalRest == null ? exact : totalRest.add(exact);
+        }
+    }
+
+    double volume() {
+        if (volumeRest == null) {
+            return volumeUnits / (double) POWERS_OF_TEN[volumeScale];
+        }
+        return volumeRest.add(BigDecimal.valueOf(volumeUnits, volumeScale)).doubleValue();
+    }
+
+    double grandTotal() {
+        if (totalRest == null) {
+            return totalCents / 100.0;
+        }
+        return totalRest.add(BigDecimal.valueOf(totalCents, 2)).doubleValue();
+    }
+
+    /**
+     * @return value × 10^scale if value has at most scale decimals (its shortest decimal form,
+     *         which String.valueOf and BigDecimal.valueOf use), else NOT_EXACT.
+     */
+    private static long unitsOf(double value, int scale) {
+        double power = POWERS_OF_TEN[scale];
+        double scaled = value * power;
+        if (!(Math.abs(scaled) < EXACT_LIMIT)) {
+            return NOT_EXACT; // Also NaN and infinities
+        }
+        long units = Math.round(scaled);
+        // units / 10^scale is correctly rounded, so this holds exactly when value is that decimal
+        return units / power == value ? units : NOT_EXACT;
+    }
+}
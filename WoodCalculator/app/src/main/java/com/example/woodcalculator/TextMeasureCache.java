@@ -0,0 +1,151 @@
+package com.example.woodcalculator;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Text widths in one typeface and size, measured once. Strings that repeat from bill to bill
+ * (column headers, species names, labels) are kept by value; numbers are summed from the advance
+ * of each digit, so a cell's width costs no measuring and no allocation.
+ *
+ * Text is measured with a Paint in a Typeface, or from the published widths of a PDF standard
+ * font (see StandardFont) for bills written by CompactPdfWriter. Digit advances ignore kerning,
+ * which the bill's digits do not have. Safe to use from several threads (the recording thread,
+ * batch bills).
+ */
+final class TextMeasureCache {
+
+    private static final int MAX_STRINGS = 512; // Client names and titles are new every bill
+    private static final String ELLIPSIS = "…";
+
+    final Typeface typeface; // Null when measuring a standard font
+    final StandardFont font; // Null when measuring with a Paint
+    final float textSize;
+    final float ascent; // Negative, as in Paint.FontMetrics
+    final float descent;
+
+    private final Paint paint; // Guarded by this
+    private final Map<String, Float> widths = new HashMap<>(); // Guarded by this
+    // Set once in the constructor
+    private final char zeroDigit;
+    private final char decimalSeparator;
+    private final float[] digitAdvances = new float[10];
+    private final float separatorAdvance;
+    private final float minusAdvance;
+    final float widestDigit;
+
+    TextMeasureCache(Typeface typeface, float textSize, FixedDecimalFormat numbers) {
+        this.typeface = typeface;
+        this.font = null;
+        this.textSize = textSize;
+        paint = new Paint();
+        paint.setTypeface(typeface);
+        paint.setTextSize(textSize);
+        Paint.FontMetrics metrics = paint.getFontMetrics();
+        ascent = metrics.ascent;
+        descent = metrics.descent;
+
+        zeroDigit = numbers.zeroDigit();
+        decimalSeparator = numbers.decimalSeparator();
+        widestDigit = measureDigits();
+        separatorAdvance = measure(String.valueOf(decimalSeparator));
+        minusAdvance = measure("-");
+    }
+
+    TextMeasureCache(StandardFont font, float textSize, FixedDecimalFormat numbers) {
+        this.typeface = null;
+        this.font = font;
+        this.textSize = textSize;
+        paint = null;
+        ascent = -StandardFont.ASCENT * textSize / 1000;
+        descent = StandardFont.DESCENT * textSize / 1000;
+
+        zeroDigit = numbers.zeroDigit();
+        decimalSeparator = numbers.decimalSeparator();
+        widestDigit = measureDigits();
+        separatorAdvance = measure(String.valueOf(decimalSeparator));
+        minusAdvance = measure("-");
+    }
+
+    /** Fills in digitAdvances; returns the widest. */
+    private float measureDigits() {
+        float widest = 0;
+        for (int d = 0; d < 10; d++) {
+            digitAdvances[d] = measure(String.valueOf((char) (zeroDigit + d)));
+            widest = Math.max(widest, digitAdvances[d]);
+        }
+        return widest;
+    }
+
+    // Callers hold the lock, except in the constructors
+    private float measure(String text) {
+        return paint != null ? paint.measureText(text) : font.width(text) * textSize / 1000;
+    }
+
+    synchronized float width(String text) {
+        Float width = widths.get(text);
+        if (width == null) {
+            if (widths.size() >= MAX_STRINGS) widths.clear();
+            width = measure(text);
+            widths.put(text, width);
+        }
+        return width;
+    }
+
+    /**
+     * Width of a number written by FixedDecimalFormat, from the digit advances. Characters
+     * FixedDecimalFormat does not write (its String.format fallback) are measured.
+     */
+    float width(char[] chars, int length) {
+        float width = 0;
+        for (int i = 0; i < length; i++) {
+            char c = chars[i];
+            int digit = c - zeroDigit;
+            if (digit >= 0 && digit < 10) {
+                width += digitAdvances[digit];
+            } else if (c == decimalSeparator) {
+                width += separatorAdvance;
+            } else if (c == '-') {
+                width += minusAdvance;
+            } else {
+                synchronized (this) {
+                    width += measure(String.valueOf(c));
+                }
+            }
+        }
+        return width;
+    }
+
+    /**
+     * Width of the widest number with the given digits before and after the separator.
+     */
+    float numberWidth(int wholeDigits, int scale) {
+        return widestDigit * (wholeDigits + scale) + (scale > 0 ? separatorAdvance : 0);
+    }
+
+    /**
+     * text, cut short with an ellipsis if it is wider than maxWidth.
+     */
+    String fit(String text, float maxWidth) {
+        if (width(text) <= maxWidth) return text;
+        synchronized (this) {
+            float room = Math.max(0, maxWidth - measure(ELLIPSIS));
+            int count;
+            if (paint != null) {
+                count = paint.breakText(text, true, room, null);
+            } else {
+                float used = 0;
+                count = 0;
+                while (count < text.length()) {
+                    used += font.width(text.charAt(count)) * textSize / 1000;
+                    if (used > room) break;
+                    count++;
+                }
+            }
+            return text.substring(0, count) + ELLIPSIS;
+        }
+    }
+}
@@ -10,7 +10,6 @@ import android.os.Build;
 import android.os.Bundle;
 import android.os.Environment;
 import android.provider.MediaStore;
-import android.util.Log;
 import android.view.Gravity;
 import android.view.View;
 import android.widget.Button;
@@ -24,6 +23,8 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import androidx.core.content.FileProvider;
+import androidx.lifecycle.ViewModel;
+import androidx.lifecycle.ViewModelProvider;
 
 import java.io.File;
 import java.text.ParseException;
@@ -47,11 +48,20 @@ public class ViewBillsActivity extends AppCompatActivity {
     private LinearLayout billsListContainer;
     private TextView textViewNoBillsFound;
 
-    private List<BillItem> allBillItems; // Store all loaded bills
+    private State state;
     private SimpleDateFormat filenameDateFormat = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault());
     private Pattern filenamePattern = Pattern.compile("Bill_([^_]+)_(\\d{8}_\\d{6})\\.pdf");
 
 
+    /**
+     * The loaded bills, kept across configuration changes so a rotation shows the same list
+     * without querying MediaStore again.
+     */
+    public static class State extends ViewModel {
+        List<BillItem> allBillItems; // Store all loaded bills; null until loaded
+        List<BillItem> shownBills; // The list on screen: all bills or the last search
+    }
+
     // Helper class to hold bill details
     private static class BillItem {
         String fileName;
@@ -68,7 +78,7 @@ public class ViewBillsActivity extends AppCompatActivity {
             try {
                 this.billDate = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).parse(dateString);
             } catch (ParseException e) {
-                Log.e(TAG, "Error parsing date from filename: " + dateString, e);
+                AppLog.e(TAG, "Error parsing date from filename: %s", dateString, e);
                 this.billDate = null; // Handle cases where date parsing fails
             }
         }
@@ -93,9 +103,14 @@ public class ViewBillsActivity extends AppCompatActivity {
 
         initViews();
         setListeners();
+        state = new ViewModelProvider(this).get(State.class);
 
-        // Check for permissions and load bills
-        checkPermissionsAndLoadBills();
+        if (state.allBillItems == null) {
+            // Check for permissions and load bills
+            checkPermissionsAndLoadBills();
+        } else {
+            displayBills(state.shownBills);
+        }
     }
 
     private void initViews() {
@@ -145,7 +160,16 @@ public class ViewBillsActivity extends AppCompatActivity {
     }
 
     private void loadAllBills() {
-        allBillItems = new ArrayList<>();
+        long start = PerfMetrics.LOAD_ALL_BILLS.begin();
+        try {
+            doLoadAllBills();
+        } finally {
+            PerfMetrics.LOAD_ALL_BILLS.end(start);
+        }
+    }
+
+    private void doLoadAllBills() {
+        state.allBillItems = new ArrayList<>();
         ContentResolver contentResolver = getContentResolver();
 
         Uri collectionUri;
@@ -216,7 +240,7 @@ public class ViewBillsActivity extends AppCompatActivity {
                             long id = cursor.getLong(idCol);
                             fileUri = Uri.withAppendedPath(collectionUri, "" + id);
                             // ADDED LOGGING FOR ANDROID Q+ MEDIASTORE URI
-                            Log.d(TAG, "Loaded MediaStore ID: " + id + ", Generated URI: " + fileUri);
+                            AppLog.d(TAG, "Loaded MediaStore ID: %d, Generated URI: %s", id, fileUri);
                         } else {
                             // For older APIs, use FileProvider for the actual file path
                             String filePath = cursor.getString(dataCol);
@@ -226,22 +250,22 @@ public class ViewBillsActivity extends AppCompatActivity {
                                 fileUri = FileProvider.getUriForFile(this,
                                         "com.example.woodcalculator.fileprovider", file);
                             } catch (IllegalArgumentException e) {
-                                Log.e(TAG, "FileProvider failed for: " + filePath, e);
+                                AppLog.e(TAG, "FileProvider failed for: %s", filePath, e);
                                 // Fallback for really old APIs if FileProvider isn't configured or fails for some reason
                                 fileUri = Uri.fromFile(file); // This fallback is generally not recommended for modern Android
                             }
                         }
-                        allBillItems.add(new BillItem(fileName, clientName, datePart, fileUri));
+                        state.allBillItems.add(new BillItem(fileName, clientName, datePart, fileUri));
                     }
                 } while (cursor.moveToNext());
             }
         } catch (Exception e) {
-            Log.e(TAG, "Error loading bills: " + e.getMessage(), e);
+            AppLog.e(TAG, "Error loading bills: %s", e.getMessage(), e);
             Toast.makeText(this, "Error loading bills: " + e.getMessage(), Toast.LENGTH_LONG).show();
         }
 
         // Bills are already sorted by DATE_ADDED DESC from the query, but re-sort just in case
-        Collections.sort(allBillItems, (b1, b2) -> {
+        Collections.sort(state.allBillItems, (b1, b2) -> {
             if (b1.getBillDate() == null || b2.getBillDate() == null) {
                 // Handle null dates (e.g., put them at the end or maintain current order)
                 return 0;
@@ -249,7 +273,7 @@ public class ViewBillsActivity extends AppCompatActivity {
             return b2.getBillDate().compareTo(b1.getBillDate()); // Newest first
         });
 
-        displayBills(allBillItems);
+        displayBills(state.allBillItems);
     }
 
 
@@ -258,7 +282,7 @@ public class ViewBillsActivity extends AppCompatActivity {
         String dateQuery = editTextSearchDate.getText().toString().trim(); // Keep as string for simple comparison
 
         List<BillItem> filteredBills = new ArrayList<>();
-        for (BillItem item : allBillItems) {
+        for (BillItem item : state.allBillItems) {
             boolean matchesClient = true;
             if (!clientNameQuery.isEmpty()) {
                 matchesClient = item.getClientName().toLowerCase(Locale.getDefault()).contains(clientNameQuery);
@@ -279,6 +303,7 @@ public class ViewBillsActivity extends AppCompatActivity {
     }
 
     private void displayBills(List<BillItem> billsToDisplay) {
+        state.shownBills = billsToDisplay;
         billsListContainer.removeAllViews();
         if (billsToDisplay.isEmpty()) {
             textViewNoBillsFound.setVisibility(View.VISIBLE);
@@ -311,10 +336,10 @@ public class ViewBillsActivity extends AppCompatActivity {
 
     private void openPdf(Uri pdfUri) {
         // ADDED LOGGING FOR openPdf METHOD
-        Log.d(TAG, "Attempting to open PDF with URI: " + pdfUri);
-        Log.d(TAG, "URI Scheme: " + pdfUri.getScheme());
-        Log.d(TAG, "URI Authority: " + pdfUri.getAuthority());
-        Log.d(TAG, "URI Path: " + pdfUri.getPath());
+        AppLog.d(TAG, "Attempting to open PDF with URI: %s", pdfUri);
+        AppLog.d(TAG, "URI Scheme: %s", pdfUri.getScheme());
+        AppLog.d(TAG, "URI Authority: %s", pdfUri.getAuthority());
+        AppLog.d(TAG, "URI Path: %s", pdfUri.getPath());
 
         Intent intent = new Intent(Intent.ACTION_VIEW);
         intent.setDataAndType(pdfUri, "application/pdf");
@@ -326,11 +351,11 @@ public class ViewBillsActivity extends AppCompatActivity {
                 startActivity(intent);
             } catch (Exception e) {
                 Toast.makeText(this, "Error opening PDF: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                Log.e(TAG, "Error starting activity for PDF: " + e.getMessage(), e);
+                AppLog.e(TAG, "Error starting activity for PDF: %s", e.getMessage(), e);
             }
         } else {
             Toast.makeText(this, "No application found to open PDF files.", Toast.LENGTH_LONG).show();
-            Log.e(TAG, "No PDF viewer app found on device.");
+            AppLog.e(TAG, "No PDF viewer app found on device.");
         }
     }
 
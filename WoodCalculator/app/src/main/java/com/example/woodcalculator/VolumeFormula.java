@@ -0,0 +1,35 @@
+package com.example.woodcalculator;
+
+/**
+ * A log volume formula (see VolumeFormulas for the available ones).
+ *
+ * Inputs are girth in inches and length in feet, both in hundredths, which is exactly what the
+ * entry screen keeps after rounding them to 2 decimals. The result is the volume in units of
+ * 10^-scale() of unit(), rounded HALF_UP; that rounded value is what bills show and price.
+ *
+ * Implementations precompute their constant factors when they are constructed and evaluate with
+ * primitive arithmetic only, so computing a volume allocates nothing.
+ */
+public interface VolumeFormula {
+
+    // Stable key recorded with the tally; never shown
+    String id();
+
+    String label();
+
+    // Volume unit shown on screen and on bills, e.g. "cft"
+    String unit();
+
+    // Decimal places of the result
+    int scale();
+
+    // Cubic feet in one unit(); price tables are per cft, so a table price times this is the price per unit()
+    double cubicFeetPerUnit();
+
+    /**
+     * @param girthHundredths Girth in 1/100 inch, 0 to VolumeFormulas.MAX_HUNDREDTHS.
+     * @param lengthHundredths Length in 1/100 foot, 0 to VolumeFormulas.MAX_HUNDREDTHS.
+     * @return The volume in units of 10^-scale() of unit().
+     */
+    long volume(long girthHundredths, long lengthHundredths);
+}
@@ -0,0 +1,151 @@
+package com.example.woodcalculator;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * The volume formulas a bill can use. The formula is chosen per bill and saved with the tally
+ * by id; DEFAULT is the quarter-girth formula the app has always used.
+ */
+public final class VolumeFormulas {
+
+    // Largest girth (inches) and length (feet) accepted, in hundredths. Keeps girth² × length
+    // within a long: (10^6)² × 10^6 = 10^18.
+    public static final long MAX_HUNDREDTHS = 1_000_000L;
+
+    // girth(1/100 in)² × length(1/100 ft) is in units of 10^-6 in²·ft
+    private static final long MICRO = 1_000_000L;
+
+    // 1 / 0.3048³
+    private static final double CUBIC_FEET_PER_CUBIC_METRE = 1 / (0.3048 * 0.3048 * 0.3048);
+
+    /**
+     * Quarter-girth (Hoppus) volume in cft: (G / 4)² × L / 144 = G² × L / 2304, with an optional
+     * fixed allowance taken off the girth first (for bark). Rounded as the app always has: to
+     * 6 decimals, then to 1.
+     */
+    public static final class QuarterGirth implements VolumeFormula {
+        private final String id;
+        private final String label;
+        private final long allowanceHundredths;
+
+        QuarterGirth(String id, String label, long allowanceHundredths) {
+            this.id = id;
+            this.label = label;
+            this.allowanceHundredths = allowanceHundredths;
+        }
+
+        @Override public String id() { return id; }
+        @Override public String label() { return label; }
+        @Override public String unit() { return "cft"; }
+        @Override public int scale() { return 1; }
+        @Override public double cubicFeetPerUnit() { return 1; }
+
+        @Override
+        public long volume(long girthHundredths, long lengthHundredths) {
+            long girth = Math.max(0, girthHundredths - allowanceHundredths);
+            long n = girth * girth * lengthHundredths;
+            long micro = (n + 1152) / 2304;        // Volume in 10^-6 cft, HALF_UP
+            return (micro + 50_000) / 100_000;     // Then to 0.1 cft, HALF_UP
+        }
+    }
+
+    /**
+     * True volume of a cylinder from its girth (circumference) in cft: G² × L / (576 × π).
+     * The constant is one double, so the result can differ from exact arithmetic only when the
+     * exact volume is within about 10^-12 of a rounding boundary.
+     */
+    public static final class TrueGirth implements VolumeFormula {
+        private final double tenthsPerUnit = 10.0 / (576.0 * Math.PI * MICRO);
+
+        @Override public String id() { return "true_girth"; }
+        @Override public String label() { return "True girth (G² × L / 576π), cft"; }
+        @Override public String unit() { return "cft"; }
+        @Override public int scale() { return 1; }
+        @Override public double cubicFeetPerUnit() { return 1; }
+
+        @Override
+        public long volume(long girthHundredths, long lengthHundredths) {
+            double n = (double) (girthHundredths * girthHundredths * lengthHundredths);
+            return (long) Math.floor(n * tenthsPerUnit + 0.5);
+        }
+    }
+
+    /**
+     * Quarter-girth volume in cubic metres, to 3 decimals: G² × L / 2304 × 0.3048³.
+     * 0.3048³ / 2304 = 12290298 × 10^-12 exactly, so this is exact integer arithmetic, done in
+     * two parts so the product cannot overflow.
+     */
+    public static final class QuarterGirthCubicMetres implements VolumeFormula {
+        private static final long FACTOR = 12_290_298L;       // m³ per 10^-6 in²·ft, × 10^18
+        private static final long E7 = 10_000_000L;
+        private static final long E8 = 100_000_000L;
+        private static final long E15 = 1_000_000_000_000_000L;
+
+        @Override public String id() { return "quarter_girth_m3"; }
+        @Override public String label() { return "Quarter-girth in m³ (G² × L / 2304 × 0.02832)"; }
+        @Override public String unit() { return "m³"; }
+        @Override public int scale() { return 3; }
+        @Override public double cubicFeetPerUnit() { return CUBIC_FEET_PER_CUBIC_METRE; }
+
+        @Override
+        public long volume(long girthHundredths, long lengthHundredths) {
+            long n = girthHundredths * girthHundredths * lengthHundredths;
+            // round(n × FACTOR / 10^15) with n = a × 10^8 + b and a × FACTOR = p1 × 10^7 + p0
+            long a = n / E8;
+            long b = n % E8;
+            long p = a * FACTOR;
+            long p1 = p / E7;
+            long p0 = p % E7;
+            return p1 + (p0 * E8 + b * FACTOR + E15 / 2) / E15;
+        }
+    }
+
+    public static final VolumeFormula DEFAULT = new QuarterGirth("quarter_girth", "Quarter-girth (G² × L / 2304), cft", 0);
+
+    private static final VolumeFormula[] ALL = {
+            DEFAULT,
+            new QuarterGirth("quarter_girth_less_1in", "Quarter-girth, girth less 1 in allowance, cft", 100),
+            new QuarterGirth("quarter_girth_less_2in", "Quarter-girth, girth less 2 in allowance, cft", 200),
+            new TrueGirth(),
+            new QuarterGirthCubicMetres(),
+    };
+
+    private VolumeFormulas() {
+    }
+
+    /**
+     * A price per cft, as price tables keep them, as the price per unit() of formula, rounded
+     * HALF_UP to paise.
+     */
+    public static BigDecimal unitPrice(double pricePerCubicFoot, VolumeFormula formula) {
+        return new BigDecimal(pricePerCubicFoot * formula.cubicFeetPerUnit()).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * A unit price of a bill in from's unit as the price of the same wood in to's unit, rounded
+     * HALF_UP to paise. Prices entered by hand are converted too, so switching the formula of a
+     * bill re-prices it rather than multiplying m³ by a price per cft.
+     */
+    public static BigDecimal convertUnitPrice(double unitPrice, VolumeFormula from, VolumeFormula to) {
+        if (from.cubicFeetPerUnit() == to.cubicFeetPerUnit()) {
+            return BigDecimal.valueOf(unitPrice).setScale(2, RoundingMode.HALF_UP);
+        }
+        return unitPrice(unitPrice / from.cubicFeetPerUnit(), to);
+    }
+
+    public static VolumeFormula[] all() {
+        return ALL.clone();
+    }
+
+    /**
+     * @return The formula with this id, or DEFAULT for null or unknown ids (tallies saved before
+     *         formulas could be chosen have none).
+     */
+    public static VolumeFormula byId(String id) {
+        for (VolumeFormula formula : ALL) {
+            if (formula.id().equals(id)) return formula;
+        }
+        return DEFAULT;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.woodcalculator;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+
+/**
+ * Runs MainThreadWatchdog while any of the app's activities is visible, so stalls are caught on
+ * every screen and nothing polls the main looper while the app is in the background.
+ */
+public class WoodCalculatorApp extends Application {
+
+    private int startedActivities;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        registerActivityLifecycleCallbacks(new ActivityLifecycleCallbacks() {
+            @Override
+            public void onActivityStarted(Activity activity) {
+                if (startedActivities++ == 0) {
+                    MainThreadWatchdog.start();
+                }
+            }
+
+            @Override
+            public void onActivityStopped(Activity activity) {
+                if (--startedActivities == 0) {
+                    MainThreadWatchdog.stop();
+                }
+            }
+
+            @Override
+            public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+            }
+
+            @Override
+            public void onActivityResumed(Activity activity) {
+            }
+
+            @Override
+            public void onActivityPaused(Activity activity) {
+            }
+
+            @Override
+            public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+            }
+
+            @Override
+            public void onActivityDestroyed(Activity activity) {
+            }
+        });
+    }
+}
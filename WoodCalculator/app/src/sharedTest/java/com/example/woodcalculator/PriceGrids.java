@@ -0,0 +1,38 @@
+package com.example.woodcalculator;
+
+import java.util.Random;
+
+/**
+ * Generated price tables for the tests and harnesses: contiguous girth ranges of 1 to 2.5 inches
+ * from 0, lengths from 4 ft in steps of about 1.5, and prices in tenths between 80 and 3080. For
+ * up to 40 rows and 20 columns they stay within the import limits.
+ */
+final class PriceGrids {
+
+    private PriceGrids() {
+    }
+
+    /**
+     * @param fill Share of cells that get a price; the others are left empty (NaN).
+     */
+    static PriceGrid sample(int rows, int cols, double fill, long seed) {
+        Random random = new Random(seed);
+        double[] starts = new double[rows];
+        double[] ends = new double[rows];
+        double[] lengths = new double[cols];
+        double[] prices = new double[rows * cols];
+        double boundary = 0.0;
+        for (int r = 0; r < rows; r++) {
+            starts[r] = boundary;
+            boundary += 1 + random.nextInt(2) + (random.nextBoolean() ? 0.5 : 0.0);
+            ends[r] = boundary;
+        }
+        for (int c = 0; c < cols; c++) {
+            lengths[c] = 4 + c * 1.5 + (c % 3 == 0 ? 0.5 : 0.0);
+        }
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = random.nextDouble() < fill ? (800 + random.nextInt(30000)) / 10.0 : Double.NaN;
+        }
+        return new PriceGrid(starts, ends, lengths, prices);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.woodcalculator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generated tallies for the bill tests and harnesses: girths and lengths in half units, priced
+ * from table version 3, with every 17th log (from the first) left without a price.
+ */
+final class Tallies {
+
+    static final long PRICE_VERSION = 3;
+
+    private Tallies() {
+    }
+
+    /**
+     * @param species If true, logs alternate between two species, the second with a long name.
+     */
+    static List<MainActivity.LogEntry> tally(int rows, boolean species) {
+        Random random = new Random(rows);
+        List<MainActivity.LogEntry> entries = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            double girth = 24 + random.nextInt(140) / 2.0;
+            double length = 6 + random.nextInt(50) / 2.0;
+            double volume = Math.round(girth * girth * length / 2304 * 100) / 100.0;
+            double unitPrice = i % 17 == 0 ? 0 : 1250 + i % 5 * 50; // Shown in red
+            MainActivity.LogEntry entry = new MainActivity.LogEntry(girth, length, volume, unitPrice,
+                    Math.round(volume * unitPrice * 100) / 100.0, PRICE_VERSION);
+            if (species) entry.setSpecies(i % 2, i % 2 == 0 ? "Teak" : "Rosewood (Dalbergia)");
+            entries.add(entry);
+        }
+        return entries;
+    }
+}
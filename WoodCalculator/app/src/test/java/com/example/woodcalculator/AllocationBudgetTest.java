@@ -0,0 +1,191 @@
+package com.example.woodcalculator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Allocation budgets for the calculation paths that run per log or per keystroke. Each test
+ * measures the bytes the test thread allocates per operation (HotSpot's per-thread allocation
+ * counter) and fails if that exceeds the operation's budget, giving the measured number.
+ *
+ * Operations are measured right after one warm-up call, before C2 compiles them: C2's escape
+ * analysis can remove temporaries that ART would still allocate, which would hide regressions.
+ * HotSpot itself allocates a few hundred bytes on the thread when a method reaches a compile
+ * threshold, so each measurement allows NOISE_BYTES in total; that is under 16 bytes, the
+ * smallest object, per operation.
+ */
+public class AllocationBudgetTest {
+
+    private static final int OPS = 1_000;
+    private static final long NOISE_BYTES = 4_096;
+
+    private static com.sun.management.ThreadMXBean threads;
+
+    private interface Op {
+        void run(int i) throws Exception;
+    }
+
+    private static long sink; // Keeps results alive
+
+    @BeforeClass
+    public static void enableAllocationCounter() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            threads = (com.sun.management.ThreadMXBean) bean;
+            if (threads.isThreadAllocatedMemorySupported()) threads.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    private static double bytesPerOp(Op op) throws Exception {
+        assumeTrue("Per-thread allocation counter not available on this JVM",
+                threads != null && threads.isThreadAllocatedMemorySupported());
+        long thread = Thread.currentThread().getId();
+        op.run(0); // Class loading and lazily built state
+        long overhead = threads.getThreadAllocatedBytes(thread);
+        overhead = threads.getThreadAllocatedBytes(thread) - overhead; // What reading the counter costs
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < OPS; i++) {
+            op.run(i);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before - overhead;
+        return Math.max(0, allocated - NOISE_BYTES) / (double) OPS;
+    }
+
+    private static void assertWithinBudget(String operation, double budgetBytes, Op op) throws Exception {
+        double bytes = bytesPerOp(op);
+        assertTrue(String.format(Locale.US, "%s allocates %.1f bytes/op, budget %.0f", operation, bytes, budgetBytes),
+                bytes <= budgetBytes);
+    }
+
+    private static String[] numbers(int count, int bound, long seed) {
+        Random random = new Random(seed);
+        String[] numbers = new String[count];
+        for (int i = 0; i < count; i++) {
+            numbers[i] = (1 + random.nextInt(bound)) + "." + random.nextInt(100);
+        }
+        return numbers;
+    }
+
+    @Test
+    public void pricingLookup_allocatesNothing() throws Exception {
+        MappedPriceTable table = MappedPriceTable.fromGrid(PriceGrids.sample(40, 18, 0.9, 1), 1, 1);
+        assertWithinBudget("price lookup", 0, i -> {
+            int row = table.findGirthRow(1 + (i % 97));
+            if (row >= 0) {
+                int cell = table.findClosestCell(row, 4 + (i % 37));
+                if (cell >= 0) sink += (long) table.cellPrice(cell);
+            }
+        });
+    }
+
+    @Test
+    public void entryPreview_allocatesNothing() throws Exception {
+        MappedPriceTable table = MappedPriceTable.fromGrid(PriceGrids.sample(40, 18, 0.9, 2), 1, 1);
+        EntryPreview preview = new EntryPreview('.');
+        String[] girths = numbers(OPS, 99, 3);
+        String[] lengths = numbers(OPS, 40, 4);
+        String[] pairs = new String[OPS];
+        for (int i = 0; i < OPS; i++) {
+            pairs[i] = girths[i] + " " + lengths[i];
+        }
+        assertWithinBudget("entry preview", 0, i -> sink += preview.update(girths[i], lengths[i], table, VolumeFormulas.DEFAULT).length());
+        assertWithinBudget("rapid entry preview", 0, i -> sink += preview.updatePair(pairs[i], table, VolumeFormulas.DEFAULT).length());
+    }
+
+    @Test
+    public void volume_allocatesNothing() throws Exception {
+        for (VolumeFormula formula : VolumeFormulas.all()) {
+            assertWithinBudget("volume " + formula.id(), 0, i -> sink += formula.volume(1_000 + i * 7L, 400 + i * 3L));
+        }
+    }
+
+    @Test
+    public void totals_allocateNothingPerEntry() throws Exception {
+        TallyTotals totals = new TallyTotals(1);
+        assertWithinBudget("totals per entry", 0, i -> totals.add((i % 500) / 10.0, (i % 9000) / 100.0));
+        sink += (long) totals.grandTotal();
+    }
+
+    @Test
+    public void totals_matchBigDecimalSums() {
+        Random random = new Random(5);
+        for (int scale : new int[]{1, 3}) {
+            TallyTotals totals = new TallyTotals(scale);
+            BigDecimal volume = BigDecimal.ZERO;
+            BigDecimal grandTotal = BigDecimal.ZERO;
+            for (int i = 0; i < 10_000; i++) {
+                // Mostly values at the scale, as entries hold; some with extra decimals (edited entries)
+                double v = random.nextInt(8) == 0 ? random.nextDouble() * 500 : random.nextInt(500_000) / Math.pow(10, scale);
+                double t = random.nextInt(8) == 0 ? random.nextDouble() * 90_000 : random.nextInt(9_000_000) / 100.0;
+                totals.add(v, t);
+                // What updateTotals did before
+                volume = volume.add(BigDecimal.valueOf(v).setScale(scale, RoundingMode.HALF_UP));
+                grandTotal = grandTotal.add(new BigDecimal(String.valueOf(t)));
+                assertEquals(volume.doubleValue(), totals.volume(), 0);
+                assertEquals(grandTotal.doubleValue(), totals.grandTotal(), 0);
+            }
+        }
+    }
+
+    @Test
+    public void fixedDecimals_allocateNothing() throws Exception {
+        FixedDecimalFormat format = new FixedDecimalFormat(Locale.GERMANY);
+        FixedDecimalFormat.Buffer buffer = new FixedDecimalFormat.Buffer();
+        StringBuilder text = new StringBuilder(64);
+        assertWithinBudget("fixed decimals into buffer", 0, i -> sink += format.format(i * 1.005, 2, buffer).length);
+        assertWithinBudget("fixed decimals into builder", 0, i -> {
+            text.setLength(0);
+            sink += format.append(text, -i * 0.15, 1).length();
+        });
+    }
+
+    @Test
+    public void pasteParsing_staysWithinBudgetPerLine() throws Exception {
+        StringBuilder text = new StringBuilder();
+        String[] girths = numbers(200, 99, 6);
+        String[] lengths = numbers(200, 40, 7);
+        for (int i = 0; i < 200; i++) {
+            text.append(i + 1).append(") ").append(girths[i]).append(" x ").append(lengths[i]).append('\n');
+        }
+        String tally = text.toString();
+        // Result arrays take 32 bytes a line (4 int, 2 long) and grow by doubling, so up to 4 x 32
+        // counting the outgrown copies; a substring or boxed value per line would exceed it
+        assertWithinBudget("paste parse, per 200 lines", 200 * 128, i -> sink += TallyPasteParser.parse(tally).valid);
+    }
+
+    @Test
+    public void priceListSerialization_staysWithinBudget() throws Exception {
+        PriceGrid grid = PriceGrids.sample(40, 18, 0.9, 8);
+        byte[] encoded = PriceListBinaryCodec.encode(grid);
+        // The growing output buffer (up to 2x), the body copy for the checksum and the result;
+        // boxing each price would add 16 bytes a cell and exceed it
+        assertWithinBudget("price list encode", 6 * encoded.length + 1024, i -> sink += PriceListBinaryCodec.encode(grid).length);
+        // The decoded grid itself: girth, length and price arrays
+        int gridBytes = (40 * 2 + 18 + 40 * 18) * 8 + 40 * 4;
+        assertWithinBudget("price list decode", 2 * gridBytes + 1024, i -> {
+            try {
+                sink += PriceListBinaryCodec.decode(encoded).rows();
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+    }
+
+    @Test
+    public void mappedTableEncoding_staysWithinBudget() throws Exception {
+        PriceGrid grid = PriceGrids.sample(40, 18, 0.9, 9);
+        int size = MappedPriceTable.encode(grid, 1, 1, 0).capacity();
+        assertWithinBudget("mapped table encode", 2 * size + 1024, i -> sink += MappedPriceTable.encode(grid, 1, 1, 0).capacity());
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.woodcalculator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Checks that AppLog formats only enabled levels, and formats those as String.format would.
+ * AppLogHarness (androidTest) times the guarded and unguarded lookup log line.
+ */
+public class AppLogTest {
+
+    private static final String TAG = "AppLogTest";
+
+    private final List<String> messages = new ArrayList<>();
+    private final List<Throwable> throwables = new ArrayList<>();
+    private AppLog.Sink savedSink;
+
+    // Counts how often it is formatted
+    private static final class Counted {
+        int formatted;
+
+        @Override
+        public String toString() {
+            formatted++;
+            return "counted";
+        }
+    }
+
+    @Before
+    public void captureLog() {
+        savedSink = AppLog.sink;
+        AppLog.sink = (priority, tag, message, tr) -> {
+            messages.add(message);
+            throwables.add(tr);
+        };
+    }
+
+    @After
+    public void restoreLog() {
+        AppLog.sink = savedSink;
+        AppLog.setMinLevel(AppLog.DEBUG ? Log.VERBOSE : Log.INFO);
+    }
+
+    @Test
+    public void disabledLevel_isNotFormatted() {
+        AppLog.setMinLevel(Log.INFO);
+        Counted arg = new Counted();
+        AppLog.d(TAG, "value %s", arg);
+        AppLog.v(TAG, "value %s", arg);
+        assertEquals(0, arg.formatted);
+        assertEquals(0, messages.size());
+    }
+
+    @Test
+    public void enabledLevel_isFormattedLikeStringFormat() {
+        AppLog.setMinLevel(Log.VERBOSE);
+        AppLog.w(TAG, "Found unit price %.2f for girth range %.1f-%.1f, L %.1f", 123.456, 18.0, 20.0, 12.0);
+        assertEquals(String.format(Locale.US, "Found unit price %.2f for girth range %.1f-%.1f, L %.1f",
+                123.456, 18.0, 20.0, 12.0), messages.get(0));
+    }
+
+    @Test
+    public void messageWithoutArguments_isNotFormatted() {
+        AppLog.e(TAG, "100% sure");
+        assertEquals("100% sure", messages.get(0));
+        assertNull(throwables.get(0));
+    }
+
+    @Test
+    public void trailingThrowable_isPassedOn() {
+        Exception failure = new IllegalStateException("broken");
+        AppLog.e(TAG, "Error saving: %s", failure.getMessage(), failure);
+        AppLog.e(TAG, "Error saving", failure);
+        assertEquals("Error saving: broken", messages.get(0));
+        assertSame(failure, throwables.get(0));
+        assertEquals("Error saving", messages.get(1));
+        assertSame(failure, throwables.get(1));
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.woodcalculator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Checks BillCache keys: the same bill gets the same key in every run, and changing anything
+ * printed on it (client, any field of any entry, formula, format, compact PDF, price versions,
+ * locale) gives another. Lookups of saved bills are checked on a device (BillCacheLookupTest).
+ */
+public class BillCacheTest {
+
+    private Locale defaultLocale;
+
+    @Before
+    public void setUp() {
+        defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.US);
+    }
+
+    @After
+    public void tearDown() {
+        Locale.setDefault(defaultLocale);
+    }
+
+    private static String key(List<MainActivity.LogEntry> entries) {
+        return BillCache.key("Sharma Timbers", entries, VolumeFormulas.DEFAULT, BillFormat.A4, false, "v3");
+    }
+
+    private static String keyWithEntry(int index, Consumer<MainActivity.LogEntry> change) {
+        List<MainActivity.LogEntry> entries = Tallies.tally(20, true);
+        change.accept(entries.get(index));
+        return key(entries);
+    }
+
+    @Test
+    public void sameBillGetsTheSameKeyInEveryRun() {
+        assertEquals(key(Tallies.tally(20, true)), key(Tallies.tally(20, true)));
+        // Saved keys outlive the process; this one changes only with LAYOUT_VERSION or the key's inputs
+        assertEquals("84c43cdafbd56e2503f89e9e951455c7e6662b093e9faf151bdab58eb1dadcc2", key(Tallies.tally(20, true)));
+    }
+
+    @Test
+    public void anyChangeToTheEntriesGivesANewKey() {
+        Set<String> keys = new HashSet<>();
+        keys.add(key(Tallies.tally(20, true)));
+        keys.add(keyWithEntry(7, e -> e.setGirth(e.getGirth() + 0.01)));
+        keys.add(keyWithEntry(7, e -> e.setLength(e.getLength() + 0.01)));
+        keys.add(keyWithEntry(7, e -> e.setVolume(e.getVolume() + 0.01)));
+        keys.add(keyWithEntry(7, e -> e.setUnitPrice(e.getUnitPrice() + 0.01)));
+        keys.add(keyWithEntry(7, e -> e.setLogTotal(e.getLogTotal() + 0.01)));
+        keys.add(keyWithEntry(7, e -> e.setPriceVersion(e.getPriceVersion() + 1)));
+        keys.add(keyWithEntry(7, e -> e.setSpecies(5, e.getSpecies())));
+        keys.add(keyWithEntry(7, e -> e.setSpecies(e.getSpeciesId(), e.getSpecies() + " ")));
+        keys.add(keyWithEntry(7, e -> e.setSpecies(e.getSpeciesId(), null)));
+        keys.add(keyWithEntry(19, e -> e.setGirth(e.getGirth() + 0.01))); // The last entry counts too
+        keys.add(key(Tallies.tally(19, true)));
+        keys.add(key(Tallies.tally(20, false)));
+        List<MainActivity.LogEntry> swapped = new ArrayList<>(Tallies.tally(20, true));
+        swapped.add(0, swapped.remove(1));
+        keys.add(key(swapped)); // Order is printed
+        assertEquals(14, keys.size());
+    }
+
+    @Test
+    public void anyChangeToTheBillGivesANewKey() {
+        List<MainActivity.LogEntry> entries = Tallies.tally(20, true);
+        Set<String> keys = new HashSet<>();
+        keys.add(BillCache.key("Sharma Timbers", entries, VolumeFormulas.DEFAULT, BillFormat.A4, false, "v3"));
+        keys.add(BillCache.key("Sharma Timber", entries, VolumeFormulas.DEFAULT, BillFormat.A4, false, "v3"));
+        keys.add(BillCache.key("", entries, VolumeFormulas.DEFAULT, BillFormat.A4, false, "v3"));
+        for (VolumeFormula formula : VolumeFormulas.all()) {
+            if (formula != VolumeFormulas.DEFAULT) {
+                keys.add(BillCache.key("Sharma Timbers", entries, formula, BillFormat.A4, false, "v3"));
+            }
+        }
+        keys.add(BillCache.key("Sharma Timbers", entries, VolumeFormulas.DEFAULT, BillFormat.A5, false, "v3"));
+        keys.add(BillCache.key("Sharma Timbers", entries, VolumeFormulas.DEFAULT, BillFormat.A4, true, "v3"));
+        keys.add(BillCache.key("Sharma Timbers", entries, VolumeFormulas.DEFAULT, BillFormat.A4, false, "v4"));
+        keys.add(BillCache.key("Sharma Timbers", entries, VolumeFormulas.DEFAULT, BillFormat.A4, false, null));
+        assertEquals(7 + VolumeFormulas.all().length - 1, keys.size());
+    }
+
+    @Test
+    public void textIsDelimited() {
+        List<MainActivity.LogEntry> entries = Tallies.tally(5, false);
+        assertNotEquals(BillCache.key("ab", entries, VolumeFormulas.DEFAULT, BillFormat.A4, false, "c"),
+                BillCache.key("a", entries, VolumeFormulas.DEFAULT, BillFormat.A4, false, "bc"));
+        assertNotEquals(BillCache.key("", entries, VolumeFormulas.DEFAULT, BillFormat.A4, false, ""),
+                BillCache.key("", entries, VolumeFormulas.DEFAULT, BillFormat.A4, false, null));
+    }
+
+    @Test
+    public void localeIsPartOfTheKey() {
+        String us = key(Tallies.tally(20, true));
+        Locale.setDefault(Locale.GERMANY); // Prints 1.234,50
+        assertNotEquals(us, key(Tallies.tally(20, true)));
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.woodcalculator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Checks the structure of CompactPdfWriter's files: the cross-reference table points at every
+ * object, every stream inflates to its declared content, the headers are written once and drawn
+ * on each page, rows land on BillLayout's baselines, receipts are cut to their contents and rows
+ * stay small. BillSizeHarness compares the sizes with PdfDocument's on a device.
+ */
+public class CompactPdfWriterTest {
+
+    private static final Pattern OBJECT = Pattern.compile("(\\d+) 0 obj\n");
+    private static final Pattern STREAM = Pattern.compile("(\\d+) 0 obj\n<< [^\n]*/Length (\\d+) /Filter /FlateDecode >>\nstream\n");
+    // Leading and start of the rows' text block (see CompactPdfWriter.drawTable)
+    private static final Pattern ROWS_START = Pattern.compile("([\\d.]+) TL ([\\d.]+) (-?[\\d.]+) Td\n");
+    private static final Pattern TOTALS_RULE = Pattern.compile("\n0 w [\\d.]+ (-?[\\d.]+) m ");
+    private static final float COORDINATE = 0.01f; // Coordinates are written to 1/100 pt
+
+    private AppLog.Sink savedSink;
+
+    @Before
+    public void silenceLog() {
+        savedSink = AppLog.sink;
+        AppLog.sink = (priority, tag, message, tr) -> { };
+    }
+
+    @After
+    public void restoreLog() {
+        AppLog.sink = savedSink;
+    }
+
+    private static String latin1(byte[] pdf) {
+        return new String(pdf, StandardCharsets.ISO_8859_1);
+    }
+
+    // Inflated contents of every stream, by object number
+    private static List<String> streams(byte[] pdf) throws DataFormatException {
+        List<String> streams = new ArrayList<>();
+        Matcher m = STREAM.matcher(latin1(pdf));
+        while (m.find()) {
+            int length = Integer.parseInt(m.group(2));
+            assertEquals("endstream", latin1(pdf).substring(m.end() + length + 1, m.end() + length + 10));
+            Inflater inflater = new Inflater();
+            inflater.setInput(pdf, m.end(), length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[4096];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(chunk);
+                assertTrue("Stream " + m.group(1) + " is truncated", n > 0 || !inflater.needsInput());
+                out.write(chunk, 0, n);
+            }
+            inflater.end();
+            streams.add(latin1(out.toByteArray()));
+        }
+        return streams;
+    }
+
+    // As written in a content stream
+    private static String pdfString(String s) {
+        return "(" + s.replace("\\", "\\\\").replace("(", "\\(").replace(")", "\\)") + ")";
+    }
+
+    private static int count(String text, String part) {
+        int count = 0;
+        for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + 1)) count++;
+        return count;
+    }
+
+    @Test
+    public void crossReferenceTablePointsAtEveryObject() {
+        BillLayout layout = BillLayout.of(BillFormat.A4, VolumeFormulas.DEFAULT, false, true);
+        byte[] pdf = CompactPdfWriter.write(Tallies.tally(250, false), layout, "Sharma & Sons (Pune)", "v3");
+        String text = latin1(pdf);
+        assertTrue(text.startsWith("%PDF-1.4\n"));
+        assertTrue(text.endsWith("%%EOF\n"));
+
+        int startxref = text.lastIndexOf("startxref\n");
+        int xref = Integer.parseInt(text.substring(startxref + 10, text.indexOf('\n', startxref + 10)));
+        assertTrue(text.startsWith("xref\n0 ", xref));
+        int headerEnd = text.indexOf('\n', xref + 5);
+        int size = Integer.parseInt(text.substring(xref + 7, headerEnd));
+        int objects = 0;
+        Matcher m = OBJECT.matcher(text);
+        while (m.find()) objects++;
+        assertEquals(size - 1, objects);
+        for (int i = 1; i < size; i++) {
+            String entry = text.substring(headerEnd + 1 + i * 20, headerEnd + 1 + (i + 1) * 20);
+            int offset = Integer.parseInt(entry.substring(0, 10));
+            assertTrue("Object " + i + " at " + offset, text.startsWith(i + " 0 obj\n", offset));
+        }
+        assertEquals(layout.pageCount(250), count(text, "/Type /Page "));
+    }
+
+    @Test
+    public void headersAreWrittenOnceAndDrawnOnEveryPage() throws DataFormatException {
+        BillLayout layout = BillLayout.of(BillFormat.A4, VolumeFormulas.DEFAULT, true, true);
+        List<MainActivity.LogEntry> entries = Tallies.tally(250, true);
+        byte[] pdf = CompactPdfWriter.write(entries, layout, "Client", "Teak v3, Rosewood v3");
+        List<String> streams = streams(pdf);
+        int pages = layout.pageCount(entries.size());
+        assertEquals(1 + pages, streams.size()); // The header form, then each page
+
+        String form = streams.get(0);
+        // The form carries the one font it uses
+        assertTrue(Pattern.compile("/Subtype /Form /BBox \\[[-\\d. ]+\\] /Resources << /Font << /F2 4 0 R >> >> /Length ")
+                .matcher(latin1(pdf)).find());
+        assertTrue(form.contains("BT /F2 "));
+        assertFalse(form.contains("/F1"));
+        for (String header : layout.headers) {
+            assertEquals(1, count(form, pdfString(header)));
+        }
+        int rows = 0;
+        for (int p = 0; p < pages; p++) {
+            String page = streams.get(1 + p);
+            assertEquals(layout.rowsOn(p, entries.size()) > 0 || p == 0 ? 1 : 0, count(page, "/H Do"));
+            assertFalse(page.contains(pdfString(layout.headers[BillLayout.LENGTH])));
+            rows += count(page, "T* [");
+        }
+        assertEquals(entries.size(), rows);
+        assertEquals((entries.size() + 16) / 17, count(String.join("", streams), "1 0 0 rg"));
+        assertTrue(streams.get(pages).contains("(Grand Total: Rs. "));
+    }
+
+    @Test
+    public void rowsSitOnTheLayoutsBaselines() throws DataFormatException {
+        for (BillFormat format : BillFormat.all()) {
+            BillLayout layout = BillLayout.of(format, VolumeFormulas.DEFAULT, false, true);
+            int count = layout.firstPageRows + layout.pageRows + 3; // A full page, then a short last one
+            List<String> streams = streams(CompactPdfWriter.write(Tallies.tally(count, false), layout, "Client", "v3"));
+            int pages = layout.pageCount(count);
+            for (int p = 0; p < pages; p++) {
+                int rows = layout.rowsOn(p, count);
+                if (rows == 0) continue;
+                String page = streams.get(1 + p);
+                float height = layout.pageHeight(p, count);
+                Matcher start = ROWS_START.matcher(page);
+                assertTrue(format.id + " page " + p, start.find());
+                float leading = Float.parseFloat(start.group(1));
+                float startY = Float.parseFloat(start.group(3));
+                assertEquals(layout.lineHeight, leading, COORDINATE);
+                assertEquals(rows, count(page, "T* ["));
+
+                // Each row begins with T*, one leading below the row before
+                float firstY = startY - leading;
+                float lastY = startY - rows * leading;
+                assertEquals(format.id + " page " + p, height - layout.rowBaseline(p, 0), firstY, COORDINATE);
+                assertEquals(format.id + " page " + p, height - layout.rowBaseline(p, rows - 1), lastY, COORDINATE * rows);
+                if (p == pages - 1) {
+                    // The totals go where the row after the last would, under a rule between the two
+                    float totalsTop = layout.totalsTop(p, rows);
+                    assertEquals(height - totalsTop, lastY - leading, COORDINATE * rows);
+                    Matcher rule = TOTALS_RULE.matcher(page);
+                    assertTrue(rule.find());
+                    assertTrue(Float.parseFloat(rule.group(1)) < lastY - layout.body.descent);
+                    assertEquals(height - layout.totalsRuleY(totalsTop), Float.parseFloat(rule.group(1)), COORDINATE);
+                } else {
+                    assertTrue(format.id + " page " + p + " runs into the margin",
+                            lastY - layout.body.descent >= format.margin - COORDINATE);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void receiptIsCutToItsContents() {
+        BillLayout layout = BillLayout.of(BillFormat.RECEIPT_80MM, VolumeFormulas.DEFAULT, false, true);
+        String text = latin1(CompactPdfWriter.write(Tallies.tally(40, false), layout, "Client", "v3"));
+        assertEquals(1, layout.pageCount(40));
+        assertTrue(text.contains("/MediaBox [0 0 227 " + layout.pageHeight(0, 40) + "]"));
+        assertTrue(layout.pageHeight(0, 40) < BillFormat.RECEIPT_80MM.pageHeight);
+    }
+
+    @Test
+    public void onlyWinAnsiTextCanBeWritten() {
+        BillLayout trueGirth = BillLayout.of(BillFormat.A4, VolumeFormulas.byId("true_girth"), false, true);
+        // π and ₹ are spelt out
+        assertTrue(CompactPdfWriter.canWrite(Tallies.tally(3, false), trueGirth, "José Müller", "v3"));
+        assertFalse(CompactPdfWriter.canWrite(Tallies.tally(3, false), trueGirth, "राम टिम्बर", "v3"));
+
+        BillLayout withSpecies = BillLayout.of(BillFormat.A4, VolumeFormulas.DEFAULT, true, true);
+        List<MainActivity.LogEntry> entries = Tallies.tally(3, true);
+        entries.get(1).setSpecies(9, "शीशम");
+        assertFalse(CompactPdfWriter.canWrite(entries, withSpecies, "Client", "v3"));
+    }
+
+    @Test
+    public void rowsTakeAFewBytesEach() {
+        for (BillFormat format : BillFormat.all()) {
+            BillLayout layout = BillLayout.of(format, VolumeFormulas.DEFAULT, false, true);
+            int large = CompactPdfWriter.write(Tallies.tally(1_000, false), layout, "Client", "v3").length;
+            assertTrue(format.id + ": " + large + " bytes", large < 1_000 * 40); // About 25 bytes a row when this was written
+        }
+    }
+}
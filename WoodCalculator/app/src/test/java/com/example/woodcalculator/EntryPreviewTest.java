@@ -0,0 +1,108 @@
+package com.example.woodcalculator;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+/**
+ * Checks EntryPreview's primitive parsing and rounding against the BigDecimal arithmetic the ADD
+ * button uses: typed text to hundredths as trim() and setScale(2, HALF_UP), and prices to paise
+ * as new BigDecimal(price).setScale(2, HALF_UP).
+ */
+public class EntryPreviewTest {
+
+    // What createEntry makes of the text, or -1 where it would reject it
+    private static long reference(String text) {
+        try {
+            String trimmed = text.trim();
+            if (!trimmed.matches("[0-9]*\\.?[0-9]*")) return -1;
+            return new BigDecimal(trimmed).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Test
+    public void parseHundredths_roundsHalfUp() {
+        assertEquals(2450, EntryPreview.parseHundredths("24.5"));
+        assertEquals(2401, EntryPreview.parseHundredths("24.005"));
+        assertEquals(2400, EntryPreview.parseHundredths("24.0049999"));
+        assertEquals(100, EntryPreview.parseHundredths("0.995"));
+        assertEquals(0, EntryPreview.parseHundredths("0.004"));
+        assertEquals(1, EntryPreview.parseHundredths("0.005"));
+        assertEquals(50, EntryPreview.parseHundredths(".5"));
+        assertEquals(1200, EntryPreview.parseHundredths("12."));
+        assertEquals(1250, EntryPreview.parseHundredths("  12.50\t"));
+        assertEquals(1250, EntryPreview.parseHundredths("0012.5"));
+    }
+
+    @Test
+    public void parseHundredths_rejectsWhatIsNotANumber() {
+        String[] invalid = {"", " ", ".", " . ", "1.2.3", "-5", "+5", "1e3", "12,5", "12 5", "abc", "5a", "٣"};
+        for (String text : invalid) {
+            assertEquals("'" + text + "'", -1, EntryPreview.parseHundredths(text));
+        }
+    }
+
+    @Test
+    public void parseHundredths_rejectsWholePartsBeyondTheLimit() {
+        assertEquals(1_000_000_000_000_00L, EntryPreview.parseHundredths("1000000000000"));
+        assertEquals(1_000_000_000_000_99L, EntryPreview.parseHundredths("1000000000000.99"));
+        assertEquals(-1, EntryPreview.parseHundredths("1000000000001"));
+        assertEquals(-1, EntryPreview.parseHundredths("99999999999999999999999999"));
+        // Long runs of decimals cannot overflow; only the first dropped digit counts
+        assertEquals(100, EntryPreview.parseHundredths("0.99999999999999999999999999999"));
+    }
+
+    @Test
+    public void parseHundredths_ofPartOfAText() {
+        String pair = " 24.555 x 12.004 ";
+        assertEquals(2456, EntryPreview.parseHundredths(pair, 0, 8));
+        assertEquals(1200, EntryPreview.parseHundredths(pair, 10, pair.length()));
+        assertEquals(-1, EntryPreview.parseHundredths(pair, 7, 10));
+    }
+
+    @Test
+    public void parseHundredths_matchesBigDecimal() {
+        Random random = new Random(37);
+        char[] alphabet = {'0', '1', '4', '5', '9', '.', ' '};
+        for (int i = 0; i < 200_000; i++) {
+            StringBuilder text = new StringBuilder();
+            int length = 1 + random.nextInt(9);
+            for (int k = 0; k < length; k++) text.append(alphabet[random.nextInt(alphabet.length)]);
+            String s = text.toString();
+            assertEquals("'" + s + "'", reference(s), EntryPreview.parseHundredths(s));
+        }
+    }
+
+    @Test
+    public void centsHalfUp_matchesBigDecimalOnTheExactDouble() {
+        // Decimal halves are rarely halves in binary: 1.005 is stored just below, 0.125 exactly
+        double[] prices = {0, 0.125, 0.375, 1.005, 2.675, 1.115, 4.35, 1250, 1250.005, 99999.995, 44143.325,
+                1e9 + 0.005, 0.0049999999, 1e-9};
+        for (double price : prices) {
+            for (double p : new double[]{price, -price}) {
+                assertEquals(String.valueOf(p), new BigDecimal(p).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact(),
+                        EntryPreview.centsHalfUp(p));
+            }
+        }
+        assertEquals(13, EntryPreview.centsHalfUp(0.125));
+        assertEquals(-13, EntryPreview.centsHalfUp(-0.125));
+        assertEquals(100, EntryPreview.centsHalfUp(1.005));
+    }
+
+    @Test
+    public void centsHalfUp_matchesBigDecimalOnRandomPrices() {
+        Random random = new Random(370);
+        for (int i = 0; i < 500_000; i++) {
+            // Three decimals put a tenth of them on a decimal half; the rest are arbitrary doubles
+            double price = i % 2 == 0 ? random.nextInt(100_000_000) / 1000.0 : random.nextDouble() * 1e7;
+            assertEquals(String.valueOf(price), new BigDecimal(price).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact(),
+                    EntryPreview.centsHalfUp(price));
+        }
+    }
+}
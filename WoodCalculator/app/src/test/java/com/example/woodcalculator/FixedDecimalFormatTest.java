@@ -0,0 +1,113 @@
+package com.example.woodcalculator;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Checks FixedDecimalFormat against String.format, which it replaces on the table, totals, PDF
+ * and price-key paths, over values as the app stores them, halfway cases and random doubles.
+ */
+public class FixedDecimalFormatTest {
+
+    private static final Locale[] LOCALES = {
+            Locale.US, Locale.GERMANY, new Locale("en", "IN"), new Locale("ar", "EG"),
+            Locale.forLanguageTag("hi-IN-u-nu-deva"),
+    };
+
+    private static void assertSameAsFormatter(FixedDecimalFormat format, Locale locale, double value, int scale,
+                                              FixedDecimalFormat.Buffer buffer, StringBuilder sb) {
+        String expected = String.format(locale, "%." + scale + "f", value);
+        String message = locale + " %." + scale + "f of " + value;
+        assertEquals(message, expected, format.format(value, scale, buffer).toString());
+        sb.setLength(0);
+        assertEquals(message, expected, format.append(sb, value, scale).toString());
+        assertEquals(message, expected, format.format(value, scale));
+    }
+
+    private static void checkAllScales(FixedDecimalFormat format, Locale locale, double value,
+                                       FixedDecimalFormat.Buffer buffer, StringBuilder sb) {
+        for (int scale = 0; scale <= 3; scale++) {
+            assertSameAsFormatter(format, locale, value, scale, buffer, sb);
+            assertSameAsFormatter(format, locale, -value, scale, buffer, sb);
+        }
+    }
+
+    @Test
+    public void matchesFormatter_onSpecialValues() {
+        double[] values = {
+                0.0, 0.001, 0.004, 0.005, 0.015, 0.045, 0.05, 0.125, 0.5, 1.005, 1.115, 2.675, 4.35,
+                9.995, 99.995, 1234567.895, 1e-5, 0.9999999, 999999.995, 2.5e12, 3e12, 1e20, Double.MAX_VALUE,
+                Double.MIN_VALUE, Double.NaN, Double.POSITIVE_INFINITY,
+        };
+        FixedDecimalFormat.Buffer buffer = new FixedDecimalFormat.Buffer();
+        StringBuilder sb = new StringBuilder();
+        for (Locale locale : LOCALES) {
+            FixedDecimalFormat format = new FixedDecimalFormat(locale);
+            for (double value : values) {
+                checkAllScales(format, locale, value, buffer, sb);
+            }
+        }
+    }
+
+    @Test
+    public void matchesFormatter_onDecimalsAsStored() {
+        // Entries hold parsed decimals and BigDecimal results; a third and fourth decimal puts
+        // many of them exactly halfway at scales 1 and 2
+        Random random = new Random(45);
+        FixedDecimalFormat.Buffer buffer = new FixedDecimalFormat.Buffer();
+        StringBuilder sb = new StringBuilder();
+        for (Locale locale : LOCALES) {
+            FixedDecimalFormat format = new FixedDecimalFormat(locale);
+            for (int i = 0; i < 200_000; i++) {
+                int decimals = 1 + random.nextInt(4);
+                long unscaled = (long) (random.nextDouble() * Math.pow(10, 3 + random.nextInt(8)));
+                double value = Double.parseDouble(unscaled / (long) Math.pow(10, decimals) + "."
+                        + String.format(Locale.US, "%0" + decimals + "d", unscaled % (long) Math.pow(10, decimals)));
+                checkAllScales(format, locale, value, buffer, sb);
+            }
+        }
+    }
+
+    @Test
+    public void matchesFormatter_onRandomDoubles() {
+        Random random = new Random(46);
+        FixedDecimalFormat format = new FixedDecimalFormat(Locale.US);
+        FixedDecimalFormat.Buffer buffer = new FixedDecimalFormat.Buffer();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 500_000; i++) {
+            double value = random.nextDouble() * Math.pow(10, random.nextInt(16) - 3);
+            checkAllScales(format, Locale.US, value, buffer, sb);
+            // Products and quotients as volume and total calculations leave them
+            checkAllScales(format, Locale.US, value * 3.14159 / 7, buffer, sb);
+        }
+    }
+
+    @Test
+    public void priceKeysUnchanged() {
+        Random random = new Random(47);
+        for (int i = 0; i < 100_000; i++) {
+            double start = random.nextInt(2000) / 10.0;
+            double end = start + random.nextInt(4000) / 100.0;
+            double length = random.nextInt(600) / (random.nextBoolean() ? 10.0 : 4.0);
+            assertEquals(String.format(Locale.US, "G_%.1f-%.1f_L_%.1f", start, end, length),
+                    PriceGrid.priceKey(start, end, length));
+        }
+    }
+
+    @Test
+    public void forDefaultLocale_followsLocaleChanges() {
+        Locale saved = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.GERMANY);
+            assertEquals("12,50", FixedDecimalFormat.forDefaultLocale().format(12.5, 2));
+            Locale.setDefault(Locale.US);
+            assertEquals("12.50", FixedDecimalFormat.forDefaultLocale().format(12.5, 2));
+        } finally {
+            Locale.setDefault(saved);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.woodcalculator;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Girth lookups through the GirthIndex a MappedPriceTable stores: range boundaries, overlapping
+ * tiers, and each gap policy in gaps, below the first range and above the last.
+ */
+public class GirthIndexTest {
+
+    private static MappedPriceTable table(double[] starts, double[] ends, int[] priorities, GirthIndex.GapPolicy gapPolicy) {
+        double[] prices = new double[starts.length];
+        for (int r = 0; r < prices.length; r++) prices[r] = 1000 + r;
+        PriceGrid grid = new PriceGrid(starts, ends, priorities, new double[]{10}, prices);
+        grid.setGapPolicy(gapPolicy);
+        return MappedPriceTable.fromGrid(grid, 1, 1);
+    }
+
+    // Two ranges with gaps before, between and after them
+    private static MappedPriceTable gapped(GirthIndex.GapPolicy gapPolicy) {
+        return table(new double[]{10, 30}, new double[]{20, 40}, new int[2], gapPolicy);
+    }
+
+    @Test
+    public void boundariesFollowStartExclusiveEndInclusive() {
+        MappedPriceTable table = table(new double[]{0, 24, 36}, new double[]{24, 36, 48}, new int[3], GirthIndex.GapPolicy.NO_PRICE);
+        assertEquals(0, table.findGirthRow(0)); // A range starting at 0.0 includes it
+        assertEquals(0, table.findGirthRow(12));
+        assertEquals(0, table.findGirthRow(24));
+        assertEquals(1, table.findGirthRow(24.01));
+        assertEquals(1, table.findGirthRow(36));
+        assertEquals(2, table.findGirthRow(47.99));
+        assertEquals(2, table.findGirthRow(48));
+        assertEquals(-1, table.findGirthRow(48.01));
+    }
+
+    @Test
+    public void overlapsGoToThePriorityThenTheNarrowerRange() {
+        // A promotional tier over part of two ranges, and two equal-priority ranges sharing 50-60
+        MappedPriceTable table = table(new double[]{0, 24, 30, 48, 50}, new double[]{24, 36, 40, 60, 60},
+                new int[]{0, 0, 1, 0, 0}, GirthIndex.GapPolicy.NO_PRICE);
+        assertEquals(1, table.findGirthRow(30));
+        assertEquals(2, table.findGirthRow(30.5));
+        assertEquals(2, table.findGirthRow(36));
+        assertEquals(2, table.findGirthRow(40));
+        assertEquals(-1, table.findGirthRow(44));
+        assertEquals(3, table.findGirthRow(49));
+        assertEquals(4, table.findGirthRow(55)); // 50-60 is narrower than 48-60
+
+        MappedPriceTable sameWidth = table(new double[]{10, 10}, new double[]{20, 20}, new int[2], GirthIndex.GapPolicy.NO_PRICE);
+        assertEquals(0, sameWidth.findGirthRow(15)); // Then the earlier row
+    }
+
+    @Test
+    public void noPricePolicy_leavesGapsUnpriced() {
+        MappedPriceTable table = gapped(GirthIndex.GapPolicy.NO_PRICE);
+        assertEquals(-1, table.findGirthRow(5));
+        assertEquals(-1, table.findGirthRow(10));
+        assertEquals(0, table.findGirthRow(15));
+        assertEquals(-1, table.findGirthRow(25));
+        assertEquals(1, table.findGirthRow(40));
+        assertEquals(-1, table.findGirthRow(45));
+    }
+
+    @Test
+    public void nextLowerPolicy_pricesGapsAsTheRangeBelow() {
+        MappedPriceTable table = gapped(GirthIndex.GapPolicy.NEXT_LOWER);
+        assertEquals(-1, table.findGirthRow(5)); // Nothing lower
+        assertEquals(0, table.findGirthRow(20));
+        assertEquals(0, table.findGirthRow(25));
+        assertEquals(0, table.findGirthRow(30));
+        assertEquals(1, table.findGirthRow(30.01));
+        assertEquals(1, table.findGirthRow(45));
+        assertEquals(1, table.findGirthRow(1000));
+    }
+
+    @Test
+    public void nextHigherPolicy_pricesGapsAsTheRangeAbove() {
+        MappedPriceTable table = gapped(GirthIndex.GapPolicy.NEXT_HIGHER);
+        assertEquals(0, table.findGirthRow(5));
+        assertEquals(0, table.findGirthRow(10));
+        assertEquals(1, table.findGirthRow(20.01));
+        assertEquals(1, table.findGirthRow(25));
+        assertEquals(1, table.findGirthRow(40));
+        assertEquals(-1, table.findGirthRow(45)); // Nothing higher
+    }
+
+    @Test
+    public void gapPolicySurvivesTheTableAndCopies() {
+        MappedPriceTable table = gapped(GirthIndex.GapPolicy.NEXT_HIGHER);
+        PriceGrid grid = table.toGrid();
+        assertEquals(GirthIndex.GapPolicy.NEXT_HIGHER, grid.gapPolicy());
+        PriceGrid empty = grid.withoutPrices();
+        assertEquals(GirthIndex.GapPolicy.NEXT_HIGHER, empty.gapPolicy());
+        empty.setGapPolicy(GirthIndex.GapPolicy.NO_PRICE);
+        assertEquals(GirthIndex.GapPolicy.NEXT_HIGHER, grid.gapPolicy());
+    }
+
+    @Test
+    public void emptyTableHasNoRows() {
+        MappedPriceTable table = table(new double[0], new double[0], new int[0], GirthIndex.GapPolicy.NEXT_LOWER);
+        assertEquals(-1, table.findGirthRow(0));
+        assertEquals(-1, table.findGirthRow(24));
+    }
+}
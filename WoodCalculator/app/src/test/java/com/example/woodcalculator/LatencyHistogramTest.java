@@ -0,0 +1,113 @@
+package com.example.woodcalculator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks LatencyHistogram's buckets (one per value below 8, then 8 per power of two, without
+ * gaps or overlaps) and that percentiles are the upper bound of the right bucket, capped at max.
+ */
+public class LatencyHistogramTest {
+
+    private static final int LAST_BUCKET = LatencyHistogram.bucketOf(Long.MAX_VALUE);
+
+    @Test
+    public void smallValuesGetABucketEach() {
+        for (int nanos = 0; nanos < 8; nanos++) {
+            assertEquals(nanos, LatencyHistogram.bucketOf(nanos));
+            assertEquals(nanos, LatencyHistogram.upperBound(nanos));
+        }
+        assertEquals(8, LatencyHistogram.bucketOf(8));
+        assertEquals(15, LatencyHistogram.bucketOf(15));
+        assertEquals(16, LatencyHistogram.bucketOf(16));
+        assertEquals(16, LatencyHistogram.bucketOf(17)); // From 16 on, buckets are wider than 1 ns
+        assertEquals(17, LatencyHistogram.upperBound(16));
+    }
+
+    @Test
+    public void bucketsFollowEachOtherWithoutGaps() {
+        for (int bucket = 1; bucket <= LAST_BUCKET; bucket++) {
+            long lower = LatencyHistogram.upperBound(bucket - 1) + 1;
+            long upper = LatencyHistogram.upperBound(bucket);
+            assertEquals("lower bound of " + bucket, bucket, LatencyHistogram.bucketOf(lower));
+            assertEquals("upper bound of " + bucket, bucket, LatencyHistogram.bucketOf(upper));
+            if (lower >= 8) assertTrue("width of " + bucket, (upper - lower + 1) * 8 <= lower); // Within 12.5%
+        }
+    }
+
+    @Test
+    public void eachPowerOfTwoHasEightBuckets() {
+        for (int exponent = 3; exponent < 40; exponent++) {
+            long power = 1L << exponent;
+            assertEquals("2^" + exponent, 8, LatencyHistogram.bucketOf(power * 2) - LatencyHistogram.bucketOf(power));
+            assertEquals(LatencyHistogram.bucketOf(power * 2) - 1, LatencyHistogram.bucketOf(power * 2 - 1));
+        }
+    }
+
+    @Test
+    public void samplesBeyondTheRangeAreClamped() {
+        assertEquals(LAST_BUCKET, LatencyHistogram.bucketOf((1L << 41) - 1));
+        assertEquals(LAST_BUCKET, LatencyHistogram.bucketOf(1L << 41));
+        assertEquals((1L << 41) - 1, LatencyHistogram.upperBound(LAST_BUCKET));
+    }
+
+    @Test
+    public void percentilesAreBucketUpperBoundsCappedAtMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 1000; nanos++) histogram.record(nanos);
+        LatencyHistogram.Snapshot s = histogram.snapshot();
+        assertEquals(1000, s.count);
+        assertEquals(500, s.meanNanos);
+        assertEquals(1000, s.maxNanos);
+        assertEquals(511, s.p50Nanos); // 500 is in 480-511
+        assertEquals(959, s.p95Nanos); // 950 is in 896-959
+        assertEquals(1000, s.p99Nanos); // 990 is in 960-1023, above the largest sample
+    }
+
+    @Test
+    public void percentilesOfOneSlowSample() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) histogram.record(1_000_000);
+        histogram.record(250_000_000);
+        LatencyHistogram.Snapshot s = histogram.snapshot();
+        assertTrue(s.p50Nanos >= 1_000_000 && s.p50Nanos < 1_125_000);
+        assertEquals(s.p50Nanos, s.p99Nanos); // The 99th of 100 samples is still a fast one
+        assertEquals(250_000_000, s.maxNanos);
+    }
+
+    @Test
+    public void emptyAndResetHistogramsReportZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.snapshot().count);
+        assertEquals(0, histogram.snapshot().p99Nanos);
+        histogram.record(-5); // Treated as 0
+        assertEquals(1, histogram.snapshot().count);
+        assertEquals(0, histogram.snapshot().maxNanos);
+        histogram.record(123_456);
+        histogram.reset();
+        LatencyHistogram.Snapshot s = histogram.snapshot();
+        assertEquals(0, s.count);
+        assertEquals(0, s.meanNanos);
+        assertEquals(0, s.p50Nanos);
+        assertEquals(0, s.maxNanos);
+    }
+
+    @Test
+    public void recordsFromSeveralThreadsAreAllCounted() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long base = (t + 1) * 1000L;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 25_000; i++) histogram.record(base + i % 100);
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+        LatencyHistogram.Snapshot s = histogram.snapshot();
+        assertEquals(100_000, s.count);
+        assertEquals(4099, s.maxNanos);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.woodcalculator;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Checks MappedPriceTable's length lookup on a ragged table: lengths match over the whole table,
+ * and a missing price stays missing instead of borrowing another length's.
+ */
+public class MappedPriceTableTest {
+
+    private static final double NO_PRICE = Double.NaN;
+
+    // Two girth ranges over lengths 6, 8, 10 and 12 ft; the big girths have no 6 or 10 ft price
+    private static MappedPriceTable table() {
+        double[] prices = {
+                800, 820, 840, 860,
+                NO_PRICE, 1020, NO_PRICE, 1060,
+        };
+        return MappedPriceTable.fromGrid(new PriceGrid(new double[]{0, 36}, new double[]{36, 60},
+                new double[]{6, 8, 10, 12}, prices), 1, 1);
+    }
+
+    private static double priceAt(MappedPriceTable table, int row, double length) {
+        int cell = table.findClosestCell(row, length);
+        return cell < 0 ? NO_PRICE : table.cellPrice(cell);
+    }
+
+    @Test
+    public void closestLengthIsTakenOverTheWholeTable() {
+        MappedPriceTable table = table();
+        assertEquals(800, priceAt(table, 0, 6), 0);
+        assertEquals(800, priceAt(table, 0, 2.5), 0);
+        assertEquals(820, priceAt(table, 0, 7.5), 0);
+        assertEquals(840, priceAt(table, 0, 9), 0); // Ties go to the larger length
+        assertEquals(860, priceAt(table, 0, 40), 0);
+        assertEquals(1020, priceAt(table, 1, 8.9), 0);
+        assertEquals(1060, priceAt(table, 1, 11.5), 0);
+    }
+
+    @Test
+    public void missingPriceIsNotReplacedByANeighbour() {
+        MappedPriceTable table = table();
+        assertEquals(-1, table.findClosestCell(1, 6));
+        assertEquals(-1, table.findClosestCell(1, 4));
+        assertEquals(-1, table.findClosestCell(1, 10.4));
+        assertEquals(-1, table.findClosestCell(1, 9)); // 10 ft, by the tie rule
+        assertEquals(10, table.cellLength(table.findClosestCell(0, 10.4)), 0);
+    }
+}
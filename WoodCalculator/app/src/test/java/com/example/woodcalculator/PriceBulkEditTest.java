@@ -0,0 +1,115 @@
+package com.example.woodcalculator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Checks PriceBulkEdit: 1-decimal HALF_UP rounding, clamping at zero, which cells each operation
+ * leaves alone (empty cells, the source row or column), and rejection of bad input without
+ * touching the grid.
+ */
+public class PriceBulkEditTest {
+
+    private static final double NONE = Double.NaN;
+
+    // 3 girth ranges x 3 lengths, row-major
+    private static PriceGrid grid(double... prices) {
+        return new PriceGrid(new double[]{0, 10, 20}, new double[]{10, 20, 30}, new double[]{4, 5, 6}, prices);
+    }
+
+    private static void assertPrices(PriceGrid grid, double... expected) {
+        assertEquals(Arrays.toString(expected), Arrays.toString(grid.prices));
+    }
+
+    private static void assertRejected(PriceBulkEdit edit, PriceGrid grid, String message) {
+        double[] before = grid.prices.clone();
+        try {
+            edit.apply(grid);
+            fail("Expected: " + message);
+        } catch (IllegalArgumentException expected) {
+            assertEquals(message, expected.getMessage());
+        }
+        assertPrices(grid, before);
+    }
+
+    @Test
+    public void setFillsTheBlockAndRoundsHalfUp() {
+        PriceGrid grid = grid(100, 200, 300, NONE, 500, 600, 700, 800, 900);
+        PriceBulkEdit.Changes changes = new PriceBulkEdit(PriceBulkEdit.Operation.SET, 1, 0, 0, 1, 1234.25, -1).apply(grid);
+        assertPrices(grid, 1234.3, 1234.3, 300, 1234.3, 1234.3, 600, 700, 800, 900); // Empty cells are set too
+        assertEquals(4, changes.count);
+        assertEquals("[0, 0, 1, 1]", Arrays.toString(Arrays.copyOf(changes.rows, changes.count)));
+        assertEquals("[0, 1, 0, 1]", Arrays.toString(Arrays.copyOf(changes.cols, changes.count)));
+
+        // Cells already at the value are not reported
+        changes = new PriceBulkEdit(PriceBulkEdit.Operation.SET, 0, 2, 0, 2, 1234.3, -1).apply(grid);
+        assertEquals(5, changes.count);
+    }
+
+    @Test
+    public void percentAdjustmentRoundsHalfUpAndSkipsEmptyCells() {
+        PriceGrid grid = grid(100, 200.5, NONE, 333.3, 0.5, 1000, 10, 20, 30);
+        PriceBulkEdit.Changes changes = new PriceBulkEdit(PriceBulkEdit.Operation.ADJUST_PERCENT, 0, 1, 0, 2, 5, -1).apply(grid);
+        // 100 * 1.05 = 105, 200.5 -> 210.525 -> 210.5, 333.3 -> 349.965 -> 350.0, 0.5 -> 0.525 -> 0.5 (unchanged)
+        assertPrices(grid, 105, 210.5, NONE, 350, 0.5, 1050, 10, 20, 30);
+        assertEquals(4, changes.count);
+
+        new PriceBulkEdit(PriceBulkEdit.Operation.ADJUST_AMOUNT, 2, 2, 0, 2, 0.05, -1).apply(grid);
+        assertPrices(grid, 105, 210.5, NONE, 350, 0.5, 1050, 10.1, 20.1, 30.1);
+    }
+
+    @Test
+    public void pricesAreClampedAtZero() {
+        PriceGrid grid = grid(100, 200, 300, 400, 500, 600, 700, 800, 900);
+        new PriceBulkEdit(PriceBulkEdit.Operation.ADJUST_PERCENT, 0, 0, 0, 2, -150, -1).apply(grid);
+        new PriceBulkEdit(PriceBulkEdit.Operation.ADJUST_AMOUNT, 1, 1, 0, 2, -450, -1).apply(grid);
+        assertPrices(grid, 0, 0, 0, 0, 50, 150, 700, 800, 900);
+    }
+
+    @Test
+    public void fillsCopyTheFirstRowOrColumnButNotItsEmptyCells() {
+        PriceGrid grid = grid(100, NONE, 300, 400, 500, 600, 700, 800, 900);
+        new PriceBulkEdit(PriceBulkEdit.Operation.FILL_DOWN, 0, 2, 0, 2, 0, -1).apply(grid);
+        assertPrices(grid, 100, NONE, 300, 100, 500, 300, 100, 800, 300); // Column 1 kept: nothing to fill from
+
+        grid = grid(100, 200, 300, NONE, 500, 600, 700, 800, 900);
+        new PriceBulkEdit(PriceBulkEdit.Operation.FILL_ACROSS, 0, 2, 2, 0, 0, -1).apply(grid);
+        assertPrices(grid, 100, 100, 100, NONE, 500, 600, 700, 700, 700);
+    }
+
+    @Test
+    public void copyRowLeavesTheSourceAndEmptySourceCellsAlone() {
+        PriceGrid grid = grid(100, 200, 300, 400, NONE, 600, 700, 800, 900);
+        PriceBulkEdit.Changes changes = new PriceBulkEdit(PriceBulkEdit.Operation.COPY_ROW, 0, 2, 0, 2, 0, 1).apply(grid);
+        assertPrices(grid, 400, 200, 600, 400, NONE, 600, 400, 800, 600);
+        assertEquals(4, changes.count);
+    }
+
+    @Test
+    public void invalidEditsAreRejectedWithoutChangingTheGrid() {
+        PriceGrid grid = grid(100, 200, 300, 400, 500, 600, 700, 800, 900);
+        assertRejected(new PriceBulkEdit(PriceBulkEdit.Operation.SET, 0, 3, 0, 2, 1, -1), grid,
+                "Selected block is outside the price table.");
+        assertRejected(new PriceBulkEdit(PriceBulkEdit.Operation.COPY_ROW, 0, 2, 0, 2, 0, -1), grid,
+                "Select a girth row to copy from.");
+        assertRejected(new PriceBulkEdit(PriceBulkEdit.Operation.SET, 0, 2, 0, 2, -1, -1), grid,
+                "Price cannot be negative.");
+
+        // A 400 digit entry parses to Infinity
+        double huge = Double.parseDouble(new String(new char[400]).replace('\0', '9'));
+        assertTrue(Double.isInfinite(huge));
+        for (PriceBulkEdit.Operation operation : PriceBulkEdit.Operation.values()) {
+            assertRejected(new PriceBulkEdit(operation, 0, 2, 0, 2, huge, 0), grid, "Please enter a valid number.");
+            assertRejected(new PriceBulkEdit(operation, 0, 2, 0, 2, NONE, 0), grid, "Please enter a valid number.");
+        }
+
+        // Finite input whose result overflows (from the second cell on: 100 x 1e306 still fits)
+        assertRejected(new PriceBulkEdit(PriceBulkEdit.Operation.ADJUST_PERCENT, 0, 2, 0, 2, 1e308, -1), grid,
+                "New prices would be too large.");
+    }
+}
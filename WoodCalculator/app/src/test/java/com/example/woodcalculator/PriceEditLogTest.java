@@ -0,0 +1,179 @@
+package com.example.woodcalculator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+/**
+ * Crash recovery of PriceEditLog and its replay by PriceTableStore: a record cut short is
+ * ignored and overwritten, replay over the snapshot stops at the last complete edit, a log left
+ * from an older snapshot is discarded, and COMPACT_THRESHOLD edits fold the log into a new
+ * snapshot.
+ */
+public class PriceEditLogTest {
+
+    private File dir;
+    private File logFile;
+    private AppLog.Sink savedSink;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("price_edit_log").toFile();
+        logFile = new File(dir, PriceTableStore.EDIT_LOG_FILE_NAME);
+        savedSink = AppLog.sink;
+        AppLog.sink = (priority, tag, message, tr) -> { }; // No logcat on the JVM
+    }
+
+    @After
+    public void tearDown() {
+        AppLog.sink = savedSink;
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) file.delete();
+        }
+        dir.delete();
+    }
+
+    private static void append(PriceEditLog log, long generation, int row, int col, double price) throws IOException {
+        log.append(generation, new int[]{row}, new int[]{col}, new double[]{price}, 1);
+    }
+
+    private void truncate(long bytes) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(logFile, "rw")) {
+            raf.setLength(raf.length() - bytes);
+        }
+    }
+
+    @Test
+    public void editsReadBackInOrder() throws IOException {
+        PriceEditLog log = new PriceEditLog(logFile);
+        assertNull(log.read());
+        assertEquals(0, log.size());
+        log.append(7, new int[]{0, 3}, new int[]{1, 2}, new double[]{850, Double.NaN}, 2);
+        for (int i = 0; i < 40; i++) append(log, 7, i, i, 1000 + i); // Past the initial capacity
+
+        PriceEditLog.Edits edits = new PriceEditLog(logFile).read();
+        assertEquals(7, edits.baseGeneration);
+        assertEquals(42, edits.count);
+        assertEquals(42, log.size());
+        assertEquals(3, edits.rows[1]);
+        assertEquals(2, edits.cols[1]);
+        assertEquals(Double.NaN, edits.prices[1], 0);
+        assertEquals(1039, edits.prices[41], 0);
+        assertEquals(PriceEditLog.HEADER_SIZE + 42 * PriceEditLog.RECORD_SIZE, logFile.length());
+    }
+
+    @Test
+    public void recordCutShortIsIgnoredThenOverwritten() throws IOException {
+        PriceEditLog log = new PriceEditLog(logFile);
+        append(log, 1, 0, 0, 800);
+        append(log, 1, 1, 1, 900);
+        append(log, 1, 2, 2, 1000);
+        truncate(5); // The crash hit the third record's price
+
+        PriceEditLog.Edits edits = log.read();
+        assertEquals(2, edits.count);
+        assertEquals(900, edits.prices[1], 0);
+        assertEquals(2, log.size());
+
+        append(log, 1, 3, 3, 1100);
+        edits = log.read();
+        assertEquals(3, edits.count);
+        assertEquals(3, edits.rows[2]);
+        assertEquals(1100, edits.prices[2], 0);
+        assertEquals(PriceEditLog.HEADER_SIZE + 3 * PriceEditLog.RECORD_SIZE, logFile.length());
+    }
+
+    @Test
+    public void headerCutShortReadsAsNoLog() throws IOException {
+        PriceEditLog log = new PriceEditLog(logFile);
+        append(log, 1, 0, 0, 800);
+        truncate(PriceEditLog.RECORD_SIZE + 4);
+        assertNull(log.read());
+        assertEquals(0, log.size());
+        append(log, 1, 1, 1, 900); // Starts the log afresh
+        assertEquals(1, log.read().count);
+        assertEquals(900, log.read().prices[0], 0);
+    }
+
+    @Test
+    public void logOfAnotherGenerationIsStartedAfresh() throws IOException {
+        PriceEditLog log = new PriceEditLog(logFile);
+        append(log, 1, 0, 0, 800);
+        append(log, 1, 1, 1, 900);
+        append(log, 2, 2, 2, 1000);
+        PriceEditLog.Edits edits = log.read();
+        assertEquals(2, edits.baseGeneration);
+        assertEquals(1, edits.count);
+        assertEquals(1000, edits.prices[0], 0);
+    }
+
+    @Test
+    public void replayOverTheSnapshotStopsAtTheLastCompleteEdit() throws IOException {
+        PriceTableStore store = new PriceTableStore(dir);
+        PriceGrid grid = PriceGrids.sample(6, 4, 1.0, 29);
+        store.write(grid);
+        store.appendEdit(0, 0, 1234.5);
+        store.appendEdit(1, 2, Double.NaN);
+        store.appendEdit(5, 3, 2222);
+        truncate(1);
+
+        MappedPriceTable table = new PriceTableStore(dir).open();
+        PriceGrid expected = PriceGrids.sample(6, 4, 1.0, 29);
+        expected.setPrice(0, 0, 1234.5);
+        expected.setPrice(1, 2, Double.NaN);
+        assertEquals(expected, table.toGrid());
+        assertEquals(1, table.generation()); // Still the snapshot, with the edits replayed over it
+    }
+
+    @Test
+    public void logFromAnOlderSnapshotIsNotReplayed() throws IOException {
+        PriceTableStore store = new PriceTableStore(dir);
+        PriceGrid grid = PriceGrids.sample(6, 4, 1.0, 30);
+        store.write(grid);
+        PriceEditLog stale = new PriceEditLog(new File(dir, "stale.log"));
+        append(stale, 1, 0, 0, 1);
+        store.write(grid); // Generation 2; the log is cleared
+        assertTrue(new File(dir, "stale.log").renameTo(logFile)); // As if the clear had been lost
+        assertEquals(grid, new PriceTableStore(dir).open().toGrid());
+    }
+
+    @Test
+    public void compactionFoldsTheLogIntoANewSnapshot() throws Exception {
+        PriceTableStore store = new PriceTableStore(dir);
+        PriceGrid expected = PriceGrids.sample(8, 8, 1.0, 31);
+        store.write(expected);
+        for (int i = 0; i < PriceTableStore.COMPACT_THRESHOLD - 1; i++) {
+            store.appendEdit(i % 8, i / 8, 2000 + i);
+            expected.setPrice(i % 8, i / 8, 2000 + i);
+        }
+        assertEquals(PriceTableStore.COMPACT_THRESHOLD - 1, new PriceEditLog(logFile).size());
+        assertEquals(1, store.open().generation());
+
+        store.appendEdit(7, 7, 9999); // Reaches the threshold: compaction runs in the background
+        expected.setPrice(7, 7, 9999);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (logFile.exists() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        MappedPriceTable table = new PriceTableStore(dir).open();
+        assertEquals(0, new PriceEditLog(logFile).size());
+        assertEquals(2, table.generation());
+        assertEquals(expected, table.toGrid());
+
+        try (FileOutputStream out = new FileOutputStream(logFile)) {
+            out.write(new byte[3]); // Garbage where a log would be is ignored
+        }
+        assertEquals(expected, new PriceTableStore(dir).open().toGrid());
+    }
+}
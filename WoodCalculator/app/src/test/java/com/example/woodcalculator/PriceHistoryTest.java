@@ -0,0 +1,162 @@
+package com.example.woodcalculator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+/**
+ * Round trips through PriceHistory: versions appended by one instance are read back by a new one
+ * on the same file, with the girth priorities and gap policy they were recorded with; the latest
+ * id follows appends, a record cut short is dropped, and version 1 files are still read.
+ */
+public class PriceHistoryTest {
+
+    private File file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = File.createTempFile("price_history", ".bin");
+        new PriceHistory(file).delete(); // Start without a history
+    }
+
+    @After
+    public void deleteFile() {
+        new PriceHistory(file).delete();
+    }
+
+    private static PriceGrid grid(double firstPrice) {
+        double[] prices = new double[3 * 2];
+        for (int i = 0; i < prices.length; i++) prices[i] = firstPrice + i * 10;
+        return new PriceGrid(new double[]{24, 36, 48}, new double[]{35.99, 47.99, 59.99}, new double[]{6, 8}, prices);
+    }
+
+    @Test
+    public void appendedVersionsReadBackAfterReopening() throws IOException {
+        PriceHistory history = new PriceHistory(file);
+        assertEquals(0, history.latestVersionId());
+        assertEquals(1, history.appendBase(grid(800)));
+        assertEquals(2, history.appendDelta(new int[]{1}, new int[]{0}, new double[]{925}, 1));
+        assertEquals(3, history.appendDelta(new int[]{0, 2}, new int[]{1, 1}, new double[]{815, Double.NaN}, 2));
+        assertEquals(3, history.latestVersionId());
+
+        PriceHistory reopened = new PriceHistory(file);
+        assertEquals(3, reopened.latestVersionId());
+        PriceVersion second = reopened.read(2);
+        assertEquals(925, second.price(1, 0), 0);
+        assertEquals(810, second.price(0, 1), 0);
+        PriceVersion third = reopened.read(3);
+        assertEquals(815, third.price(0, 1), 0);
+        assertEquals(Double.NaN, third.price(2, 1), 0);
+        assertEquals(925, third.price(1, 0), 0);
+        assertNull(reopened.read(4));
+
+        assertEquals(4, reopened.appendBase(grid(900)));
+        assertEquals(4, history.latestVersionId()); // Appends through either instance are seen by both
+        List<PriceVersion> all = new PriceHistory(file).readAll();
+        assertEquals(4, all.size());
+        assertEquals(900, all.get(3).price(0, 0), 0);
+    }
+
+    @Test
+    public void partialRecordIsDroppedByTheNextAppend() throws IOException {
+        PriceHistory history = new PriceHistory(file);
+        history.appendBase(grid(800));
+        history.appendDelta(new int[]{0}, new int[]{0}, new double[]{805}, 1);
+        long complete = file.length();
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(new byte[]{2, 0, 0, 0, 0, 0, 0, 0, 3, 0, 0}); // A delta record header cut short
+        }
+        assertEquals(2, history.latestVersionId());
+        assertEquals(2, new PriceHistory(file).latestVersionId());
+
+        assertEquals(3, history.appendDelta(new int[]{2}, new int[]{1}, new double[]{999}, 1));
+        assertEquals(complete + 13 + 16, file.length());
+        PriceVersion third = new PriceHistory(file).read(3);
+        assertEquals(805, third.price(0, 0), 0);
+        assertEquals(999, third.price(2, 1), 0);
+    }
+
+    @Test
+    public void latestIdFollowsChangesMadeOutsideTheInstance() throws IOException {
+        PriceHistory history = new PriceHistory(file);
+        history.appendBase(grid(800));
+        history.appendDelta(new int[]{0}, new int[]{0}, new double[]{805}, 1);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 16); // The last delta lost its cell
+        }
+        assertEquals(1, history.latestVersionId());
+
+        history.delete();
+        assertEquals(0, history.latestVersionId());
+        assertEquals(1, history.appendBase(grid(700)));
+        assertEquals(700, history.read(1).price(0, 0), 0);
+    }
+
+    @Test
+    public void priorityOrGapPolicyAloneMakesADifferentVersion() throws IOException {
+        PriceHistory history = new PriceHistory(file);
+        PriceGrid first = grid(800);
+        history.appendBase(first);
+
+        PriceGrid promoted = new PriceGrid(first.girthStarts, first.girthEnds, new int[]{0, 2, 0}, first.lengths, first.prices);
+        history.appendBase(promoted);
+        PriceGrid gapped = new PriceGrid(first.girthStarts, first.girthEnds, new int[]{0, 2, 0}, first.lengths, first.prices);
+        gapped.setGapPolicy(GirthIndex.GapPolicy.NEXT_HIGHER);
+        history.appendBase(gapped);
+        history.appendDelta(new int[]{0}, new int[]{0}, new double[]{805}, 1);
+
+        List<PriceVersion> all = new PriceHistory(file).readAll();
+        assertEquals(first, all.get(0).toGrid());
+        assertEquals(promoted, all.get(1).toGrid());
+        assertEquals(gapped, all.get(2).toGrid());
+        assertNotEquals(all.get(0).toGrid(), all.get(1).toGrid());
+        assertNotEquals(all.get(1).toGrid(), all.get(2).toGrid());
+        assertEquals(2, all.get(1).girthPriority(1));
+        assertEquals(GirthIndex.GapPolicy.NO_PRICE, all.get(1).gapPolicy());
+        // A delta keeps the lookup of the version it derives from
+        assertEquals(2, all.get(3).girthPriority(1));
+        assertEquals(GirthIndex.GapPolicy.NEXT_HIGHER, all.get(3).gapPolicy());
+        assertEquals(805, all.get(3).price(0, 0), 0);
+    }
+
+    @Test
+    public void versionOneFilesAreStillReadAndAppendedTo() throws IOException {
+        PriceGrid old = grid(800);
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(0x57504853);
+            out.writeInt(1);
+            out.writeByte(1); // BASE_V1: no gap policy or priorities
+            out.writeLong(1);
+            out.writeInt(old.rows());
+            out.writeInt(old.cols());
+            for (double start : old.girthStarts) out.writeDouble(start);
+            for (double end : old.girthEnds) out.writeDouble(end);
+            for (double length : old.lengths) out.writeDouble(length);
+            for (double price : old.prices) out.writeDouble(price);
+        }
+        PriceHistory history = new PriceHistory(file);
+        assertEquals(1, history.latestVersionId());
+        assertEquals(old, history.read(1).toGrid());
+
+        PriceGrid gapped = grid(900);
+        gapped.setGapPolicy(GirthIndex.GapPolicy.NEXT_LOWER);
+        assertEquals(2, history.appendBase(gapped));
+        assertEquals(3, history.appendDelta(new int[]{1}, new int[]{1}, new double[]{950}, 1));
+        PriceHistory reopened = new PriceHistory(file);
+        assertEquals(3, reopened.latestVersionId());
+        assertEquals(old, reopened.read(1).toGrid());
+        assertEquals(GirthIndex.GapPolicy.NEXT_LOWER, reopened.read(3).gapPolicy());
+        assertEquals(950, reopened.read(3).price(1, 1), 0);
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.woodcalculator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Round-trip and validation checks for the compact price list format, and its size against the
+ * JSON export.
+ */
+public class PriceListBinaryCodecTest {
+
+    // Same shape as PriceTableActivity.PriceTableData, which is what exportPriceList writes
+    private static String toJson(Gson gson, PriceGrid grid) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("unitPrices", grid.toUnitPrices());
+        data.put("girthRanges", grid.toGirthRanges());
+        data.put("lengthValues", grid.toLengthValues());
+        return gson.toJson(data);
+    }
+
+    @Test
+    public void denseGrid_roundTripsLosslessly() throws IOException {
+        PriceGrid grid = PriceGrids.sample(20, 15, 1.0, 1);
+        assertEquals(grid, PriceListBinaryCodec.decode(PriceListBinaryCodec.encode(grid)));
+    }
+
+    @Test
+    public void sparseGrid_roundTripsLosslessly() throws IOException {
+        PriceGrid grid = PriceGrids.sample(40, 20, 0.05, 2);
+        assertEquals(grid, PriceListBinaryCodec.decode(PriceListBinaryCodec.encode(grid)));
+    }
+
+    @Test
+    public void nonTenthValues_fallBackToRawDoubles() throws IOException {
+        PriceGrid grid = PriceGrids.sample(5, 5, 1.0, 3);
+        grid.setPrice(2, 3, 1234.5678);
+        assertEquals(grid, PriceListBinaryCodec.decode(PriceListBinaryCodec.encode(grid)));
+    }
+
+    @Test
+    public void jsonAndBinary_describeTheSameTable() throws IOException {
+        PriceGrid grid = PriceGrids.sample(20, 15, 0.7, 4);
+        String json = toJson(new Gson(), grid);
+
+        PriceListReader.Result fromJson = new PriceListReader(new StringReader(json)).read();
+        PriceGrid viaJson = PriceGrid.fromTable(fromJson.girthRanges, fromJson.lengthValues, fromJson.unitPrices);
+        PriceGrid viaBinary = PriceListBinaryCodec.decode(PriceListBinaryCodec.encode(viaJson));
+
+        assertEquals(grid, viaJson);
+        assertEquals(fromJson.unitPrices, viaBinary.toUnitPrices());
+    }
+
+    @Test
+    public void corruptedFile_isRejected() {
+        byte[] data = PriceListBinaryCodec.encode(PriceGrids.sample(10, 10, 1.0, 5));
+        data[data.length / 2] ^= 0x10;
+        try {
+            PriceListBinaryCodec.decode(data);
+            fail("Expected checksum failure");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("checksum"));
+        }
+        try {
+            PriceListBinaryCodec.decode(Arrays.copyOf(data, 7));
+            fail("Expected truncated file to be rejected");
+        } catch (IOException expected) {
+            // expected
+        }
+    }
+
+    // Decoding must fail with a message containing expected
+    private static void assertRejected(byte[] data, String expected) {
+        try {
+            PriceListBinaryCodec.decode(data);
+            fail("Expected rejection: " + expected);
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(expected));
+        }
+    }
+
+    // A file holding only a header, with a valid checksum
+    private static byte[] header(int flags, int rows, int cols) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write('W');
+        out.write('P');
+        out.write('L');
+        out.write('B');
+        out.write(1);
+        out.write(flags);
+        for (int value : new int[]{rows, cols}) {
+            for (; (value & ~0x7F) != 0; value >>>= 7) out.write((value & 0x7F) | 0x80);
+            out.write(value);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(out.toByteArray(), 0, out.size());
+        long checksum = crc.getValue();
+        for (int shift = 24; shift >= 0; shift -= 8) out.write((int) (checksum >>> shift));
+        return out.toByteArray();
+    }
+
+    @Test
+    public void tablesTheJsonImportRejects_areRejected() {
+        PriceGrid negativePrice = PriceGrids.sample(4, 4, 1.0, 7);
+        negativePrice.setPrice(1, 2, -50);
+        assertRejected(PriceListBinaryCodec.encode(negativePrice), "Invalid unit price");
+
+        PriceGrid grid = PriceGrids.sample(4, 4, 1.0, 8);
+        double[] lengths = grid.lengths.clone();
+        lengths[2] = lengths[1];
+        assertRejected(PriceListBinaryCodec.encode(new PriceGrid(grid.girthStarts, grid.girthEnds, lengths, grid.prices)),
+                "ascending order");
+        lengths = grid.lengths.clone();
+        lengths[0] = 0;
+        assertRejected(PriceListBinaryCodec.encode(new PriceGrid(grid.girthStarts, grid.girthEnds, lengths, grid.prices)),
+                "must be positive");
+        lengths = grid.lengths.clone();
+        lengths[3] = PriceTableActivity.MAX_LENGTH_LIMIT + 1;
+        assertRejected(PriceListBinaryCodec.encode(new PriceGrid(grid.girthStarts, grid.girthEnds, lengths, grid.prices)),
+                "exceeds the limit");
+
+        double[] starts = {10, 20, 15, 30};
+        double[] ends = {20, 30, 25, 40};
+        assertRejected(PriceListBinaryCodec.encode(new PriceGrid(starts, ends, grid.lengths, grid.prices)), "unique and sorted");
+        starts = new double[]{10, 20, 30, 40};
+        ends = new double[]{20, 30, 30, 50};
+        assertRejected(PriceListBinaryCodec.encode(new PriceGrid(starts, ends, grid.lengths, grid.prices)), "Invalid girth range");
+        ends = new double[]{20, 30, 40, PriceTableActivity.MAX_GIRTH_LIMIT + 10};
+        assertRejected(PriceListBinaryCodec.encode(new PriceGrid(starts, ends, grid.lengths, grid.prices)), "exceeds the limit");
+
+        assertRejected(PriceListBinaryCodec.encode(new PriceGrid(new double[0], new double[0], grid.lengths, new double[0])),
+                "list is empty");
+    }
+
+    @Test
+    public void dimensionsBeyondTheFile_areRejectedBeforeAllocating() {
+        assertRejected(header(0, PriceListBinaryCodec.MAX_ROWS + 1, 10), "too large");
+        assertRejected(header(0, 10, PriceListBinaryCodec.MAX_COLS + 1), "too large");
+        assertRejected(header(0, Integer.MAX_VALUE, Integer.MAX_VALUE), "too large");
+        // Within the limits, but a dense table needs far more bytes than are there
+        assertRejected(header(0, PriceListBinaryCodec.MAX_ROWS, PriceListBinaryCodec.MAX_COLS), "truncated");
+        assertRejected(header(1, 200, 300), "truncated");
+    }
+
+    @Test
+    public void binary_isMuchSmallerThanJson() throws IOException {
+        Gson gson = new Gson();
+        int[][] shapes = {{20, 15}, {40, 18}};
+        for (int[] shape : shapes) {
+            PriceGrid grid = PriceGrids.sample(shape[0], shape[1], 1.0, 6);
+            byte[] json = toJson(gson, grid).getBytes(StandardCharsets.UTF_8);
+            byte[] binary = PriceListBinaryCodec.encode(grid);
+            assertTrue(binary.length + " bytes against " + json.length + " of JSON", binary.length * 5 < json.length);
+            assertEquals(grid, PriceListBinaryCodec.decode(binary));
+        }
+    }
+}
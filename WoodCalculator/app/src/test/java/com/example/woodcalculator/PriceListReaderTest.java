@@ -0,0 +1,188 @@
+package com.example.woodcalculator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.MalformedJsonException;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+/**
+ * Validation in the streaming price list import: each broken file is rejected at the bad token,
+ * with the JsonReader position in the message where there is one.
+ */
+public class PriceListReaderTest {
+
+    private static final String RANGES = "[{\"start\":0,\"end\":10},{\"start\":10,\"end\":20,\"priority\":2}]";
+    private static final String LENGTHS = "[4,5.5]";
+
+    private static String prices(String... cells) {
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < cells.length; i += 2) {
+            if (i > 0) json.append(',');
+            json.append('"').append(cells[i]).append("\":").append(cells[i + 1]);
+        }
+        return json.append('}').toString();
+    }
+
+    private static String file(String unitPrices, String girthRanges, String lengthValues) {
+        return "{\"unitPrices\":" + unitPrices + ",\"girthRanges\":" + girthRanges + ",\"lengthValues\":" + lengthValues + "}";
+    }
+
+    private static PriceListReader.Result read(String json) throws IOException {
+        return new PriceListReader(new StringReader(json)).read();
+    }
+
+    // Reads a file expected to fail validation and returns the message
+    private static String rejection(String json) throws IOException {
+        try {
+            read(json);
+        } catch (JsonParseException expected) {
+            return expected.getMessage();
+        }
+        fail("Expected the file to be rejected: " + json);
+        return null;
+    }
+
+    @Test
+    public void validFileIsReadInOrder() throws IOException {
+        String json = "{\"unitPrices\":" + prices(PriceGrid.priceKey(0, 10, 4), "850.5", PriceGrid.priceKey(10, 20, 5.5), "1200")
+                + ",\"newerField\":{\"a\":[1,2]},\"girthRanges\":" + RANGES + ",\"lengthValues\":" + LENGTHS
+                + ",\"girthGapPolicy\":\"NEXT_HIGHER\"}";
+        PriceListReader.Result result = read(json);
+        assertEquals(2, result.unitPrices.size());
+        assertEquals(850.5, result.unitPrices.get(PriceGrid.priceKey(0, 10, 4)), 0);
+        assertEquals(2, result.girthRanges.size());
+        assertEquals(2, result.girthRanges.get(1).getPriority());
+        assertEquals(Arrays.asList(4.0, 5.5), result.lengthValues);
+        assertEquals(GirthIndex.GapPolicy.NEXT_HIGHER, result.girthGapPolicy);
+    }
+
+    @Test
+    public void gapPolicyDefaultsAndUnknownPolicyIsRejected() throws IOException {
+        String json = file(prices(), RANGES, LENGTHS);
+        assertEquals(GirthIndex.GapPolicy.NO_PRICE, read(json).girthGapPolicy); // Files from older versions
+        for (GirthIndex.GapPolicy policy : GirthIndex.GapPolicy.values()) {
+            String withPolicy = json.substring(0, json.length() - 1) + ",\"girthGapPolicy\":\"" + policy.name() + "\"}";
+            assertEquals(policy, read(withPolicy).girthGapPolicy);
+        }
+        String message = rejection(json.substring(0, json.length() - 1) + ",\"girthGapPolicy\":\"no_price\"}");
+        assertTrue(message, message.startsWith("Unknown girth gap policy 'no_price'"));
+        assertTrue(message, message.contains("path $.girthGapPolicy"));
+    }
+
+    @Test
+    public void priceKeyWithoutAMatchingCellIsRejected() throws IOException {
+        String key = PriceGrid.priceKey(0, 10, 6); // No 6 ft length in the file
+        String message = rejection(file(prices(key, "900"), RANGES, LENGTHS));
+        assertEquals("Price cell '" + key + "' does not match any girth range and length in the file.", message);
+    }
+
+    @Test
+    public void duplicatePriceCellIsRejected() throws IOException {
+        String key = PriceGrid.priceKey(0, 10, 4);
+        String message = rejection(file(prices(key, "900", key, "950"), RANGES, LENGTHS));
+        assertTrue(message, message.startsWith("Duplicate price cell '" + key + "'"));
+        assertTrue(message, message.contains("at line 1 column"));
+        assertTrue(message, message.contains("path $.unitPrices."));
+    }
+
+    @Test
+    public void repeatedOrUnsortedGirthRangesAreRejectedWithTheirPosition() throws IOException {
+        String message = rejection(file(prices(), "[{\"start\":0,\"end\":10},{\"start\":0,\"end\":10}]", LENGTHS));
+        assertTrue(message, message.startsWith("Girth ranges must be unique and sorted. Found 0.0-10.0 after 0.0-10.0"));
+        assertTrue(message, message.contains("path $.girthRanges[1]"));
+
+        message = rejection(file(prices(), "[{\"start\":0,\"end\":10},{\"start\":5,\"end\":15},{\"start\":2,\"end\":30}]", LENGTHS));
+        assertTrue(message, message.startsWith("Girth ranges must be unique and sorted. Found 2.0-30.0 after 5.0-15.0"));
+        assertTrue(message, message.contains("path $.girthRanges[2]"));
+
+        // Overlapping ranges in order are allowed: priorities and the gap policy decide the match
+        assertEquals(3, read(file(prices(), "[{\"start\":0,\"end\":10},{\"start\":0,\"end\":12},{\"start\":5,\"end\":15}]",
+                LENGTHS)).girthRanges.size());
+    }
+
+    @Test
+    public void invalidGirthRangesAreRejected() throws IOException {
+        assertTrue(rejection(file(prices(), "[{\"start\":10,\"end\":10}]", LENGTHS)).startsWith("Invalid girth range 10.0-10.0"));
+        assertTrue(rejection(file(prices(), "[{\"start\":-1,\"end\":10}]", LENGTHS)).startsWith("Invalid girth range -1.0-10.0"));
+        assertTrue(rejection(file(prices(), "[{\"end\":10}]", LENGTHS)).startsWith("Girth range needs both 'start' and 'end'"));
+        assertTrue(rejection(file(prices(), "[]", LENGTHS)).startsWith("Girth ranges list is empty"));
+    }
+
+    @Test
+    public void valuesPastTheSizeLimitsAreRejected() throws IOException {
+        String limit = String.valueOf(PriceTableActivity.MAX_GIRTH_LIMIT);
+        assertEquals(1, read(file(prices(), "[{\"start\":0,\"end\":" + limit + "}]", LENGTHS)).girthRanges.size());
+        String message = rejection(file(prices(), "[{\"start\":0,\"end\":100.5}]", LENGTHS));
+        assertTrue(message, message.startsWith("Girth range end 100.5 exceeds the limit of 100.0 inches"));
+
+        assertEquals(1, read(file(prices(), RANGES, "[" + PriceTableActivity.MAX_LENGTH_LIMIT + "]")).lengthValues.size());
+        message = rejection(file(prices(), RANGES, "[4,40.5]"));
+        assertTrue(message, message.startsWith("Length 40.5 exceeds the limit of 40.0 feet"));
+        assertTrue(message, message.contains("path $.lengthValues["));
+    }
+
+    @Test
+    public void invalidLengthsAreRejected() throws IOException {
+        assertTrue(rejection(file(prices(), RANGES, "[0]")).startsWith("Length values must be positive. Found 0.0"));
+        assertTrue(rejection(file(prices(), RANGES, "[4,6,6]")).startsWith("Length values must be unique and in ascending order. Found 6.0 after 6.0"));
+        assertTrue(rejection(file(prices(), RANGES, "[6,4]")).startsWith("Length values must be unique and in ascending order. Found 4.0 after 6.0"));
+        assertTrue(rejection(file(prices(), RANGES, "[]")).startsWith("Length values list is empty"));
+    }
+
+    @Test
+    public void negativePriceIsRejected() throws IOException {
+        String key = PriceGrid.priceKey(10, 20, 4);
+        String message = rejection(file(prices(key, "-1"), RANGES, LENGTHS));
+        assertTrue(message, message.startsWith("Invalid unit price -1.0 for '" + key + "'"));
+    }
+
+    @Test
+    public void missingSectionsAreRejected() throws IOException {
+        assertEquals("Price list is missing 'unitPrices'.",
+                rejection("{\"girthRanges\":" + RANGES + ",\"lengthValues\":" + LENGTHS + "}"));
+        assertEquals("Price list is missing 'girthRanges'.", rejection("{\"unitPrices\":{},\"lengthValues\":" + LENGTHS + "}"));
+        assertEquals("Price list is missing 'lengthValues'.", rejection("{\"unitPrices\":{},\"girthRanges\":" + RANGES + "}"));
+    }
+
+    @Test
+    public void wrongTokensAreRejectedWithTheirPosition() throws IOException {
+        String message = rejection("[" + file(prices(), RANGES, LENGTHS) + "]");
+        assertTrue(message, message.contains("BEGIN_OBJECT"));
+        assertTrue(message, message.contains("path $"));
+
+        message = rejection(file("[]", RANGES, LENGTHS));
+        assertTrue(message, message.contains("path $.unitPrices"));
+
+        message = rejection(file(prices(), RANGES, "[4,\"five\"]"));
+        assertTrue(message, message.startsWith("Invalid number"));
+        assertTrue(message, message.contains("path $.lengthValues["));
+    }
+
+    @Test
+    public void nonFiniteNumbersAreMalformedJson() throws IOException {
+        String key = PriceGrid.priceKey(0, 10, 4);
+        String[] files = {
+                file(prices(key, "NaN"), RANGES, LENGTHS),
+                file(prices(key, "\"Infinity\""), RANGES, LENGTHS),
+                file(prices(key, "1e400"), RANGES, LENGTHS), // Parses to Infinity
+                file(prices(), "[{\"start\":0,\"end\":1e999}]", LENGTHS),
+        };
+        for (String json : files) {
+            try {
+                read(json);
+                fail("Expected non-finite number to be rejected: " + json);
+            } catch (MalformedJsonException expected) {
+                // An IOException, not a JsonParseException: JsonReader refuses the value itself
+                assertTrue(expected.getMessage(), expected.getMessage().contains("path $."));
+            }
+        }
+    }
+}
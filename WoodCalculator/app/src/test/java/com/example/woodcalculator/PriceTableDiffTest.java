@@ -0,0 +1,125 @@
+package com.example.woodcalculator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Checks PriceTableDiff, which decides whether an import (and PriceTableStore.recordVersion) can
+ * be applied as cell edits: price-only changes are listed cell by cell, while any change to the
+ * girth ranges, their priorities, the gap policy or the lengths counts as an axes change.
+ */
+public class PriceTableDiffTest {
+
+    private static PriceGrid copy(PriceGrid grid) {
+        PriceGrid copy = new PriceGrid(grid.girthStarts.clone(), grid.girthEnds.clone(), grid.girthPriorities.clone(),
+                grid.lengths.clone(), grid.prices.clone());
+        copy.setGapPolicy(grid.gapPolicy());
+        return copy;
+    }
+
+    @Test
+    public void identicalTablesHaveNoDifference() {
+        PriceGrid grid = PriceGrids.sample(10, 6, 0.7, 31);
+        PriceTableDiff diff = PriceTableDiff.compute(grid, copy(grid));
+        assertTrue(diff.isEmpty());
+        assertFalse(diff.axesChanged);
+        assertEquals(0, diff.added + diff.removed + diff.changed);
+    }
+
+    @Test
+    public void priceChangesAreListedInGridCoordinates() {
+        PriceGrid current = PriceGrids.sample(10, 6, 1.0, 32);
+        current.setPrice(0, 0, Double.NaN);
+        PriceGrid imported = copy(current);
+        imported.setPrice(0, 0, 1500); // Added
+        imported.setPrice(3, 2, Double.NaN); // Removed
+        imported.setPrice(9, 5, current.price(9, 5) + 0.1); // Changed
+
+        PriceTableDiff diff = PriceTableDiff.compute(current, imported);
+        assertFalse(diff.axesChanged);
+        assertEquals(3, diff.count);
+        assertEquals(1, diff.added);
+        assertEquals(1, diff.removed);
+        assertEquals(1, diff.changed);
+        assertEquals("[0, 3, 9]", Arrays.toString(Arrays.copyOf(diff.rows, diff.count)));
+        assertEquals("[0, 2, 5]", Arrays.toString(Arrays.copyOf(diff.cols, diff.count)));
+        assertEquals(1500, diff.prices[0], 0);
+        assertEquals(Double.NaN, diff.prices[1], 0);
+        assertEquals(current.price(9, 5) + 0.1, diff.prices[2], 0);
+
+        // Applying the edits gives the imported table
+        PriceGrid applied = copy(current);
+        for (int i = 0; i < diff.count; i++) applied.setPrice(diff.rows[i], diff.cols[i], diff.prices[i]);
+        assertEquals(imported, applied);
+    }
+
+    @Test
+    public void manyChangesGrowTheArrays() {
+        PriceGrid current = PriceGrids.sample(20, 10, 1.0, 33);
+        PriceGrid imported = copy(current);
+        for (int i = 0; i < imported.prices.length; i++) imported.prices[i] += 10;
+        PriceTableDiff diff = PriceTableDiff.compute(current, imported);
+        assertEquals(200, diff.count);
+        assertEquals(200, diff.changed);
+        assertTrue(diff.describe().contains("... and 188 more"));
+    }
+
+    @Test
+    public void axesChangesAreCountedAndMatchedByKey() {
+        PriceGrid current = PriceGrids.sample(4, 3, 1.0, 34);
+        double[] lengths = current.lengths.clone();
+        lengths[2] += 0.5; // One length moved
+        double[] prices = current.prices.clone();
+        prices[0] += 1; // And one price changed on a kept length
+        PriceGrid imported = new PriceGrid(current.girthStarts, current.girthEnds, lengths, prices);
+
+        PriceTableDiff diff = PriceTableDiff.compute(current, imported);
+        assertTrue(diff.axesChanged);
+        assertFalse(diff.isEmpty());
+        assertEquals(0, diff.count); // No cell edits: the table is replaced
+        assertEquals(1, diff.lengthsAdded);
+        assertEquals(1, diff.lengthsRemoved);
+        assertEquals(0, diff.girthRangesAdded + diff.girthRangesRemoved);
+        assertEquals(4, diff.added); // The moved length's cells, one per girth range
+        assertEquals(4, diff.removed);
+        assertEquals(1, diff.changed);
+
+        PriceGrid fewerRanges = new PriceGrid(Arrays.copyOf(current.girthStarts, 3), Arrays.copyOf(current.girthEnds, 3),
+                current.lengths, Arrays.copyOf(current.prices, 9));
+        diff = PriceTableDiff.compute(current, fewerRanges);
+        assertTrue(diff.axesChanged);
+        assertEquals(1, diff.girthRangesRemoved);
+        assertEquals(3, diff.removed);
+        assertEquals(0, diff.added + diff.changed);
+    }
+
+    @Test
+    public void priorityOnlyChangeIsAnAxesChange() {
+        PriceGrid current = PriceGrids.sample(5, 4, 1.0, 35);
+        PriceGrid imported = copy(current);
+        imported.girthPriorities[3] = 2;
+        PriceTableDiff diff = PriceTableDiff.compute(current, imported);
+        assertTrue(diff.axesChanged);
+        assertFalse(diff.isEmpty());
+        assertEquals(0, diff.count);
+        assertEquals(0, diff.girthRangesAdded + diff.girthRangesRemoved + diff.lengthsAdded + diff.lengthsRemoved);
+        assertEquals(0, diff.added + diff.removed + diff.changed);
+    }
+
+    @Test
+    public void gapPolicyOnlyChangeIsAnAxesChange() {
+        PriceGrid current = PriceGrids.sample(5, 4, 1.0, 36);
+        for (GirthIndex.GapPolicy policy : GirthIndex.GapPolicy.values()) {
+            PriceGrid imported = copy(current);
+            imported.setGapPolicy(policy);
+            PriceTableDiff diff = PriceTableDiff.compute(current, imported);
+            assertEquals(policy.name(), policy != current.gapPolicy(), diff.axesChanged);
+            assertEquals(0, diff.count);
+        }
+    }
+}
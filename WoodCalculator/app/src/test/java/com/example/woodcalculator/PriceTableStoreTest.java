@@ -0,0 +1,104 @@
+package com.example.woodcalculator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Price versions recorded by PriceTableStore: every save or edit that changes the table adds a
+ * version, the table carries its id, and readVersion/readHistory rebuild each version exactly,
+ * including the girth lookup (priorities and gap policy) it had.
+ */
+public class PriceTableStoreTest {
+
+    private File dir;
+    private PriceTableStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("price_table_store").toFile();
+        store = new PriceTableStore(dir);
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void savesAndEditsAreRecordedAsVersions() throws IOException {
+        PriceGrid first = PriceGrids.sample(6, 5, 0.8, 32);
+        store.write(first);
+        assertEquals(1, store.open().priceVersion());
+
+        PriceGrid repriced = store.readGrid();
+        repriced.setPrice(2, 3, 1111.5);
+        repriced.setPrice(4, 0, Double.NaN);
+        store.write(repriced);
+        assertEquals(2, store.open().priceVersion());
+
+        store.write(store.readGrid()); // Nothing changed, so no new version
+        assertEquals(2, store.open().priceVersion());
+
+        store.appendEdit(0, 0, 999.9);
+        assertEquals(3, store.open().priceVersion());
+
+        List<PriceVersion> history = store.readHistory();
+        assertEquals(3, history.size());
+        assertEquals(first, history.get(0).toGrid());
+        assertEquals(repriced, history.get(1).toGrid());
+        assertEquals(store.readGrid(), history.get(2).toGrid());
+    }
+
+    @Test
+    public void pinnedVersionRebuildsTheTableAsItWas() throws IOException {
+        PriceGrid first = PriceGrids.sample(6, 5, 1.0, 33);
+        store.write(first);
+        long pinned = store.open().priceVersion(); // As a bill records it
+
+        store.appendEdit(1, 1, 2000);
+        PriceGrid wider = PriceGrids.sample(8, 5, 1.0, 34); // New axes: a whole table
+        store.write(wider);
+
+        assertEquals(first, store.readVersion(pinned).toGrid());
+        assertEquals(2000, store.readVersion(pinned + 1).price(1, 1), 0);
+        assertEquals(wider, store.readVersion(store.open().priceVersion()).toGrid());
+        assertNull(store.readVersion(store.open().priceVersion() + 1));
+        assertNull(store.readVersion(0)); // Entries priced by hand
+    }
+
+    @Test
+    public void priorityOrGapPolicyChangeIsADistinctVersion() throws IOException {
+        PriceGrid first = PriceGrids.sample(4, 3, 1.0, 35);
+        store.write(first);
+
+        PriceGrid promoted = store.readGrid();
+        promoted.girthPriorities[2] = 1;
+        store.write(promoted);
+        PriceGrid gapped = store.readGrid();
+        gapped.setGapPolicy(GirthIndex.GapPolicy.NEXT_LOWER);
+        store.write(gapped);
+
+        List<PriceVersion> history = store.readHistory();
+        assertEquals(3, history.size());
+        assertEquals(first, history.get(0).toGrid());
+        assertEquals(promoted, history.get(1).toGrid());
+        assertEquals(gapped, history.get(2).toGrid());
+        assertNotEquals(history.get(0).toGrid(), history.get(1).toGrid());
+        assertEquals(1, history.get(1).girthPriority(2));
+        assertEquals(GirthIndex.GapPolicy.NEXT_LOWER, store.readVersion(3).gapPolicy());
+    }
+}
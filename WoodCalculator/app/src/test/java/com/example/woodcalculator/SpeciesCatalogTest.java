@@ -0,0 +1,147 @@
+package com.example.woodcalculator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import android.content.SharedPreferences;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Checks SpeciesCatalog's ids (never reused after a removal, also for catalogs saved before the
+ * id counter), names, and what survives reloading from the preferences.
+ */
+public class SpeciesCatalogTest {
+
+    // SharedPreferences backed by a map; apply() takes effect at once
+    private static final class MemoryPreferences implements SharedPreferences {
+        final Map<String, Object> values = new HashMap<>();
+
+        @Override public Map<String, ?> getAll() { return new HashMap<>(values); }
+        @Override public String getString(String key, String defValue) { return values.containsKey(key) ? (String) values.get(key) : defValue; }
+        @SuppressWarnings("unchecked")
+        @Override public Set<String> getStringSet(String key, Set<String> defValues) { return values.containsKey(key) ? (Set<String>) values.get(key) : defValues; }
+        @Override public int getInt(String key, int defValue) { return values.containsKey(key) ? (Integer) values.get(key) : defValue; }
+        @Override public long getLong(String key, long defValue) { return values.containsKey(key) ? (Long) values.get(key) : defValue; }
+        @Override public float getFloat(String key, float defValue) { return values.containsKey(key) ? (Float) values.get(key) : defValue; }
+        @Override public boolean getBoolean(String key, boolean defValue) { return values.containsKey(key) ? (Boolean) values.get(key) : defValue; }
+        @Override public boolean contains(String key) { return values.containsKey(key); }
+        @Override public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) { }
+        @Override public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) { }
+
+        @Override
+        public Editor edit() {
+            Map<String, Object> changes = new HashMap<>();
+            return new Editor() {
+                @Override public Editor putString(String key, String value) { changes.put(key, value); return this; }
+                @Override public Editor putStringSet(String key, Set<String> values) { changes.put(key, values); return this; }
+                @Override public Editor putInt(String key, int value) { changes.put(key, value); return this; }
+                @Override public Editor putLong(String key, long value) { changes.put(key, value); return this; }
+                @Override public Editor putFloat(String key, float value) { changes.put(key, value); return this; }
+                @Override public Editor putBoolean(String key, boolean value) { changes.put(key, value); return this; }
+                @Override public Editor remove(String key) { changes.put(key, null); return this; }
+                @Override public Editor clear() { values.clear(); return this; }
+                @Override public boolean commit() { apply(); return true; }
+
+                @Override
+                public void apply() {
+                    for (Map.Entry<String, Object> change : changes.entrySet()) {
+                        if (change.getValue() == null) values.remove(change.getKey());
+                        else values.put(change.getKey(), change.getValue());
+                    }
+                }
+            };
+        }
+    }
+
+    private MemoryPreferences prefs;
+
+    @Before
+    public void setUp() {
+        prefs = new MemoryPreferences();
+    }
+
+    @Test
+    public void newCatalogHasOnlyTheDefaultSpecies() {
+        SpeciesCatalog catalog = new SpeciesCatalog(prefs);
+        assertEquals(1, catalog.size());
+        assertEquals(PriceTableStore.DEFAULT_SPECIES, catalog.all().get(0).getId());
+        assertEquals(SpeciesCatalog.DEFAULT_NAME, catalog.nameOf(PriceTableStore.DEFAULT_SPECIES));
+        assertEquals(PriceTableStore.DEFAULT_SPECIES, catalog.selectedId());
+    }
+
+    @Test
+    public void removedIdsAreNotReused() {
+        SpeciesCatalog catalog = new SpeciesCatalog(prefs);
+        assertEquals(1, catalog.add("Teak").getId());
+        assertEquals(2, catalog.add("Sal").getId());
+        catalog.remove(2);
+        assertEquals(3, catalog.add("Sheesham").getId());
+        catalog.remove(3);
+        catalog.remove(1);
+        assertEquals(4, catalog.add("Teak").getId()); // The name is free again, the id is not
+        assertEquals(5, new SpeciesCatalog(prefs).add("Mango").getId());
+    }
+
+    @Test
+    public void catalogsSavedBeforeTheCounterContinueAfterTheirLargestId() {
+        prefs.values.put("priceSpecies", "[{\"id\":0,\"name\":\"Default\"},{\"id\":1,\"name\":\"Teak\"},{\"id\":2,\"name\":\"Sal\"}]");
+        SpeciesCatalog catalog = new SpeciesCatalog(prefs);
+        assertEquals(3, catalog.size());
+        catalog.remove(2); // Before anything was added under the counter
+        assertEquals(3, new SpeciesCatalog(prefs).add("Sheesham").getId());
+    }
+
+    @Test
+    public void changesSurviveReloading() {
+        SpeciesCatalog catalog = new SpeciesCatalog(prefs);
+        int teak = catalog.add("Teak").getId();
+        int sal = catalog.add("Sal").getId();
+        catalog.rename(teak, "  Burma Teak ");
+        catalog.setSelectedId(sal);
+
+        SpeciesCatalog reloaded = new SpeciesCatalog(prefs);
+        assertEquals(3, reloaded.size());
+        assertEquals("Burma Teak", reloaded.nameOf(teak));
+        assertEquals(2, reloaded.indexOf(sal));
+        assertEquals(sal, reloaded.selectedId());
+
+        reloaded.remove(sal);
+        assertEquals(PriceTableStore.DEFAULT_SPECIES, new SpeciesCatalog(prefs).selectedId()); // Falls back
+    }
+
+    @Test
+    public void namesMustBeNonEmptyAndUnique() {
+        SpeciesCatalog catalog = new SpeciesCatalog(prefs);
+        int teak = catalog.add("Teak").getId();
+        String[] invalid = {"", "   ", null, "teak", " TEAK ", "default"};
+        for (String name : invalid) {
+            try {
+                catalog.add(name);
+                fail("'" + name + "'");
+            } catch (IllegalArgumentException expected) {
+                // Rejected
+            }
+        }
+        catalog.rename(teak, "TEAK"); // Its own name in another case
+        assertEquals("TEAK", catalog.nameOf(teak));
+        assertEquals(2, catalog.size());
+    }
+
+    @Test
+    public void defaultSpeciesCannotBeRemoved() {
+        SpeciesCatalog catalog = new SpeciesCatalog(prefs);
+        try {
+            catalog.remove(PriceTableStore.DEFAULT_SPECIES);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // Rejected
+        }
+        assertEquals(1, catalog.size());
+    }
+}
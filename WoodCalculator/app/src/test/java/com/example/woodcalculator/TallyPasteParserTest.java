@@ -0,0 +1,87 @@
+package com.example.woodcalculator;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Checks TallyPasteParser on the separators tallies are written with, on lines it must reject,
+ * and that pasted numbers round and validate as typed entries do.
+ */
+public class TallyPasteParserTest {
+
+    private static void assertPair(TallyPasteParser.Result result, int index, long girth, long length) {
+        assertEquals("line " + result.lineNumbers[index], TallyPasteParser.OK, result.errors[index]);
+        assertEquals(girth, result.girths[index]);
+        assertEquals(length, result.lengths[index]);
+    }
+
+    private static int errorOf(String line) {
+        TallyPasteParser.Result result = TallyPasteParser.parse(line);
+        assertEquals(line, 1, result.count);
+        return result.errors[0];
+    }
+
+    @Test
+    public void everySeparatorGivesTheSamePair() {
+        String[] lines = {"32 x 12", "32,12", "32 12", "32*12", "32\" 12'", "32×12", "32X12", "32;12", "32″ 12′",
+                "\t32  ,  12 ", "1) 32 x 12", "14: 32 12"};
+        for (String line : lines) {
+            TallyPasteParser.Result result = TallyPasteParser.parse(line);
+            assertEquals(line, 1, result.valid);
+            assertPair(result, 0, 3200, 1200);
+        }
+    }
+
+    @Test
+    public void linesKeepTheirNumbersAndPositions() {
+        String text = "24.5 x 10\r\n\n  \n36 x 12.25\rabc\n40 x";
+        TallyPasteParser.Result result = TallyPasteParser.parse(text);
+        assertEquals(4, result.count); // Blank lines are skipped
+        assertEquals(2, result.valid);
+        assertPair(result, 0, 2450, 1000);
+        assertPair(result, 1, 3600, 1225);
+        assertEquals(1, result.lineNumbers[0]);
+        assertEquals(4, result.lineNumbers[1]);
+        assertEquals(5, result.lineNumbers[2]);
+        assertEquals(6, result.lineNumbers[3]);
+        assertEquals("36 x 12.25", text.substring(result.lineStarts[1], result.lineEnds[1]));
+        assertEquals(TallyPasteParser.ERROR_NOT_A_NUMBER, result.errors[2]);
+        assertEquals(TallyPasteParser.ERROR_NOT_A_PAIR, result.errors[3]);
+    }
+
+    @Test
+    public void badLinesAreRejected() {
+        assertEquals(TallyPasteParser.ERROR_NOT_A_PAIR, errorOf("32"));
+        assertEquals(TallyPasteParser.ERROR_NOT_A_PAIR, errorOf("32 x 12 x 4"));
+        assertEquals(TallyPasteParser.ERROR_NOT_A_NUMBER, errorOf("32a 12"));
+        assertEquals(TallyPasteParser.ERROR_NOT_A_NUMBER, errorOf("girth 32 length 12"));
+        assertEquals(TallyPasteParser.ERROR_NOT_A_NUMBER, errorOf("32 -12"));
+        assertEquals(TallyPasteParser.ERROR_NOT_A_NUMBER, errorOf("3.2.1 12"));
+        assertEquals(TallyPasteParser.ERROR_NOT_A_NUMBER, errorOf(". 12"));
+        assertEquals(TallyPasteParser.ERROR_NOT_POSITIVE, errorOf("0 x 12"));
+        assertEquals(TallyPasteParser.ERROR_TOO_LARGE, errorOf("10000.01 x 12"));
+        assertEquals(TallyPasteParser.OK, errorOf("10000 x 12"));
+    }
+
+    @Test
+    public void numbersRoundAsTypedEntriesDo() {
+        TallyPasteParser.Result result = TallyPasteParser.parse("24.005 x 12.004\n24.0049 x 0.995");
+        assertPair(result, 0, 2401, 1200);
+        assertPair(result, 1, 2400, 100);
+        // Below half a hundredth rounds to 0, which the entry fields reject too (after setScale(2))
+        assertEquals(TallyPasteParser.ERROR_NOT_POSITIVE, errorOf("0.004 x 12"));
+        assertEquals(TallyPasteParser.ERROR_NOT_POSITIVE, errorOf("32 x 0.004"));
+        assertEquals(TallyPasteParser.OK, errorOf("0.005 x 12"));
+    }
+
+    @Test
+    public void manyLinesGrowTheResult() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 1; i <= 1000; i++) text.append(i).append(") ").append(20 + i % 50).append(" x ").append(6 + i % 20).append('\n');
+        TallyPasteParser.Result result = TallyPasteParser.parse(text);
+        assertEquals(1000, result.count);
+        assertEquals(1000, result.valid);
+        assertPair(result, 999, (20 + 1000 % 50) * 100, (6 + 1000 % 20) * 100);
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.woodcalculator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks every volume formula against a BigDecimal reference, and that bills are re-priced when
+ * their formula changes. VolumeFormulaHarness (androidTest) times the formulas.
+ */
+public class VolumeFormulaTest {
+
+    private static final BigDecimal PI = new BigDecimal("3.14159265358979323846264338327950288419716939937510");
+    private static final MathContext PRECISION = new MathContext(50);
+
+    // Girth/length pairs in hundredths: every girth up to 100 in with a spread of lengths, plus
+    // random pairs over the whole accepted range
+    private static long[][] samples() {
+        Random random = new Random(36);
+        int grid = 10_000 * 4;
+        int extra = 100_000;
+        long[][] samples = new long[grid + extra][];
+        int i = 0;
+        for (long girth = 1; girth <= 10_000; girth++) {
+            for (int k = 0; k < 4; k++) {
+                samples[i++] = new long[]{girth, 1 + random.nextInt(4_000)};
+            }
+        }
+        while (i < samples.length) {
+            long bound = random.nextBoolean() ? 20_000 : VolumeFormulas.MAX_HUNDREDTHS;
+            samples[i++] = new long[]{(long) (random.nextDouble() * bound), (long) (random.nextDouble() * bound)};
+        }
+        return samples;
+    }
+
+    private static BigDecimal girthSquaredTimesLength(long girthHundredths, long lengthHundredths, long allowanceHundredths) {
+        BigDecimal girth = BigDecimal.valueOf(Math.max(0, girthHundredths - allowanceHundredths), 2);
+        return girth.multiply(girth).multiply(BigDecimal.valueOf(lengthHundredths, 2));
+    }
+
+    // What MainActivity computed before formulas were pluggable
+    private static long quarterGirthReference(long girth, long length, long allowance) {
+        return girthSquaredTimesLength(girth, length, allowance)
+                .divide(new BigDecimal("2304"), 6, RoundingMode.HALF_UP)
+                .setScale(1, RoundingMode.HALF_UP)
+                .unscaledValue().longValueExact();
+    }
+
+    private static BigDecimal trueGirthExact(long girth, long length) {
+        return girthSquaredTimesLength(girth, length, 0).divide(new BigDecimal(576).multiply(PI), PRECISION);
+    }
+
+    private static long cubicMetresReference(long girth, long length) {
+        return girthSquaredTimesLength(girth, length, 0)
+                .multiply(new BigDecimal("0.3048").pow(3))
+                .divide(new BigDecimal("2304"), 3, RoundingMode.HALF_UP)
+                .unscaledValue().longValueExact();
+    }
+
+    @Test
+    public void quarterGirth_matchesBigDecimalReference() {
+        VolumeFormula formula = VolumeFormulas.byId("quarter_girth");
+        for (long[] s : samples()) {
+            assertEquals("G=" + s[0] + " L=" + s[1], quarterGirthReference(s[0], s[1], 0), formula.volume(s[0], s[1]));
+        }
+    }
+
+    @Test
+    public void girthAllowance_matchesBigDecimalReference() {
+        VolumeFormula less1 = VolumeFormulas.byId("quarter_girth_less_1in");
+        VolumeFormula less2 = VolumeFormulas.byId("quarter_girth_less_2in");
+        for (long[] s : samples()) {
+            assertEquals("G=" + s[0] + " L=" + s[1], quarterGirthReference(s[0], s[1], 100), less1.volume(s[0], s[1]));
+            assertEquals("G=" + s[0] + " L=" + s[1], quarterGirthReference(s[0], s[1], 200), less2.volume(s[0], s[1]));
+        }
+    }
+
+    @Test
+    public void trueGirth_matchesBigDecimalReference() {
+        VolumeFormula formula = VolumeFormulas.byId("true_girth");
+        BigDecimal tieTolerance = new BigDecimal("1E-9");
+        int compared = 0;
+        for (long[] s : samples()) {
+            BigDecimal exact = trueGirthExact(s[0], s[1]);
+            // The double constant cannot settle an (irrational) value this close to .x5; skip those
+            BigDecimal tenths = exact.movePointRight(1);
+            BigDecimal fromBoundary = tenths.subtract(tenths.setScale(0, RoundingMode.FLOOR)).subtract(new BigDecimal("0.5")).abs();
+            if (fromBoundary.compareTo(tieTolerance) < 0) continue;
+            assertEquals("G=" + s[0] + " L=" + s[1], exact.setScale(1, RoundingMode.HALF_UP).unscaledValue().longValueExact(),
+                    formula.volume(s[0], s[1]));
+            compared++;
+        }
+        assertTrue(compared > 100_000);
+    }
+
+    @Test
+    public void cubicMetres_matchesBigDecimalReference() {
+        VolumeFormula formula = VolumeFormulas.byId("quarter_girth_m3");
+        for (long[] s : samples()) {
+            assertEquals("G=" + s[0] + " L=" + s[1], cubicMetresReference(s[0], s[1]), formula.volume(s[0], s[1]));
+        }
+    }
+
+    @Test
+    public void extremeInputs_doNotOverflow() {
+        long max = VolumeFormulas.MAX_HUNDREDTHS;
+        assertEquals(quarterGirthReference(max, max, 0), VolumeFormulas.byId("quarter_girth").volume(max, max));
+        assertEquals(cubicMetresReference(max, max), VolumeFormulas.byId("quarter_girth_m3").volume(max, max));
+        assertEquals(trueGirthExact(max, max).setScale(1, RoundingMode.HALF_UP).unscaledValue().longValueExact(),
+                VolumeFormulas.byId("true_girth").volume(max, max));
+    }
+
+    @Test
+    public void unknownId_fallsBackToQuarterGirth() {
+        assertSame(VolumeFormulas.DEFAULT, VolumeFormulas.byId(null));
+        assertSame(VolumeFormulas.DEFAULT, VolumeFormulas.byId("no_such_formula"));
+    }
+
+    // What a bill's grand total adds up
+    private static BigDecimal total(List<MainActivity.LogEntry> entries) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (MainActivity.LogEntry entry : entries) total = total.add(BigDecimal.valueOf(entry.getLogTotal()));
+        return total;
+    }
+
+    @Test
+    public void formulaSwitch_repricesInTheNewUnit() {
+        VolumeFormula cft = VolumeFormulas.DEFAULT;
+        VolumeFormula m3 = VolumeFormulas.byId("quarter_girth_m3");
+        Random random = new Random(36);
+        List<MainActivity.LogEntry> entries = new ArrayList<>();
+        BigDecimal roundingBound = BigDecimal.ZERO;
+        for (int i = 0; i < 200; i++) {
+            long girth = 2_400 + random.nextInt(14_000);
+            long length = 600 + random.nextInt(2_500);
+            double tablePrice = 800 + 50 * random.nextInt(20); // Per cft, as price tables are
+            BigDecimal volume = BigDecimal.valueOf(cft.volume(girth, length), cft.scale());
+            BigDecimal price = VolumeFormulas.unitPrice(tablePrice, cft);
+            entries.add(new MainActivity.LogEntry(girth / 100.0, length / 100.0, volume.doubleValue(), price.doubleValue(),
+                    volume.multiply(price).setScale(2, RoundingMode.HALF_UP).doubleValue()));
+            // Half a rounding step of each volume, in cft, priced, plus a paisa of each price and total
+            roundingBound = roundingBound.add(BigDecimal.valueOf(tablePrice * (0.05 + 0.0005 * m3.cubicFeetPerUnit()) + 0.5));
+        }
+        BigDecimal inCubicFeet = total(entries);
+
+        for (MainActivity.LogEntry entry : entries) entry.applyFormula(cft, m3);
+        BigDecimal inCubicMetres = total(entries);
+        assertTrue(inCubicFeet + " became " + inCubicMetres,
+                inCubicMetres.subtract(inCubicFeet).abs().compareTo(roundingBound) <= 0);
+        MainActivity.LogEntry first = entries.get(0);
+        assertEquals(first.getLogTotal(), BigDecimal.valueOf(first.getVolume()).multiply(BigDecimal.valueOf(first.getUnitPrice()))
+                .setScale(2, RoundingMode.HALF_UP).doubleValue(), 0);
+
+        // And back, to the same prices and totals
+        for (MainActivity.LogEntry entry : entries) entry.applyFormula(m3, cft);
+        assertEquals(inCubicFeet, total(entries));
+    }
+
+    @Test
+    public void tablePrices_arePerCubicFoot() {
+        VolumeFormula m3 = VolumeFormulas.byId("quarter_girth_m3");
+        assertEquals(new BigDecimal("1250.00"), VolumeFormulas.unitPrice(1250, VolumeFormulas.DEFAULT));
+        assertEquals(new BigDecimal("1250.00"), VolumeFormulas.unitPrice(1250, VolumeFormulas.byId("true_girth")));
+        assertEquals(new BigDecimal("44143.33"), VolumeFormulas.unitPrice(1250, m3)); // 1250 / 0.3048³
+        assertEquals(new BigDecimal("1250.00"), VolumeFormulas.convertUnitPrice(44143.33, m3, VolumeFormulas.DEFAULT));
+        assertEquals(new BigDecimal("975.50"), VolumeFormulas.convertUnitPrice(975.5, VolumeFormulas.DEFAULT, VolumeFormulas.byId("true_girth")));
+    }
+}